@@ -0,0 +1,77 @@
+package com.davidmiguel.engine_3d.engine;
+
+import com.davidmiguel.engine_3d.meshes.Mesh;
+import com.davidmiguel.engine_3d.utils.BenchmarkMeshes;
+import com.davidmiguel.engine_3d.utils.MathUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Vector3d;
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the vertex stage: transformation of single coordinates and projection of whole meshes.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectionBenchmark {
+
+    private static final double WIDTH = 900;
+    private static final double HEIGHT = 550;
+
+    @Param({"Cube", "Torus", "Suzanne"})
+    private String mesh;
+
+    private Mesh projected;
+    private VertexCache cache;
+    private Matrix4d transformMatrix;
+    private Matrix4d worldMatrix;
+    private Vector3d light;
+    private Vector3d coordinates;
+    private double[] result;
+
+    @Setup
+    public void setup() {
+        projected = BenchmarkMeshes.parse(new ByteArrayInputStream(BenchmarkMeshes.readJSON(mesh)))[0];
+        cache = new VertexCache();
+        // Same matrices the engine uses for a camera at (0, 0, 10) looking at the origin
+        worldMatrix = MathUtils.rotationYawPitchRoll(0.4, 0.3, 0);
+        Matrix4d view = MathUtils.lookAtLH(new Vector3d(0, 0, 10), new Vector3d(), MathUtils.UP);
+        Matrix4d projection = MathUtils.perspectiveFovLH(0.78, WIDTH / HEIGHT, 0.01, 100.0);
+        transformMatrix = new Matrix4d(worldMatrix);
+        transformMatrix.mul(view);
+        transformMatrix.mul(projection);
+        light = new Vector3d(0, 10, 10);
+        coordinates = new Vector3d(0.3, -0.7, 0.5);
+        result = new double[3];
+    }
+
+    @Benchmark
+    public Vector3d transformCoordinates() {
+        return MathUtils.transformCoordinates(coordinates, transformMatrix);
+    }
+
+    @Benchmark
+    public double[] transformCoordinatesInPlace() {
+        MathUtils.transformCoordinates(coordinates.x, coordinates.y, coordinates.z, transformMatrix, result, 0);
+        return result;
+    }
+
+    /**
+     * Project every vertex of the mesh (clip space, screen, world coordinates, normals and light).
+     */
+    @Benchmark
+    public void projectMesh(Blackhole blackhole) {
+        cache.transform(projected, transformMatrix, worldMatrix, WIDTH, HEIGHT, light, false);
+        blackhole.consume(cache.getX(0));
+    }
+}
@@ -0,0 +1,65 @@
+package com.davidmiguel.engine_3d.meshes;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the texture lookups, reading the texture coordinates of a whole row of pixels.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextureBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    @Param({"256", "1024"})
+    private int side;
+
+    private Texture texture;
+    private double[] us;
+    private double[] vs;
+
+    @Setup
+    public void setup() {
+        int[] texels = new int[side * side];
+        for (int i = 0; i < texels.length; i++) {
+            texels[i] = 0xFF000000 | (i * 0x9E3779B1) >>> 8;
+        }
+        texture = new Texture(texels, side, side);
+        // Coordinates along a diagonal that wraps around the texture a few times
+        us = new double[SAMPLES];
+        vs = new double[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            us[i] = 3.0 * i / SAMPLES;
+            vs[i] = 0.2 + 1.7 * i / SAMPLES;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public int map() {
+        int sum = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            sum += texture.map(us[i], vs[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public int sampleBilinear() {
+        int sum = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            sum += texture.sample(us[i], vs[i], 0, Texture.Filter.BILINEAR);
+        }
+        return sum;
+    }
+}
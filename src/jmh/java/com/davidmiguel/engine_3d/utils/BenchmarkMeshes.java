@@ -0,0 +1,50 @@
+package com.davidmiguel.engine_3d.utils;
+
+import com.davidmiguel.engine_3d.meshes.Mesh;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Access to the bundled meshes for the benchmarks, without decoding their textures
+ * (that would need the JavaFX toolkit).
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+public class BenchmarkMeshes {
+
+    /**
+     * Names of the bundled meshes (in /meshes).
+     */
+    public static final String[] NAMES = {"Cube", "UVSphere", "ICOSphere", "Cylinder", "Cone", "Torus", "Suzanne"};
+
+    /**
+     * Read the content of a bundled mesh file.
+     */
+    public static byte[] readJSON(String name) {
+        try (InputStream in = BenchmarkMeshes.class.getResourceAsStream("/meshes/" + name + ".json")) {
+            if (in == null) {
+                throw new IllegalArgumentException("Unknown mesh: " + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parse a babylon json file without loading its textures.
+     */
+    public static Mesh[] parse(InputStream in) {
+        return FileUtils.parseMeshFromJSON(in, false);
+    }
+}
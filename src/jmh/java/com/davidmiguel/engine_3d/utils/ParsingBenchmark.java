@@ -0,0 +1,37 @@
+package com.davidmiguel.engine_3d.utils;
+
+import com.davidmiguel.engine_3d.meshes.Mesh;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to parse every bundled mesh from babylon json (the file is already in memory, so no disk I/O is measured).
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParsingBenchmark {
+
+    @Param({"Cube", "UVSphere", "ICOSphere", "Cylinder", "Cone", "Torus", "Suzanne"})
+    private String mesh;
+
+    private byte[] json;
+
+    @Setup
+    public void setup() {
+        json = BenchmarkMeshes.readJSON(mesh);
+    }
+
+    @Benchmark
+    public Mesh[] parseMeshFromJSON() {
+        return BenchmarkMeshes.parse(new ByteArrayInputStream(json));
+    }
+}
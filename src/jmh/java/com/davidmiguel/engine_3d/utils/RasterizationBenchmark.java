@@ -0,0 +1,134 @@
+package com.davidmiguel.engine_3d.utils;
+
+import com.davidmiguel.engine_3d.engine.DepthBuffer;
+import com.davidmiguel.engine_3d.engine.Engine;
+import com.davidmiguel.engine_3d.engine.FrameBuffer;
+import com.davidmiguel.engine_3d.engine.Tile;
+import com.davidmiguel.engine_3d.engine.VertexCache;
+import com.davidmiguel.engine_3d.meshes.Mesh;
+import com.davidmiguel.engine_3d.meshes.Texture;
+import org.openjdk.jmh.annotations.*;
+
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Vector3d;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to draw a single triangle of a given size on screen in every render mode, with both rasterizers.
+ * The depth buffer is not cleared between invocations: the triangle is always at the same depth,
+ * so it passes the depth test and every invocation writes the same pixels.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RasterizationBenchmark {
+
+    private static final int WIDTH = 900;
+    private static final int HEIGHT = 550;
+
+    /**
+     * Side of the bounding box of the triangle in pixels (SCREEN covers the whole screen).
+     */
+    public enum Size {
+        SMALL(8), MEDIUM(64), SCREEN(0);
+
+        private final int pixels;
+
+        Size(int pixels) {
+            this.pixels = pixels;
+        }
+    }
+
+    @Param
+    private Size size;
+    @Param
+    private Engine.RenderMode mode;
+    @Param
+    private Engine.Rasterizer rasterizer;
+
+    private FrameBuffer frameBuffer;
+    private DepthBuffer depthBuffer;
+    private Tile screen;
+    private VertexCache cache;
+    private Texture texture;
+
+    @Setup
+    public void setup() {
+        frameBuffer = new FrameBuffer(WIDTH, HEIGHT);
+        depthBuffer = new DepthBuffer(WIDTH, HEIGHT);
+        depthBuffer.clear();
+        screen = new Tile(0, 0, WIDTH, HEIGHT);
+        // Triangle with its bounding box centered on screen
+        double halfWidth = size == Size.SCREEN ? WIDTH / 2.0 : size.pixels / 2.0;
+        double halfHeight = size == Size.SCREEN ? HEIGHT / 2.0 : size.pixels / 2.0;
+        double cx = WIDTH / 2.0;
+        double cy = HEIGHT / 2.0;
+        Mesh triangle = new Mesh();
+        triangle.setGeometry(new float[]{
+                        toClipX(cx - halfWidth), toClipY(cy + halfHeight), 0.5f,
+                        toClipX(cx + halfWidth), toClipY(cy + halfHeight), 0.5f,
+                        toClipX(cx), toClipY(cy - halfHeight), 0.5f},
+                new float[]{0, 0, -1, 0, 0, -1, 0, 0, -1},
+                new float[]{0, 0, 1, 0, 0.5f, 1},
+                new int[]{0, 1, 2});
+        // With identity matrices the clip coordinates are the positions
+        Matrix4d identity = new Matrix4d();
+        identity.setIdentity();
+        cache = new VertexCache();
+        cache.transform(triangle, identity, identity, WIDTH, HEIGHT, new Vector3d(0, 10, 10), false);
+        texture = new Texture(checkerboard(512), 512, 512);
+    }
+
+    /**
+     * Inverse of the mapping from clip coordinates to the screen done by the vertex cache.
+     */
+    private static float toClipX(double x) {
+        return (float) ((x - WIDTH / 2.0) / WIDTH);
+    }
+
+    private static float toClipY(double y) {
+        return (float) (-(y - HEIGHT / 2.0) / HEIGHT);
+    }
+
+    private static int[] checkerboard(int side) {
+        int[] texels = new int[side * side];
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                texels[y * side + x] = ((x / 16 + y / 16) % 2 == 0) ? 0xFFFFFFFF : 0xFF404040;
+            }
+        }
+        return texels;
+    }
+
+    @Benchmark
+    public FrameBuffer drawTriangle() {
+        switch (mode) {
+            case WIREFRAME:
+                DrawUtils.drawTriangle(frameBuffer, screen, cache, 0, 1, 2, FrameBuffer.WHITE);
+                break;
+            case SHADING:
+                fill(null);
+                break;
+            case TEXTURE:
+                fill(texture);
+                break;
+        }
+        return frameBuffer;
+    }
+
+    private void fill(Texture texture) {
+        if (rasterizer == Engine.Rasterizer.EDGE_FUNCTION) {
+            EdgeFunctionRasterizer.drawFilledTriangle(frameBuffer, depthBuffer, screen, cache, 0, 1, 2,
+                    FrameBuffer.WHITE, texture, Texture.Filter.NEAREST);
+        } else {
+            DrawUtils.drawFilledTriangle(frameBuffer, depthBuffer, screen, cache, 0, 1, 2,
+                    FrameBuffer.WHITE, texture, Texture.Filter.NEAREST);
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.davidmiguel.engine_3d;
+
+import com.davidmiguel.engine_3d.engine.Camera;
+import com.davidmiguel.engine_3d.engine.Engine;
+import com.davidmiguel.engine_3d.engine.ImageRenderTarget;
+import com.davidmiguel.engine_3d.meshes.InstancedMesh;
+import com.davidmiguel.engine_3d.meshes.Mesh;
+import com.davidmiguel.engine_3d.meshes.Texture;
+import com.davidmiguel.engine_3d.utils.BinaryMeshFile;
+import com.davidmiguel.engine_3d.utils.FileUtils;
+import com.davidmiguel.engine_3d.utils.LodBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import javax.vecmath.Vector3d;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Command line renderer: renders an animation of every mesh file into a sequence of PNG files, without GUI.
+ * <p>
+ * Frames are rendered in the calling thread and encoded and written by a pool of writer threads,
+ * so the disk I/O overlaps the rendering. The number of frames waiting to be written is bounded,
+ * so the renderer waits for the writers when it is faster than them.
+ * <p>
+ * Run without arguments to see the options.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+public class BatchRenderer {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchRenderer.class);
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: BatchRenderer [options] <mesh.babylon|mesh.json|mesh" + BinaryMeshFile.EXTENSION + ">...",
+            "Options:",
+            "  --out <dir>            output directory (default: render), one subdirectory per mesh file",
+            "  --frames <n>           frames per mesh file (default: 72)",
+            "  --size <w>x<h>         resolution (default: 900x550)",
+            "  --mode <mode>          WIREFRAME, SHADING or TEXTURE (default: TEXTURE)",
+            "  --rasterizer <r>       SCANLINE or EDGE_FUNCTION (default: SCANLINE)",
+            "  --filter <f>           texture filter NEAREST or BILINEAR (default: NEAREST)",
+            "  --rotate <x,y,z>       rotation (radians) added to the meshes every frame",
+            "                         (default: a full turn around Y over the sequence, 0,0,0 with --orbit)",
+            "  --orbit                move the camera around its target, a full turn over the sequence",
+            "  --camera <x,y,z>       initial camera position (default: 0,0,10)",
+            "  --target <x,y,z>       camera target (default: 0,0,0)",
+            "  --instances <n>        draw every mesh n times, on a grid in the XZ plane (default: 1)",
+            "  --lod <n>              generate levels of detail (cached) and draw them with a triangle per",
+            "                         n pixels at most (default: draw the meshes themselves)",
+            "  --threads <n>          rasterize in tiles with n threads (default: single-threaded)",
+            "  --writers <n>          PNG writer threads (default: half of the cores, at least 1)");
+
+    private Path out = Paths.get("render");
+    private int frames = 72;
+    private int width = 900;
+    private int height = 550;
+    private Engine.RenderMode mode = Engine.RenderMode.TEXTURE;
+    private Engine.Rasterizer rasterizer = Engine.Rasterizer.SCANLINE;
+    private Texture.Filter filter = Texture.Filter.NEAREST;
+    private Vector3d rotation;
+    private boolean orbit;
+    private Vector3d cameraPosition = new Vector3d(0, 0, 10);
+    private Vector3d cameraTarget = new Vector3d(0, 0, 0);
+    private int instances = 1;
+    private int lodPixels;
+    private int threads;
+    private int writers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private final List<Path> files = new ArrayList<>();
+
+    /**
+     * Time (ns) of every stage, summed over all the frames.
+     */
+    private long loadTime;
+    private long transformTime;
+    private long rasterTime;
+    private final AtomicLong encodeTime = new AtomicLong();
+    private final AtomicInteger framesWritten = new AtomicInteger();
+    private final AtomicInteger writeErrors = new AtomicInteger();
+
+    public static void main(String[] args) {
+        BatchRenderer renderer = new BatchRenderer();
+        try {
+            renderer.parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        boolean ok;
+        try {
+            ok = renderer.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ok = false;
+        }
+        System.exit(ok ? 0 : 1);
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                files.add(Paths.get(arg));
+                continue;
+            }
+            if (arg.equals("--orbit")) {
+                orbit = true;
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value of " + arg);
+            }
+            String value = args[++i];
+            try {
+                switch (arg) {
+                    case "--out":
+                        out = Paths.get(value);
+                        break;
+                    case "--frames":
+                        frames = positive(arg, Integer.parseInt(value));
+                        break;
+                    case "--size":
+                        String[] size = value.toLowerCase(Locale.ROOT).split("x");
+                        if (size.length != 2) {
+                            throw new IllegalArgumentException("Invalid size: " + value);
+                        }
+                        width = positive(arg, Integer.parseInt(size[0]));
+                        height = positive(arg, Integer.parseInt(size[1]));
+                        break;
+                    case "--mode":
+                        mode = Engine.RenderMode.valueOf(value.toUpperCase(Locale.ROOT));
+                        break;
+                    case "--rasterizer":
+                        rasterizer = Engine.Rasterizer.valueOf(value.toUpperCase(Locale.ROOT));
+                        break;
+                    case "--filter":
+                        filter = Texture.Filter.valueOf(value.toUpperCase(Locale.ROOT));
+                        break;
+                    case "--rotate":
+                        rotation = parseVector(value);
+                        break;
+                    case "--camera":
+                        cameraPosition = parseVector(value);
+                        break;
+                    case "--target":
+                        cameraTarget = parseVector(value);
+                        break;
+                    case "--instances":
+                        instances = positive(arg, Integer.parseInt(value));
+                        break;
+                    case "--lod":
+                        lodPixels = positive(arg, Integer.parseInt(value));
+                        break;
+                    case "--threads":
+                        threads = positive(arg, Integer.parseInt(value));
+                        break;
+                    case "--writers":
+                        writers = positive(arg, Integer.parseInt(value));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value of " + arg + ": " + value);
+            }
+        }
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("No mesh files.");
+        }
+        if (rotation == null) {
+            rotation = orbit ? new Vector3d() : new Vector3d(0, 2 * Math.PI / frames, 0);
+        }
+    }
+
+    private static int positive(String option, int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(option + " must be positive.");
+        }
+        return value;
+    }
+
+    private static Vector3d parseVector(String value) {
+        String[] components = value.split(",");
+        if (components.length != 3) {
+            throw new IllegalArgumentException("Invalid vector (x,y,z expected): " + value);
+        }
+        return new Vector3d(Double.parseDouble(components[0]), Double.parseDouble(components[1]),
+                Double.parseDouble(components[2]));
+    }
+
+    /**
+     * Render every mesh file and print the timing summary.
+     *
+     * @return false if some file could not be loaded or some frame could not be written
+     */
+    private boolean run() throws InterruptedException {
+        ImageRenderTarget target = new ImageRenderTarget(width, height);
+        Engine engine = new Engine(target, width, height);
+        engine.setRasterizer(rasterizer);
+        engine.setTextureFilter(filter);
+        engine.setLodPixelsPerTriangle(lodPixels);
+        if (threads > 0) {
+            engine.setTiledRendering(true);
+            engine.setThreads(threads);
+        }
+        ExecutorService writerPool = Executors.newFixedThreadPool(writers);
+        // Frames waiting to be written (reused, so the memory is bounded)
+        BlockingQueue<int[]> freeBuffers = new ArrayBlockingQueue<>(2 * writers);
+        for (int i = 0; i < 2 * writers; i++) {
+            freeBuffers.add(new int[width * height]);
+        }
+        boolean ok = true;
+        long start = System.nanoTime();
+        try {
+            for (Path file : files) {
+                ok &= render(file, engine, target, writerPool, freeBuffers);
+            }
+        } finally {
+            writerPool.shutdown();
+            writerPool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            engine.shutdown();
+        }
+        printSummary(System.nanoTime() - start);
+        return ok && writeErrors.get() == 0;
+    }
+
+    private boolean render(Path file, Engine engine, ImageRenderTarget target, ExecutorService writerPool,
+                           BlockingQueue<int[]> freeBuffers) throws InterruptedException {
+        long loadStart = System.nanoTime();
+        Mesh[] meshes = load(file);
+        if (lodPixels > 0) {
+            new LodBuilder().build(meshes);
+        }
+        loadTime += System.nanoTime() - loadStart;
+        if (meshes.length == 0) {
+            System.err.println("No meshes loaded from " + file);
+            return false;
+        }
+        String name = baseName(file);
+        Path directory = out.resolve(name);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            System.err.println("Cannot create " + directory + ": " + e.getMessage());
+            return false;
+        }
+        InstancedMesh[] batches = null;
+        if (instances > 1) {
+            batches = instantiate(meshes);
+            meshes = null;
+        }
+        Camera camera = new Camera(new Vector3d(cameraPosition), new Vector3d(cameraTarget));
+        for (int frame = 0; frame < frames; frame++) {
+            animate(meshes, batches, camera, frame);
+            engine.draw(camera, meshes, batches, mode);
+            transformTime += engine.getTransformTime();
+            rasterTime += engine.getRasterTime();
+            // Copy the frame, so the next one can be rendered while it is written
+            int[] pixels = freeBuffers.take();
+            System.arraycopy(target.getPixels(), 0, pixels, 0, pixels.length);
+            Path png = directory.resolve(String.format("%s_%04d.png", name, frame));
+            writerPool.execute(() -> {
+                try {
+                    write(pixels, png);
+                } finally {
+                    freeBuffers.add(pixels);
+                }
+            });
+        }
+        if (batches != null) {
+            for (InstancedMesh batch : batches) {
+                batch.getMesh().dispose();
+            }
+        } else {
+            for (Mesh mesh : meshes) {
+                mesh.dispose();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Place the instances of every mesh on a square grid centered at the position of the mesh, spaced so
+     * that their bounding spheres do not overlap.
+     */
+    private InstancedMesh[] instantiate(Mesh[] meshes) {
+        InstancedMesh[] batches = new InstancedMesh[meshes.length];
+        int side = (int) Math.ceil(Math.sqrt(instances));
+        for (int m = 0; m < meshes.length; m++) {
+            Mesh mesh = meshes[m];
+            Vector3d position = mesh.getPosition();
+            Vector3d rotation = mesh.getRotation();
+            double spacing = 2.5 * Math.max(mesh.getBoundingRadius(), 0.1);
+            batches[m] = new InstancedMesh(mesh, instances);
+            for (int i = 0; i < instances; i++) {
+                batches[m].add(position.x + (i % side - (side - 1) / 2.0) * spacing, position.y,
+                        position.z + (i / side - (side - 1) / 2.0) * spacing, rotation.x, rotation.y, rotation.z);
+            }
+        }
+        return batches;
+    }
+
+    private static Mesh[] load(Path file) {
+        if (file.toString().endsWith(BinaryMeshFile.EXTENSION)) {
+            return FileUtils.parseMeshFromBinary(file);
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            return FileUtils.parseMeshFromJSON(in);
+        } catch (IOException e) {
+            logger.error("Error loading file.", e);
+            return new Mesh[0];
+        }
+    }
+
+    /**
+     * Move the meshes and the camera to their position in the given frame (the first frame is the initial pose).
+     */
+    private void animate(Mesh[] meshes, InstancedMesh[] batches, Camera camera, int frame) {
+        if (frame > 0 && meshes != null) {
+            for (Mesh mesh : meshes) {
+                mesh.getRotation().add(rotation);
+            }
+        }
+        if (frame > 0 && batches != null) {
+            for (InstancedMesh batch : batches) {
+                for (int i = 0; i < batch.getCount(); i++) {
+                    batch.rotate(i, rotation.x, rotation.y, rotation.z);
+                }
+            }
+        }
+        if (orbit) {
+            // Rotate the initial offset from the target around the Y axis
+            double angle = 2 * Math.PI * frame / frames;
+            double dx = cameraPosition.x - cameraTarget.x;
+            double dz = cameraPosition.z - cameraTarget.z;
+            camera.getPosition().x = cameraTarget.x + dx * Math.cos(angle) - dz * Math.sin(angle);
+            camera.getPosition().z = cameraTarget.z + dx * Math.sin(angle) + dz * Math.cos(angle);
+        }
+    }
+
+    /**
+     * Encode a frame and write it (called from the writer threads).
+     */
+    private void write(int[] pixels, Path png) {
+        long start = System.nanoTime();
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, width, height, pixels, 0, width);
+        try {
+            if (!ImageIO.write(image, "png", png.toFile())) {
+                throw new IOException("No PNG writer available.");
+            }
+            framesWritten.incrementAndGet();
+        } catch (IOException e) {
+            writeErrors.incrementAndGet();
+            logger.error("Error writing " + png, e);
+        }
+        encodeTime.addAndGet(System.nanoTime() - start);
+    }
+
+    private void printSummary(long totalTime) {
+        int rendered = frames * files.size();
+        System.out.printf(Locale.ROOT, "Rendered %d frames (%dx%d, %s), wrote %d PNGs to %s%n",
+                rendered, width, height, mode, framesWritten.get(), out);
+        printStage("load", loadTime, files.size(), "file");
+        printStage("transform", transformTime, rendered, "frame");
+        printStage("raster", rasterTime, rendered, "frame");
+        printStage("encode", encodeTime.get(), rendered, "frame");
+        System.out.printf(Locale.ROOT, "  encode runs on %d writer thread(s), overlapping the rendering%n", writers);
+        System.out.printf(Locale.ROOT, "  total     %10.1f ms  %8.1f frames/s%n",
+                totalTime / 1e6, rendered / (totalTime / 1e9));
+    }
+
+    private static void printStage(String stage, long time, int count, String unit) {
+        System.out.printf(Locale.ROOT, "  %-9s %10.1f ms  %8.3f ms/%s%n", stage, time / 1e6, time / 1e6 / count, unit);
+    }
+
+    private static String baseName(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+}
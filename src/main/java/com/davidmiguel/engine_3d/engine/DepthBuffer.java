@@ -0,0 +1,297 @@
+package com.davidmiguel.engine_3d.engine;
+
+import java.util.Arrays;
+
+/**
+ * Z-Buffer. Depths are floats stored row by row, so a scan line walks the memory in order.
+ * <p>
+ * In reversed-Z mode the projection maps the near plane to 1 and the far plane to 0, so the
+ * nearest depth is the biggest one. This keeps float precision where depths are crowded.
+ * <p>
+ * In hierarchical mode it also keeps a depth pyramid: the nearest and farthest depth of every block of
+ * 8x8 pixels, and of every coarse block of 8x8 blocks. The rasterizers mark the blocks they write as dirty
+ * (see {@link #markWritten}), and they are recomputed between meshes (see {@link #update}), so a whole triangle
+ * or mesh can be rejected with a few comparisons if it is behind everything already drawn in its region
+ * (see {@link #isOccluded}).
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@SuppressWarnings("WeakerAccess")
+public class DepthBuffer {
+
+    /**
+     * Side (pixels) of the blocks of the pyramid. In tiled mode the tile size must be a multiple of it,
+     * so a block is only written and queried by the thread of its tile.
+     */
+    public static final int BLOCK_SIZE = 8;
+    private static final int BLOCK_SHIFT = 3;
+    /**
+     * Side (pixels) of the coarse blocks of the pyramid.
+     */
+    private static final int COARSE_SHIFT = 6;
+    /**
+     * Margin for the rounding of the interpolated depths: a primitive is only occluded if it is
+     * farther than this from the depths in front of it.
+     */
+    private static final float EPSILON = 1e-6f;
+
+    private final float[] depths;
+    private final int width;
+    private final int height;
+    private boolean reversed;
+
+    private boolean hierarchical;
+    private final int blockColumns;
+    private final int coarseColumns;
+    /**
+     * Nearest and farthest depth of every block, valid if it is not dirty.
+     */
+    private final float[] blockNearest;
+    private final float[] blockFarthest;
+    private final boolean[] blockDirty;
+    private final float[] coarseNearest;
+    private final float[] coarseFarthest;
+    private final boolean[] coarseDirty;
+
+    public DepthBuffer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.depths = new float[width * height];
+        this.blockColumns = (width + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+        int blocks = blockColumns * ((height + BLOCK_SIZE - 1) >> BLOCK_SHIFT);
+        this.blockNearest = new float[blocks];
+        this.blockFarthest = new float[blocks];
+        this.blockDirty = new boolean[blocks];
+        int coarseSize = 1 << COARSE_SHIFT;
+        this.coarseColumns = (width + coarseSize - 1) >> COARSE_SHIFT;
+        int coarseBlocks = coarseColumns * ((height + coarseSize - 1) >> COARSE_SHIFT);
+        this.coarseNearest = new float[coarseBlocks];
+        this.coarseFarthest = new float[coarseBlocks];
+        this.coarseDirty = new boolean[coarseBlocks];
+    }
+
+    /**
+     * Reset every depth to the farthest possible value.
+     */
+    public void clear() {
+        float farthest = reversed ? -Float.MAX_VALUE : Float.MAX_VALUE;
+        Arrays.fill(depths, farthest);
+        if (hierarchical) {
+            Arrays.fill(blockNearest, farthest);
+            Arrays.fill(blockFarthest, farthest);
+            Arrays.fill(blockDirty, false);
+            Arrays.fill(coarseNearest, farthest);
+            Arrays.fill(coarseFarthest, farthest);
+            Arrays.fill(coarseDirty, false);
+        }
+    }
+
+    /**
+     * Depth test. If z is visible at x,y it is stored.
+     *
+     * @return true if z is nearer (or as near) than the stored depth
+     */
+    public boolean testAndSet(int x, int y, float z) {
+        int i = y * width + x;
+        if (reversed ? depths[i] <= z : depths[i] >= z) {
+            depths[i] = z;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Mark the blocks of the pyramid that contain a rectangle as dirty, after depths were written in it
+     * (once per span or block, not per pixel).
+     *
+     * @param minX bounds of the rectangle (inclusive)
+     * @param minY bounds of the rectangle (inclusive)
+     * @param maxX bounds of the rectangle (inclusive)
+     * @param maxY bounds of the rectangle (inclusive)
+     */
+    public void markWritten(int minX, int minY, int maxX, int maxY) {
+        if (!hierarchical) {
+            return;
+        }
+        for (int by = minY >> BLOCK_SHIFT; by <= maxY >> BLOCK_SHIFT; by++) {
+            for (int bx = minX >> BLOCK_SHIFT; bx <= maxX >> BLOCK_SHIFT; bx++) {
+                blockDirty[by * blockColumns + bx] = true;
+            }
+        }
+        for (int cy = minY >> COARSE_SHIFT; cy <= maxY >> COARSE_SHIFT; cy++) {
+            for (int cx = minX >> COARSE_SHIFT; cx <= maxX >> COARSE_SHIFT; cx++) {
+                coarseDirty[cy * coarseColumns + cx] = true;
+            }
+        }
+    }
+
+    /**
+     * Recompute the dirty blocks of the pyramid inside a tile. Until then, the blocks keep the depths they had
+     * when they were last updated, which are never nearer than the current ones (depths only get nearer), so
+     * the occlusion tests are still conservative.
+     */
+    public void update(Tile clip) {
+        if (!hierarchical) {
+            return;
+        }
+        for (int cy = clip.getMinY() >> COARSE_SHIFT; cy <= (clip.getMaxY() - 1) >> COARSE_SHIFT; cy++) {
+            for (int cx = clip.getMinX() >> COARSE_SHIFT; cx <= (clip.getMaxX() - 1) >> COARSE_SHIFT; cx++) {
+                int coarse = cy * coarseColumns + cx;
+                if (!coarseDirty[coarse]) {
+                    continue;
+                }
+                int x0 = cx << COARSE_SHIFT;
+                int y0 = cy << COARSE_SHIFT;
+                int x1 = Math.min(x0 + (1 << COARSE_SHIFT), width);
+                int y1 = Math.min(y0 + (1 << COARSE_SHIFT), height);
+                if (isInside(clip, x0, y0, x1, y1)) {
+                    updateCoarse(coarse, x0, y0, x1, y1);
+                } else {
+                    // Shared with other tiles: only its blocks inside the tile are updated
+                    for (int by = Math.max(y0, clip.getMinY()) >> BLOCK_SHIFT;
+                         by <= (Math.min(y1, clip.getMaxY()) - 1) >> BLOCK_SHIFT; by++) {
+                        for (int bx = Math.max(x0, clip.getMinX()) >> BLOCK_SHIFT;
+                             bx <= (Math.min(x1, clip.getMaxX()) - 1) >> BLOCK_SHIFT; bx++) {
+                            int block = by * blockColumns + bx;
+                            if (blockDirty[block]) {
+                                updateBlock(block, bx, by);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Test a primitive against the depth pyramid (as it was last updated), from the coarse blocks to the
+     * blocks. Only the blocks of the given tile are read, so tiles can be tested in parallel.
+     *
+     * @param clip    tile the rectangle belongs to
+     * @param minX    bounds of the primitive on screen (inclusive), inside the tile
+     * @param minY    bounds of the primitive on screen (inclusive), inside the tile
+     * @param maxX    bounds of the primitive on screen (inclusive), inside the tile
+     * @param maxY    bounds of the primitive on screen (inclusive), inside the tile
+     * @param nearest nearest depth of the primitive
+     * @return true if every pixel of the rectangle has a depth nearer than the primitive
+     * (always false if the buffer is not hierarchical)
+     */
+    public boolean isOccluded(Tile clip, int minX, int minY, int maxX, int maxY, float nearest) {
+        if (!hierarchical || minX > maxX || minY > maxY) {
+            return false;
+        }
+        for (int cy = minY >> COARSE_SHIFT; cy <= maxY >> COARSE_SHIFT; cy++) {
+            for (int cx = minX >> COARSE_SHIFT; cx <= maxX >> COARSE_SHIFT; cx++) {
+                int x0 = cx << COARSE_SHIFT;
+                int y0 = cy << COARSE_SHIFT;
+                int x1 = Math.min(x0 + (1 << COARSE_SHIFT), width);
+                int y1 = Math.min(y0 + (1 << COARSE_SHIFT), height);
+                if (isInside(clip, x0, y0, x1, y1)) {
+                    // The coarse block belongs to the tile: test it before its blocks
+                    int coarse = cy * coarseColumns + cx;
+                    if (isBehind(nearest, coarseFarthest[coarse])) {
+                        continue;
+                    }
+                    if (!isBehind(nearest, coarseNearest[coarse])) {
+                        // In front of everything drawn in the coarse block
+                        return false;
+                    }
+                }
+                int bx0 = Math.max(minX, x0) >> BLOCK_SHIFT;
+                int bx1 = Math.min(maxX, x1 - 1) >> BLOCK_SHIFT;
+                int by0 = Math.max(minY, y0) >> BLOCK_SHIFT;
+                int by1 = Math.min(maxY, y1 - 1) >> BLOCK_SHIFT;
+                for (int by = by0; by <= by1; by++) {
+                    for (int bx = bx0; bx <= bx1; bx++) {
+                        if (!isBehind(nearest, blockFarthest[by * blockColumns + bx])) {
+                            return false;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isInside(Tile clip, int x0, int y0, int x1, int y1) {
+        return x0 >= clip.getMinX() && y0 >= clip.getMinY() && x1 <= clip.getMaxX() && y1 <= clip.getMaxY();
+    }
+
+    /**
+     * Whether the depth z is farther than the given depth (by more than the rounding margin).
+     */
+    private boolean isBehind(float z, float depth) {
+        return reversed ? z + EPSILON < depth : z - EPSILON > depth;
+    }
+
+    private void updateBlock(int block, int bx, int by) {
+        int x0 = bx << BLOCK_SHIFT;
+        int y0 = by << BLOCK_SHIFT;
+        int x1 = Math.min(x0 + BLOCK_SIZE, width);
+        int y1 = Math.min(y0 + BLOCK_SIZE, height);
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (int y = y0; y < y1; y++) {
+            for (int i = y * width + x0, end = y * width + x1; i < end; i++) {
+                min = Math.min(min, depths[i]);
+                max = Math.max(max, depths[i]);
+            }
+        }
+        blockNearest[block] = reversed ? max : min;
+        blockFarthest[block] = reversed ? min : max;
+        blockDirty[block] = false;
+    }
+
+    private void updateCoarse(int coarse, int x0, int y0, int x1, int y1) {
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (int by = y0 >> BLOCK_SHIFT; by <= (y1 - 1) >> BLOCK_SHIFT; by++) {
+            for (int bx = x0 >> BLOCK_SHIFT; bx <= (x1 - 1) >> BLOCK_SHIFT; bx++) {
+                int block = by * blockColumns + bx;
+                if (blockDirty[block]) {
+                    updateBlock(block, bx, by);
+                }
+                min = Math.min(min, Math.min(blockNearest[block], blockFarthest[block]));
+                max = Math.max(max, Math.max(blockNearest[block], blockFarthest[block]));
+            }
+        }
+        coarseNearest[coarse] = reversed ? max : min;
+        coarseFarthest[coarse] = reversed ? min : max;
+        coarseDirty[coarse] = false;
+    }
+
+    public boolean isReversed() {
+        return reversed;
+    }
+
+    /**
+     * Switch between standard and reversed-Z. The buffer must be cleared before using it again.
+     */
+    public void setReversed(boolean reversed) {
+        this.reversed = reversed;
+    }
+
+    public boolean isHierarchical() {
+        return hierarchical;
+    }
+
+    /**
+     * Enable or disable the depth pyramid. The buffer must be cleared before using it again.
+     */
+    public void setHierarchical(boolean hierarchical) {
+        this.hierarchical = hierarchical;
+    }
+
+    public float[] getDepths() {
+        return depths;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
@@ -1,18 +1,20 @@
 package com.davidmiguel.engine_3d.engine;
 
-import com.davidmiguel.engine_3d.meshes.Face;
+import com.davidmiguel.engine_3d.meshes.InstancedMesh;
 import com.davidmiguel.engine_3d.meshes.Mesh;
-import com.davidmiguel.engine_3d.meshes.Vertex;
+import com.davidmiguel.engine_3d.meshes.Texture;
+import com.davidmiguel.engine_3d.scene.Frustum;
+import com.davidmiguel.engine_3d.scene.Scene;
+import com.davidmiguel.engine_3d.scene.SceneNode;
 import com.davidmiguel.engine_3d.utils.DrawUtils;
+import com.davidmiguel.engine_3d.utils.EdgeFunctionRasterizer;
 import com.davidmiguel.engine_3d.utils.MathUtils;
-import javafx.scene.SnapshotParameters;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.image.WritableImage;
-import javafx.scene.paint.Color;
 
 import javax.vecmath.Matrix4d;
 import javax.vecmath.Vector3d;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * 3D engine.
@@ -22,125 +24,998 @@ import java.util.Arrays;
  */
 public class Engine {
 
+    /**
+     * Fixed point of light.
+     */
+    private static final Vector3d LIGHT_POSITION = new Vector3d(0, 10, 10);
+    /**
+     * Field of view in the y direction, in radians.
+     */
+    private static final double FOV = 0.78;
+    /**
+     * Smallest bounding rectangle (pixels) of the triangles tested against the depth pyramid: smaller ones
+     * are rasterized about as fast as they are tested.
+     */
+    private static final int MIN_OCCLUSION_TEST_AREA = 256;
+    /**
+     * Relative change of the screen area of a mesh needed to switch its level of detail back, so a mesh at the
+     * distance where the level changes does not switch every frame.
+     */
+    private static final double LOD_HYSTERESIS = 0.25;
+    private static final Mesh[] NO_MESHES = new Mesh[0];
+    private static final InstancedMesh[] NO_INSTANCES = new InstancedMesh[0];
+    /**
+     * Batch of the items that are meshes and of the items that are scene nodes.
+     */
+    private static final int MESH = -1;
+    private static final int SCENE_NODE = -2;
+
     public enum RenderMode {
         WIREFRAME, SHADING, TEXTURE
     }
 
     /**
-     * Image where we perform all transformations.
+     * Algorithm used to fill the triangles.
      */
-    private WritableImage backBuffer;
+    public enum Rasterizer {
+        SCANLINE, EDGE_FUNCTION
+    }
+
     /**
-     * Canvas where we flush the backBuffer with a fixed frequency.
+     * Buffer where we perform all transformations.
      */
-    private GraphicsContext gc;
+    private FrameBuffer backBuffer;
+    /**
+     * Where we flush the backBuffer after every frame.
+     */
+    private RenderTarget target;
     /**
      * Use for Z-Buffering.
      */
-    private double[][] depthBuffer;
+    private DepthBuffer depthBuffer;
+
+    /**
+     * Projected vertices of every mesh of the frame (of every instance in tiled mode, see {@link #getCache}).
+     */
+    private VertexCache[] vertexCaches;
+    /**
+     * Clips the faces crossing the near/far planes.
+     */
+    private TriangleClipper clipper;
+    /**
+     * Tile covering the whole screen, used to clip the single-threaded rasterization.
+     */
+    private Tile screen;
+    /**
+     * Multi-core rasterizer used in tiled mode (created on demand).
+     */
+    private TileRasterizer tileRasterizer;
+
+    private int width;
+    private int height;
 
-    private double width;
-    private double height;
+    private boolean tiled;
+    private int tileSize;
+    private int threads;
 
-    public Engine(GraphicsContext gc) {
-        this.gc = gc;
-        width = gc.getCanvas().getWidth();
-        height = gc.getCanvas().getHeight();
-        this.depthBuffer = new double[(int) width][(int) height];
+    /**
+     * Distances from the camera to the near and far view planes.
+     */
+    private double zNear;
+    private double zFar;
+    /**
+     * Whether faces looking away from the camera are skipped in each render mode.
+     */
+    private boolean[] backFaceCulling;
+    /**
+     * Whether meshes are drawn front to back and hidden meshes and triangles are rejected
+     * with the depth pyramid (see {@link DepthBuffer#isOccluded}).
+     */
+    private boolean occlusionCulling;
+    /**
+     * Items drawn in the frame: the meshes, every instance of the instanced meshes and the scene nodes in the
+     * view frustum. For every item, its instanced mesh (or MESH or SCENE_NODE) and its index in the meshes,
+     * in the instanced mesh or in the visible nodes.
+     */
+    private int[] itemBatches;
+    private int[] itemIndices;
+    private int itemCount;
+    /**
+     * Indices of the items in drawing order, and their depth in view space.
+     */
+    private int[] drawOrder;
+    private double[] drawDepths;
+    private int drawOrderCount;
+    /**
+     * Screen area (pixels) per triangle below which a coarser level of detail is drawn (0 to always draw the
+     * meshes themselves), and level drawn last frame for every item that is not a scene node (the nodes keep
+     * their own), with the mesh or instanced mesh and the instance the item was then.
+     */
+    private double lodPixelsPerTriangle;
+    private byte[] lodLevels;
+    private Object[] lodOwners;
+    private int[] lodOwnerIndices;
+    /**
+     * Nodes of the scene whose bounds are in the view frustum.
+     */
+    private final List<SceneNode> visibleNodes;
+    private final Frustum frustum;
+    private Rasterizer rasterizer;
+    private Texture.Filter textureFilter;
+
+    /**
+     * Matrices reused every frame, so rendering does not allocate.
+     */
+    private final Matrix4d viewMatrix;
+    private final Matrix4d projectionMatrix;
+    private final Matrix4d viewProjectionMatrix;
+    private final Matrix4d worldMatrix;
+    private final Matrix4d translationMatrix;
+    private final Matrix4d transformMatrix;
+
+    /**
+     * Timings and counters of the frames.
+     */
+    private final RenderMetrics metrics;
+    /**
+     * Duration (ns) of every stage and counters of the frame being rendered (indexed by
+     * {@link RenderMetrics.Stage} and {@link RenderMetrics.Counter}).
+     */
+    private final long[] stageTimes;
+    private final long[] counts;
+
+    /**
+     * @param target where the frames are shown
+     * @param width  horizontal resolution of the frames
+     * @param height vertical resolution of the frames
+     */
+    public Engine(RenderTarget target, int width, int height) {
+        if (target == null) {
+            throw new IllegalArgumentException("Render target cannot be null.");
+        }
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid resolution: " + width + "x" + height);
+        }
+        this.target = target;
+        this.width = width;
+        this.height = height;
+        this.backBuffer = new FrameBuffer(width, height);
+        this.depthBuffer = new DepthBuffer(width, height);
+        this.screen = new Tile(0, 0, width, height);
+        this.vertexCaches = new VertexCache[0];
+        this.clipper = new TriangleClipper();
+        this.zNear = 0.01;
+        this.zFar = 100.0;
+        this.backFaceCulling = new boolean[RenderMode.values().length];
+        this.backFaceCulling[RenderMode.SHADING.ordinal()] = true;
+        this.backFaceCulling[RenderMode.TEXTURE.ordinal()] = true;
+        this.occlusionCulling = true;
+        this.itemBatches = new int[0];
+        this.itemIndices = new int[0];
+        this.drawOrder = new int[0];
+        this.drawDepths = new double[0];
+        this.lodPixelsPerTriangle = 8;
+        this.lodLevels = new byte[0];
+        this.lodOwners = new Object[0];
+        this.lodOwnerIndices = new int[0];
+        this.visibleNodes = new ArrayList<>();
+        this.frustum = new Frustum();
+        this.rasterizer = Rasterizer.SCANLINE;
+        this.textureFilter = Texture.Filter.NEAREST;
+        this.tileSize = 64;
+        this.threads = Runtime.getRuntime().availableProcessors();
+        this.viewMatrix = new Matrix4d();
+        this.projectionMatrix = new Matrix4d();
+        this.viewProjectionMatrix = new Matrix4d();
+        this.worldMatrix = new Matrix4d();
+        this.translationMatrix = new Matrix4d();
+        this.transformMatrix = new Matrix4d();
+        this.metrics = new RenderMetrics();
+        this.stageTimes = new long[RenderMetrics.Stage.values().length];
+        this.counts = new long[RenderMetrics.Counter.values().length];
     }
 
     /**
-     * Flush the back buffer into the canvas.
+     * Rasterize the frame in parallel: triangles are binned into screen tiles
+     * and every tile is rasterized by a different worker thread.
+     */
+    public void setTiledRendering(boolean tiled) {
+        this.tiled = tiled;
+        if (!tiled) {
+            disposeTileRasterizer();
+        }
+    }
+
+    public boolean isTiledRendering() {
+        return tiled;
+    }
+
+    /**
+     * Size in pixels of the side of the tiles used in tiled mode.
+     */
+    public void setTileSize(int tileSize) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("Tile size must be positive.");
+        }
+        this.tileSize = tileSize;
+        disposeTileRasterizer();
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Number of worker threads used in tiled mode.
+     */
+    public void setThreads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive.");
+        }
+        this.threads = threads;
+        disposeTileRasterizer();
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Release the worker threads of the tiled mode.
+     */
+    public void shutdown() {
+        disposeTileRasterizer();
+    }
+
+    private void disposeTileRasterizer() {
+        if (tileRasterizer != null) {
+            tileRasterizer.shutdown();
+            tileRasterizer = null;
+        }
+    }
+
+    /**
+     * Use reversed-Z (near plane at depth 1, far plane at depth 0) for a better depth precision.
+     */
+    public void setReversedZ(boolean reversedZ) {
+        depthBuffer.setReversed(reversedZ);
+    }
+
+    public boolean isReversedZ() {
+        return depthBuffer.isReversed();
+    }
+
+    /**
+     * Set the distances from the camera to the near and far view planes.
+     * Meshes outside them are not drawn.
+     */
+    public void setDepthRange(double zNear, double zFar) {
+        if (zNear <= 0 || zFar <= zNear) {
+            throw new IllegalArgumentException("Invalid depth range.");
+        }
+        this.zNear = zNear;
+        this.zFar = zFar;
+    }
+
+    public double getZNear() {
+        return zNear;
+    }
+
+    public double getZFar() {
+        return zFar;
+    }
+
+    /**
+     * Skip (or not) the faces looking away from the camera in the given render mode.
+     * By default they are skipped when shading and texturing, but not in wireframe.
+     */
+    public void setBackFaceCulling(RenderMode mode, boolean enabled) {
+        backFaceCulling[mode.ordinal()] = enabled;
+    }
+
+    public boolean isBackFaceCulling(RenderMode mode) {
+        return backFaceCulling[mode.ordinal()];
+    }
+
+    /**
+     * Draw the meshes roughly front to back and skip the meshes and triangles hidden behind the ones
+     * already drawn. Only primitives that would fail the depth test in every pixel are skipped; the new
+     * order can only change pixels where two meshes have exactly the same depth. In tiled mode only
+     * triangles are tested, and only if the tile size is a multiple of {@link DepthBuffer#BLOCK_SIZE}.
+     * Enabled by default.
+     */
+    public void setOcclusionCulling(boolean occlusionCulling) {
+        this.occlusionCulling = occlusionCulling;
+    }
+
+    public boolean isOcclusionCulling() {
+        return occlusionCulling;
+    }
+
+    /**
+     * Draw the finest level of detail of every mesh (see {@link Mesh#setLevelsOfDetail}) with at most one
+     * triangle per given number of pixels of its bounding sphere on screen. 8 by default.
+     *
+     * @param lodPixelsPerTriangle pixels per triangle (0 to always draw the meshes themselves)
+     */
+    public void setLodPixelsPerTriangle(double lodPixelsPerTriangle) {
+        if (!(lodPixelsPerTriangle >= 0)) {
+            throw new IllegalArgumentException("Invalid pixels per triangle: " + lodPixelsPerTriangle);
+        }
+        this.lodPixelsPerTriangle = lodPixelsPerTriangle;
+    }
+
+    public double getLodPixelsPerTriangle() {
+        return lodPixelsPerTriangle;
+    }
+
+    /**
+     * Select the algorithm used to fill the triangles when shading and texturing.
+     */
+    public void setRasterizer(Rasterizer rasterizer) {
+        if (rasterizer == null) {
+            throw new IllegalArgumentException("Rasterizer cannot be null.");
+        }
+        this.rasterizer = rasterizer;
+    }
+
+    public Rasterizer getRasterizer() {
+        return rasterizer;
+    }
+
+    /**
+     * Select how the textures are read (always from the mipmap level that matches the size of the face).
+     */
+    public void setTextureFilter(Texture.Filter textureFilter) {
+        if (textureFilter == null) {
+            throw new IllegalArgumentException("Texture filter cannot be null.");
+        }
+        this.textureFilter = textureFilter;
+    }
+
+    public Texture.Filter getTextureFilter() {
+        return textureFilter;
+    }
+
+    /**
+     * Timings and counters of the rendered frames.
+     */
+    public RenderMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Time (ns) spent projecting the vertices of the last frame.
+     */
+    public long getTransformTime() {
+        return metrics.getLastTime(RenderMetrics.Stage.TRANSFORM);
+    }
+
+    /**
+     * Time (ns) spent in the rest of the rendering of the last frame: clipping, culling and rasterization
+     * (in tiled mode, including the wait for the tiles).
+     */
+    public long getRasterTime() {
+        return metrics.getLastTime(RenderMetrics.Stage.RASTER);
+    }
+
+    /**
+     * Ray from the camera through a point of the frame (e.g. the cursor), in world coordinates. It only reads
+     * the camera and the resolution, so it can be called while a frame is rendered on another thread.
+     *
+     * @param x         horizontal coordinate in pixels (0 at the left border)
+     * @param y         vertical coordinate in pixels (0 at the top border)
+     * @param origin    set to the position of the camera
+     * @param direction set to the normalized direction of the ray
+     */
+    public void computeRay(Camera camera, double x, double y, Vector3d origin, Vector3d direction) {
+        Matrix4d view = MathUtils.lookAtLH(camera.getPosition(), camera.getTarget(), MathUtils.UP);
+        // Inverse of the projection: view space direction with z = 1
+        double scale = Math.tan(FOV * 0.5) / height;
+        double vx = (x - width / 2.0) * scale;
+        double vy = -(y - height / 2.0) * scale;
+        // The columns of the rotation of the view matrix are the axes of the camera
+        direction.set(vx * view.m00 + vy * view.m01 + view.m02, vx * view.m10 + vy * view.m11 + view.m12,
+                vx * view.m20 + vy * view.m21 + view.m22);
+        direction.normalize();
+        origin.set(camera.getPosition());
+    }
+
+    /**
+     * Render a frame and present it in the render target.
      */
     public void draw(Camera camera, Mesh[] meshes, RenderMode mode) {
-        if (meshes == null || meshes.length == 0 || camera == null) {
+        draw(camera, meshes, null, null, null, mode);
+    }
+
+    /**
+     * Render a frame with the given meshes and every instance of the given instanced meshes, and present it
+     * in the render target. The instances share the geometry, the texture and the setup of their mesh; only
+     * their transform and tint are read per instance. In tiled mode every visible instance is projected into
+     * its own vertex cache (the triangles are rasterized after all of them are projected), otherwise the
+     * instances of a mesh reuse one.
+     *
+     * @param meshes    meshes drawn with their own position and rotation (may be null)
+     * @param instances instanced meshes (may be null)
+     */
+    public void draw(Camera camera, Mesh[] meshes, InstancedMesh[] instances, RenderMode mode) {
+        draw(camera, meshes, null, instances, null, mode);
+    }
+
+    /**
+     * Render a frame of a scene and present it in the render target. The scene is updated first
+     * (see {@link Scene#update()}), and only the nodes whose bounds are in the view frustum are drawn,
+     * so the cost of the static nodes out of the view is a few queries of the bounding volume tree.
+     */
+    public void draw(Camera camera, Scene scene, RenderMode mode) {
+        draw(camera, null, null, null, scene, mode);
+    }
+
+    /**
+     * Render a snapshot of the scene and present it in the render target. The positions and rotations of the
+     * meshes are taken from the snapshot, so the meshes can be moved by another thread meanwhile.
+     */
+    public void draw(FrameState state) {
+        draw(state.getCamera(), state.getMeshes(), state.getTransforms(), state.getInstances(), null,
+                state.getMode());
+    }
+
+    /**
+     * @param transforms position and rotation of every mesh (see {@link FrameState}), or null to use the ones
+     *                   of the meshes
+     */
+    private void draw(Camera camera, Mesh[] meshes, double[] transforms, InstancedMesh[] instances, Scene scene,
+                      RenderMode mode) {
+        if (meshes == null) {
+            meshes = NO_MESHES;
+        }
+        if (instances == null) {
+            instances = NO_INSTANCES;
+        }
+        if (camera == null || (meshes.length == 0 && instances.length == 0 && scene == null)) {
             return;
         }
+        FrameEvent event = FrameEvent.start();
+        long frameStart = System.nanoTime();
+        Arrays.fill(stageTimes, 0);
+        Arrays.fill(counts, 0);
+        setupCamera(camera);
+        visibleNodes.clear();
+        if (scene != null) {
+            scene.update();
+            scene.query(frustum, visibleNodes);
+        }
+        listItems(meshes, instances);
+        long clearStart = System.nanoTime();
         // Clear the screen and all associated pixels with white ones
         this.clear();
+        long renderStart = System.nanoTime();
         // Render them into the back buffer by doing the required matrix operations
-        this.render(camera, meshes, mode);
+        this.render(meshes, transforms, instances, mode);
+        long presentStart = System.nanoTime();
         // Display them on screen by flushing the back buffer data into the front buffer
-        gc.drawImage(backBuffer, 0, 0);
+        target.present(backBuffer);
+        long frameEnd = System.nanoTime();
+        stageTimes[RenderMetrics.Stage.FRAME.ordinal()] = frameEnd - frameStart;
+        stageTimes[RenderMetrics.Stage.CLEAR.ordinal()] = renderStart - clearStart;
+        stageTimes[RenderMetrics.Stage.RASTER.ordinal()] = presentStart - renderStart
+                - stageTimes[RenderMetrics.Stage.TRANSFORM.ordinal()];
+        // The update and culling of the scene count as transform
+        stageTimes[RenderMetrics.Stage.TRANSFORM.ordinal()] += clearStart - frameStart;
+        stageTimes[RenderMetrics.Stage.PRESENT.ordinal()] = frameEnd - presentStart;
+        if (tiled) {
+            counts[RenderMetrics.Counter.TRIANGLES_OCCLUDED.ordinal()] += tileRasterizer.getTrianglesOccluded();
+            counts[RenderMetrics.Counter.PIXELS_SHADED.ordinal()] = tileRasterizer.getPixelsShaded();
+            counts[RenderMetrics.Counter.PIXELS_DEPTH_REJECTED.ordinal()] = tileRasterizer.getPixelsDepthRejected();
+        } else {
+            counts[RenderMetrics.Counter.TRIANGLES_OCCLUDED.ordinal()] += screen.getTrianglesOccluded();
+            counts[RenderMetrics.Counter.PIXELS_SHADED.ordinal()] = screen.getPixelsShaded();
+            counts[RenderMetrics.Counter.PIXELS_DEPTH_REJECTED.ordinal()] = screen.getPixelsDepthRejected();
+        }
+        metrics.recordFrame(frameStart, stageTimes, counts);
+        if (event != null) {
+            commitFrameEvent(event, itemCount, mode);
+        }
+    }
+
+    private void commitFrameEvent(FrameEvent event, int meshCount, RenderMode mode) {
+        event.width = width;
+        event.height = height;
+        event.renderMode = mode.name();
+        event.rasterizer = rasterizer.name();
+        event.tiled = tiled;
+        event.meshes = meshCount;
+        event.clearTime = stageTimes[RenderMetrics.Stage.CLEAR.ordinal()];
+        event.transformTime = stageTimes[RenderMetrics.Stage.TRANSFORM.ordinal()];
+        event.rasterTime = stageTimes[RenderMetrics.Stage.RASTER.ordinal()];
+        event.presentTime = stageTimes[RenderMetrics.Stage.PRESENT.ordinal()];
+        event.trianglesSubmitted = counts[RenderMetrics.Counter.TRIANGLES_SUBMITTED.ordinal()];
+        event.trianglesCulled = counts[RenderMetrics.Counter.TRIANGLES_CULLED.ordinal()];
+        event.trianglesRasterized = counts[RenderMetrics.Counter.TRIANGLES_RASTERIZED.ordinal()];
+        event.trianglesOccluded = counts[RenderMetrics.Counter.TRIANGLES_OCCLUDED.ordinal()];
+        event.pixelsShaded = counts[RenderMetrics.Counter.PIXELS_SHADED.ordinal()];
+        event.pixelsDepthRejected = counts[RenderMetrics.Counter.PIXELS_DEPTH_REJECTED.ordinal()];
+        event.commit();
     }
 
     /**
-     * This function is called to clear the back buffer and canvas.
+     * This function is called to clear the back buffer.
      */
     private void clear() {
-        // Clear canvas
-        gc.setFill(Color.BLACK);
-        gc.fillRect(0, 0, width, height);
-        // Clear backBuffer
-        SnapshotParameters params = new SnapshotParameters();
-        params.setFill(Color.TRANSPARENT);
-        backBuffer = gc.getCanvas().snapshot(params, null);
-        // Clear depthBuffer
-        for (double[] row : depthBuffer) {
-            Arrays.fill(row, Double.MAX_VALUE);
-        }
+        // Clear backBuffer (the whole target is overwritten when it is presented)
+        backBuffer.clear(FrameBuffer.BLACK);
+        // Clear depthBuffer (a tile must not share the blocks of the depth pyramid with other tiles)
+        depthBuffer.setHierarchical(occlusionCulling && (!tiled || tileSize % DepthBuffer.BLOCK_SIZE == 0));
+        depthBuffer.clear();
+        screen.resetCounts();
     }
 
 
     /**
-     * Re-compute each vertex projection during each frame.
+     * Fill the items of the frame.
+     *
+     * @return number of items
      */
-    private void render(Camera camera, Mesh[] meshes, RenderMode mode) {
-        Matrix4d viewMatrix = MathUtils.lookAtLH(camera.getPosition(), camera.getTarget(), MathUtils.UP);
-        Matrix4d projectionMatrix = MathUtils.perspectiveFovLH(0.78, width / height, 0.01, 1.0);
+    private int listItems(Mesh[] meshes, InstancedMesh[] instances) {
+        int count = meshes.length + visibleNodes.size();
+        for (InstancedMesh batch : instances) {
+            count += batch.getCount();
+        }
+        if (itemBatches.length < count) {
+            itemBatches = new int[count];
+            itemIndices = new int[count];
+        }
+        for (int m = 0; m < meshes.length; m++) {
+            itemBatches[m] = MESH;
+            itemIndices[m] = m;
+        }
+        int item = meshes.length;
+        for (int batch = 0; batch < instances.length; batch++) {
+            for (int instance = 0; instance < instances[batch].getCount(); instance++) {
+                itemBatches[item] = batch;
+                itemIndices[item] = instance;
+                item++;
+            }
+        }
+        for (int node = 0; node < visibleNodes.size(); node++) {
+            itemBatches[item] = SCENE_NODE;
+            itemIndices[item] = node;
+            item++;
+        }
+        itemCount = count;
+        return count;
+    }
 
-        for (Mesh mesh : meshes) {
-            // Apply rotation and then translation
-            Matrix4d worldMatrix = MathUtils.rotationYawPitchRoll(
-                    mesh.getRotation().y, mesh.getRotation().x, mesh.getRotation().z);
-            worldMatrix.mul(MathUtils.translation(
-                    mesh.getPosition().x, mesh.getPosition().y, mesh.getPosition().z));
+    /**
+     * Re-compute each vertex projection during each frame.
+     */
+    private void render(Mesh[] meshes, double[] transforms, InstancedMesh[] instances, RenderMode mode) {
+        boolean cullBackFaces = backFaceCulling[mode.ordinal()];
+        if (tiled) {
+            if (tileRasterizer == null) {
+                tileRasterizer = new TileRasterizer(backBuffer, depthBuffer, tileSize, threads);
+            }
+            tileRasterizer.begin();
+        }
+        sortItems(meshes, transforms, instances);
+        if (lodLevels.length < itemCount) {
+            lodLevels = Arrays.copyOf(lodLevels, itemCount);
+            lodOwners = Arrays.copyOf(lodOwners, itemCount);
+            lodOwnerIndices = Arrays.copyOf(lodOwnerIndices, itemCount);
+        }
+        // Do not keep the meshes of the last frames alive
+        Arrays.fill(lodOwners, itemCount, lodOwners.length, null);
 
-            Matrix4d transformMatrix = new Matrix4d(worldMatrix);
+        for (int d = 0; d < itemCount; d++) {
+            int item = drawOrder[d];
+            Mesh base = getMesh(meshes, instances, item);
+            computeWorldMatrix(meshes, transforms, instances, item);
+            transformMatrix.set(worldMatrix);
             transformMatrix.mul(viewMatrix);
+            // The bounds of the levels are inside the ones of the mesh, which are used to cull them
+            int level = selectLevel(base, transformMatrix, getLastLevel(meshes, instances, item));
+            setLastLevel(item, level);
+            Mesh mesh = base.getLevel(level);
+            counts[RenderMetrics.Counter.TRIANGLES_SUBMITTED.ordinal()] += mesh.getFaceCount();
+            // Skip the whole mesh if its bounding sphere is out of the view frustum
+            if (!isVisible(base, transformMatrix)) {
+                counts[RenderMetrics.Counter.TRIANGLES_CULLED.ordinal()] += mesh.getFaceCount();
+                continue;
+            }
             transformMatrix.mul(projectionMatrix);
+            // Skip the whole mesh if its bounds are behind the meshes already drawn (only when they are
+            // already in the depth buffer, that is, not in tiled mode)
+            if (depthBuffer.isHierarchical() && !tiled && d > 0) {
+                depthBuffer.update(screen);
+            }
+            if (depthBuffer.isHierarchical() && !tiled && isOccluded(base, transformMatrix)) {
+                counts[RenderMetrics.Counter.TRIANGLES_OCCLUDED.ordinal()] += mesh.getFaceCount();
+                continue;
+            }
+
+            // Project every vertex once into the 2D space
+            VertexCache cache = getCache(meshes.length, instances.length, item);
+            long transformStart = System.nanoTime();
+            cache.transform(mesh, transformMatrix, worldMatrix, width, height, LIGHT_POSITION,
+                    depthBuffer.isReversed());
+            stageTimes[RenderMetrics.Stage.TRANSFORM.ordinal()] += System.nanoTime() - transformStart;
 
             // Draw faces
-            for (Face face : mesh.getFaces()) {
-                // Project the 3D coordinates into the 2D space
-                Vertex vertexA = mesh.getVertices()[face.getA()];
-                Vertex vertexB = mesh.getVertices()[face.getB()];
-                Vertex vertexC = mesh.getVertices()[face.getC()];
-                Vertex pixelA = this.project(vertexA, transformMatrix, worldMatrix);
-                Vertex pixelB = this.project(vertexB, transformMatrix, worldMatrix);
-                Vertex pixelC = this.project(vertexC, transformMatrix, worldMatrix);
-                // Draw
-                switch (mode) {
-                    case WIREFRAME:
-                        DrawUtils.drawTriangle(backBuffer, pixelA, pixelB, pixelC, Color.WHITE);
-                        break;
-                    case SHADING:
-                        DrawUtils.drawFilledTriangle(backBuffer, depthBuffer, pixelA, pixelB, pixelC,
-                                new Color(1.0, 1.0, 1.0, 1.0));
-                        break;
-                    case TEXTURE:
-                        DrawUtils.drawFilledTriangle(backBuffer, depthBuffer, pixelA, pixelB, pixelC,
-                                new Color(1.0, 1.0, 1.0, 1.0), mesh.getTexture());
-                        break;
+            Texture texture = mesh.getTexture();
+            int argb = getTint(instances, item);
+            int[] indices = mesh.getIndices();
+            for (int i = 0; i < indices.length; i += 3) {
+                int a = indices[i];
+                int b = indices[i + 1];
+                int c = indices[i + 2];
+                int outcodeA = cache.getOutcode(a);
+                int outcodeB = cache.getOutcode(b);
+                int outcodeC = cache.getOutcode(c);
+                if ((outcodeA & outcodeB & outcodeC) != 0) {
+                    // The three vertices are out of the same plane
+                    counts[RenderMetrics.Counter.TRIANGLES_CULLED.ordinal()]++;
+                    continue;
+                }
+                if ((outcodeA | outcodeB | outcodeC) == 0) {
+                    drawFace(cache, a, b, c, texture, argb, mode, cullBackFaces);
+                    continue;
+                }
+                // Clip against the near/far planes and draw the resulting polygon as a fan
+                int n = clipper.clip(cache, a, b, c);
+                for (int k = 1; k + 1 < n; k++) {
+                    drawFace(cache, clipper.getVertex(0), clipper.getVertex(k), clipper.getVertex(k + 1),
+                            texture, argb, mode, cullBackFaces);
                 }
             }
         }
+        if (tiled) {
+            tileRasterizer.flush(mode, rasterizer, textureFilter);
+        }
+    }
+
+    /**
+     * Compute the view and projection matrices of the camera, and the view frustum.
+     */
+    private void setupCamera(Camera camera) {
+        MathUtils.lookAtLH(camera.getPosition(), camera.getTarget(), MathUtils.UP, viewMatrix);
+        if (depthBuffer.isReversed()) {
+            MathUtils.perspectiveFovReversedLH(FOV, (double) width / height, zNear, zFar, projectionMatrix);
+        } else {
+            MathUtils.perspectiveFovLH(FOV, (double) width / height, zNear, zFar, projectionMatrix);
+        }
+        viewProjectionMatrix.mul(viewMatrix, projectionMatrix);
+        frustum.set(viewProjectionMatrix);
+    }
+
+    private Mesh getMesh(Mesh[] meshes, InstancedMesh[] instances, int item) {
+        int batch = itemBatches[item];
+        if (batch == MESH) {
+            return meshes[itemIndices[item]];
+        }
+        if (batch == SCENE_NODE) {
+            return visibleNodes.get(itemIndices[item]).getMesh();
+        }
+        return instances[batch].getMesh();
+    }
+
+    /**
+     * Color the pixels of an item are multiplied by.
+     */
+    private int getTint(InstancedMesh[] instances, int item) {
+        int batch = itemBatches[item];
+        if (batch < 0 || instances[batch].getTints() == null) {
+            return FrameBuffer.WHITE;
+        }
+        return instances[batch].getTints()[itemIndices[item]];
+    }
+
+    /**
+     * Vertex cache of an item. In tiled mode the triangles are rasterized after every item is projected,
+     * so every item needs its own cache; otherwise the instances of an instanced mesh share one, and the
+     * scene nodes share another.
+     */
+    private VertexCache getCache(int meshCount, int batchCount, int item) {
+        int batch = itemBatches[item];
+        int index;
+        if (tiled || batch == MESH) {
+            index = item;
+        } else if (batch == SCENE_NODE) {
+            index = meshCount + batchCount;
+        } else {
+            index = meshCount + batch;
+        }
+        if (vertexCaches.length <= index) {
+            vertexCaches = Arrays.copyOf(vertexCaches, Math.max(index + 1, 2 * vertexCaches.length));
+        }
+        if (vertexCaches[index] == null) {
+            vertexCaches[index] = new VertexCache();
+        }
+        return vertexCaches[index];
+    }
+
+    /**
+     * Draw a projected face (or leave it to the tiles).
+     */
+    private void drawFace(VertexCache cache, int a, int b, int c, Texture texture, int argb, RenderMode mode,
+                          boolean cullBackFaces) {
+        // Skip faces looking away from the camera
+        if (cullBackFaces && isBackFace(cache, a, b, c)) {
+            counts[RenderMetrics.Counter.TRIANGLES_CULLED.ordinal()]++;
+            return;
+        }
+        counts[RenderMetrics.Counter.TRIANGLES_RASTERIZED.ordinal()]++;
+        if (tiled) {
+            tileRasterizer.submit(cache, a, b, c, texture, argb);
+            return;
+        }
+        switch (mode) {
+            case WIREFRAME:
+                DrawUtils.drawTriangle(backBuffer, screen, cache, a, b, c, argb);
+                break;
+            case SHADING:
+                fillTriangle(rasterizer, backBuffer, depthBuffer, screen, cache, a, b, c, argb, null,
+                        textureFilter);
+                break;
+            case TEXTURE:
+                fillTriangle(rasterizer, backBuffer, depthBuffer, screen, cache, a, b, c, argb, texture,
+                        textureFilter);
+                break;
+        }
+    }
+
+    /**
+     * Draw a filled triangle with the given algorithm.
+     */
+    static void fillTriangle(Rasterizer rasterizer, FrameBuffer fb, DepthBuffer depthBuffer, Tile clip,
+                             VertexCache cache, int a, int b, int c, int argb, Texture texture,
+                             Texture.Filter filter) {
+        if (depthBuffer.isHierarchical() && isOccluded(depthBuffer, clip, cache, a, b, c)) {
+            clip.addOccludedTriangle();
+            return;
+        }
+        if (rasterizer == Rasterizer.EDGE_FUNCTION) {
+            EdgeFunctionRasterizer.drawFilledTriangle(fb, depthBuffer, clip, cache, a, b, c, argb, texture, filter);
+        } else {
+            DrawUtils.drawFilledTriangle(fb, depthBuffer, clip, cache, a, b, c, argb, texture, filter);
+        }
+    }
+
+    /**
+     * Test the bounding rectangle of a triangle (inside the tile) against the depth pyramid.
+     * Small triangles are not tested.
+     */
+    private static boolean isOccluded(DepthBuffer depthBuffer, Tile clip, VertexCache cache, int a, int b, int c) {
+        double ax = cache.getX(a);
+        double bx = cache.getX(b);
+        double cx = cache.getX(c);
+        double ay = cache.getY(a);
+        double by = cache.getY(b);
+        double cy = cache.getY(c);
+        int minX = Math.max(clip.getMinX(), (int) Math.floor(Math.min(ax, Math.min(bx, cx))));
+        int minY = Math.max(clip.getMinY(), (int) Math.floor(Math.min(ay, Math.min(by, cy))));
+        int maxX = Math.min(clip.getMaxX() - 1, (int) Math.ceil(Math.max(ax, Math.max(bx, cx))));
+        int maxY = Math.min(clip.getMaxY() - 1, (int) Math.ceil(Math.max(ay, Math.max(by, cy))));
+        if ((maxX - minX + 1) * (maxY - minY + 1) < MIN_OCCLUSION_TEST_AREA) {
+            return false;
+        }
+        double az = cache.getZ(a);
+        double bz = cache.getZ(b);
+        double cz = cache.getZ(c);
+        double nearest = depthBuffer.isReversed() ? Math.max(az, Math.max(bz, cz)) : Math.min(az, Math.min(bz, cz));
+        return depthBuffer.isOccluded(clip, minX, minY, maxX, maxY, (float) nearest);
+    }
+
+    /**
+     * Test the projected bounding box of the mesh against the depth pyramid.
+     *
+     * @param transform world * view * projection matrix of the mesh
+     * @return true if the mesh is certainly hidden by the meshes already drawn
+     */
+    private boolean isOccluded(Mesh mesh, Matrix4d transform) {
+        Vector3d min = mesh.getBoundsMin();
+        Vector3d max = mesh.getBoundsMax();
+        boolean reversed = depthBuffer.isReversed();
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        double nearest = reversed ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        for (int corner = 0; corner < 8; corner++) {
+            double x = (corner & 1) == 0 ? min.x : max.x;
+            double y = (corner & 2) == 0 ? min.y : max.y;
+            double z = (corner & 4) == 0 ? min.z : max.z;
+            double cx = x * transform.m00 + y * transform.m10 + z * transform.m20 + transform.m30;
+            double cy = x * transform.m01 + y * transform.m11 + z * transform.m21 + transform.m31;
+            double cz = x * transform.m02 + y * transform.m12 + z * transform.m22 + transform.m32;
+            double cw = x * transform.m03 + y * transform.m13 + z * transform.m23 + transform.m33;
+            if (cw <= 0 || (reversed ? cw - cz : cz) < 0) {
+                // The box crosses the near plane: its projection is unbounded
+                return false;
+            }
+            double sx = (cx / cw) * width + width / 2.0;
+            double sy = -(cy / cw) * height + height / 2.0;
+            minX = Math.min(minX, sx);
+            minY = Math.min(minY, sy);
+            maxX = Math.max(maxX, sx);
+            maxY = Math.max(maxY, sy);
+            nearest = reversed ? Math.max(nearest, cz / cw) : Math.min(nearest, cz / cw);
+        }
+        return depthBuffer.isOccluded(screen, Math.max(0, (int) Math.floor(minX)), Math.max(0, (int) Math.floor(minY)),
+                Math.min(screen.getMaxX() - 1, (int) Math.ceil(maxX)),
+                Math.min(screen.getMaxY() - 1, (int) Math.ceil(maxY)), (float) nearest);
+    }
+
+    /**
+     * Set the world matrix of an item: rotation and then translation.
+     *
+     * @param transforms positions and rotations of the meshes (see {@link FrameState}), or null to use the ones
+     *                   of the meshes
+     */
+    private void computeWorldMatrix(Mesh[] meshes, double[] transforms, InstancedMesh[] instances, int item) {
+        int batch = itemBatches[item];
+        int index = itemIndices[item];
+        if (batch == SCENE_NODE) {
+            // Cached by the scene
+            worldMatrix.set(visibleNodes.get(index).getWorldMatrix());
+            return;
+        }
+        if (batch >= 0) {
+            float[] t = instances[batch].getTransforms();
+            int offset = InstancedMesh.TRANSFORM_SIZE * index;
+            MathUtils.rotationYawPitchRoll(t[offset + 4], t[offset + 3], t[offset + 5], worldMatrix);
+            MathUtils.translation(t[offset], t[offset + 1], t[offset + 2], translationMatrix);
+        } else if (transforms != null) {
+            int t = 6 * index;
+            MathUtils.rotationYawPitchRoll(transforms[t + 4], transforms[t + 3], transforms[t + 5], worldMatrix);
+            MathUtils.translation(transforms[t], transforms[t + 1], transforms[t + 2], translationMatrix);
+        } else {
+            Mesh mesh = meshes[index];
+            MathUtils.rotationYawPitchRoll(mesh.getRotation().y, mesh.getRotation().x, mesh.getRotation().z,
+                    worldMatrix);
+            MathUtils.translation(mesh.getPosition().x, mesh.getPosition().y, mesh.getPosition().z,
+                    translationMatrix);
+        }
+        worldMatrix.mul(translationMatrix);
+    }
+
+    /**
+     * Fill the drawing order: by the view depth of the centers of the items if occlusion culling is
+     * enabled (so the nearest items hide the rest), otherwise in submission order.
+     */
+    private void sortItems(Mesh[] meshes, double[] transforms, InstancedMesh[] instances) {
+        if (drawOrder.length < itemCount) {
+            drawOrder = new int[itemCount];
+            drawDepths = new double[itemCount];
+        }
+        if (!occlusionCulling || itemCount != drawOrderCount) {
+            // Otherwise the order of the last frame is kept: it is almost sorted already
+            for (int item = 0; item < itemCount; item++) {
+                drawOrder[item] = item;
+            }
+            drawOrderCount = occlusionCulling ? itemCount : 0;
+        }
+        if (!occlusionCulling || itemCount < 2) {
+            return;
+        }
+        for (int item = 0; item < itemCount; item++) {
+            computeWorldMatrix(meshes, transforms, instances, item);
+            transformMatrix.set(worldMatrix);
+            transformMatrix.mul(viewMatrix);
+            Vector3d center = getMesh(meshes, instances, item).getBoundingCenter();
+            drawDepths[item] = center.x * transformMatrix.m02 + center.y * transformMatrix.m12
+                    + center.z * transformMatrix.m22 + transformMatrix.m32;
+        }
+        // Insertion sort: the order barely changes between frames
+        for (int i = 1; i < itemCount; i++) {
+            int item = drawOrder[i];
+            int j = i - 1;
+            while (j >= 0 && drawDepths[drawOrder[j]] > drawDepths[item]) {
+                drawOrder[j + 1] = drawOrder[j];
+                j--;
+            }
+            drawOrder[j + 1] = item;
+        }
     }
 
+    /**
+     * Level of detail of an item: the finest one with at most a triangle per {@link #lodPixelsPerTriangle}
+     * pixels of the bounding sphere on screen. The level of the last frame is kept while the area is within
+     * {@link #LOD_HYSTERESIS} of the one where it would change.
+     *
+     * @param worldView world * view matrix of the mesh (rotation and translation only)
+     * @param lastLevel level drawn in the last frame
+     */
+    private int selectLevel(Mesh mesh, Matrix4d worldView, int lastLevel) {
+        if (mesh.getLevelCount() == 1 || lodPixelsPerTriangle == 0) {
+            return 0;
+        }
+        Vector3d center = mesh.getBoundingCenter();
+        double r = mesh.getBoundingRadius();
+        double z = center.x * worldView.m02 + center.y * worldView.m12 + center.z * worldView.m22 + worldView.m32;
+        if (z <= r) {
+            // The camera is (almost) inside the sphere
+            return 0;
+        }
+        double radius = r / (z * Math.tan(FOV * 0.5)) * height;
+        double area = Math.PI * radius * radius;
+        int finest = levelFor(mesh, area * (1 + LOD_HYSTERESIS));
+        int coarsest = levelFor(mesh, area * (1 - LOD_HYSTERESIS));
+        return Math.min(Math.max(lastLevel, finest), coarsest);
+    }
+
+    /**
+     * Level of detail drawn in the last frame for an item. Scene nodes keep their own, since the nodes in
+     * the view (and so the items) change from frame to frame; the other items start again from the finest
+     * level when they are a different mesh or instance than in the last frame.
+     */
+    private int getLastLevel(Mesh[] meshes, InstancedMesh[] instances, int item) {
+        int batch = itemBatches[item];
+        if (batch == SCENE_NODE) {
+            return visibleNodes.get(itemIndices[item]).getLodLevel();
+        }
+        Object owner = batch == MESH ? meshes[itemIndices[item]] : instances[batch];
+        if (lodOwners[item] != owner || lodOwnerIndices[item] != itemIndices[item]) {
+            lodOwners[item] = owner;
+            lodOwnerIndices[item] = itemIndices[item];
+            lodLevels[item] = 0;
+        }
+        return lodLevels[item];
+    }
+
+    private void setLastLevel(int item, int level) {
+        if (itemBatches[item] == SCENE_NODE) {
+            visibleNodes.get(itemIndices[item]).setLodLevel(level);
+        } else {
+            lodLevels[item] = (byte) level;
+        }
+    }
+
+    /**
+     * Finest level of detail with at most a triangle per {@link #lodPixelsPerTriangle} pixels of the area.
+     */
+    private int levelFor(Mesh mesh, double area) {
+        double maxFaces = area / lodPixelsPerTriangle;
+        int level = 0;
+        while (level < mesh.getLevelCount() - 1 && mesh.getLevel(level).getFaceCount() > maxFaces) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Test the bounding sphere of the mesh against the view frustum.
+     *
+     * @param worldView world * view matrix of the mesh (rotation and translation only)
+     * @return false if the mesh is certainly out of the screen
+     */
+    private boolean isVisible(Mesh mesh, Matrix4d worldView) {
+        Vector3d center = mesh.getBoundingCenter();
+        double r = mesh.getBoundingRadius();
+        // Center of the sphere in view space
+        double x = center.x * worldView.m00 + center.y * worldView.m10 + center.z * worldView.m20 + worldView.m30;
+        double y = center.x * worldView.m01 + center.y * worldView.m11 + center.z * worldView.m21 + worldView.m31;
+        double z = center.x * worldView.m02 + center.y * worldView.m12 + center.z * worldView.m22 + worldView.m32;
+        // Near and far planes
+        if (z + r < zNear || z - r > zFar) {
+            return false;
+        }
+        // Side planes (they go through the camera, with slopes tanY and tanX).
+        // Projected coordinates between -0.5 and 0.5 are on screen
+        double tanY = 0.5 * Math.tan(FOV * 0.5);
+        double tanX = tanY * width / height;
+        double rx = r * Math.sqrt(1 + tanX * tanX);
+        double ry = r * Math.sqrt(1 + tanY * tanY);
+        return x - z * tanX <= rx && -x - z * tanX <= rx && y - z * tanY <= ry && -y - z * tanY <= ry;
+    }
 
     /**
-     * Project takes some 3D coordinates and transform them in
-     * 2D coordinates using the transformation matrix.
+     * A face looks away from the camera if its projected vertices are in clockwise order on screen.
      */
-    private Vertex project(Vertex vertex, Matrix4d transMat, Matrix4d world) {
-        // Transforming the coordinates into 2D space
-        Vector3d point2d = MathUtils.transformCoordinates(vertex.getCoordinates(), transMat);
-        // Transforming  the coordinates & the normal to the vertex in the 3D world
-        Vector3d point3dWorld = MathUtils.transformCoordinates(vertex.getCoordinates(), world);
-        Vector3d normal3dWorld = MathUtils.transformCoordinates(vertex.getNormal(), world);
-        // Transform from coordinate system starting at center to another starting at top left
-        double x = point2d.x * width + width / 2.0;
-        double y = -point2d.y * height + height / 2.0;
-        return new Vertex(new Vector3d(x, y, point2d.z), point3dWorld, normal3dWorld, vertex.getTextureCoordinates());
+    private static boolean isBackFace(VertexCache cache, int a, int b, int c) {
+        double abx = cache.getX(b) - cache.getX(a);
+        double aby = cache.getY(b) - cache.getY(a);
+        double acx = cache.getX(c) - cache.getX(a);
+        double acy = cache.getY(c) - cache.getY(a);
+        return abx * acy - aby * acx > 0;
     }
 }
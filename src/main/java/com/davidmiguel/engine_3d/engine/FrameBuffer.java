@@ -0,0 +1,87 @@
+package com.davidmiguel.engine_3d.engine;
+
+import java.util.Arrays;
+
+/**
+ * Color buffer where the rasterizer writes the pixels of a frame.
+ * Pixels are packed ARGB ints stored row by row. Finished frames are shown through a {@link RenderTarget}.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@SuppressWarnings("WeakerAccess")
+public class FrameBuffer {
+
+    /**
+     * Opaque black, the background of every frame.
+     */
+    public static final int BLACK = 0xFF000000;
+    /**
+     * Opaque white, the color of the meshes.
+     */
+    public static final int WHITE = 0xFFFFFFFF;
+
+    private final int[] pixels;
+    private final int width;
+    private final int height;
+
+    public FrameBuffer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.pixels = new int[width * height];
+    }
+
+    /**
+     * Fill the whole buffer with the given color.
+     */
+    public void clear(int argb) {
+        Arrays.fill(pixels, argb);
+    }
+
+    /**
+     * Set the color of the pixel at x,y. Coordinates must be inside the buffer.
+     */
+    public void setPixel(int x, int y, int argb) {
+        pixels[y * width + x] = argb;
+    }
+
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Pack color components between 0 and 1 into an opaque ARGB int.
+     */
+    public static int toArgb(double r, double g, double b) {
+        return 0xFF000000 | ((int) (r * 255.0 + 0.5) << 16) | ((int) (g * 255.0 + 0.5) << 8) | (int) (b * 255.0 + 0.5);
+    }
+
+    /**
+     * Red component of an ARGB color, between 0 and 1.
+     */
+    public static double red(int argb) {
+        return ((argb >> 16) & 0xFF) / 255.0;
+    }
+
+    /**
+     * Green component of an ARGB color, between 0 and 1.
+     */
+    public static double green(int argb) {
+        return ((argb >> 8) & 0xFF) / 255.0;
+    }
+
+    /**
+     * Blue component of an ARGB color, between 0 and 1.
+     */
+    public static double blue(int argb) {
+        return (argb & 0xFF) / 255.0;
+    }
+}
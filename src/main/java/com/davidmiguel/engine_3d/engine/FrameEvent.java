@@ -0,0 +1,79 @@
+package com.davidmiguel.engine_3d.engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event of a frame rendered by {@link Engine#draw}, with the duration of every stage
+ * and the counters of the frame (see {@link RenderMetrics}).
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@Name("com.davidmiguel.engine_3d.Frame")
+@Label("Frame")
+@Category({"Engine 3D", "Rendering"})
+@Description("Frame rendered by the engine")
+@StackTrace(false)
+class FrameEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(FrameEvent.class);
+
+    @Label("Width")
+    int width;
+    @Label("Height")
+    int height;
+    @Label("Render Mode")
+    String renderMode;
+    @Label("Rasterizer")
+    String rasterizer;
+    @Label("Tiled")
+    boolean tiled;
+    @Label("Meshes")
+    int meshes;
+
+    @Label("Clear Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long clearTime;
+    @Label("Transform Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long transformTime;
+    @Label("Raster Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long rasterTime;
+    @Label("Present Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long presentTime;
+
+    @Label("Triangles Submitted")
+    long trianglesSubmitted;
+    @Label("Triangles Culled")
+    long trianglesCulled;
+    @Label("Triangles Rasterized")
+    long trianglesRasterized;
+    @Label("Triangles Occluded")
+    long trianglesOccluded;
+    @Label("Pixels Shaded")
+    long pixelsShaded;
+    @Label("Pixels Depth Rejected")
+    long pixelsDepthRejected;
+
+    /**
+     * Start the event of a frame, or null if the event is not enabled in any recording,
+     * so nothing is allocated when Flight Recorder is not recording.
+     */
+    static FrameEvent start() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        FrameEvent event = new FrameEvent();
+        event.begin();
+        return event;
+    }
+}
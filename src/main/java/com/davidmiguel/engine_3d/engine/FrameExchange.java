@@ -0,0 +1,162 @@
+package com.davidmiguel.engine_3d.engine;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Render target that hands the finished frames of a render thread over to a display thread without locks.
+ * <p>
+ * The frames are copied into a ring of two or three buffers: one owned by the render thread, one owned by
+ * the display thread and, with three buffers, one in the middle holding the last finished frame. Both threads
+ * swap their buffer with the one in the middle with a single atomic operation, so neither of them ever sees
+ * a frame being written.
+ * <ul>
+ * <li>Three buffers (triple buffering): the render thread never waits. If the display thread has not taken
+ * the last frame when the next one is finished, the last one is dropped.</li>
+ * <li>Two buffers (double buffering): every frame is shown. The render thread waits until the display
+ * thread takes the last frame, so it renders at the rate of the display.</li>
+ * </ul>
+ * {@link #present(FrameBuffer)} must be called from a single render thread and {@link #acquire()} from a
+ * single display thread.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@SuppressWarnings("WeakerAccess")
+public class FrameExchange implements RenderTarget {
+
+    /**
+     * Bits of the state with the index of the buffer in the middle.
+     */
+    private static final int INDEX = 3;
+    /**
+     * Index meaning that there is no buffer in the middle.
+     */
+    private static final int EMPTY = 3;
+    /**
+     * Set if the buffer in the middle holds a frame the display thread has not taken yet.
+     */
+    private static final int FRESH = 4;
+
+    private final FrameBuffer[] buffers;
+    /**
+     * Buffer in the middle and whether it is fresh.
+     */
+    private final AtomicInteger middle;
+    /**
+     * Buffer owned by the render thread (-1 if it is waiting for one).
+     */
+    private int back;
+    /**
+     * Buffer owned by the display thread.
+     */
+    private int front;
+    /**
+     * Render thread waiting for the display thread (double buffering).
+     */
+    private volatile Thread waitingThread;
+    private volatile long droppedFrames;
+
+    /**
+     * @param buffers 2 (double buffering) or 3 (triple buffering)
+     */
+    public FrameExchange(int width, int height, int buffers) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid frame size.");
+        }
+        if (buffers != 2 && buffers != 3) {
+            throw new IllegalArgumentException("Only double or triple buffering is supported.");
+        }
+        this.buffers = new FrameBuffer[buffers];
+        for (int i = 0; i < buffers; i++) {
+            this.buffers[i] = new FrameBuffer(width, height);
+            this.buffers[i].clear(FrameBuffer.BLACK);
+        }
+        this.back = 0;
+        this.front = 1;
+        this.middle = new AtomicInteger(buffers == 3 ? 2 : EMPTY);
+    }
+
+    /**
+     * Copy a finished frame into the buffer of the render thread and publish it.
+     * With double buffering, wait until the display thread takes it (or the render thread is interrupted).
+     */
+    @Override
+    public void present(FrameBuffer frame) {
+        if (back < 0 && !takeReleasedBuffer()) {
+            return;
+        }
+        int[] pixels = buffers[back].getPixels();
+        if (frame.getPixels().length != pixels.length) {
+            throw new IllegalArgumentException("Frame size does not match the exchange size.");
+        }
+        System.arraycopy(frame.getPixels(), 0, pixels, 0, pixels.length);
+        int previous = middle.getAndSet(back | FRESH);
+        if (previous == EMPTY) {
+            // Double buffering: the display thread gives its buffer back when it takes this frame
+            back = -1;
+            takeReleasedBuffer();
+        } else {
+            if ((previous & FRESH) != 0) {
+                droppedFrames++;
+            }
+            back = previous & INDEX;
+        }
+    }
+
+    /**
+     * Wait for the buffer released by the display thread.
+     *
+     * @return false if the render thread was interrupted while waiting
+     */
+    private boolean takeReleasedBuffer() {
+        waitingThread = Thread.currentThread();
+        try {
+            int state;
+            while (((state = middle.get()) & FRESH) != 0) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return false;
+                }
+                LockSupport.park(this);
+            }
+            // Only the render thread changes a buffer that is not fresh
+            middle.set(EMPTY);
+            back = state;
+            return true;
+        } finally {
+            waitingThread = null;
+        }
+    }
+
+    /**
+     * Take the last finished frame. It is not modified until the next call.
+     *
+     * @return the frame, or null if no frame was finished since the last call
+     */
+    public FrameBuffer acquire() {
+        if ((middle.get() & FRESH) == 0) {
+            return null;
+        }
+        // Only the display thread changes a fresh buffer
+        front = middle.getAndSet(front) & INDEX;
+        Thread waiting = waitingThread;
+        if (waiting != null) {
+            LockSupport.unpark(waiting);
+        }
+        return buffers[front];
+    }
+
+    /**
+     * Number of buffers (2 or 3).
+     */
+    public int getBufferCount() {
+        return buffers.length;
+    }
+
+    /**
+     * Frames replaced by a newer one before the display thread took them (only with triple buffering).
+     */
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+}
@@ -0,0 +1,84 @@
+package com.davidmiguel.engine_3d.engine;
+
+import com.davidmiguel.engine_3d.meshes.InstancedMesh;
+import com.davidmiguel.engine_3d.meshes.Mesh;
+
+import javax.vecmath.Vector3d;
+
+/**
+ * Snapshot of everything that can change between frames: the camera, the position and rotation of every mesh
+ * and instance, the tints of the instances and the render mode.
+ * <p>
+ * It is taken by the thread that updates the scene and drawn by the render thread
+ * (see {@link Engine#draw(FrameState)}), so the camera and the meshes can be moved while a frame is being
+ * rendered without mixing two states of the scene in one frame. Only the geometry of the meshes, which does
+ * not change after they are loaded, is shared.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@SuppressWarnings("WeakerAccess")
+public class FrameState {
+
+    private final Camera camera;
+    private final Mesh[] meshes;
+    /**
+     * Position (x, y, z) and rotation (x, y, z) of every mesh.
+     */
+    private final double[] transforms;
+    private final InstancedMesh[] instances;
+    private final Engine.RenderMode mode;
+
+    public FrameState(Camera camera, Mesh[] meshes, Engine.RenderMode mode) {
+        this(camera, meshes, null, mode);
+    }
+
+    /**
+     * @param meshes    meshes drawn with their own position and rotation (may be null)
+     * @param instances instanced meshes (may be null), copied with their transforms and tints
+     */
+    public FrameState(Camera camera, Mesh[] meshes, InstancedMesh[] instances, Engine.RenderMode mode) {
+        if (meshes == null) {
+            meshes = new Mesh[0];
+        }
+        this.camera = new Camera(new Vector3d(camera.getPosition()), new Vector3d(camera.getTarget()));
+        this.meshes = meshes.clone();
+        this.transforms = new double[6 * meshes.length];
+        for (int m = 0; m < meshes.length; m++) {
+            Vector3d position = meshes[m].getPosition();
+            Vector3d rotation = meshes[m].getRotation();
+            int t = 6 * m;
+            transforms[t] = position.x;
+            transforms[t + 1] = position.y;
+            transforms[t + 2] = position.z;
+            transforms[t + 3] = rotation.x;
+            transforms[t + 4] = rotation.y;
+            transforms[t + 5] = rotation.z;
+        }
+        this.instances = new InstancedMesh[instances == null ? 0 : instances.length];
+        for (int i = 0; i < this.instances.length; i++) {
+            this.instances[i] = new InstancedMesh(instances[i]);
+        }
+        this.mode = mode;
+    }
+
+    Camera getCamera() {
+        return camera;
+    }
+
+    Mesh[] getMeshes() {
+        return meshes;
+    }
+
+    double[] getTransforms() {
+        return transforms;
+    }
+
+    InstancedMesh[] getInstances() {
+        return instances;
+    }
+
+    Engine.RenderMode getMode() {
+        return mode;
+    }
+}
@@ -0,0 +1,69 @@
+package com.davidmiguel.engine_3d.engine;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Render target that keeps the last frame in memory. It needs no display nor JavaFX toolkit,
+ * so it can be used for server-side and batch rendering.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@SuppressWarnings("WeakerAccess")
+public class ImageRenderTarget implements RenderTarget {
+
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+    private long frames;
+
+    public ImageRenderTarget(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid size: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.pixels = new int[width * height];
+    }
+
+    @Override
+    public void present(FrameBuffer frame) {
+        if (frame.getWidth() != width || frame.getHeight() != height) {
+            throw new IllegalArgumentException("Frame of " + frame.getWidth() + "x" + frame.getHeight()
+                    + " presented to a target of " + width + "x" + height);
+        }
+        System.arraycopy(frame.getPixels(), 0, pixels, 0, pixels.length);
+        frames++;
+    }
+
+    /**
+     * Pixels (packed ARGB) of the last frame, row by row.
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Copy of the last frame as an image that can be written with ImageIO.
+     */
+    public BufferedImage toBufferedImage() {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, width, height, pixels, 0, width);
+        return image;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Number of frames presented.
+     */
+    public long getFrameCount() {
+        return frames;
+    }
+}
@@ -0,0 +1,109 @@
+package com.davidmiguel.engine_3d.engine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Thread that owns an {@link Engine} and draws the last {@link FrameState} submitted, so rendering never
+ * blocks the thread that handles the input (and the other way round).
+ * <p>
+ * Frame states are handed over through an atomic reference: if several are submitted while a frame is being
+ * rendered, only the last one is drawn. The engine must only be configured from tasks passed to
+ * {@link #execute(Runnable)}, which run on the render thread between frames, before picking the next state.
+ * To present the frames on another thread, create the engine with a {@link FrameExchange} as render target.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@SuppressWarnings("WeakerAccess")
+public class RenderLoop {
+
+    private static final Logger logger = LoggerFactory.getLogger(RenderLoop.class);
+
+    private final Engine engine;
+    private final AtomicReference<FrameState> pendingState;
+    private final Queue<Runnable> tasks;
+    private final Thread thread;
+    private volatile boolean running;
+
+    public RenderLoop(Engine engine) {
+        this.engine = engine;
+        this.pendingState = new AtomicReference<>();
+        this.tasks = new ConcurrentLinkedQueue<>();
+        this.thread = new Thread(this::run, "render");
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Draw the given state as the next frame (replacing the submitted state not drawn yet, if any).
+     */
+    public void submit(FrameState state) {
+        pendingState.set(state);
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Run a task on the render thread before the next frame. Tasks run in the order they are passed, and
+     * before the render thread picks the next state: a task passed after submitting a state never runs
+     * while an older state is being drawn (e.g. to dispose meshes replaced by the submitted state).
+     */
+    public void execute(Runnable task) {
+        tasks.add(task);
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Stop the render thread once the frame in progress is finished, and run the pending tasks.
+     */
+    public void stop() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        runTasks();
+    }
+
+    private void run() {
+        while (running) {
+            runTasks();
+            FrameState state = pendingState.getAndSet(null);
+            if (state == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            try {
+                engine.draw(state);
+            } catch (RuntimeException e) {
+                logger.error("Error rendering frame.", e);
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.error("Error running task on the render thread.", e);
+            }
+        }
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+}
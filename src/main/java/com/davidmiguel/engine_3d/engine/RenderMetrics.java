@@ -0,0 +1,298 @@
+package com.davidmiguel.engine_3d.engine;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Timings and counters of the frames rendered by an {@link Engine}.
+ * <p>
+ * Every stage of a frame is timed with {@link System#nanoTime()} and recorded in a {@link LatencyHistogram},
+ * so the percentiles show the slow frames that an average hides. Recording a frame does not allocate.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@SuppressWarnings("WeakerAccess")
+public class RenderMetrics implements RenderMetricsMXBean {
+
+    /**
+     * Timed stages of a frame.
+     */
+    public enum Stage {
+        /**
+         * Whole frame (the sum of the other stages).
+         */
+        FRAME,
+        /**
+         * Clear of the color and depth buffers.
+         */
+        CLEAR,
+        /**
+         * Projection of the vertices.
+         */
+        TRANSFORM,
+        /**
+         * Clipping, culling and rasterization of the triangles (including the wait for the tiles).
+         */
+        RASTER,
+        /**
+         * Copy of the frame into the render target.
+         */
+        PRESENT
+    }
+
+    /**
+     * Counters of a frame.
+     */
+    public enum Counter {
+        /**
+         * Faces of the meshes drawn (including the ones of meshes out of the view frustum).
+         */
+        TRIANGLES_SUBMITTED,
+        /**
+         * Faces discarded because they are out of the view frustum or facing away from the camera.
+         */
+        TRIANGLES_CULLED,
+        /**
+         * Triangles sent to the rasterizer (after clipping, so a face can become two triangles).
+         */
+        TRIANGLES_RASTERIZED,
+        /**
+         * Triangles behind the depths already drawn, rejected without rasterizing them: faces of meshes whose
+         * bounds are hidden, and triangles rejected by the depth pyramid (in tiled mode, once per tile).
+         */
+        TRIANGLES_OCCLUDED,
+        /**
+         * Pixels of filled triangles written into the frame.
+         */
+        PIXELS_SHADED,
+        /**
+         * Pixels of filled triangles hidden by a nearer one (failed the depth test).
+         */
+        PIXELS_DEPTH_REJECTED
+    }
+
+    /**
+     * Weight of the last frame interval in the smoothed frame rate.
+     */
+    private static final double FPS_SMOOTHING = 0.1;
+
+    private final LatencyHistogram[] histograms;
+    private final long[] lastTimes;
+    private final long[] lastCounts;
+    private final long[] totalCounts;
+    private long frameCount;
+    private long lastFrameStart;
+    private double averageInterval;
+    private ObjectName objectName;
+
+    public RenderMetrics() {
+        this.histograms = new LatencyHistogram[Stage.values().length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        this.lastTimes = new long[Stage.values().length];
+        this.lastCounts = new long[Counter.values().length];
+        this.totalCounts = new long[Counter.values().length];
+    }
+
+    /**
+     * Record a frame.
+     *
+     * @param frameStart {@link System#nanoTime()} at the start of the frame
+     * @param times      duration (ns) of every stage, indexed by {@link Stage#ordinal()}
+     * @param counts     counters of the frame, indexed by {@link Counter#ordinal()}
+     */
+    synchronized void recordFrame(long frameStart, long[] times, long[] counts) {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i].record(times[i]);
+            lastTimes[i] = times[i];
+        }
+        for (int i = 0; i < totalCounts.length; i++) {
+            lastCounts[i] = counts[i];
+            totalCounts[i] += counts[i];
+        }
+        if (frameCount > 0) {
+            long interval = frameStart - lastFrameStart;
+            averageInterval = averageInterval == 0 ? interval
+                    : averageInterval + FPS_SMOOTHING * (interval - averageInterval);
+        }
+        lastFrameStart = frameStart;
+        frameCount++;
+    }
+
+    /**
+     * Histogram of the durations (ns) of a stage.
+     */
+    public LatencyHistogram getHistogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    /**
+     * Duration (ns) of a stage in the last frame.
+     */
+    public synchronized long getLastTime(Stage stage) {
+        return lastTimes[stage.ordinal()];
+    }
+
+    /**
+     * Value of a counter in the last frame.
+     */
+    public synchronized long getLastCount(Counter counter) {
+        return lastCounts[counter.ordinal()];
+    }
+
+    /**
+     * Sum of a counter over all the frames since the last reset.
+     */
+    public synchronized long getTotalCount(Counter counter) {
+        return totalCounts[counter.ordinal()];
+    }
+
+    @Override
+    public synchronized long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Frames per second, from the smoothed time between the starts of consecutive frames.
+     */
+    @Override
+    public synchronized double getFramesPerSecond() {
+        return averageInterval > 0 ? 1e9 / averageInterval : 0;
+    }
+
+    @Override
+    public synchronized void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        Arrays.fill(lastTimes, 0);
+        Arrays.fill(lastCounts, 0);
+        Arrays.fill(totalCounts, 0);
+        frameCount = 0;
+        averageInterval = 0;
+    }
+
+    /**
+     * Percentile of the duration of a stage in milliseconds.
+     */
+    public double getPercentile(Stage stage, double percentile) {
+        return histograms[stage.ordinal()].getValueAtPercentile(percentile) / 1e6;
+    }
+
+    @Override
+    public double getFrameTimeP50() {
+        return getPercentile(Stage.FRAME, 50);
+    }
+
+    @Override
+    public double getFrameTimeP99() {
+        return getPercentile(Stage.FRAME, 99);
+    }
+
+    @Override
+    public double getFrameTimeMax() {
+        return histograms[Stage.FRAME.ordinal()].getMax() / 1e6;
+    }
+
+    @Override
+    public double getClearTimeP50() {
+        return getPercentile(Stage.CLEAR, 50);
+    }
+
+    @Override
+    public double getClearTimeP99() {
+        return getPercentile(Stage.CLEAR, 99);
+    }
+
+    @Override
+    public double getTransformTimeP50() {
+        return getPercentile(Stage.TRANSFORM, 50);
+    }
+
+    @Override
+    public double getTransformTimeP99() {
+        return getPercentile(Stage.TRANSFORM, 99);
+    }
+
+    @Override
+    public double getRasterTimeP50() {
+        return getPercentile(Stage.RASTER, 50);
+    }
+
+    @Override
+    public double getRasterTimeP99() {
+        return getPercentile(Stage.RASTER, 99);
+    }
+
+    @Override
+    public double getPresentTimeP50() {
+        return getPercentile(Stage.PRESENT, 50);
+    }
+
+    @Override
+    public double getPresentTimeP99() {
+        return getPercentile(Stage.PRESENT, 99);
+    }
+
+    @Override
+    public long getTrianglesSubmitted() {
+        return getTotalCount(Counter.TRIANGLES_SUBMITTED);
+    }
+
+    @Override
+    public long getTrianglesCulled() {
+        return getTotalCount(Counter.TRIANGLES_CULLED);
+    }
+
+    @Override
+    public long getTrianglesRasterized() {
+        return getTotalCount(Counter.TRIANGLES_RASTERIZED);
+    }
+
+    @Override
+    public long getTrianglesOccluded() {
+        return getTotalCount(Counter.TRIANGLES_OCCLUDED);
+    }
+
+    @Override
+    public long getPixelsShaded() {
+        return getTotalCount(Counter.PIXELS_SHADED);
+    }
+
+    @Override
+    public long getPixelsDepthRejected() {
+        return getTotalCount(Counter.PIXELS_DEPTH_REJECTED);
+    }
+
+    /**
+     * Publish the metrics in the platform MBean server as
+     * {@code com.davidmiguel.engine_3d:type=RenderMetrics,name=<name>}.
+     *
+     * @throws JMException if the name is not valid or it is already registered
+     */
+    public synchronized void register(String name) throws JMException {
+        unregister();
+        ObjectName objectName = new ObjectName("com.davidmiguel.engine_3d:type=RenderMetrics,name="
+                + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        this.objectName = objectName;
+    }
+
+    /**
+     * Remove the metrics from the platform MBean server (if they were registered).
+     */
+    public synchronized void unregister() throws JMException {
+        if (objectName != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            objectName = null;
+        }
+    }
+}
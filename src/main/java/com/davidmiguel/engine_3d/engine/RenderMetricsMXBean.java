@@ -0,0 +1,54 @@
+package com.davidmiguel.engine_3d.engine;
+
+/**
+ * Render metrics published through JMX (see {@link RenderMetrics#register(String)}).
+ * Durations are in milliseconds and counters are totals since the last reset.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+public interface RenderMetricsMXBean {
+
+    long getFrameCount();
+
+    double getFramesPerSecond();
+
+    double getFrameTimeP50();
+
+    double getFrameTimeP99();
+
+    double getFrameTimeMax();
+
+    double getClearTimeP50();
+
+    double getClearTimeP99();
+
+    double getTransformTimeP50();
+
+    double getTransformTimeP99();
+
+    double getRasterTimeP50();
+
+    double getRasterTimeP99();
+
+    double getPresentTimeP50();
+
+    double getPresentTimeP99();
+
+    long getTrianglesSubmitted();
+
+    long getTrianglesCulled();
+
+    long getTrianglesRasterized();
+
+    long getTrianglesOccluded();
+
+    long getPixelsShaded();
+
+    long getPixelsDepthRejected();
+
+    /**
+     * Forget every recorded frame.
+     */
+    void reset();
+}
@@ -0,0 +1,18 @@
+package com.davidmiguel.engine_3d.engine;
+
+/**
+ * Destination of the frames rendered by the {@link Engine}: a window, an image in memory, a file...
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+public interface RenderTarget {
+
+    /**
+     * Show a finished frame. The frame buffer is reused for the next frame, so the pixels
+     * must be copied if they are needed after this call returns.
+     *
+     * @param frame pixels of the frame (same size the engine was created with)
+     */
+    void present(FrameBuffer frame);
+}
@@ -0,0 +1,113 @@
+package com.davidmiguel.engine_3d.engine;
+
+import java.util.Arrays;
+
+/**
+ * Rectangular region of the screen [minX, maxX) x [minY, maxY).
+ * Used to clip the rasterization and, in tiled mode, to bin the triangles that overlap it.
+ * Only one thread rasterizes a tile at a time, so the rasterizers count the pixels (and triangles)
+ * they process in the tile without synchronization.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@SuppressWarnings("WeakerAccess")
+public class Tile {
+
+    private final int minX;
+    private final int minY;
+    private final int maxX;
+    private final int maxY;
+
+    /**
+     * Indices of the triangles that overlap the tile, in submission order.
+     */
+    private int[] triangles;
+    private int triangleCount;
+
+    /**
+     * Pixels written and pixels that failed the depth test since the counters were reset.
+     */
+    private long pixelsShaded;
+    private long pixelsDepthRejected;
+    /**
+     * Triangles rejected by the depth pyramid in the tile since the counters were reset.
+     */
+    private long trianglesOccluded;
+
+    public Tile(int minX, int minY, int maxX, int maxY) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.triangles = new int[16];
+    }
+
+    void addTriangle(int triangle) {
+        if (triangleCount == triangles.length) {
+            triangles = Arrays.copyOf(triangles, triangleCount * 2);
+        }
+        triangles[triangleCount++] = triangle;
+    }
+
+    void clearTriangles() {
+        triangleCount = 0;
+    }
+
+    int getTriangle(int i) {
+        return triangles[i];
+    }
+
+    int getTriangleCount() {
+        return triangleCount;
+    }
+
+    /**
+     * Add the pixels processed by a rasterizer inside the tile.
+     */
+    public void addPixelCounts(int shaded, int depthRejected) {
+        pixelsShaded += shaded;
+        pixelsDepthRejected += depthRejected;
+    }
+
+    /**
+     * Count a triangle rejected by the depth pyramid inside the tile.
+     */
+    public void addOccludedTriangle() {
+        trianglesOccluded++;
+    }
+
+    public void resetCounts() {
+        pixelsShaded = 0;
+        pixelsDepthRejected = 0;
+        trianglesOccluded = 0;
+    }
+
+    public long getPixelsShaded() {
+        return pixelsShaded;
+    }
+
+    public long getPixelsDepthRejected() {
+        return pixelsDepthRejected;
+    }
+
+    public long getTrianglesOccluded() {
+        return trianglesOccluded;
+    }
+
+    public int getMinX() {
+        return minX;
+    }
+
+    public int getMinY() {
+        return minY;
+    }
+
+    public int getMaxX() {
+        return maxX;
+    }
+
+    public int getMaxY() {
+        return maxY;
+    }
+}
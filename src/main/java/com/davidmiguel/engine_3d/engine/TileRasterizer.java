@@ -0,0 +1,265 @@
+package com.davidmiguel.engine_3d.engine;
+
+import com.davidmiguel.engine_3d.meshes.Texture;
+import com.davidmiguel.engine_3d.utils.DrawUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Multi-core rasterizer.
+ * Projected triangles are binned into the screen tiles they overlap. Then every tile is rasterized
+ * by a ForkJoin worker that only writes the pixels of its own tile, so no locks are needed.
+ * Triangles keep their submission order inside each tile, so the result is the same as
+ * rasterizing them one after another.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+class TileRasterizer {
+
+    /**
+     * Number of tiles below which a task stops splitting.
+     */
+    private static final int TILES_PER_TASK = 2;
+
+    private final FrameBuffer backBuffer;
+    private final DepthBuffer depthBuffer;
+    private final ForkJoinPool pool;
+
+    private final int tileSize;
+    private final int columns;
+    private final int rows;
+    private final Tile[] tiles;
+    /**
+     * Root of the tree of tasks that rasterize the tiles. It is built once and reused every frame.
+     */
+    private final RasterTask rootTask;
+
+    /**
+     * Vertex cache of every submitted triangle.
+     */
+    private VertexCache[] caches;
+    /**
+     * Vertex indices of the submitted triangles (three per triangle).
+     */
+    private int[] vertices;
+    /**
+     * Texture of every submitted triangle.
+     */
+    private Texture[] textures;
+    /**
+     * Color of every submitted triangle.
+     */
+    private int[] colors;
+    private int triangleCount;
+
+    /**
+     * Render mode, fill algorithm and texture filter of the frame being flushed.
+     */
+    private Engine.RenderMode mode;
+    private Engine.Rasterizer rasterizer;
+    private Texture.Filter textureFilter;
+
+    TileRasterizer(FrameBuffer backBuffer, DepthBuffer depthBuffer, int tileSize, int threads) {
+        this.backBuffer = backBuffer;
+        this.depthBuffer = depthBuffer;
+        this.pool = new ForkJoinPool(threads);
+        this.tileSize = tileSize;
+        int width = backBuffer.getWidth();
+        int height = backBuffer.getHeight();
+        this.columns = (width + tileSize - 1) / tileSize;
+        this.rows = (height + tileSize - 1) / tileSize;
+        this.tiles = new Tile[columns * rows];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                tiles[row * columns + column] = new Tile(column * tileSize, row * tileSize,
+                        Math.min((column + 1) * tileSize, width), Math.min((row + 1) * tileSize, height));
+            }
+        }
+        this.caches = new VertexCache[256];
+        this.vertices = new int[3 * 256];
+        this.textures = new Texture[256];
+        this.colors = new int[256];
+        this.rootTask = new RasterTask(0, tiles.length);
+    }
+
+    /**
+     * Forget the triangles of the previous frame.
+     */
+    void begin() {
+        for (Tile tile : tiles) {
+            tile.clearTriangles();
+            tile.resetCounts();
+        }
+        Arrays.fill(caches, 0, triangleCount, null);
+        Arrays.fill(textures, 0, triangleCount, null);
+        triangleCount = 0;
+    }
+
+    /**
+     * Add a projected triangle to every tile its bounding box overlaps.
+     */
+    void submit(VertexCache cache, int a, int b, int c, Texture texture, int argb) {
+        double ax = cache.getX(a), ay = cache.getY(a);
+        double bx = cache.getX(b), by = cache.getY(b);
+        double cx = cache.getX(c), cy = cache.getY(c);
+        // Conservative bounding box in pixels (the rasterizer truncates coordinates)
+        int minX = Math.max((int) Math.floor(Math.min(ax, Math.min(bx, cx))), 0);
+        int minY = Math.max((int) Math.floor(Math.min(ay, Math.min(by, cy))), 0);
+        int maxX = Math.min((int) Math.ceil(Math.max(ax, Math.max(bx, cx))), backBuffer.getWidth() - 1);
+        int maxY = Math.min((int) Math.ceil(Math.max(ay, Math.max(by, cy))), backBuffer.getHeight() - 1);
+        if (minX > maxX || minY > maxY) {
+            // Not visible
+            return;
+        }
+        if (triangleCount == textures.length) {
+            caches = Arrays.copyOf(caches, 2 * triangleCount);
+            vertices = Arrays.copyOf(vertices, 6 * triangleCount);
+            textures = Arrays.copyOf(textures, 2 * triangleCount);
+            colors = Arrays.copyOf(colors, 2 * triangleCount);
+        }
+        int triangle = triangleCount++;
+        caches[triangle] = cache;
+        vertices[3 * triangle] = a;
+        vertices[3 * triangle + 1] = b;
+        vertices[3 * triangle + 2] = c;
+        textures[triangle] = texture;
+        colors[triangle] = argb;
+        for (int row = minY / tileSize; row <= maxY / tileSize; row++) {
+            for (int column = minX / tileSize; column <= maxX / tileSize; column++) {
+                tiles[row * columns + column].addTriangle(triangle);
+            }
+        }
+    }
+
+    /**
+     * Rasterize all the submitted triangles in parallel and wait until every tile is done.
+     */
+    void flush(Engine.RenderMode mode, Engine.Rasterizer rasterizer, Texture.Filter textureFilter) {
+        this.mode = mode;
+        this.rasterizer = rasterizer;
+        this.textureFilter = textureFilter;
+        rootTask.reinitialize();
+        pool.invoke(rootTask);
+    }
+
+    /**
+     * Stop the worker threads.
+     */
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Pixels written by all the tiles in the last flush.
+     */
+    long getPixelsShaded() {
+        long pixels = 0;
+        for (Tile tile : tiles) {
+            pixels += tile.getPixelsShaded();
+        }
+        return pixels;
+    }
+
+    /**
+     * Pixels that failed the depth test in all the tiles in the last flush.
+     */
+    long getPixelsDepthRejected() {
+        long pixels = 0;
+        for (Tile tile : tiles) {
+            pixels += tile.getPixelsDepthRejected();
+        }
+        return pixels;
+    }
+
+    /**
+     * Triangles rejected by the depth pyramid in all the tiles in the last flush (once per tile they overlap).
+     */
+    long getTrianglesOccluded() {
+        long triangles = 0;
+        for (Tile tile : tiles) {
+            triangles += tile.getTrianglesOccluded();
+        }
+        return triangles;
+    }
+
+    int getTileSize() {
+        return tileSize;
+    }
+
+    int getThreads() {
+        return pool.getParallelism();
+    }
+
+    private void rasterize(Tile tile) {
+        VertexCache previousCache = null;
+        for (int i = 0; i < tile.getTriangleCount(); i++) {
+            int triangle = tile.getTriangle(i);
+            VertexCache cache = caches[triangle];
+            if (previousCache != null && cache != previousCache) {
+                // First triangle of the next mesh (or instance): it can be hidden by the previous ones
+                depthBuffer.update(tile);
+            }
+            previousCache = cache;
+            int a = vertices[3 * triangle];
+            int b = vertices[3 * triangle + 1];
+            int c = vertices[3 * triangle + 2];
+            int argb = colors[triangle];
+            switch (mode) {
+                case WIREFRAME:
+                    DrawUtils.drawTriangle(backBuffer, tile, cache, a, b, c, argb);
+                    break;
+                case SHADING:
+                    Engine.fillTriangle(rasterizer, backBuffer, depthBuffer, tile, cache, a, b, c, argb, null,
+                            textureFilter);
+                    break;
+                case TEXTURE:
+                    Engine.fillTriangle(rasterizer, backBuffer, depthBuffer, tile, cache, a, b, c, argb,
+                            textures[triangle], textureFilter);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Rasterizes a range of tiles, splitting it while it is big enough.
+     * The subtasks are created with the task, so flushing a frame does not allocate.
+     */
+    private class RasterTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final RasterTask left;
+        private final RasterTask right;
+
+        RasterTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+            if (to - from <= TILES_PER_TASK) {
+                this.left = null;
+                this.right = null;
+            } else {
+                int middle = (from + to) >>> 1;
+                this.left = new RasterTask(from, middle);
+                this.right = new RasterTask(middle, to);
+            }
+        }
+
+        @Override
+        protected void compute() {
+            if (left == null) {
+                for (int i = from; i < to; i++) {
+                    rasterize(tiles[i]);
+                }
+            } else {
+                left.reinitialize();
+                right.reinitialize();
+                invokeAll(left, right);
+            }
+        }
+    }
+}
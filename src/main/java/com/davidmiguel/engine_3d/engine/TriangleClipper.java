@@ -0,0 +1,67 @@
+package com.davidmiguel.engine_3d.engine;
+
+/**
+ * Clips triangles against the near and far planes in homogeneous clip space
+ * (Sutherland-Hodgman algorithm), so triangles crossing the camera plane can be drawn safely.
+ * The vertices created by clipping are appended to the vertex cache of the triangle.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+class TriangleClipper {
+
+    /**
+     * A triangle clipped by two planes has at most five vertices.
+     */
+    private static final int MAX_VERTICES = 5;
+
+    private final int[] polygon = new int[MAX_VERTICES];
+    private final int[] scratch = new int[MAX_VERTICES];
+
+    /**
+     * Clip the triangle a,b,c. It must have at least one vertex outside the near or far plane.
+     *
+     * @return number of vertices of the resulting convex polygon (0 if nothing is left)
+     */
+    int clip(VertexCache cache, int a, int b, int c) {
+        polygon[0] = a;
+        polygon[1] = b;
+        polygon[2] = c;
+        int n = 3;
+        int outcodes = cache.getOutcode(a) | cache.getOutcode(b) | cache.getOutcode(c);
+        if ((outcodes & VertexCache.OUTSIDE_NEAR) != 0) {
+            n = clipAgainst(cache, polygon, n, scratch, true);
+            System.arraycopy(scratch, 0, polygon, 0, n);
+        }
+        if (n > 0 && (outcodes & VertexCache.OUTSIDE_FAR) != 0) {
+            n = clipAgainst(cache, polygon, n, scratch, false);
+            System.arraycopy(scratch, 0, polygon, 0, n);
+        }
+        return n;
+    }
+
+    /**
+     * Vertex i of the last clipped polygon.
+     */
+    int getVertex(int i) {
+        return polygon[i];
+    }
+
+    private static int clipAgainst(VertexCache cache, int[] in, int n, int[] out, boolean near) {
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            int current = in[i];
+            int next = in[(i + 1) % n];
+            double dCurrent = near ? cache.distanceToNear(current) : cache.distanceToFar(current);
+            double dNext = near ? cache.distanceToNear(next) : cache.distanceToFar(next);
+            if (dCurrent >= 0) {
+                out[count++] = current;
+            }
+            if ((dCurrent >= 0) != (dNext >= 0)) {
+                // The edge crosses the plane
+                out[count++] = cache.addIntersection(current, next, dCurrent / (dCurrent - dNext));
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,241 @@
+package com.davidmiguel.engine_3d.engine;
+
+import com.davidmiguel.engine_3d.meshes.Mesh;
+import com.davidmiguel.engine_3d.utils.MathUtils;
+
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Vector3d;
+import java.util.Arrays;
+
+/**
+ * Post-transform vertex cache.
+ * Every vertex of a mesh is projected once per frame and the results are stored in reusable arrays,
+ * so the faces only have to index into them.
+ * <p>
+ * Vertices created when a face is clipped against the near/far planes are appended after
+ * the vertices of the mesh, so they can be indexed the same way until the next frame.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@SuppressWarnings("WeakerAccess")
+public class VertexCache {
+
+    /**
+     * Outcode bit of the vertices in front of the near plane.
+     */
+    public static final int OUTSIDE_NEAR = 1;
+    /**
+     * Outcode bit of the vertices behind the far plane.
+     */
+    public static final int OUTSIDE_FAR = 2;
+
+    /**
+     * Homogeneous clip coordinates of the vertices (x, y, z, w).
+     */
+    private double[] clip;
+    /**
+     * Screen coordinates of the vertices (x, y in pixels and projected z).
+     */
+    private double[] screen;
+    /**
+     * Coordinates of the mesh vertices in the 3D world.
+     */
+    private double[] world;
+    /**
+     * Normal vectors of the mesh vertices in the 3D world.
+     */
+    private double[] normals;
+    /**
+     * Cosine of the angle between the light vector and the normal vector of the vertices.
+     */
+    private double[] nDotL;
+    /**
+     * Planes each vertex is outside of (OUTSIDE_NEAR | OUTSIDE_FAR).
+     */
+    private int[] outcodes;
+    /**
+     * Texture coordinates of the mesh vertices (taken from the mesh, null if it has none).
+     */
+    private float[] uvs;
+    /**
+     * Texture coordinates of the clipped vertices.
+     */
+    private double[] clippedUvs;
+    /**
+     * Number of vertices of the mesh.
+     */
+    private int size;
+    /**
+     * Number of vertices including the ones created by clipping.
+     */
+    private int count;
+
+    private double width;
+    private double height;
+    private boolean reversedZ;
+
+    public VertexCache() {
+        this.clip = new double[0];
+        this.screen = new double[0];
+        this.world = new double[0];
+        this.normals = new double[0];
+        this.nDotL = new double[0];
+        this.outcodes = new int[0];
+        this.clippedUvs = new double[0];
+    }
+
+    /**
+     * Project all the vertices of the mesh.
+     *
+     * @param mesh      mesh to project
+     * @param transMat  world * view * projection matrix
+     * @param worldMat  world matrix of the mesh
+     * @param width     width of the screen
+     * @param height    height of the screen
+     * @param light     position of the light
+     * @param reversedZ whether the projection maps the near plane to 1 and the far plane to 0
+     */
+    public void transform(Mesh mesh, Matrix4d transMat, Matrix4d worldMat, double width, double height,
+                          Vector3d light, boolean reversedZ) {
+        this.width = width;
+        this.height = height;
+        this.reversedZ = reversedZ;
+        size = mesh.getVertexCount();
+        count = size;
+        ensureCapacity(size);
+        uvs = mesh.getUvs();
+        float[] positions = mesh.getPositions();
+        float[] meshNormals = mesh.getNormals();
+        for (int i = 0; i < size; i++) {
+            int p = 3 * i;
+            double x = positions[p];
+            double y = positions[p + 1];
+            double z = positions[p + 2];
+            // Transforming the coordinates into clip space and then into 2D space
+            MathUtils.transformHomogeneous(x, y, z, transMat, clip, 4 * i);
+            project(i);
+            // Transforming the coordinates & the normal to the vertex in the 3D world
+            MathUtils.transformCoordinates(x, y, z, worldMat, world, p);
+            MathUtils.transformCoordinates(meshNormals[p], meshNormals[p + 1], meshNormals[p + 2],
+                    worldMat, normals, p);
+            // Light intensity of the vertex
+            nDotL[i] = MathUtils.computeNDotL(world[p], world[p + 1], world[p + 2],
+                    normals[p], normals[p + 1], normals[p + 2], light.x, light.y, light.z);
+        }
+    }
+
+    /**
+     * Divide the clip coordinates of a vertex by w, map them to the screen and compute its outcode.
+     */
+    private void project(int vertex) {
+        int c = 4 * vertex;
+        int p = 3 * vertex;
+        double w = clip[c + 3];
+        // Transform from coordinate system starting at center to another starting at top left
+        screen[p] = (clip[c] / w) * width + width / 2.0;
+        screen[p + 1] = -(clip[c + 1] / w) * height + height / 2.0;
+        screen[p + 2] = clip[c + 2] / w;
+        outcodes[vertex] = (distanceToNear(vertex) < 0 ? OUTSIDE_NEAR : 0)
+                | (distanceToFar(vertex) < 0 ? OUTSIDE_FAR : 0);
+    }
+
+    /**
+     * Signed distance (in clip space) of the vertex to the near plane. Negative if it is outside.
+     */
+    double distanceToNear(int vertex) {
+        return reversedZ ? clip[4 * vertex + 3] - clip[4 * vertex + 2] : clip[4 * vertex + 2];
+    }
+
+    /**
+     * Signed distance (in clip space) of the vertex to the far plane. Negative if it is outside.
+     */
+    double distanceToFar(int vertex) {
+        return reversedZ ? clip[4 * vertex + 2] : clip[4 * vertex + 3] - clip[4 * vertex + 2];
+    }
+
+    /**
+     * Create the vertex between a and b at parameter t (0 is a, 1 is b), interpolating
+     * every attribute in clip space.
+     *
+     * @return index of the new vertex
+     */
+    int addIntersection(int a, int b, double t) {
+        int vertex = count++;
+        ensureCapacity(count);
+        int c = 4 * vertex;
+        for (int k = 0; k < 4; k++) {
+            clip[c + k] = clip[4 * a + k] + (clip[4 * b + k] - clip[4 * a + k]) * t;
+        }
+        nDotL[vertex] = nDotL[a] + (nDotL[b] - nDotL[a]) * t;
+        if (uvs != null) {
+            int uv = 2 * (vertex - size);
+            clippedUvs[uv] = getU(a) + (getU(b) - getU(a)) * t;
+            clippedUvs[uv + 1] = getV(a) + (getV(b) - getV(a)) * t;
+        }
+        project(vertex);
+        return vertex;
+    }
+
+    private void ensureCapacity(int vertices) {
+        if (nDotL.length < vertices) {
+            int capacity = Math.max(vertices, nDotL.length + nDotL.length / 2);
+            clip = Arrays.copyOf(clip, 4 * capacity);
+            screen = Arrays.copyOf(screen, 3 * capacity);
+            world = Arrays.copyOf(world, 3 * capacity);
+            normals = Arrays.copyOf(normals, 3 * capacity);
+            nDotL = Arrays.copyOf(nDotL, capacity);
+            outcodes = Arrays.copyOf(outcodes, capacity);
+        }
+        if (uvs != null && clippedUvs.length < 2 * (vertices - size)) {
+            clippedUvs = Arrays.copyOf(clippedUvs, Math.max(2 * (vertices - size), clippedUvs.length * 2));
+        }
+    }
+
+    /**
+     * Number of vertices of the mesh.
+     */
+    public int size() {
+        return size;
+    }
+
+    public double getX(int vertex) {
+        return screen[3 * vertex];
+    }
+
+    public double getY(int vertex) {
+        return screen[3 * vertex + 1];
+    }
+
+    public double getZ(int vertex) {
+        return screen[3 * vertex + 2];
+    }
+
+    public double getNDotL(int vertex) {
+        return nDotL[vertex];
+    }
+
+    public int getOutcode(int vertex) {
+        return outcodes[vertex];
+    }
+
+    public double getU(int vertex) {
+        return vertex < size ? uvs[2 * vertex] : clippedUvs[2 * (vertex - size)];
+    }
+
+    public double getV(int vertex) {
+        return vertex < size ? uvs[2 * vertex + 1] : clippedUvs[2 * (vertex - size) + 1];
+    }
+
+    public double[] getWorldCoordinates() {
+        return world;
+    }
+
+    public double[] getNormals() {
+        return normals;
+    }
+
+    public boolean hasTextureCoordinates() {
+        return uvs != null;
+    }
+}
@@ -0,0 +1,180 @@
+package com.davidmiguel.engine_3d.meshes;
+
+import java.util.Arrays;
+
+/**
+ * Many copies (instances) of one mesh, each with its own position, rotation and tint.
+ * <p>
+ * The geometry and the texture are shared with the mesh, so a copy only costs its transform: six floats
+ * packed in one array (position x, y, z and rotation x, y, z per instance). The position and rotation of
+ * the mesh itself are ignored.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@SuppressWarnings("WeakerAccess")
+public class InstancedMesh {
+
+    /**
+     * Floats per instance in the transform array.
+     */
+    public static final int TRANSFORM_SIZE = 6;
+    /**
+     * Tint of the instances that have not been tinted (opaque white, that is, the color of the mesh).
+     */
+    public static final int NO_TINT = 0xFFFFFFFF;
+
+    private final Mesh mesh;
+    /**
+     * Position (x, y, z) and rotation (x, y, z) of every instance.
+     */
+    private float[] transforms;
+    /**
+     * ARGB color every instance is multiplied by. Null until some instance is tinted.
+     */
+    private int[] tints;
+    private int count;
+
+    public InstancedMesh(Mesh mesh) {
+        this(mesh, 16);
+    }
+
+    /**
+     * @param capacity number of instances the arrays are sized for (they grow when needed)
+     */
+    public InstancedMesh(Mesh mesh, int capacity) {
+        if (mesh == null) {
+            throw new IllegalArgumentException("Mesh cannot be null.");
+        }
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative.");
+        }
+        this.mesh = mesh;
+        this.transforms = new float[TRANSFORM_SIZE * capacity];
+    }
+
+    /**
+     * Copy of the instances of another instanced mesh (sharing its mesh).
+     */
+    public InstancedMesh(InstancedMesh other) {
+        this.mesh = other.mesh;
+        this.count = other.count;
+        this.transforms = Arrays.copyOf(other.transforms, TRANSFORM_SIZE * other.count);
+        this.tints = other.tints == null ? null : Arrays.copyOf(other.tints, other.count);
+    }
+
+    /**
+     * Add an instance.
+     *
+     * @return index of the new instance
+     */
+    public int add(double x, double y, double z, double rotationX, double rotationY, double rotationZ) {
+        if (count * TRANSFORM_SIZE == transforms.length) {
+            int capacity = Math.max(16, 2 * count);
+            transforms = Arrays.copyOf(transforms, TRANSFORM_SIZE * capacity);
+            if (tints != null) {
+                tints = grownTints(capacity);
+            }
+        }
+        int instance = count++;
+        setPosition(instance, x, y, z);
+        setRotation(instance, rotationX, rotationY, rotationZ);
+        if (tints != null) {
+            tints[instance] = NO_TINT;
+        }
+        return instance;
+    }
+
+    /**
+     * Remove all the instances.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    public void setPosition(int instance, double x, double y, double z) {
+        int t = offset(instance);
+        transforms[t] = (float) x;
+        transforms[t + 1] = (float) y;
+        transforms[t + 2] = (float) z;
+    }
+
+    public void setRotation(int instance, double x, double y, double z) {
+        int t = offset(instance);
+        transforms[t + 3] = (float) x;
+        transforms[t + 4] = (float) y;
+        transforms[t + 5] = (float) z;
+    }
+
+    /**
+     * Add the given angles (radians) to the rotation of an instance.
+     */
+    public void rotate(int instance, double x, double y, double z) {
+        int t = offset(instance);
+        transforms[t + 3] += (float) x;
+        transforms[t + 4] += (float) y;
+        transforms[t + 5] += (float) z;
+    }
+
+    /**
+     * Set the color the shaded (or textured) pixels of an instance are multiplied by.
+     */
+    public void setTint(int instance, int argb) {
+        checkIndex(instance);
+        if (tints == null) {
+            if (argb == NO_TINT) {
+                return;
+            }
+            tints = grownTints(transforms.length / TRANSFORM_SIZE);
+        }
+        tints[instance] = argb;
+    }
+
+    public int getTint(int instance) {
+        checkIndex(instance);
+        return tints == null ? NO_TINT : tints[instance];
+    }
+
+    public Mesh getMesh() {
+        return mesh;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Packed transforms ({@link #TRANSFORM_SIZE} floats per instance). Only the first {@link #getCount()}
+     * instances are valid.
+     */
+    public float[] getTransforms() {
+        return transforms;
+    }
+
+    /**
+     * Tints of the instances, or null if none has been tinted. Only the first {@link #getCount()} are valid.
+     */
+    public int[] getTints() {
+        return tints;
+    }
+
+    private int[] grownTints(int capacity) {
+        int[] grown = new int[capacity];
+        Arrays.fill(grown, NO_TINT);
+        if (tints != null) {
+            System.arraycopy(tints, 0, grown, 0, count);
+        }
+        return grown;
+    }
+
+    private int offset(int instance) {
+        checkIndex(instance);
+        return TRANSFORM_SIZE * instance;
+    }
+
+    private void checkIndex(int instance) {
+        if (instance < 0 || instance >= count) {
+            throw new IndexOutOfBoundsException("Instance " + instance + " of " + count);
+        }
+    }
+}
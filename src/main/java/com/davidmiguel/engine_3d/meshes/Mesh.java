@@ -1,9 +1,15 @@
 package com.davidmiguel.engine_3d.meshes;
 
+import javax.vecmath.Vector2d;
 import javax.vecmath.Vector3d;
 
 /**
  * Mesh (3D object).
+ * <p>
+ * The geometry is stored packed in primitive arrays (structure of arrays):
+ * three floats per vertex for positions and normals, two floats per vertex for
+ * texture coordinates and three indices per face.
+ * {@link #getVertices()} and {@link #getFaces()} are views built from those arrays.
  *
  * @author davidmigloz
  * @since 18/06/2016
@@ -12,14 +18,36 @@ import javax.vecmath.Vector3d;
 public class Mesh {
 
     /**
-     * Collection of vertices (several vertex or 3D points).
+     * Coordinates of the vertices (x, y, z).
      */
-    private Vertex[] vertices;
+    private float[] positions;
 
     /**
-     * Faces of the mesh.
+     * Normal vectors of the vertices (x, y, z).
      */
-    private Face[] faces;
+    private float[] normals;
+
+    /**
+     * Texture coordinates of the vertices (u, v). Null if the mesh has no texture coordinates.
+     */
+    private float[] uvs;
+
+    /**
+     * Faces of the mesh (three vertex indices per triangle).
+     */
+    private int[] indices;
+
+    /**
+     * Axis-aligned bounding box of the vertices (in mesh coordinates).
+     */
+    private Vector3d boundsMin;
+    private Vector3d boundsMax;
+
+    /**
+     * Bounding sphere of the vertices (in mesh coordinates).
+     */
+    private Vector3d boundingCenter;
+    private double boundingRadius;
 
     /**
      * Its position in the 3D world.
@@ -36,27 +64,195 @@ public class Mesh {
      */
     private Texture texture;
 
+    /**
+     * Name of the texture file of the material of the mesh (null if it has none).
+     */
+    private String textureName;
+
+    /**
+     * Simplified versions of the mesh, from the finest to the coarsest (empty if it has none).
+     */
+    private Mesh[] levelsOfDetail;
+
     public Mesh() {
-        this.vertices = new Vertex[0];
-        this.faces = new Face[0];
+        this.positions = new float[0];
+        this.normals = new float[0];
+        this.indices = new int[0];
+        this.boundsMin = new Vector3d();
+        this.boundsMax = new Vector3d();
+        this.boundingCenter = new Vector3d();
         this.position = new Vector3d();
         this.rotation = new Vector3d();
+        this.levelsOfDetail = new Mesh[0];
+    }
+
+    /**
+     * Set the packed geometry of the mesh.
+     *
+     * @param positions three floats per vertex
+     * @param normals   three floats per vertex
+     * @param uvs       two floats per vertex or null
+     * @param indices   three indices per face
+     * @throws IllegalArgumentException if the attributes have different sizes or an index is not a vertex
+     */
+    public void setGeometry(float[] positions, float[] normals, float[] uvs, int[] indices) {
+        if (normals.length != positions.length || (uvs != null && uvs.length / 2 != positions.length / 3)) {
+            throw new IllegalArgumentException("Vertex attributes of different sizes.");
+        }
+        int vertexCount = positions.length / 3;
+        for (int index : indices) {
+            if (index < 0 || index >= vertexCount) {
+                throw new IllegalArgumentException("Index " + index + " out of " + vertexCount + " vertices.");
+            }
+        }
+        this.positions = positions;
+        this.normals = normals;
+        this.uvs = uvs;
+        this.indices = indices;
+        computeBounds();
+    }
+
+    /**
+     * Compute the bounding box and the bounding sphere of the vertices.
+     */
+    private void computeBounds() {
+        if (positions.length == 0) {
+            boundsMin.set(0, 0, 0);
+            boundsMax.set(0, 0, 0);
+            boundingCenter.set(0, 0, 0);
+            boundingRadius = 0;
+            return;
+        }
+        boundsMin.set(Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE);
+        boundsMax.set(-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE);
+        for (int i = 0; i < positions.length; i += 3) {
+            boundsMin.x = Math.min(boundsMin.x, positions[i]);
+            boundsMin.y = Math.min(boundsMin.y, positions[i + 1]);
+            boundsMin.z = Math.min(boundsMin.z, positions[i + 2]);
+            boundsMax.x = Math.max(boundsMax.x, positions[i]);
+            boundsMax.y = Math.max(boundsMax.y, positions[i + 1]);
+            boundsMax.z = Math.max(boundsMax.z, positions[i + 2]);
+        }
+        // Sphere centered in the box that contains every vertex
+        boundingCenter.interpolate(boundsMin, boundsMax, 0.5);
+        double radiusSquared = 0;
+        for (int i = 0; i < positions.length; i += 3) {
+            double dx = positions[i] - boundingCenter.x;
+            double dy = positions[i + 1] - boundingCenter.y;
+            double dz = positions[i + 2] - boundingCenter.z;
+            radiusSquared = Math.max(radiusSquared, dx * dx + dy * dy + dz * dz);
+        }
+        boundingRadius = Math.sqrt(radiusSquared);
+    }
+
+    public int getVertexCount() {
+        return positions.length / 3;
+    }
+
+    public int getFaceCount() {
+        return indices.length / 3;
+    }
+
+    public float[] getPositions() {
+        return positions;
+    }
+
+    public float[] getNormals() {
+        return normals;
+    }
+
+    public float[] getUvs() {
+        return uvs;
+    }
+
+    public int[] getIndices() {
+        return indices;
     }
 
+    /**
+     * Vertices built from the packed arrays. Changing them does not change the mesh.
+     */
     public Vertex[] getVertices() {
+        Vertex[] vertices = new Vertex[getVertexCount()];
+        for (int i = 0; i < vertices.length; i++) {
+            Vertex vertex = new Vertex(
+                    new Vector3d(positions[3 * i], positions[3 * i + 1], positions[3 * i + 2]),
+                    new Vector3d(normals[3 * i], normals[3 * i + 1], normals[3 * i + 2]));
+            if (uvs != null) {
+                vertex.setTextureCoordinates(new Vector2d(uvs[2 * i], uvs[2 * i + 1]));
+            }
+            vertices[i] = vertex;
+        }
         return vertices;
     }
 
+    /**
+     * Pack the given vertices into the mesh arrays.
+     */
     public void setVertices(Vertex[] vertices) {
-        this.vertices = vertices;
+        float[] positions = new float[3 * vertices.length];
+        float[] normals = new float[3 * vertices.length];
+        float[] uvs = vertices.length > 0 && vertices[0].getTextureCoordinates() != null
+                ? new float[2 * vertices.length] : null;
+        for (int i = 0; i < vertices.length; i++) {
+            Vector3d coordinates = vertices[i].getCoordinates();
+            positions[3 * i] = (float) coordinates.x;
+            positions[3 * i + 1] = (float) coordinates.y;
+            positions[3 * i + 2] = (float) coordinates.z;
+            Vector3d normal = vertices[i].getNormal();
+            normals[3 * i] = (float) normal.x;
+            normals[3 * i + 1] = (float) normal.y;
+            normals[3 * i + 2] = (float) normal.z;
+            if (uvs != null) {
+                Vector2d uv = vertices[i].getTextureCoordinates();
+                uvs[2 * i] = (float) uv.x;
+                uvs[2 * i + 1] = (float) uv.y;
+            }
+        }
+        this.positions = positions;
+        this.normals = normals;
+        this.uvs = uvs;
+        computeBounds();
     }
 
+    /**
+     * Faces built from the index array. Changing them does not change the mesh.
+     */
     public Face[] getFaces() {
+        Face[] faces = new Face[getFaceCount()];
+        for (int i = 0; i < faces.length; i++) {
+            faces[i] = new Face(indices[3 * i], indices[3 * i + 1], indices[3 * i + 2]);
+        }
         return faces;
     }
 
+    /**
+     * Pack the given faces into the index array.
+     */
     public void setFaces(Face[] faces) {
-        this.faces = faces;
+        int[] indices = new int[3 * faces.length];
+        for (int i = 0; i < faces.length; i++) {
+            indices[3 * i] = faces[i].getA();
+            indices[3 * i + 1] = faces[i].getB();
+            indices[3 * i + 2] = faces[i].getC();
+        }
+        this.indices = indices;
+    }
+
+    public Vector3d getBoundsMin() {
+        return boundsMin;
+    }
+
+    public Vector3d getBoundsMax() {
+        return boundsMax;
+    }
+
+    public Vector3d getBoundingCenter() {
+        return boundingCenter;
+    }
+
+    public double getBoundingRadius() {
+        return boundingRadius;
     }
 
     public Vector3d getPosition() {
@@ -71,7 +267,64 @@ public class Mesh {
         return texture;
     }
 
+    /**
+     * Set the texture of the mesh and of its levels of detail.
+     */
     public void setTexture(Texture texture) {
         this.texture = texture;
+        for (Mesh level : levelsOfDetail) {
+            level.texture = texture;
+        }
+    }
+
+    public String getTextureName() {
+        return textureName;
+    }
+
+    public void setTextureName(String textureName) {
+        this.textureName = textureName;
+    }
+
+    /**
+     * Set the simplified versions of the mesh, drawn instead of it when it is small on screen. They get the
+     * texture of the mesh (their own position, rotation and levels are ignored).
+     *
+     * @param levelsOfDetail meshes from the finest to the coarsest (none to draw always the mesh itself)
+     */
+    public void setLevelsOfDetail(Mesh... levelsOfDetail) {
+        this.levelsOfDetail = levelsOfDetail.clone();
+        for (Mesh level : this.levelsOfDetail) {
+            level.texture = texture;
+        }
+    }
+
+    /**
+     * Number of levels of detail, counting the mesh itself as the first one.
+     */
+    public int getLevelCount() {
+        return levelsOfDetail.length + 1;
+    }
+
+    /**
+     * Level of detail of the mesh.
+     *
+     * @param level from 0 (the mesh itself) to {@link #getLevelCount()} - 1 (the coarsest one)
+     */
+    public Mesh getLevel(int level) {
+        return level == 0 ? this : levelsOfDetail[level - 1];
+    }
+
+    /**
+     * Release the resources of a mesh that is not going to be drawn anymore:
+     * its reference to the shared texture cache is released (the levels of detail share it).
+     */
+    public void dispose() {
+        if (texture != null) {
+            TextureCache.getShared().release(texture);
+            texture = null;
+        }
+        for (Mesh level : levelsOfDetail) {
+            level.texture = null;
+        }
     }
 }
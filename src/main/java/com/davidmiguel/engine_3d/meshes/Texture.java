@@ -1,39 +1,236 @@
 package com.davidmiguel.engine_3d.meshes;
 
-import javafx.scene.image.Image;
-import javafx.scene.image.PixelReader;
-import javafx.scene.paint.Color;
-
 /**
  * Texture of a mesh.
+ * <p>
+ * The image is stored decoded, as packed ARGB ints. Its sides are resampled to powers of two,
+ * so the texture coordinates wrap with a mask, and a chain of mipmaps (each level half the size
+ * of the previous one) is built, so surfaces far from the camera read from a small level.
  *
  * @author davidmigloz
  * @since 21/06/2016
  */
+@SuppressWarnings("WeakerAccess")
 public class Texture {
 
-    private PixelReader image;
-    private int width;
-    private int height;
+    /**
+     * How the texels are read.
+     */
+    public enum Filter {
+        /**
+         * Nearest texel.
+         */
+        NEAREST,
+        /**
+         * Weighted average of the four nearest texels.
+         */
+        BILINEAR
+    }
+
+    /**
+     * Texels of every mipmap level, row by row. Level 0 is the full size image.
+     */
+    private final int[][] levels;
+    /**
+     * Log2 of the width and the height of level 0.
+     */
+    private final int widthBits;
+    private final int heightBits;
 
-    public Texture(Image image) {
-        this.image = image.getPixelReader();
-        width = (int) image.getWidth();
-        height = (int) image.getHeight();
+    /**
+     * @param argb   texels (packed ARGB) row by row
+     * @param width  width of the image
+     * @param height height of the image
+     * @throws IllegalArgumentException if the image is empty or has less texels than its size
+     */
+    public Texture(int[] argb, int width, int height) {
+        if (width <= 0 || height <= 0 || argb.length < width * height) {
+            throw new IllegalArgumentException("Invalid texture size: " + width + "x" + height);
+        }
+        int potWidth = nextPowerOfTwo(width);
+        int potHeight = nextPowerOfTwo(height);
+        if (potWidth != width || potHeight != height) {
+            argb = resample(argb, width, height, potWidth, potHeight);
+        }
+        this.widthBits = Integer.numberOfTrailingZeros(potWidth);
+        this.heightBits = Integer.numberOfTrailingZeros(potHeight);
+        this.levels = new int[Math.max(widthBits, heightBits) + 1][];
+        levels[0] = argb;
+        for (int level = 1; level < levels.length; level++) {
+            levels[level] = downsample(levels[level - 1], getWidth(level - 1), getHeight(level - 1));
+        }
     }
 
     /**
      * Takes the U & V coordinates exported by Blender and return
-     * the corresponding pixel color in the texture.
+     * the corresponding pixel color (ARGB) in the texture.
+     */
+    public int map(double tu, double tv) {
+        return sample(tu, tv, 0, Filter.NEAREST);
+    }
+
+    /**
+     * Read the color (ARGB) at the U & V coordinates of the given mipmap level.
+     * Coordinates out of [0, 1) repeat the texture.
+     */
+    public int sample(double tu, double tv, int level, Filter filter) {
+        int[] texels = levels[level];
+        int widthBits = Math.max(this.widthBits - level, 0);
+        int widthMask = (1 << widthBits) - 1;
+        int heightMask = (1 << Math.max(this.heightBits - level, 0)) - 1;
+        double x = tu * (widthMask + 1);
+        double y = tv * (heightMask + 1);
+        if (filter == Filter.NEAREST) {
+            return texels[(((int) Math.floor(y) & heightMask) << widthBits) + ((int) Math.floor(x) & widthMask)];
+        }
+        // Texel centers are at .5, so the four nearest texels start half a texel up and left
+        x -= 0.5;
+        y -= 0.5;
+        double floorX = Math.floor(x);
+        double floorY = Math.floor(y);
+        int x0 = (int) floorX & widthMask;
+        int y0 = (int) floorY & heightMask;
+        int x1 = (x0 + 1) & widthMask;
+        int y1 = (y0 + 1) & heightMask;
+        // Weights in 1/256 units
+        int fx = (int) ((x - floorX) * 256);
+        int fy = (int) ((y - floorY) * 256);
+        int top = lerp(texels[(y0 << widthBits) + x0], texels[(y0 << widthBits) + x1], fx);
+        int bottom = lerp(texels[(y1 << widthBits) + x0], texels[(y1 << widthBits) + x1], fx);
+        return lerp(top, bottom, fy);
+    }
+
+    /**
+     * Choose the mipmap level from the screen space derivatives of the texture coordinates,
+     * so that one pixel covers about one texel.
+     *
+     * @param dudx change of U for one pixel to the right
+     * @param dvdx change of V for one pixel to the right
+     * @param dudy change of U for one pixel down
+     * @param dvdy change of V for one pixel down
+     */
+    public int selectLevel(double dudx, double dvdx, double dudy, double dvdy) {
+        double width = 1 << widthBits;
+        double height = 1 << heightBits;
+        double x = (dudx * width) * (dudx * width) + (dvdx * height) * (dvdx * height);
+        double y = (dudy * width) * (dudy * width) + (dvdy * height) * (dvdy * height);
+        // Texels per pixel along the most minified direction
+        double texelsSquared = Math.max(x, y);
+        if (!(texelsSquared > 1)) {
+            // Magnified (or NaN derivatives)
+            return 0;
+        }
+        // log2(sqrt(texelsSquared)), rounded to the nearest level
+        int level = (int) Math.round(0.5 * Math.log(texelsSquared) / Math.log(2));
+        return Math.min(level, levels.length - 1);
+    }
+
+    /**
+     * Number of mipmap levels (including the full size one).
      */
-    public Color map(double tu, double tv) {
-        // Image is null
-        if (image == null) {
-            return Color.WHITE;
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    public int getWidth(int level) {
+        return 1 << Math.max(widthBits - level, 0);
+    }
+
+    public int getHeight(int level) {
+        return 1 << Math.max(heightBits - level, 0);
+    }
+
+    /**
+     * Memory used by the texels of all the levels.
+     */
+    public long getSizeInBytes() {
+        long texels = 0;
+        for (int[] level : levels) {
+            texels += level.length;
+        }
+        return 4 * texels;
+    }
+
+    /**
+     * Texels of a mipmap level (packed ARGB), row by row.
+     */
+    public int[] getTexels(int level) {
+        return levels[level];
+    }
+
+    /**
+     * Half size image where every texel is the average of 2x2 texels
+     * (or 2x1 or 1x2 when one of the sides is already 1).
+     */
+    private static int[] downsample(int[] texels, int width, int height) {
+        int newWidth = Math.max(width / 2, 1);
+        int newHeight = Math.max(height / 2, 1);
+        int stepX = width / newWidth;
+        int stepY = height / newHeight;
+        int[] result = new int[newWidth * newHeight];
+        for (int y = 0; y < newHeight; y++) {
+            for (int x = 0; x < newWidth; x++) {
+                int a = 0, r = 0, g = 0, b = 0;
+                for (int sy = 0; sy < stepY; sy++) {
+                    for (int sx = 0; sx < stepX; sx++) {
+                        int texel = texels[(y * stepY + sy) * width + x * stepX + sx];
+                        a += texel >>> 24;
+                        r += (texel >> 16) & 0xFF;
+                        g += (texel >> 8) & 0xFF;
+                        b += texel & 0xFF;
+                    }
+                }
+                int count = stepX * stepY;
+                int half = count / 2;
+                result[y * newWidth + x] = ((a + half) / count) << 24 | ((r + half) / count) << 16
+                        | ((g + half) / count) << 8 | (b + half) / count;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Resize the image with bilinear filtering (clamping at the borders).
+     */
+    private static int[] resample(int[] texels, int width, int height, int newWidth, int newHeight) {
+        int[] result = new int[newWidth * newHeight];
+        double scaleX = (double) width / newWidth;
+        double scaleY = (double) height / newHeight;
+        for (int y = 0; y < newHeight; y++) {
+            double sy = Math.min(Math.max((y + 0.5) * scaleY - 0.5, 0), height - 1);
+            int y0 = (int) sy;
+            int y1 = Math.min(y0 + 1, height - 1);
+            int fy = (int) ((sy - y0) * 256);
+            for (int x = 0; x < newWidth; x++) {
+                double sx = Math.min(Math.max((x + 0.5) * scaleX - 0.5, 0), width - 1);
+                int x0 = (int) sx;
+                int x1 = Math.min(x0 + 1, width - 1);
+                int fx = (int) ((sx - x0) * 256);
+                int top = lerp(texels[y0 * width + x0], texels[y0 * width + x1], fx);
+                int bottom = lerp(texels[y1 * width + x0], texels[y1 * width + x1], fx);
+                result[y * newWidth + x] = lerp(top, bottom, fy);
+            }
         }
-        // Using a % operator to cycle/repeat the texture if needed
-        int u = Math.abs((int) (tu * width) % width);
-        int v = Math.abs((int) (tv * height) % height);
-        return image.getColor(u, v);
+        return result;
+    }
+
+    /**
+     * Interpolate every channel of two ARGB colors.
+     *
+     * @param t weight of the second color, between 0 and 256
+     */
+    private static int lerp(int c0, int c1, int t) {
+        // Alpha and green in one mask, red and blue in the other, so each multiplication handles two channels
+        int ag0 = (c0 >>> 8) & 0x00FF00FF;
+        int ag1 = (c1 >>> 8) & 0x00FF00FF;
+        int rb0 = c0 & 0x00FF00FF;
+        int rb1 = c1 & 0x00FF00FF;
+        int ag = (ag0 * (256 - t) + ag1 * t) & 0xFF00FF00;
+        int rb = ((rb0 * (256 - t) + rb1 * t) >>> 8) & 0x00FF00FF;
+        return ag | rb;
+    }
+
+    private static int nextPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
     }
 }
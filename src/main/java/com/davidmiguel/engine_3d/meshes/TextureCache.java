@@ -0,0 +1,204 @@
+package com.davidmiguel.engine_3d.meshes;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Cache of decoded textures, so meshes that share a texture (or the same model loaded again)
+ * use a single copy of it.
+ * <p>
+ * Every mesh using a texture holds a reference to its entry, that is released with {@link Mesh#dispose()}.
+ * Entries without references are kept while the decoded textures fit in the byte budget, and then
+ * the least recently used ones are evicted. Entries in use are never evicted, so the budget can be
+ * exceeded while they are in use.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@SuppressWarnings("WeakerAccess")
+public class TextureCache {
+
+    /**
+     * Default budget of the shared cache (256 MB).
+     */
+    public static final long DEFAULT_BUDGET = 256L * 1024 * 1024;
+
+    private static final TextureCache SHARED = new TextureCache(DEFAULT_BUDGET);
+
+    /**
+     * Entries in access order (the least recently used first).
+     */
+    private final LinkedHashMap<String, Entry> entries;
+    private final Map<Texture, Entry> entriesByTexture;
+    private long budget;
+    private long sizeInBytes;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public TextureCache(long budget) {
+        if (budget < 0) {
+            throw new IllegalArgumentException("Budget cannot be negative.");
+        }
+        this.budget = budget;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.entriesByTexture = new IdentityHashMap<>();
+    }
+
+    /**
+     * Cache shared by the whole process.
+     */
+    public static TextureCache getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Get the texture with the given key, loading it if it is not cached, and add a reference to it.
+     * Every call must be balanced with a call to {@link #release(Texture)}.
+     *
+     * @param key    identifies the texture (its source and name)
+     * @param loader decodes the texture if it is not cached (called without holding the lock of the cache)
+     * @return cached texture or null if the loader returns null
+     */
+    public Texture acquire(String key, Supplier<Texture> loader) {
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hitCount++;
+                entry.references++;
+                return entry.texture;
+            }
+            missCount++;
+        }
+        Texture texture = loader.get();
+        if (texture == null) {
+            return null;
+        }
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                // Nobody loaded it in the meantime
+                entry = new Entry(texture);
+                entries.put(key, entry);
+                entriesByTexture.put(texture, entry);
+                sizeInBytes += entry.sizeInBytes;
+            }
+            entry.references++;
+            evict();
+            return entry.texture;
+        }
+    }
+
+    /**
+     * Remove a reference to a texture returned by {@link #acquire(String, Supplier)}.
+     * Textures that are not in the cache are ignored.
+     */
+    public synchronized void release(Texture texture) {
+        Entry entry = entriesByTexture.get(texture);
+        if (entry != null && entry.references > 0) {
+            entry.references--;
+            evict();
+        }
+    }
+
+    /**
+     * Evict the least recently used entries without references until the cache fits in the budget.
+     */
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (sizeInBytes > budget && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.references == 0) {
+                iterator.remove();
+                entriesByTexture.remove(entry.texture);
+                sizeInBytes -= entry.sizeInBytes;
+                evictionCount++;
+            }
+        }
+    }
+
+    /**
+     * Remove all the entries without references.
+     */
+    public synchronized void clear() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.references == 0) {
+                iterator.remove();
+                entriesByTexture.remove(entry.texture);
+                sizeInBytes -= entry.sizeInBytes;
+            }
+        }
+    }
+
+    public synchronized long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Set the maximum size (in bytes) of the decoded textures kept in the cache.
+     */
+    public synchronized void setBudget(long budget) {
+        if (budget < 0) {
+            throw new IllegalArgumentException("Budget cannot be negative.");
+        }
+        this.budget = budget;
+        evict();
+    }
+
+    /**
+     * Size in bytes of the cached textures.
+     */
+    public synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * Number of cached textures.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Number of references to the texture with the given key (0 if it is not cached).
+     */
+    public synchronized int getReferenceCount(String key) {
+        // Not entries.get, which would make the entry the most recently used one
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (entry.getKey().equals(key)) {
+                return entry.getValue().references;
+            }
+        }
+        return 0;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    private static class Entry {
+
+        private final Texture texture;
+        private final long sizeInBytes;
+        private int references;
+
+        Entry(Texture texture) {
+            this.texture = texture;
+            this.sizeInBytes = texture.getSizeInBytes();
+        }
+    }
+}
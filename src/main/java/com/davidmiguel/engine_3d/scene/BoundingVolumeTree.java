@@ -0,0 +1,514 @@
+package com.davidmiguel.engine_3d.scene;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dynamic bounding volume hierarchy: a binary tree of axis-aligned boxes whose leaves are the objects
+ * (proxies) of the scene.
+ * <p>
+ * A leaf is inserted next to the sibling that grows the surface area of the tree the least, and the tree is
+ * kept balanced with rotations on the way back to the root, so queries visit O(log n) nodes plus the ones
+ * they find. The leaves store their boxes enlarged by a margin: an object that moves inside its enlarged box
+ * does not change the tree, so small movements are almost free.
+ * <p>
+ * The nodes are stored in packed arrays and reused through a free list. It is not thread-safe.
+ *
+ * @param <T> type of the objects stored in the leaves
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@SuppressWarnings("WeakerAccess")
+public class BoundingVolumeTree<T> {
+
+    private static final int NULL = -1;
+    /**
+     * Margin added to every side of the boxes of the leaves, as a fraction of their largest side.
+     */
+    private static final double MARGIN = 0.1;
+
+    /**
+     * Boxes of the nodes (min x, y, z, max x, y, z).
+     */
+    private double[] boxes;
+    /**
+     * Parent of every node (next free node for the free ones).
+     */
+    private int[] parents;
+    /**
+     * Children of every node (NULL for the leaves).
+     */
+    private int[] children1;
+    private int[] children2;
+    /**
+     * Height of every node (0 for the leaves, -1 for the free ones).
+     */
+    private int[] heights;
+    private Object[] objects;
+
+    private int root;
+    private int freeList;
+    private int proxyCount;
+
+    /**
+     * Nodes pending to be visited in the queries (reused).
+     */
+    private int[] stack;
+
+    public BoundingVolumeTree() {
+        this.root = NULL;
+        this.freeList = NULL;
+        this.boxes = new double[0];
+        this.parents = new int[0];
+        this.children1 = new int[0];
+        this.children2 = new int[0];
+        this.heights = new int[0];
+        this.objects = new Object[0];
+        this.stack = new int[64];
+    }
+
+    /**
+     * Add an object.
+     *
+     * @param box    its bounding box (min x, y, z, max x, y, z)
+     * @param offset index of the box in the array
+     * @return id of its proxy in the tree
+     */
+    public int createProxy(double[] box, int offset, T object) {
+        if (object == null) {
+            throw new IllegalArgumentException("Object cannot be null.");
+        }
+        int proxy = allocateNode();
+        setFatBox(proxy, box, offset);
+        objects[proxy] = object;
+        heights[proxy] = 0;
+        insertLeaf(proxy);
+        proxyCount++;
+        return proxy;
+    }
+
+    public void destroyProxy(int proxy) {
+        checkProxy(proxy);
+        removeLeaf(proxy);
+        freeNode(proxy);
+        proxyCount--;
+    }
+
+    /**
+     * Update the bounding box of an object. The tree only changes if the box is not inside the enlarged box
+     * of the proxy anymore.
+     *
+     * @return true if the proxy has been moved in the tree
+     */
+    public boolean moveProxy(int proxy, double[] box, int offset) {
+        checkProxy(proxy);
+        if (contains(proxy, box, offset)) {
+            return false;
+        }
+        removeLeaf(proxy);
+        setFatBox(proxy, box, offset);
+        insertLeaf(proxy);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getObject(int proxy) {
+        checkProxy(proxy);
+        return (T) objects[proxy];
+    }
+
+    /**
+     * Enlarged box of a proxy (min x, y, z, max x, y, z) in {@link #getBoxes()}.
+     */
+    public int getBoxOffset(int proxy) {
+        checkProxy(proxy);
+        return 6 * proxy;
+    }
+
+    /**
+     * Packed boxes of the nodes (see {@link #getBoxOffset}). The array changes when the tree grows.
+     */
+    public double[] getBoxes() {
+        return boxes;
+    }
+
+    public int getProxyCount() {
+        return proxyCount;
+    }
+
+    /**
+     * Height of the tree (0 if it is empty or has one proxy).
+     */
+    public int getHeight() {
+        return root == NULL ? 0 : heights[root];
+    }
+
+    /**
+     * Add to the result the objects whose (enlarged) boxes are in the frustum, even partially.
+     * The subtrees completely inside the frustum are added without testing their boxes.
+     */
+    @SuppressWarnings("unchecked")
+    public void query(Frustum frustum, List<? super T> result) {
+        if (root == NULL) {
+            return;
+        }
+        // Nodes already known to be inside the frustum are pushed complemented
+        int size = push(0, root);
+        while (size > 0) {
+            int entry = stack[--size];
+            int node = entry < 0 ? ~entry : entry;
+            boolean inside = entry < 0;
+            if (!inside) {
+                int position = frustum.classify(boxes, 6 * node);
+                if (position == Frustum.OUTSIDE) {
+                    continue;
+                }
+                inside = position == Frustum.INSIDE;
+            }
+            if (children1[node] == NULL) {
+                result.add((T) objects[node]);
+            } else {
+                size = push(size, inside ? ~children1[node] : children1[node]);
+                size = push(size, inside ? ~children2[node] : children2[node]);
+            }
+        }
+    }
+
+    /**
+     * Add to the result the objects whose (enlarged) boxes are crossed by a ray.
+     *
+     * @param maxDistance length of the ray, in units of the direction
+     */
+    @SuppressWarnings("unchecked")
+    public void query(double originX, double originY, double originZ, double directionX, double directionY,
+                      double directionZ, double maxDistance, List<? super T> result) {
+        if (root == NULL) {
+            return;
+        }
+        double inverseX = 1 / directionX;
+        double inverseY = 1 / directionY;
+        double inverseZ = 1 / directionZ;
+        int size = push(0, root);
+        while (size > 0) {
+            int node = stack[--size];
+            double distance = intersectRay(boxes, 6 * node, originX, originY, originZ, inverseX, inverseY,
+                    inverseZ);
+            // A miss is infinitely far, also when the distance is not limited
+            if (distance > maxDistance || distance == Double.POSITIVE_INFINITY) {
+                continue;
+            }
+            if (children1[node] == NULL) {
+                result.add((T) objects[node]);
+            } else {
+                size = push(size, children1[node]);
+                size = push(size, children2[node]);
+            }
+        }
+    }
+
+    /**
+     * Distance along a ray (in units of its direction) where it enters a box, 0 if it starts inside,
+     * or infinity if it misses it.
+     *
+     * @param inverseX inverse of the components of the direction of the ray
+     */
+    public static double intersectRay(double[] boxes, int offset, double originX, double originY,
+                                      double originZ, double inverseX, double inverseY, double inverseZ) {
+        // Slab test: intersection of the intervals of the ray between the planes of every axis
+        double t1 = (boxes[offset] - originX) * inverseX;
+        double t2 = (boxes[offset + 3] - originX) * inverseX;
+        double near = Math.min(t1, t2);
+        double far = Math.max(t1, t2);
+        t1 = (boxes[offset + 1] - originY) * inverseY;
+        t2 = (boxes[offset + 4] - originY) * inverseY;
+        near = Math.max(near, Math.min(t1, t2));
+        far = Math.min(far, Math.max(t1, t2));
+        t1 = (boxes[offset + 2] - originZ) * inverseZ;
+        t2 = (boxes[offset + 5] - originZ) * inverseZ;
+        near = Math.max(near, Math.min(t1, t2));
+        far = Math.min(far, Math.max(t1, t2));
+        // NaN (origin on the plane of a side parallel to the ray) is a miss
+        if (!(far >= near && far >= 0)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Math.max(near, 0);
+    }
+
+    private int push(int size, int node) {
+        if (size == stack.length) {
+            stack = Arrays.copyOf(stack, 2 * size);
+        }
+        stack[size] = node;
+        return size + 1;
+    }
+
+    private void insertLeaf(int leaf) {
+        if (root == NULL) {
+            root = leaf;
+            parents[leaf] = NULL;
+            return;
+        }
+        // Find the best sibling: descend while the cost of going down is below the cost of stopping here
+        int leafOffset = 6 * leaf;
+        int index = root;
+        while (children1[index] != NULL) {
+            int child1 = children1[index];
+            int child2 = children2[index];
+            double area = surfaceArea(boxes, 6 * index);
+            double combinedArea = unionArea(6 * index, leafOffset);
+            // Cost of creating a new parent for this node and the new leaf
+            double cost = 2 * combinedArea;
+            // Minimum cost of pushing the leaf further down the tree
+            double inheritanceCost = 2 * (combinedArea - area);
+            double cost1 = descendCost(child1, leafOffset) + inheritanceCost;
+            double cost2 = descendCost(child2, leafOffset) + inheritanceCost;
+            if (cost < cost1 && cost < cost2) {
+                break;
+            }
+            index = cost1 < cost2 ? child1 : child2;
+        }
+        int sibling = index;
+
+        // New parent of the sibling and the leaf
+        int oldParent = parents[sibling];
+        int newParent = allocateNode();
+        parents[newParent] = oldParent;
+        objects[newParent] = null;
+        union(newParent, sibling, leaf);
+        heights[newParent] = heights[sibling] + 1;
+        if (oldParent != NULL) {
+            if (children1[oldParent] == sibling) {
+                children1[oldParent] = newParent;
+            } else {
+                children2[oldParent] = newParent;
+            }
+        } else {
+            root = newParent;
+        }
+        children1[newParent] = sibling;
+        children2[newParent] = leaf;
+        parents[sibling] = newParent;
+        parents[leaf] = newParent;
+
+        refit(parents[leaf]);
+    }
+
+    /**
+     * Cost of making the leaf a descendant of a node.
+     */
+    private double descendCost(int node, int leafOffset) {
+        double area = unionArea(6 * node, leafOffset);
+        return children1[node] == NULL ? area : area - surfaceArea(boxes, 6 * node);
+    }
+
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NULL;
+            return;
+        }
+        int parent = parents[leaf];
+        int grandParent = parents[parent];
+        int sibling = children1[parent] == leaf ? children2[parent] : children1[parent];
+        if (grandParent != NULL) {
+            // Replace the parent by the sibling
+            if (children1[grandParent] == parent) {
+                children1[grandParent] = sibling;
+            } else {
+                children2[grandParent] = sibling;
+            }
+            parents[sibling] = grandParent;
+            freeNode(parent);
+            refit(grandParent);
+        } else {
+            root = sibling;
+            parents[sibling] = NULL;
+            freeNode(parent);
+        }
+    }
+
+    /**
+     * Balance and recompute the boxes and heights from a node to the root.
+     */
+    private void refit(int index) {
+        while (index != NULL) {
+            index = balance(index);
+            int child1 = children1[index];
+            int child2 = children2[index];
+            heights[index] = 1 + Math.max(heights[child1], heights[child2]);
+            union(index, child1, child2);
+            index = parents[index];
+        }
+    }
+
+    /**
+     * Rotate the taller child of a node up if the heights of its children differ by more than one.
+     *
+     * @return node now at the position of the given one
+     */
+    private int balance(int a) {
+        if (children1[a] == NULL || heights[a] < 2) {
+            return a;
+        }
+        int b = children1[a];
+        int c = children2[a];
+        int difference = heights[c] - heights[b];
+        if (difference > 1) {
+            // Rotate c up, keeping its taller child
+            int f = children1[c];
+            int g = children2[c];
+            children1[c] = a;
+            replaceChild(a, c);
+            if (heights[f] > heights[g]) {
+                children2[c] = f;
+                children2[a] = g;
+                parents[g] = a;
+                union(a, b, g);
+                union(c, a, f);
+                heights[a] = 1 + Math.max(heights[b], heights[g]);
+                heights[c] = 1 + Math.max(heights[a], heights[f]);
+            } else {
+                children2[c] = g;
+                children2[a] = f;
+                parents[f] = a;
+                union(a, b, f);
+                union(c, a, g);
+                heights[a] = 1 + Math.max(heights[b], heights[f]);
+                heights[c] = 1 + Math.max(heights[a], heights[g]);
+            }
+            return c;
+        }
+        if (difference < -1) {
+            // Rotate b up, keeping its taller child
+            int d = children1[b];
+            int e = children2[b];
+            children1[b] = a;
+            replaceChild(a, b);
+            if (heights[d] > heights[e]) {
+                children2[b] = d;
+                children1[a] = e;
+                parents[e] = a;
+                union(a, c, e);
+                union(b, a, d);
+                heights[a] = 1 + Math.max(heights[c], heights[e]);
+                heights[b] = 1 + Math.max(heights[a], heights[d]);
+            } else {
+                children2[b] = e;
+                children1[a] = d;
+                parents[d] = a;
+                union(a, c, d);
+                union(b, a, e);
+                heights[a] = 1 + Math.max(heights[c], heights[d]);
+                heights[b] = 1 + Math.max(heights[a], heights[e]);
+            }
+            return b;
+        }
+        return a;
+    }
+
+    /**
+     * Put a child of the node in its place, and make the node a child of it.
+     */
+    private void replaceChild(int node, int child) {
+        int parent = parents[node];
+        parents[child] = parent;
+        parents[node] = child;
+        if (parent == NULL) {
+            root = child;
+        } else if (children1[parent] == node) {
+            children1[parent] = child;
+        } else {
+            children2[parent] = child;
+        }
+    }
+
+    private int allocateNode() {
+        if (freeList == NULL) {
+            int used = heights.length;
+            int capacity = Math.max(16, 2 * used);
+            boxes = Arrays.copyOf(boxes, 6 * capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            children1 = Arrays.copyOf(children1, capacity);
+            children2 = Arrays.copyOf(children2, capacity);
+            heights = Arrays.copyOf(heights, capacity);
+            objects = Arrays.copyOf(objects, capacity);
+            for (int node = capacity - 1; node >= used; node--) {
+                parents[node] = freeList;
+                heights[node] = -1;
+                freeList = node;
+            }
+        }
+        int node = freeList;
+        freeList = parents[node];
+        parents[node] = NULL;
+        children1[node] = NULL;
+        children2[node] = NULL;
+        heights[node] = 0;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        parents[node] = freeList;
+        heights[node] = -1;
+        objects[node] = null;
+        freeList = node;
+    }
+
+    private void checkProxy(int proxy) {
+        if (proxy < 0 || proxy >= heights.length || heights[proxy] != 0 || objects[proxy] == null) {
+            throw new IllegalArgumentException("Invalid proxy: " + proxy);
+        }
+    }
+
+    /**
+     * Set the box of a leaf, enlarged by the margin.
+     */
+    private void setFatBox(int node, double[] box, int offset) {
+        double margin = MARGIN * Math.max(box[offset + 3] - box[offset],
+                Math.max(box[offset + 4] - box[offset + 1], box[offset + 5] - box[offset + 2]));
+        int n = 6 * node;
+        for (int axis = 0; axis < 3; axis++) {
+            boxes[n + axis] = box[offset + axis] - margin;
+            boxes[n + 3 + axis] = box[offset + 3 + axis] + margin;
+        }
+    }
+
+    private boolean contains(int node, double[] box, int offset) {
+        int n = 6 * node;
+        for (int axis = 0; axis < 3; axis++) {
+            if (box[offset + axis] < boxes[n + axis] || box[offset + 3 + axis] > boxes[n + 3 + axis]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Set the box of a node to the union of the boxes of two others.
+     */
+    private void union(int node, int a, int b) {
+        int n = 6 * node;
+        int i = 6 * a;
+        int j = 6 * b;
+        for (int axis = 0; axis < 3; axis++) {
+            boxes[n + axis] = Math.min(boxes[i + axis], boxes[j + axis]);
+            boxes[n + 3 + axis] = Math.max(boxes[i + 3 + axis], boxes[j + 3 + axis]);
+        }
+    }
+
+    /**
+     * Surface area of the union of two boxes.
+     */
+    private double unionArea(int i, int j) {
+        double dx = Math.max(boxes[i + 3], boxes[j + 3]) - Math.min(boxes[i], boxes[j]);
+        double dy = Math.max(boxes[i + 4], boxes[j + 4]) - Math.min(boxes[i + 1], boxes[j + 1]);
+        double dz = Math.max(boxes[i + 5], boxes[j + 5]) - Math.min(boxes[i + 2], boxes[j + 2]);
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    static double surfaceArea(double[] boxes, int offset) {
+        double dx = boxes[offset + 3] - boxes[offset];
+        double dy = boxes[offset + 4] - boxes[offset + 1];
+        double dz = boxes[offset + 5] - boxes[offset + 2];
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+}
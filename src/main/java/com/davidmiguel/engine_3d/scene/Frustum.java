@@ -0,0 +1,95 @@
+package com.davidmiguel.engine_3d.scene;
+
+import javax.vecmath.Matrix4d;
+
+/**
+ * View frustum as six planes in world space, used to find the bounding boxes on screen.
+ * <p>
+ * The planes are extracted from the view * projection matrix of the engine, whose visible clip coordinates
+ * are {@code -w/2 <= x, y <= w/2} and {@code 0 <= z <= w} (also with reversed-Z).
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@SuppressWarnings("WeakerAccess")
+public class Frustum {
+
+    /**
+     * The box is out of the frustum.
+     */
+    public static final int OUTSIDE = 0;
+    /**
+     * The box crosses some plane of the frustum.
+     */
+    public static final int INTERSECTING = 1;
+    /**
+     * The box is completely inside the frustum.
+     */
+    public static final int INSIDE = 2;
+
+    private static final int PLANES = 6;
+
+    /**
+     * Planes (a, b, c, d): the points with a * x + b * y + c * z + d >= 0 are inside.
+     */
+    private final double[] planes;
+
+    public Frustum() {
+        this.planes = new double[4 * PLANES];
+    }
+
+    /**
+     * Set the planes of the frustum.
+     *
+     * @param viewProjection view * projection matrix (points are row vectors: p * matrix)
+     */
+    public void set(Matrix4d viewProjection) {
+        Matrix4d m = viewProjection;
+        // Left, right, bottom and top: w/2 + x, w/2 - x, w/2 + y, w/2 - y
+        setPlane(0, 0.5 * m.m03 + m.m00, 0.5 * m.m13 + m.m10, 0.5 * m.m23 + m.m20, 0.5 * m.m33 + m.m30);
+        setPlane(1, 0.5 * m.m03 - m.m00, 0.5 * m.m13 - m.m10, 0.5 * m.m23 - m.m20, 0.5 * m.m33 - m.m30);
+        setPlane(2, 0.5 * m.m03 + m.m01, 0.5 * m.m13 + m.m11, 0.5 * m.m23 + m.m21, 0.5 * m.m33 + m.m31);
+        setPlane(3, 0.5 * m.m03 - m.m01, 0.5 * m.m13 - m.m11, 0.5 * m.m23 - m.m21, 0.5 * m.m33 - m.m31);
+        // Depth range: z and w - z
+        setPlane(4, m.m02, m.m12, m.m22, m.m32);
+        setPlane(5, m.m03 - m.m02, m.m13 - m.m12, m.m23 - m.m22, m.m33 - m.m32);
+    }
+
+    private void setPlane(int plane, double a, double b, double c, double d) {
+        int p = 4 * plane;
+        planes[p] = a;
+        planes[p + 1] = b;
+        planes[p + 2] = c;
+        planes[p + 3] = d;
+    }
+
+    /**
+     * Position of an axis-aligned box relative to the frustum. Conservative: a box near a corner of the
+     * frustum may be reported as intersecting although it is outside.
+     *
+     * @param boxes  packed boxes (min x, y, z, max x, y, z)
+     * @param offset index of the box in the array
+     * @return {@link #OUTSIDE}, {@link #INTERSECTING} or {@link #INSIDE}
+     */
+    public int classify(double[] boxes, int offset) {
+        int result = INSIDE;
+        for (int p = 0; p < 4 * PLANES; p += 4) {
+            double a = planes[p];
+            double b = planes[p + 1];
+            double c = planes[p + 2];
+            double d = planes[p + 3];
+            // Corners of the box farthest along the normal of the plane and farthest against it
+            double along = d + a * boxes[offset + (a > 0 ? 3 : 0)] + b * boxes[offset + (b > 0 ? 4 : 1)]
+                    + c * boxes[offset + (c > 0 ? 5 : 2)];
+            if (along < 0) {
+                return OUTSIDE;
+            }
+            double against = d + a * boxes[offset + (a > 0 ? 0 : 3)] + b * boxes[offset + (b > 0 ? 1 : 4)]
+                    + c * boxes[offset + (c > 0 ? 2 : 5)];
+            if (against < 0) {
+                result = INTERSECTING;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,533 @@
+package com.davidmiguel.engine_3d.scene;
+
+import com.davidmiguel.engine_3d.meshes.Mesh;
+import com.davidmiguel.engine_3d.utils.MathUtils;
+
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Vector3d;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Finds the nearest triangle crossed by a ray (e.g. to pick what is under the cursor), among some meshes or
+ * the meshes of a scene.
+ * <p>
+ * Every mesh has a {@link StaticBoundingVolumeTree} of its triangles, built once (in parallel, on the common
+ * ForkJoin pool) and shared by all the places it is drawn, and there is another one over the world bounding
+ * boxes of the meshes. A ray only tests the triangles of the leaves it crosses, nearest first, and stops
+ * descending as soon as the nodes left are behind the nearest hit, so a query costs about the logarithm of
+ * the number of triangles. Rays are moved into the space of each mesh, so moving a mesh only changes the
+ * tree over the meshes.
+ * <p>
+ * {@link #update()} must be called after the meshes move or change. It is not thread-safe, except
+ * {@link #castRays}, which runs the rays of a batch in parallel.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@SuppressWarnings("WeakerAccess")
+public class RayCaster {
+
+    /**
+     * Rays per task of the batched queries.
+     */
+    private static final int BATCH_SIZE = 256;
+    /**
+     * Coefficients of an affine matrix (m00, m01, m02, m10, m11, m12, m20, m21, m22, m30, m31, m32).
+     */
+    private static final int AFFINE_SIZE = 12;
+
+    private final Mesh[] meshes;
+    private final Scene scene;
+
+    /**
+     * Meshes cast against (with their scene nodes, if built from a scene) and the inverse of their world
+     * matrices.
+     */
+    private Mesh[] itemMeshes;
+    private SceneNode[] itemNodes;
+    /**
+     * Index of every item in the meshes of the caster.
+     */
+    private int[] itemIndices;
+    private MeshTree[] itemTrees;
+    private double[] inverseMatrices;
+    private int itemCount;
+    private StaticBoundingVolumeTree tree;
+    /**
+     * Triangle trees of the meshes, kept while the meshes are cast against.
+     */
+    private Map<Mesh, MeshTree> meshTrees;
+    /**
+     * Deepest triangle tree.
+     */
+    private int meshDepth;
+
+    private final Matrix4d worldMatrix;
+    private final Matrix4d inverseMatrix;
+    private final Matrix4d translationMatrix;
+    /**
+     * State of the queries of {@link #castRay}.
+     */
+    private final Traversal traversal;
+
+    /**
+     * Caster for the given meshes, with their positions and rotations.
+     */
+    public RayCaster(Mesh... meshes) {
+        this(meshes.clone(), null);
+    }
+
+    /**
+     * Caster for the meshes of a scene.
+     */
+    public RayCaster(Scene scene) {
+        this(null, scene);
+    }
+
+    private RayCaster(Mesh[] meshes, Scene scene) {
+        this.meshes = meshes;
+        this.scene = scene;
+        this.meshTrees = new IdentityHashMap<>();
+        this.worldMatrix = new Matrix4d();
+        this.inverseMatrix = new Matrix4d();
+        this.translationMatrix = new Matrix4d();
+        this.traversal = new Traversal();
+        update();
+    }
+
+    /**
+     * Take the current positions and rotations of the meshes (or the current nodes of the scene, updating it
+     * first). The triangle trees are only built for the meshes that are new or whose geometry changed.
+     */
+    public void update() {
+        collectItems();
+        // Reuse the trees of the meshes whose geometry did not change
+        Map<Mesh, MeshTree> trees = new IdentityHashMap<>();
+        List<Mesh> stale = new ArrayList<>();
+        for (int item = 0; item < itemCount; item++) {
+            Mesh mesh = itemMeshes[item];
+            if (trees.containsKey(mesh)) {
+                continue;
+            }
+            MeshTree meshTree = meshTrees.get(mesh);
+            if (meshTree != null && meshTree.matches(mesh)) {
+                trees.put(mesh, meshTree);
+            } else {
+                // Built below
+                trees.put(mesh, null);
+                stale.add(mesh);
+            }
+        }
+        buildMeshTrees(stale, trees);
+        meshTrees = trees;
+        // Tree over the world bounding boxes of the meshes
+        itemTrees = new MeshTree[itemCount];
+        inverseMatrices = new double[AFFINE_SIZE * itemCount];
+        double[] boxes = new double[6 * itemCount];
+        meshDepth = 0;
+        for (int item = 0; item < itemCount; item++) {
+            itemTrees[item] = trees.get(itemMeshes[item]);
+            meshDepth = Math.max(meshDepth, itemTrees[item].tree.getDepth());
+            computeWorldMatrix(item);
+            computeWorldBounds(itemMeshes[item], boxes, 6 * item);
+            inverseMatrix.invert(worldMatrix);
+            storeAffine(inverseMatrix, inverseMatrices, AFFINE_SIZE * item);
+        }
+        tree = new StaticBoundingVolumeTree(boxes, itemCount);
+    }
+
+    private void collectItems() {
+        List<Mesh> collectedMeshes = new ArrayList<>();
+        List<SceneNode> collectedNodes = new ArrayList<>();
+        if (scene != null) {
+            scene.update();
+            collectNodes(scene.getRoot(), collectedMeshes, collectedNodes);
+        } else {
+            for (Mesh mesh : meshes) {
+                collectedMeshes.add(mesh != null && mesh.getFaceCount() > 0 ? mesh : null);
+            }
+        }
+        // Meshes without faces are skipped, remembering the index of the rest
+        itemMeshes = new Mesh[collectedMeshes.size()];
+        itemNodes = scene != null ? new SceneNode[collectedMeshes.size()] : null;
+        int[] indices = new int[collectedMeshes.size()];
+        itemCount = 0;
+        for (int i = 0; i < collectedMeshes.size(); i++) {
+            if (collectedMeshes.get(i) != null) {
+                itemMeshes[itemCount] = collectedMeshes.get(i);
+                if (itemNodes != null) {
+                    itemNodes[itemCount] = collectedNodes.get(i);
+                }
+                indices[itemCount++] = i;
+            }
+        }
+        itemIndices = indices;
+    }
+
+    private static void collectNodes(SceneNode node, List<Mesh> collectedMeshes, List<SceneNode> collectedNodes) {
+        Mesh mesh = node.getMesh();
+        if (mesh != null && mesh.getFaceCount() > 0) {
+            collectedMeshes.add(mesh);
+            collectedNodes.add(node);
+        }
+        for (SceneNode child : node.getChildren()) {
+            collectNodes(child, collectedMeshes, collectedNodes);
+        }
+    }
+
+    /**
+     * Build the triangle trees of the meshes, one task of the common ForkJoin pool per mesh.
+     */
+    private static void buildMeshTrees(List<Mesh> stale, Map<Mesh, MeshTree> trees) {
+        if (stale.isEmpty()) {
+            return;
+        }
+        if (stale.size() == 1) {
+            // Not worth handing it to another thread
+            trees.put(stale.get(0), new MeshTree(stale.get(0)));
+            return;
+        }
+        List<ForkJoinTask<MeshTree>> tasks = new ArrayList<>(stale.size());
+        for (Mesh mesh : stale) {
+            tasks.add(ForkJoinPool.commonPool().submit(() -> new MeshTree(mesh)));
+        }
+        for (int i = 0; i < stale.size(); i++) {
+            trees.put(stale.get(i), tasks.get(i).join());
+        }
+    }
+
+    private void computeWorldMatrix(int item) {
+        if (itemNodes != null) {
+            worldMatrix.set(itemNodes[item].getWorldMatrix());
+            return;
+        }
+        Mesh mesh = itemMeshes[item];
+        MathUtils.rotationYawPitchRoll(mesh.getRotation().y, mesh.getRotation().x, mesh.getRotation().z,
+                worldMatrix);
+        MathUtils.translation(mesh.getPosition().x, mesh.getPosition().y, mesh.getPosition().z, translationMatrix);
+        worldMatrix.mul(translationMatrix);
+    }
+
+    /**
+     * Box around the box of the mesh transformed by the world matrix (see {@link SceneNode}).
+     */
+    private void computeWorldBounds(Mesh mesh, double[] boxes, int offset) {
+        Vector3d min = mesh.getBoundsMin();
+        Vector3d max = mesh.getBoundsMax();
+        Matrix4d m = worldMatrix;
+        double cx = (min.x + max.x) / 2;
+        double cy = (min.y + max.y) / 2;
+        double cz = (min.z + max.z) / 2;
+        double ex = (max.x - min.x) / 2;
+        double ey = (max.y - min.y) / 2;
+        double ez = (max.z - min.z) / 2;
+        double wx = cx * m.m00 + cy * m.m10 + cz * m.m20 + m.m30;
+        double wy = cx * m.m01 + cy * m.m11 + cz * m.m21 + m.m31;
+        double wz = cx * m.m02 + cy * m.m12 + cz * m.m22 + m.m32;
+        double hx = ex * Math.abs(m.m00) + ey * Math.abs(m.m10) + ez * Math.abs(m.m20);
+        double hy = ex * Math.abs(m.m01) + ey * Math.abs(m.m11) + ez * Math.abs(m.m21);
+        double hz = ex * Math.abs(m.m02) + ey * Math.abs(m.m12) + ez * Math.abs(m.m22);
+        boxes[offset] = wx - hx;
+        boxes[offset + 1] = wy - hy;
+        boxes[offset + 2] = wz - hz;
+        boxes[offset + 3] = wx + hx;
+        boxes[offset + 4] = wy + hy;
+        boxes[offset + 5] = wz + hz;
+    }
+
+    private static void storeAffine(Matrix4d m, double[] matrices, int offset) {
+        matrices[offset] = m.m00;
+        matrices[offset + 1] = m.m01;
+        matrices[offset + 2] = m.m02;
+        matrices[offset + 3] = m.m10;
+        matrices[offset + 4] = m.m11;
+        matrices[offset + 5] = m.m12;
+        matrices[offset + 6] = m.m20;
+        matrices[offset + 7] = m.m21;
+        matrices[offset + 8] = m.m22;
+        matrices[offset + 9] = m.m30;
+        matrices[offset + 10] = m.m31;
+        matrices[offset + 11] = m.m32;
+    }
+
+    /**
+     * Find the nearest triangle crossed by a ray (both sides of the triangles are hit).
+     *
+     * @param origin    origin of the ray in world coordinates
+     * @param direction direction of the ray (it does not need to be normalized)
+     * @param hit       where the hit is stored (cleared if the ray misses)
+     * @return whether the ray hit some triangle
+     */
+    public boolean castRay(Vector3d origin, Vector3d direction, RayHit hit) {
+        return traversal.cast(origin.x, origin.y, origin.z, direction.x, direction.y, direction.z, hit);
+    }
+
+    /**
+     * Find the nearest triangle crossed by a ray.
+     *
+     * @return the hit, or null if the ray misses every triangle
+     */
+    public RayHit castRay(Vector3d origin, Vector3d direction) {
+        RayHit hit = new RayHit();
+        return castRay(origin, direction, hit) ? hit : null;
+    }
+
+    /**
+     * Cast a batch of rays. Large batches are split in tasks of the common ForkJoin pool.
+     *
+     * @param rays origin and direction of every ray (6 doubles per ray)
+     * @param hits where the hit of every ray is stored (one per ray)
+     * @return number of rays that hit some triangle
+     */
+    public int castRays(double[] rays, RayHit[] hits) {
+        int count = hits.length;
+        if (rays.length < 6 * count) {
+            throw new IllegalArgumentException("Less rays than hits.");
+        }
+        if (count <= BATCH_SIZE) {
+            return castRays(traversal, rays, hits, 0, count);
+        }
+        List<ForkJoinTask<Integer>> tasks = new ArrayList<>();
+        for (int start = 0; start < count; start += BATCH_SIZE) {
+            int from = start;
+            int to = Math.min(start + BATCH_SIZE, count);
+            tasks.add(ForkJoinPool.commonPool().submit(() -> castRays(new Traversal(), rays, hits, from, to)));
+        }
+        int hitCount = 0;
+        for (ForkJoinTask<Integer> task : tasks) {
+            hitCount += task.join();
+        }
+        return hitCount;
+    }
+
+    private static int castRays(Traversal traversal, double[] rays, RayHit[] hits, int from, int to) {
+        int hitCount = 0;
+        for (int i = from; i < to; i++) {
+            int r = 6 * i;
+            if (traversal.cast(rays[r], rays[r + 1], rays[r + 2], rays[r + 3], rays[r + 4], rays[r + 5],
+                    hits[i])) {
+                hitCount++;
+            }
+        }
+        return hitCount;
+    }
+
+    /**
+     * Number of meshes cast against.
+     */
+    public int getMeshCount() {
+        return itemCount;
+    }
+
+    /**
+     * Number of triangles cast against (counting every mesh every time it appears).
+     */
+    public long getTriangleCount() {
+        long triangles = 0;
+        for (int item = 0; item < itemCount; item++) {
+            triangles += itemMeshes[item].getFaceCount();
+        }
+        return triangles;
+    }
+
+    /**
+     * Triangle tree of a mesh, valid while the mesh keeps the same arrays.
+     */
+    private static class MeshTree {
+
+        private final float[] positions;
+        private final int[] indices;
+        private final StaticBoundingVolumeTree tree;
+
+        MeshTree(Mesh mesh) {
+            this.positions = mesh.getPositions();
+            this.indices = mesh.getIndices();
+            int faces = indices.length / 3;
+            double[] boxes = new double[6 * faces];
+            for (int face = 0; face < faces; face++) {
+                int offset = 6 * face;
+                for (int k = 0; k < 3; k++) {
+                    double a = positions[3 * indices[3 * face] + k];
+                    double b = positions[3 * indices[3 * face + 1] + k];
+                    double c = positions[3 * indices[3 * face + 2] + k];
+                    boxes[offset + k] = Math.min(a, Math.min(b, c));
+                    boxes[offset + 3 + k] = Math.max(a, Math.max(b, c));
+                }
+            }
+            this.tree = new StaticBoundingVolumeTree(boxes, faces);
+        }
+
+        /**
+         * Whether the geometry of the mesh is still the one of the tree.
+         */
+        boolean matches(Mesh mesh) {
+            return mesh.getPositions() == positions && mesh.getIndices() == indices;
+        }
+    }
+
+    /**
+     * Stacks and state of the queries of one thread.
+     */
+    private class Traversal {
+
+        private final StaticBoundingVolumeTree.Visitor meshVisitor;
+        private final StaticBoundingVolumeTree.Visitor faceVisitor;
+        private int[] meshStack;
+        private double[] meshDistances;
+        private int[] faceStack;
+        private double[] faceDistances;
+
+        /**
+         * Ray in world space (normalized direction).
+         */
+        private double worldOriginX;
+        private double worldOriginY;
+        private double worldOriginZ;
+        private double worldDirectionX;
+        private double worldDirectionY;
+        private double worldDirectionZ;
+        /**
+         * Ray in the space of the mesh being tested (the distances along it are the same as in world space).
+         */
+        private double originX;
+        private double originY;
+        private double originZ;
+        private double directionX;
+        private double directionY;
+        private double directionZ;
+        private int item;
+
+        /**
+         * Nearest hit so far.
+         */
+        private int hitItem;
+        private int hitFace;
+        private double hitU;
+        private double hitV;
+
+        Traversal() {
+            this.meshVisitor = this::visitMesh;
+            this.faceVisitor = this::visitFace;
+            this.meshStack = new int[0];
+            this.meshDistances = new double[0];
+            this.faceStack = new int[0];
+            this.faceDistances = new double[0];
+        }
+
+        boolean cast(double originX, double originY, double originZ, double directionX, double directionY,
+                     double directionZ, RayHit hit) {
+            hit.clear();
+            double length = Math.sqrt(directionX * directionX + directionY * directionY
+                    + directionZ * directionZ);
+            if (!(length > 0) || itemCount == 0) {
+                return false;
+            }
+            directionX /= length;
+            directionY /= length;
+            directionZ /= length;
+            if (meshStack.length <= tree.getDepth()) {
+                meshStack = new int[tree.getDepth() + 1];
+                meshDistances = new double[tree.getDepth() + 1];
+            }
+            if (faceStack.length <= meshDepth) {
+                faceStack = new int[meshDepth + 1];
+                faceDistances = new double[meshDepth + 1];
+            }
+            worldOriginX = originX;
+            worldOriginY = originY;
+            worldOriginZ = originZ;
+            worldDirectionX = directionX;
+            worldDirectionY = directionY;
+            worldDirectionZ = directionZ;
+            hitItem = -1;
+            double distance = tree.intersectRay(originX, originY, originZ, 1 / directionX, 1 / directionY,
+                    1 / directionZ, Double.POSITIVE_INFINITY, meshStack, meshDistances, meshVisitor);
+            if (hitItem < 0) {
+                return false;
+            }
+            hit.set(itemMeshes[hitItem], itemNodes != null ? itemNodes[hitItem] : null,
+                    itemNodes != null ? -1 : itemIndices[hitItem], hitFace, distance, hitU, hitV, originX,
+                    originY, originZ, directionX, directionY, directionZ);
+            return true;
+        }
+
+        /**
+         * Move the ray into the space of a mesh and test its triangles.
+         */
+        private double visitMesh(int item, double maxDistance) {
+            double[] m = inverseMatrices;
+            int o = AFFINE_SIZE * item;
+            double x = worldOriginX;
+            double y = worldOriginY;
+            double z = worldOriginZ;
+            originX = x * m[o] + y * m[o + 3] + z * m[o + 6] + m[o + 9];
+            originY = x * m[o + 1] + y * m[o + 4] + z * m[o + 7] + m[o + 10];
+            originZ = x * m[o + 2] + y * m[o + 5] + z * m[o + 8] + m[o + 11];
+            x = worldDirectionX;
+            y = worldDirectionY;
+            z = worldDirectionZ;
+            directionX = x * m[o] + y * m[o + 3] + z * m[o + 6];
+            directionY = x * m[o + 1] + y * m[o + 4] + z * m[o + 7];
+            directionZ = x * m[o + 2] + y * m[o + 5] + z * m[o + 8];
+            this.item = item;
+            return itemTrees[item].tree.intersectRay(originX, originY, originZ, 1 / directionX, 1 / directionY,
+                    1 / directionZ, maxDistance, faceStack, faceDistances, faceVisitor);
+        }
+
+        /**
+         * Möller-Trumbore intersection of the ray with a triangle.
+         */
+        private double visitFace(int face, double maxDistance) {
+            MeshTree meshTree = itemTrees[item];
+            float[] p = meshTree.positions;
+            int a = 3 * meshTree.indices[3 * face];
+            int b = 3 * meshTree.indices[3 * face + 1];
+            int c = 3 * meshTree.indices[3 * face + 2];
+            double e1x = p[b] - p[a];
+            double e1y = p[b + 1] - p[a + 1];
+            double e1z = p[b + 2] - p[a + 2];
+            double e2x = p[c] - p[a];
+            double e2y = p[c + 1] - p[a + 1];
+            double e2z = p[c + 2] - p[a + 2];
+            // p = direction x e2
+            double px = directionY * e2z - directionZ * e2y;
+            double py = directionZ * e2x - directionX * e2z;
+            double pz = directionX * e2y - directionY * e2x;
+            double determinant = e1x * px + e1y * py + e1z * pz;
+            if (determinant == 0) {
+                // Parallel to the triangle
+                return maxDistance;
+            }
+            double inverse = 1 / determinant;
+            double tx = originX - p[a];
+            double ty = originY - p[a + 1];
+            double tz = originZ - p[a + 2];
+            double u = (tx * px + ty * py + tz * pz) * inverse;
+            if (u < 0 || u > 1) {
+                return maxDistance;
+            }
+            // q = t x e1
+            double qx = ty * e1z - tz * e1y;
+            double qy = tz * e1x - tx * e1z;
+            double qz = tx * e1y - ty * e1x;
+            double v = (directionX * qx + directionY * qy + directionZ * qz) * inverse;
+            if (v < 0 || u + v > 1) {
+                return maxDistance;
+            }
+            double distance = (e2x * qx + e2y * qy + e2z * qz) * inverse;
+            if (distance < 0 || distance >= maxDistance) {
+                return maxDistance;
+            }
+            hitItem = item;
+            hitFace = face;
+            hitU = u;
+            hitV = v;
+            return distance;
+        }
+    }
+}
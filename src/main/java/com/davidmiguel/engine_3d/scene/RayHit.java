@@ -0,0 +1,158 @@
+package com.davidmiguel.engine_3d.scene;
+
+import com.davidmiguel.engine_3d.meshes.Mesh;
+
+import javax.vecmath.Vector3d;
+
+/**
+ * Nearest triangle crossed by a ray (see {@link RayCaster}). Reused by the queries: it is overwritten by the
+ * next query it is passed to.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@SuppressWarnings("WeakerAccess")
+public class RayHit {
+
+    private Mesh mesh;
+    private SceneNode node;
+    private int meshIndex;
+    private int face;
+    private double distance;
+    /**
+     * Weights of the second and third vertices of the face at the hit point (the first one is 1 - u - v).
+     */
+    private double barycentricU;
+    private double barycentricV;
+    private final Vector3d point;
+    private double textureU;
+    private double textureV;
+
+    public RayHit() {
+        this.point = new Vector3d();
+        clear();
+    }
+
+    /**
+     * Set as a miss.
+     */
+    void clear() {
+        mesh = null;
+        node = null;
+        meshIndex = -1;
+        face = -1;
+        distance = Double.POSITIVE_INFINITY;
+        barycentricU = 0;
+        barycentricV = 0;
+        point.set(0, 0, 0);
+        textureU = Double.NaN;
+        textureV = Double.NaN;
+    }
+
+    /**
+     * Set as a hit, interpolating the texture coordinates of the face.
+     */
+    void set(Mesh mesh, SceneNode node, int meshIndex, int face, double distance, double barycentricU,
+             double barycentricV, double originX, double originY, double originZ, double directionX,
+             double directionY, double directionZ) {
+        this.mesh = mesh;
+        this.node = node;
+        this.meshIndex = meshIndex;
+        this.face = face;
+        this.distance = distance;
+        this.barycentricU = barycentricU;
+        this.barycentricV = barycentricV;
+        point.set(originX + distance * directionX, originY + distance * directionY,
+                originZ + distance * directionZ);
+        float[] uvs = mesh.getUvs();
+        if (uvs == null) {
+            textureU = Double.NaN;
+            textureV = Double.NaN;
+            return;
+        }
+        int[] indices = mesh.getIndices();
+        int a = indices[3 * face];
+        int b = indices[3 * face + 1];
+        int c = indices[3 * face + 2];
+        double w = 1 - barycentricU - barycentricV;
+        textureU = w * uvs[2 * a] + barycentricU * uvs[2 * b] + barycentricV * uvs[2 * c];
+        textureV = w * uvs[2 * a + 1] + barycentricU * uvs[2 * b + 1] + barycentricV * uvs[2 * c + 1];
+    }
+
+    /**
+     * Whether the ray hit some triangle.
+     */
+    public boolean isHit() {
+        return mesh != null;
+    }
+
+    /**
+     * Mesh hit (null if the ray missed).
+     */
+    public Mesh getMesh() {
+        return mesh;
+    }
+
+    /**
+     * Scene node of the mesh hit (null if the ray missed or the caster is not built from a scene).
+     */
+    public SceneNode getNode() {
+        return node;
+    }
+
+    /**
+     * Index of the mesh hit in the meshes of the caster (-1 if the ray missed or the caster is built from
+     * a scene).
+     */
+    public int getMeshIndex() {
+        return meshIndex;
+    }
+
+    /**
+     * Index of the face hit in the mesh (-1 if the ray missed).
+     */
+    public int getFace() {
+        return face;
+    }
+
+    /**
+     * Distance from the origin of the ray to the hit point (infinity if the ray missed).
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    public double getBarycentricU() {
+        return barycentricU;
+    }
+
+    public double getBarycentricV() {
+        return barycentricV;
+    }
+
+    /**
+     * Hit point in world coordinates. It must not be modified.
+     */
+    public Vector3d getPoint() {
+        return point;
+    }
+
+    /**
+     * Texture coordinates at the hit point (NaN if the mesh has none or the ray missed).
+     */
+    public double getTextureU() {
+        return textureU;
+    }
+
+    public double getTextureV() {
+        return textureV;
+    }
+
+    @Override
+    public String toString() {
+        if (!isHit()) {
+            return "No hit";
+        }
+        return String.format("Face %d at %.3f (u %.3f, v %.3f)", face, distance, textureU, textureV);
+    }
+}
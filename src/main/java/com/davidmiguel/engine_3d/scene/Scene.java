@@ -0,0 +1,133 @@
+package com.davidmiguel.engine_3d.scene;
+
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Vector3d;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchy of nodes with meshes (scene graph), with the world bounding boxes of the meshes in a bounding
+ * volume tree for spatial queries.
+ * <p>
+ * {@link #update()} only recomputes the nodes that changed since the last update (and their descendants),
+ * and the queries only visit the branches of the tree near what they find, so with many static nodes the
+ * work per frame scales with what moves and what is visible, not with the size of the scene.
+ * <p>
+ * It is not thread-safe: the scene must not be changed while it is updated, queried or drawn.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@SuppressWarnings("WeakerAccess")
+public class Scene {
+
+    private final SceneNode root;
+    private final BoundingVolumeTree<SceneNode> tree;
+    /**
+     * Nodes marked as dirty since the last update (some may have been updated or detached meanwhile).
+     */
+    private final List<SceneNode> dirtyNodes;
+    private final Matrix4d translationMatrix;
+    /**
+     * Nodes found by the last pick (reused).
+     */
+    private final List<SceneNode> candidates;
+
+    public Scene() {
+        this.tree = new BoundingVolumeTree<>();
+        this.dirtyNodes = new ArrayList<>();
+        this.translationMatrix = new Matrix4d();
+        this.candidates = new ArrayList<>();
+        this.root = new SceneNode("root");
+        this.root.attach(this);
+    }
+
+    /**
+     * Node every other node of the scene descends from.
+     */
+    public SceneNode getRoot() {
+        return root;
+    }
+
+    /**
+     * Attach a node (with its descendants) to the root.
+     */
+    public void add(SceneNode node) {
+        root.addChild(node);
+    }
+
+    /**
+     * Recompute the world matrices and bounds of the nodes that changed since the last update.
+     */
+    public void update() {
+        for (int i = 0; i < dirtyNodes.size(); i++) {
+            SceneNode node = dirtyNodes.get(i);
+            // Nodes below a dirty node are recomputed with it
+            if (node.isDirty() && node.getScene() == this && !node.hasDirtyAncestor()) {
+                SceneNode parent = node.getParent();
+                node.update(parent == null ? null : parent.getWorldMatrix(), tree, translationMatrix);
+            }
+        }
+        dirtyNodes.clear();
+    }
+
+    /**
+     * Add to the result the nodes whose meshes may be in the frustum (as of the last update).
+     */
+    public void query(Frustum frustum, List<? super SceneNode> result) {
+        tree.query(frustum, result);
+    }
+
+    /**
+     * Node whose world bounding box is the first one crossed by a ray (as of the last update).
+     *
+     * @param origin    origin of the ray in world coordinates
+     * @param direction direction of the ray
+     * @return null if the ray does not cross any box
+     */
+    public SceneNode pick(Vector3d origin, Vector3d direction) {
+        candidates.clear();
+        tree.query(origin.x, origin.y, origin.z, direction.x, direction.y, direction.z, Double.POSITIVE_INFINITY,
+                candidates);
+        double inverseX = 1 / direction.x;
+        double inverseY = 1 / direction.y;
+        double inverseZ = 1 / direction.z;
+        SceneNode nearest = null;
+        double nearestDistance = Double.POSITIVE_INFINITY;
+        for (SceneNode node : candidates) {
+            double distance = BoundingVolumeTree.intersectRay(node.getWorldBounds(), 0, origin.x, origin.y,
+                    origin.z, inverseX, inverseY, inverseZ);
+            if (distance < nearestDistance) {
+                nearest = node;
+                nearestDistance = distance;
+            }
+        }
+        candidates.clear();
+        return nearest;
+    }
+
+    /**
+     * Number of nodes with a mesh (as of the last update).
+     */
+    public int getMeshCount() {
+        return tree.getProxyCount();
+    }
+
+    /**
+     * Bounding volume tree of the world bounds of the meshes.
+     */
+    public BoundingVolumeTree<SceneNode> getTree() {
+        return tree;
+    }
+
+    void dirty(SceneNode node) {
+        dirtyNodes.add(node);
+    }
+
+    /**
+     * A node has been detached from the scene.
+     */
+    void detached(SceneNode node) {
+        node.removeProxy(tree);
+    }
+}
@@ -0,0 +1,304 @@
+package com.davidmiguel.engine_3d.scene;
+
+import com.davidmiguel.engine_3d.meshes.Mesh;
+import com.davidmiguel.engine_3d.utils.MathUtils;
+
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Vector3d;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Node of a {@link Scene}: a transform relative to its parent, and optionally a mesh drawn with it.
+ * <p>
+ * The world matrix (rotation, then translation, then the world matrix of the parent) and the world bounding
+ * box are cached. Changing the transform marks the node as dirty, and they are recomputed, with the ones of
+ * its descendants, the next time the scene is updated. The position and rotation of the mesh are ignored.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@SuppressWarnings("WeakerAccess")
+public class SceneNode {
+
+    private final String name;
+    private Mesh mesh;
+
+    private SceneNode parent;
+    private final List<SceneNode> children;
+    /**
+     * Scene the node is attached to (null if it is not).
+     */
+    private Scene scene;
+
+    /**
+     * Position and rotation relative to the parent.
+     */
+    private final Vector3d position;
+    private final Vector3d rotation;
+    private final Matrix4d worldMatrix;
+    /**
+     * World bounding box of the mesh (min x, y, z, max x, y, z).
+     */
+    private final double[] worldBounds;
+    private boolean dirty;
+    /**
+     * Proxy of the node in the bounding volume tree of the scene (-1 if it is not in the tree).
+     */
+    private int proxy;
+    /**
+     * Level of detail of the mesh drawn in the last frame.
+     */
+    private int lodLevel;
+
+    public SceneNode(String name) {
+        this(name, null);
+    }
+
+    public SceneNode(String name, Mesh mesh) {
+        this.name = name;
+        this.mesh = mesh;
+        this.children = new ArrayList<>();
+        this.position = new Vector3d();
+        this.rotation = new Vector3d();
+        this.worldMatrix = new Matrix4d();
+        this.worldMatrix.setIdentity();
+        this.worldBounds = new double[6];
+        this.dirty = true;
+        this.proxy = -1;
+    }
+
+    /**
+     * Attach a node (with its descendants) to this one, detaching it from its parent first.
+     */
+    public void addChild(SceneNode child) {
+        for (SceneNode ancestor = this; ancestor != null; ancestor = ancestor.parent) {
+            if (ancestor == child) {
+                throw new IllegalArgumentException("A node cannot be a descendant of itself.");
+            }
+        }
+        if (child.parent != null) {
+            child.parent.removeChild(child);
+        }
+        children.add(child);
+        child.parent = this;
+        child.attach(scene);
+    }
+
+    public void removeChild(SceneNode child) {
+        if (child.parent != this) {
+            throw new IllegalArgumentException("Not a child of this node.");
+        }
+        children.remove(child);
+        child.parent = null;
+        child.attach(null);
+    }
+
+    /**
+     * Move the node and its descendants to another scene (or out of any scene).
+     */
+    void attach(Scene newScene) {
+        if (scene == newScene) {
+            return;
+        }
+        if (scene != null) {
+            scene.detached(this);
+        }
+        scene = newScene;
+        // Recomputed in the next update of the new scene
+        dirty = false;
+        markDirty();
+        for (SceneNode child : children) {
+            child.attach(newScene);
+        }
+    }
+
+    public void setPosition(double x, double y, double z) {
+        position.set(x, y, z);
+        markDirty();
+    }
+
+    public void setRotation(double x, double y, double z) {
+        rotation.set(x, y, z);
+        markDirty();
+    }
+
+    public void translate(double x, double y, double z) {
+        setPosition(position.x + x, position.y + y, position.z + z);
+    }
+
+    public void rotate(double x, double y, double z) {
+        setRotation(rotation.x + x, rotation.y + y, rotation.z + z);
+    }
+
+    public void setMesh(Mesh mesh) {
+        this.mesh = mesh;
+        this.lodLevel = 0;
+        markDirty();
+    }
+
+    /**
+     * Recompute the world matrix and bounds of the node in the next update of the scene. Needed if the
+     * geometry of the mesh changes.
+     */
+    public void markDirty() {
+        if (!dirty) {
+            dirty = true;
+            if (scene != null) {
+                scene.dirty(this);
+            }
+        }
+    }
+
+    /**
+     * Recompute the world matrices and bounds of the node and its descendants.
+     *
+     * @param parentWorld       world matrix of the parent (null for the root)
+     * @param tree              where the bounds of the meshes are stored
+     * @param translationMatrix matrix reused for the translations
+     */
+    void update(Matrix4d parentWorld, BoundingVolumeTree<SceneNode> tree, Matrix4d translationMatrix) {
+        MathUtils.rotationYawPitchRoll(rotation.y, rotation.x, rotation.z, worldMatrix);
+        MathUtils.translation(position.x, position.y, position.z, translationMatrix);
+        worldMatrix.mul(translationMatrix);
+        if (parentWorld != null) {
+            worldMatrix.mul(parentWorld);
+        }
+        if (mesh != null && mesh.getVertexCount() > 0) {
+            computeWorldBounds();
+            if (proxy < 0) {
+                proxy = tree.createProxy(worldBounds, 0, this);
+            } else {
+                tree.moveProxy(proxy, worldBounds, 0);
+            }
+        } else if (proxy >= 0) {
+            tree.destroyProxy(proxy);
+            proxy = -1;
+        }
+        dirty = false;
+        for (SceneNode child : children) {
+            child.update(worldMatrix, tree, translationMatrix);
+        }
+    }
+
+    /**
+     * Remove the node from the bounding volume tree.
+     */
+    void removeProxy(BoundingVolumeTree<SceneNode> tree) {
+        if (proxy >= 0) {
+            tree.destroyProxy(proxy);
+            proxy = -1;
+        }
+    }
+
+    /**
+     * Box around the box of the mesh transformed by the world matrix: its center is transformed, and its
+     * half sizes are projected on the world axes.
+     */
+    private void computeWorldBounds() {
+        Vector3d min = mesh.getBoundsMin();
+        Vector3d max = mesh.getBoundsMax();
+        Matrix4d m = worldMatrix;
+        double cx = (min.x + max.x) / 2;
+        double cy = (min.y + max.y) / 2;
+        double cz = (min.z + max.z) / 2;
+        double ex = (max.x - min.x) / 2;
+        double ey = (max.y - min.y) / 2;
+        double ez = (max.z - min.z) / 2;
+        double wx = cx * m.m00 + cy * m.m10 + cz * m.m20 + m.m30;
+        double wy = cx * m.m01 + cy * m.m11 + cz * m.m21 + m.m31;
+        double wz = cx * m.m02 + cy * m.m12 + cz * m.m22 + m.m32;
+        double hx = ex * Math.abs(m.m00) + ey * Math.abs(m.m10) + ez * Math.abs(m.m20);
+        double hy = ex * Math.abs(m.m01) + ey * Math.abs(m.m11) + ez * Math.abs(m.m21);
+        double hz = ex * Math.abs(m.m02) + ey * Math.abs(m.m12) + ez * Math.abs(m.m22);
+        worldBounds[0] = wx - hx;
+        worldBounds[1] = wy - hy;
+        worldBounds[2] = wz - hz;
+        worldBounds[3] = wx + hx;
+        worldBounds[4] = wy + hy;
+        worldBounds[5] = wz + hz;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Mesh getMesh() {
+        return mesh;
+    }
+
+    public SceneNode getParent() {
+        return parent;
+    }
+
+    public List<SceneNode> getChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
+    public Scene getScene() {
+        return scene;
+    }
+
+    /**
+     * Position relative to the parent (a copy: use {@link #setPosition} to change it).
+     */
+    public Vector3d getPosition() {
+        return new Vector3d(position);
+    }
+
+    /**
+     * Rotation relative to the parent (a copy: use {@link #setRotation} to change it).
+     */
+    public Vector3d getRotation() {
+        return new Vector3d(rotation);
+    }
+
+    /**
+     * World matrix as of the last update of the scene. It must not be modified.
+     */
+    public Matrix4d getWorldMatrix() {
+        return worldMatrix;
+    }
+
+    /**
+     * World bounding box of the mesh (min x, y, z, max x, y, z) as of the last update of the scene.
+     * It must not be modified.
+     */
+    public double[] getWorldBounds() {
+        return worldBounds;
+    }
+
+    /**
+     * Level of detail of the mesh drawn in the last frame, kept by the engine so the mesh does not switch
+     * levels every frame (0 until it is drawn).
+     */
+    public int getLodLevel() {
+        return lodLevel;
+    }
+
+    public void setLodLevel(int lodLevel) {
+        this.lodLevel = lodLevel;
+    }
+
+    /**
+     * Whether the node has changed since the last update of the scene.
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    boolean hasDirtyAncestor() {
+        for (SceneNode ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+            if (ancestor.dirty) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,407 @@
+package com.davidmiguel.engine_3d.scene;
+
+import java.util.Arrays;
+
+/**
+ * Bounding volume hierarchy over a fixed set of axis-aligned boxes (e.g. the triangles of a mesh), built once
+ * with the surface area heuristic (SAH) and then only queried.
+ * <p>
+ * Every node is split where the expected cost of a ray crossing it is the lowest: the primitives are put in
+ * bins by the centroids of their boxes along every axis, and the cost of a split between bins is estimated
+ * as the surface of each side times its number of primitives. A node becomes a leaf when no split is cheaper
+ * than testing all its primitives.
+ * <p>
+ * The nodes are stored in packed arrays (the two children of a node are consecutive), with float boxes so
+ * trees of millions of triangles stay compact. The queries do not allocate, and several threads can query a
+ * tree at the same time with their own stacks.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@SuppressWarnings("WeakerAccess")
+public class StaticBoundingVolumeTree {
+
+    /**
+     * Receives the primitives of the leaves crossed by a ray.
+     */
+    public interface Visitor {
+
+        /**
+         * Test a primitive against the ray.
+         *
+         * @param primitive   index of the box of the primitive
+         * @param maxDistance distance of the nearest hit so far
+         * @return distance of the nearest hit after testing the primitive
+         */
+        double visit(int primitive, double maxDistance);
+    }
+
+    private static final int BINS = 16;
+    /**
+     * Leaves never have more primitives, even if splitting them is not cheaper.
+     */
+    private static final int MAX_LEAF_SIZE = 8;
+    /**
+     * Cost of visiting a node relative to the cost of testing a primitive.
+     */
+    private static final double TRAVERSAL_COST = 1.0;
+    /**
+     * Below this level the nodes are split in halves, which bounds the depth of the tree (and of the
+     * recursion of the build) for any input.
+     */
+    private static final int MAX_SAH_LEVEL = 48;
+
+    /**
+     * Boxes of the nodes (min x, y, z, max x, y, z).
+     */
+    private float[] bounds;
+    /**
+     * First primitive in {@link #primitives} of every leaf, or first child of every inner node.
+     */
+    private int[] firsts;
+    /**
+     * Primitives of every leaf (0 for the inner nodes).
+     */
+    private int[] counts;
+    /**
+     * Primitives ordered so those of every leaf are consecutive.
+     */
+    private final int[] primitives;
+    private int nodeCount;
+    private int depth;
+
+    /**
+     * Build working arrays (released after the build). The boxes and centroids are kept in the order of
+     * {@link #primitives}, so the build reads them sequentially.
+     */
+    private double[] boxes;
+    private double[] centroids;
+    private int[] binCounts;
+    private double[] binBounds;
+    private double[] rightAreas;
+    private final double[] box = new double[6];
+    private final double[] centroidBox = new double[6];
+    private final double[] side = new double[6];
+
+    /**
+     * Build the tree.
+     *
+     * @param boxes packed boxes of the primitives (min x, y, z, max x, y, z), reordered by the build
+     * @param count number of primitives
+     */
+    public StaticBoundingVolumeTree(double[] boxes, int count) {
+        this.primitives = new int[count];
+        this.bounds = new float[6 * Math.max(2 * count - 1, 1)];
+        this.firsts = new int[Math.max(2 * count - 1, 1)];
+        this.counts = new int[firsts.length];
+        if (count == 0) {
+            return;
+        }
+        this.boxes = boxes;
+        this.centroids = new double[3 * count];
+        for (int i = 0; i < count; i++) {
+            primitives[i] = i;
+            for (int k = 0; k < 3; k++) {
+                centroids[3 * i + k] = (boxes[6 * i + k] + boxes[6 * i + 3 + k]) / 2;
+            }
+        }
+        this.binCounts = new int[3 * BINS];
+        this.binBounds = new double[3 * 6 * BINS];
+        this.rightAreas = new double[BINS];
+        nodeCount = 1;
+        build(0, 0, count, 1);
+        // Trim and release the working arrays
+        bounds = Arrays.copyOf(bounds, 6 * nodeCount);
+        firsts = Arrays.copyOf(firsts, nodeCount);
+        counts = Arrays.copyOf(counts, nodeCount);
+        this.boxes = null;
+        this.centroids = null;
+        this.binCounts = null;
+        this.binBounds = null;
+        this.rightAreas = null;
+    }
+
+    private void build(int node, int start, int end, int level) {
+        depth = Math.max(depth, level);
+        int count = end - start;
+        // Bounds of the boxes and of their centroids
+        empty(box);
+        empty(centroidBox);
+        for (int i = start; i < end; i++) {
+            for (int k = 0; k < 3; k++) {
+                box[k] = Math.min(box[k], boxes[6 * i + k]);
+                box[k + 3] = Math.max(box[k + 3], boxes[6 * i + 3 + k]);
+                centroidBox[k] = Math.min(centroidBox[k], centroids[3 * i + k]);
+                centroidBox[k + 3] = Math.max(centroidBox[k + 3], centroids[3 * i + k]);
+            }
+        }
+        for (int k = 0; k < 3; k++) {
+            // Rounded outwards, so the float box still contains the primitives
+            bounds[6 * node + k] = Math.nextDown((float) box[k]);
+            bounds[6 * node + 3 + k] = Math.nextUp((float) box[k + 3]);
+        }
+        if (count == 1) {
+            makeLeaf(node, start, count);
+            return;
+        }
+        // Best split among the bins of every axis
+        fillBins(start, end);
+        double bestCost = Double.POSITIVE_INFINITY;
+        int bestAxis = -1;
+        int bestBin = 0;
+        for (int axis = 0; axis < 3; axis++) {
+            if (centroidBox[axis + 3] <= centroidBox[axis]) {
+                continue;
+            }
+            // Sweep from the right to get the areas, then from the left to get the costs
+            empty(side);
+            int rightCount = 0;
+            for (int bin = BINS - 1; bin > 0; bin--) {
+                grow(side, axis * BINS + bin);
+                rightCount += binCounts[axis * BINS + bin];
+                rightAreas[bin] = rightCount == 0 ? 0 : area(side) * rightCount;
+            }
+            empty(side);
+            int leftCount = 0;
+            for (int bin = 0; bin < BINS - 1; bin++) {
+                grow(side, axis * BINS + bin);
+                leftCount += binCounts[axis * BINS + bin];
+                if (leftCount == 0 || leftCount == count) {
+                    continue;
+                }
+                double cost = area(side) * leftCount + rightAreas[bin + 1];
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestAxis = axis;
+                    bestBin = bin;
+                }
+            }
+        }
+        double leafCost = count;
+        double splitCost = TRAVERSAL_COST + bestCost / Math.max(area(box), Double.MIN_NORMAL);
+        int middle;
+        if (level > MAX_SAH_LEVEL && count > MAX_LEAF_SIZE) {
+            middle = (start + end) / 2;
+        } else if (bestAxis >= 0 && (splitCost < leafCost || count > MAX_LEAF_SIZE)) {
+            middle = partition(start, end, bestAxis, centroidBox[bestAxis],
+                    centroidBox[bestAxis + 3] - centroidBox[bestAxis], bestBin);
+        } else if (count > MAX_LEAF_SIZE) {
+            // Same centroid for all of them: any split is as good as another
+            middle = (start + end) / 2;
+        } else {
+            makeLeaf(node, start, count);
+            return;
+        }
+        int left = nodeCount;
+        nodeCount += 2;
+        firsts[node] = left;
+        counts[node] = 0;
+        build(left, start, middle, level + 1);
+        build(left + 1, middle, end, level + 1);
+    }
+
+    private void makeLeaf(int node, int start, int count) {
+        firsts[node] = start;
+        counts[node] = count;
+    }
+
+    private static void empty(double[] box) {
+        for (int k = 0; k < 3; k++) {
+            box[k] = Double.MAX_VALUE;
+            box[k + 3] = -Double.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @param scale number of bins over the extent of the centroids
+     */
+    private static int binOf(double centroid, double min, double scale) {
+        return Math.min((int) ((centroid - min) * scale), BINS - 1);
+    }
+
+    /**
+     * Put the primitives in the bins of the three axes (in a single pass over them).
+     */
+    private void fillBins(int start, int end) {
+        Arrays.fill(binCounts, 0);
+        for (int bin = 0; bin < 3 * BINS; bin++) {
+            for (int k = 0; k < 3; k++) {
+                binBounds[6 * bin + k] = Double.MAX_VALUE;
+                binBounds[6 * bin + 3 + k] = -Double.MAX_VALUE;
+            }
+        }
+        for (int i = start; i < end; i++) {
+            for (int axis = 0; axis < 3; axis++) {
+                double extent = centroidBox[axis + 3] - centroidBox[axis];
+                if (extent <= 0) {
+                    continue;
+                }
+                int bin = axis * BINS + binOf(centroids[3 * i + axis], centroidBox[axis], BINS / extent);
+                binCounts[bin]++;
+                for (int k = 0; k < 3; k++) {
+                    binBounds[6 * bin + k] = Math.min(binBounds[6 * bin + k], boxes[6 * i + k]);
+                    binBounds[6 * bin + 3 + k] = Math.max(binBounds[6 * bin + 3 + k], boxes[6 * i + 3 + k]);
+                }
+            }
+        }
+    }
+
+    private void grow(double[] box, int bin) {
+        if (binCounts[bin] == 0) {
+            return;
+        }
+        for (int k = 0; k < 3; k++) {
+            box[k] = Math.min(box[k], binBounds[6 * bin + k]);
+            box[k + 3] = Math.max(box[k + 3], binBounds[6 * bin + 3 + k]);
+        }
+    }
+
+    /**
+     * Half the surface of a box (the constant factor does not change the comparisons).
+     */
+    private static double area(double[] box) {
+        double x = box[3] - box[0];
+        double y = box[4] - box[1];
+        double z = box[5] - box[2];
+        return x * y + y * z + z * x;
+    }
+
+    /**
+     * Move the primitives in the bins up to the given one (with their boxes and centroids) before the rest.
+     *
+     * @return index of the first primitive of the right side
+     */
+    private int partition(int start, int end, int axis, double min, double extent, int lastLeftBin) {
+        double scale = BINS / extent;
+        int i = start;
+        int j = end - 1;
+        while (i <= j) {
+            if (binOf(centroids[3 * i + axis], min, scale) <= lastLeftBin) {
+                i++;
+            } else {
+                swap(i, j);
+                j--;
+            }
+        }
+        return i;
+    }
+
+    private void swap(int i, int j) {
+        int p = primitives[i];
+        primitives[i] = primitives[j];
+        primitives[j] = p;
+        for (int k = 0; k < 6; k++) {
+            double value = boxes[6 * i + k];
+            boxes[6 * i + k] = boxes[6 * j + k];
+            boxes[6 * j + k] = value;
+        }
+        for (int k = 0; k < 3; k++) {
+            double value = centroids[3 * i + k];
+            centroids[3 * i + k] = centroids[3 * j + k];
+            centroids[3 * j + k] = value;
+        }
+    }
+
+    /**
+     * Visit the primitives of the leaves crossed by a ray, nearest nodes first, skipping the nodes farther
+     * than the nearest hit found so far.
+     *
+     * @param inverseX    inverse of the components of the direction of the ray
+     * @param maxDistance distance (in units of the direction) from which the hits are ignored
+     * @param stack       nodes pending to be visited, with room for {@link #getDepth()} + 1 of them
+     * @param distances   entry distance of the nodes in the stack (same size)
+     * @param visitor     tests the primitives
+     * @return distance of the nearest hit (maxDistance if there is none)
+     */
+    public double intersectRay(double originX, double originY, double originZ, double inverseX, double inverseY,
+                               double inverseZ, double maxDistance, int[] stack, double[] distances,
+                               Visitor visitor) {
+        if (primitives.length == 0) {
+            return maxDistance;
+        }
+        int size = 0;
+        double distance = intersectRay(0, originX, originY, originZ, inverseX, inverseY, inverseZ);
+        // Only the nodes that may have a hit nearer than the nearest one so far (misses are infinitely far)
+        if (distance < maxDistance) {
+            stack[0] = 0;
+            distances[0] = distance;
+            size = 1;
+        }
+        while (size > 0) {
+            size--;
+            if (distances[size] >= maxDistance) {
+                continue;
+            }
+            int node = stack[size];
+            int count = counts[node];
+            if (count > 0) {
+                int first = firsts[node];
+                for (int i = first; i < first + count; i++) {
+                    maxDistance = visitor.visit(primitives[i], maxDistance);
+                }
+                continue;
+            }
+            int near = firsts[node];
+            int far = near + 1;
+            double nearDistance = intersectRay(near, originX, originY, originZ, inverseX, inverseY, inverseZ);
+            double farDistance = intersectRay(far, originX, originY, originZ, inverseX, inverseY, inverseZ);
+            if (farDistance < nearDistance) {
+                int swap = near;
+                near = far;
+                far = swap;
+                double swapDistance = nearDistance;
+                nearDistance = farDistance;
+                farDistance = swapDistance;
+            }
+            // The nearest child is popped first
+            if (farDistance < maxDistance) {
+                stack[size] = far;
+                distances[size++] = farDistance;
+            }
+            if (nearDistance < maxDistance) {
+                stack[size] = near;
+                distances[size++] = nearDistance;
+            }
+        }
+        return maxDistance;
+    }
+
+    /**
+     * Slab test of the box of a node (see {@link BoundingVolumeTree#intersectRay}).
+     */
+    private double intersectRay(int node, double originX, double originY, double originZ, double inverseX,
+                                double inverseY, double inverseZ) {
+        int offset = 6 * node;
+        double t1 = (bounds[offset] - originX) * inverseX;
+        double t2 = (bounds[offset + 3] - originX) * inverseX;
+        double near = Math.min(t1, t2);
+        double far = Math.max(t1, t2);
+        t1 = (bounds[offset + 1] - originY) * inverseY;
+        t2 = (bounds[offset + 4] - originY) * inverseY;
+        near = Math.max(near, Math.min(t1, t2));
+        far = Math.min(far, Math.max(t1, t2));
+        t1 = (bounds[offset + 2] - originZ) * inverseZ;
+        t2 = (bounds[offset + 5] - originZ) * inverseZ;
+        near = Math.max(near, Math.min(t1, t2));
+        far = Math.min(far, Math.max(t1, t2));
+        if (!(far >= near && far >= 0)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Math.max(near, 0);
+    }
+
+    /**
+     * Number of levels of the tree (the size of the stacks of the queries is this plus one).
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getPrimitiveCount() {
+        return primitives.length;
+    }
+}
@@ -0,0 +1,231 @@
+package com.davidmiguel.engine_3d.utils;
+
+import com.davidmiguel.engine_3d.meshes.Mesh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compact binary mesh format, read by memory-mapping the file.
+ * <p>
+ * Everything is little-endian and 4-byte aligned:
+ * <pre>
+ * header:  int magic ("E3DM"), int version, int mesh count
+ * mesh:    int flags (1 = has texture coordinates), int vertex count, int index count,
+ *          float[3] position, float[3] rotation,
+ *          int texture name length, UTF-8 texture name (padded to 4 bytes, empty if the mesh has no texture),
+ *          float[3 * vertices] positions, float[3 * vertices] normals,
+ *          float[2 * vertices] texture coordinates (if flagged), int[indices] indices
+ * </pre>
+ * The vertex and index sections are bulk copied from the mapped file into the arrays of the mesh,
+ * so loading costs about the same as reading the file.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@SuppressWarnings("WeakerAccess")
+public class BinaryMeshFile {
+
+    /**
+     * "E3DM" read as a little-endian int.
+     */
+    public static final int MAGIC = 'E' | '3' << 8 | 'D' << 16 | 'M' << 24;
+    public static final int VERSION = 1;
+    /**
+     * Default extension of the binary mesh files.
+     */
+    public static final String EXTENSION = ".e3dm";
+
+    private static final int HAS_TEXTURE_COORDINATES = 1;
+    private static final int HEADER_SIZE = 3 * 4;
+    /**
+     * Flags, counts, position and rotation.
+     */
+    private static final int MESH_HEADER_SIZE = 3 * 4 + 6 * 4;
+
+    /**
+     * Read the meshes of a binary mesh file. Their textures are taken from the shared texture cache.
+     *
+     * @param file binary mesh file
+     * @return array of meshes
+     * @throws IOException if the file cannot be read or it is not a valid binary mesh file
+     */
+    public static Mesh[] read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Binary mesh files are limited to 2 GB.");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return read(buffer);
+        }
+    }
+
+    /**
+     * Read the meshes from a buffer with the content of a binary mesh file.
+     */
+    static Mesh[] read(ByteBuffer buffer) throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        check(buffer, HEADER_SIZE);
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a binary mesh file.");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary mesh file version: " + version);
+        }
+        int meshCount = buffer.getInt();
+        if (meshCount < 0) {
+            throw new IOException("Corrupted binary mesh file.");
+        }
+        Mesh[] meshes = new Mesh[meshCount];
+        for (int m = 0; m < meshCount; m++) {
+            meshes[m] = readMesh(buffer);
+        }
+        return meshes;
+    }
+
+    private static Mesh readMesh(ByteBuffer buffer) throws IOException {
+        check(buffer, MESH_HEADER_SIZE + 4);
+        int flags = buffer.getInt();
+        int vertexCount = buffer.getInt();
+        int indexCount = buffer.getInt();
+        if (vertexCount < 0 || indexCount < 0 || indexCount % 3 != 0) {
+            throw new IOException("Corrupted binary mesh file.");
+        }
+        Mesh mesh = new Mesh();
+        mesh.getPosition().set(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+        mesh.getRotation().set(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+        // Material reference
+        int nameLength = buffer.getInt();
+        if (nameLength < 0) {
+            throw new IOException("Corrupted binary mesh file.");
+        }
+        check(buffer, align(nameLength));
+        String textureName = null;
+        if (nameLength > 0) {
+            byte[] name = new byte[nameLength];
+            buffer.get(name);
+            textureName = new String(name, StandardCharsets.UTF_8);
+        }
+        buffer.position(buffer.position() + align(nameLength) - nameLength);
+        // Geometry
+        boolean hasUvs = (flags & HAS_TEXTURE_COORDINATES) != 0;
+        long sectionsSize = 4L * (6L * vertexCount + (hasUvs ? 2L * vertexCount : 0) + indexCount);
+        check(buffer, sectionsSize);
+        float[] positions = readFloats(buffer, 3 * vertexCount);
+        float[] normals = readFloats(buffer, 3 * vertexCount);
+        float[] uvs = hasUvs ? readFloats(buffer, 2 * vertexCount) : null;
+        int[] indices = new int[indexCount];
+        buffer.asIntBuffer().get(indices);
+        buffer.position(buffer.position() + 4 * indexCount);
+        try {
+            mesh.setGeometry(positions, normals, uvs, indices);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupted binary mesh file.", e);
+        }
+        // Texture
+        if (textureName != null) {
+            mesh.setTextureName(textureName);
+            if (hasUvs) {
+                mesh.setTexture(FileUtils.loadTexture(textureName));
+            }
+        }
+        return mesh;
+    }
+
+    private static float[] readFloats(ByteBuffer buffer, int count) {
+        float[] values = new float[count];
+        buffer.asFloatBuffer().get(values);
+        buffer.position(buffer.position() + 4 * count);
+        return values;
+    }
+
+    /**
+     * Write the meshes into a binary mesh file.
+     *
+     * @param meshes meshes to write
+     * @param file   binary mesh file (overwritten if it exists)
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Mesh[] meshes, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(meshes.length);
+            header.flip();
+            writeFully(channel, header);
+            for (Mesh mesh : meshes) {
+                writeFully(channel, encodeMesh(mesh));
+            }
+        }
+    }
+
+    private static ByteBuffer encodeMesh(Mesh mesh) {
+        float[] positions = mesh.getPositions();
+        float[] normals = mesh.getNormals();
+        float[] uvs = mesh.getUvs();
+        int[] indices = mesh.getIndices();
+        byte[] name = mesh.getTextureName() != null
+                ? mesh.getTextureName().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        long size = MESH_HEADER_SIZE + 4 + align(name.length)
+                + 4L * (positions.length + normals.length + (uvs != null ? uvs.length : 0) + indices.length);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Mesh too big for a binary mesh file.");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(uvs != null ? HAS_TEXTURE_COORDINATES : 0);
+        buffer.putInt(mesh.getVertexCount());
+        buffer.putInt(indices.length);
+        buffer.putFloat((float) mesh.getPosition().x)
+                .putFloat((float) mesh.getPosition().y)
+                .putFloat((float) mesh.getPosition().z);
+        buffer.putFloat((float) mesh.getRotation().x)
+                .putFloat((float) mesh.getRotation().y)
+                .putFloat((float) mesh.getRotation().z);
+        buffer.putInt(name.length);
+        buffer.put(name);
+        buffer.position(buffer.position() + align(name.length) - name.length);
+        buffer.asFloatBuffer().put(positions);
+        buffer.position(buffer.position() + 4 * positions.length);
+        buffer.asFloatBuffer().put(normals);
+        buffer.position(buffer.position() + 4 * normals.length);
+        if (uvs != null) {
+            buffer.asFloatBuffer().put(uvs);
+            buffer.position(buffer.position() + 4 * uvs.length);
+        }
+        buffer.asIntBuffer().put(indices);
+        buffer.position(buffer.position() + 4 * indices.length);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Throw an exception if the buffer has less than the given number of bytes left.
+     */
+    private static void check(ByteBuffer buffer, long bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            throw new IOException("Truncated binary mesh file.");
+        }
+    }
+
+    /**
+     * Round up to a multiple of 4.
+     */
+    private static int align(int bytes) {
+        return (bytes + 3) & ~3;
+    }
+}
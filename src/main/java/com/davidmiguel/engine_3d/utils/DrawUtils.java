@@ -1,10 +1,10 @@
 package com.davidmiguel.engine_3d.utils;
 
+import com.davidmiguel.engine_3d.engine.DepthBuffer;
+import com.davidmiguel.engine_3d.engine.FrameBuffer;
+import com.davidmiguel.engine_3d.engine.Tile;
+import com.davidmiguel.engine_3d.engine.VertexCache;
 import com.davidmiguel.engine_3d.meshes.Texture;
-import com.davidmiguel.engine_3d.meshes.Vertex;
-import javafx.scene.image.PixelWriter;
-import javafx.scene.image.WritableImage;
-import javafx.scene.paint.Color;
 
 import javax.vecmath.Vector3d;
 
@@ -17,26 +17,28 @@ import javax.vecmath.Vector3d;
 @SuppressWarnings("WeakerAccess")
 public class DrawUtils {
 
-    private static final int WIDTH = 900;
-    private static final int HEIGHT = 550;
+    /**
+     * Scan line state reused by every triangle drawn by the same thread.
+     */
+    private static final ThreadLocal<ScanLineData> SCAN_LINE_DATA = ThreadLocal.withInitial(ScanLineData::new);
 
     /**
      * Calls putPixel but does the clipping operation before.
      */
-    public static void drawPoint(WritableImage img, Vector3d point, Color color) {
-        // Clipping what's visible on screen
-        if (point.x >= 0 && point.y >= 0
-                && point.x < WIDTH
-                && point.y < HEIGHT) {
+    public static void drawPoint(FrameBuffer fb, Tile clip, int x, int y, int argb) {
+        // Clipping what's visible on screen (or on the tile)
+        if (x >= clip.getMinX() && y >= clip.getMinY()
+                && x < clip.getMaxX()
+                && y < clip.getMaxY()) {
             // Drawing point
-            putPixel(img, (int) point.x, (int) point.y, color);
+            putPixel(fb, x, y, argb);
         }
     }
 
     /**
      * Draw line with Bresenham’s line algorithm.
      */
-    public static void drawLine(WritableImage img, int x0, int y0, int x1, int y1, Color color) {
+    public static void drawLine(FrameBuffer fb, Tile clip, int x0, int y0, int x1, int y1, int argb) {
         double dx = Math.abs(x1 - x0);
         double dy = Math.abs(y1 - y0);
         double sx = (x0 < x1) ? 1 : -1;
@@ -44,7 +46,7 @@ public class DrawUtils {
         double err = dx - dy;
 
         while (true) {
-            drawPoint(img, new Vector3d(x0, y0, 0), color);
+            drawPoint(fb, clip, x0, y0, argb);
             if ((x0 == x1) && (y0 == y1)) break;
             double e2 = 2 * err;
             if (e2 > -dy) {
@@ -61,166 +63,265 @@ public class DrawUtils {
     /**
      * Draw line with Bresenham’s line algorithm.
      */
-    public static void drawLine(WritableImage img, Vector3d p1, Vector3d p2, Color color) {
-        drawLine(img, (int) p1.x, (int) p1.y, (int) p2.x, (int) p2.y, color);
+    public static void drawLine(FrameBuffer fb, Tile clip, Vector3d p1, Vector3d p2, int argb) {
+        drawLine(fb, clip, (int) p1.x, (int) p1.y, (int) p2.x, (int) p2.y, argb);
     }
 
     /**
      * Draw a triangle drawing its edges.
      */
-    public static void drawTriangle(WritableImage img, Vertex v1, Vertex v2, Vertex v3, Color color) {
-        drawLine(img, v1.getCoordinates(), v2.getCoordinates(), color);
-        drawLine(img, v2.getCoordinates(), v3.getCoordinates(), color);
-        drawLine(img, v3.getCoordinates(), v1.getCoordinates(), color);
+    public static void drawTriangle(FrameBuffer fb, Tile clip, VertexCache cache, int v1, int v2, int v3,
+                                    int argb) {
+        double x1 = cache.getX(v1), y1 = cache.getY(v1);
+        double x2 = cache.getX(v2), y2 = cache.getY(v2);
+        double x3 = cache.getX(v3), y3 = cache.getY(v3);
+        drawClippedLine(fb, clip, x1, y1, x2, y2, argb);
+        drawClippedLine(fb, clip, x2, y2, x3, y3, argb);
+        drawClippedLine(fb, clip, x3, y3, x1, y1, argb);
+    }
+
+    /**
+     * Clip the line to the screen (Liang-Barsky algorithm) before drawing it,
+     * so no time is wasted walking pixels out of the screen.
+     */
+    private static void drawClippedLine(FrameBuffer fb, Tile clip, double x0, double y0, double x1, double y1,
+                                        int argb) {
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double maxX = fb.getWidth() - 1;
+        double maxY = fb.getHeight() - 1;
+        if (x0 >= 0 && x0 <= maxX && y0 >= 0 && y0 <= maxY && x1 >= 0 && x1 <= maxX && y1 >= 0 && y1 <= maxY) {
+            // Whole line on screen
+            drawLine(fb, clip, (int) x0, (int) y0, (int) x1, (int) y1, argb);
+            return;
+        }
+        double t0 = 0;
+        double t1 = 1;
+        // Left, right, top and bottom edges
+        for (int edge = 0; edge < 4; edge++) {
+            double p, q;
+            switch (edge) {
+                case 0:
+                    p = -dx;
+                    q = x0;
+                    break;
+                case 1:
+                    p = dx;
+                    q = maxX - x0;
+                    break;
+                case 2:
+                    p = -dy;
+                    q = y0;
+                    break;
+                default:
+                    p = dy;
+                    q = maxY - y0;
+                    break;
+            }
+            if (p == 0) {
+                if (q < 0) {
+                    // Parallel to the edge and outside
+                    return;
+                }
+            } else {
+                double t = q / p;
+                if (p < 0) {
+                    t0 = Math.max(t0, t);
+                } else {
+                    t1 = Math.min(t1, t);
+                }
+            }
+        }
+        if (t0 > t1) {
+            return;
+        }
+        drawLine(fb, clip, (int) (x0 + t0 * dx), (int) (y0 + t0 * dy), (int) (x0 + t1 * dx), (int) (y0 + t1 * dy),
+                argb);
     }
 
     /**
      * Draw a filled triangle with texture using scan-line algorithm.
+     * Only the pixels inside the clip tile are touched.
+     */
+    public static void drawFilledTriangle(FrameBuffer fb, DepthBuffer depthBuffer, Tile clip,
+                                          VertexCache cache, int v1, int v2, int v3, int argb,
+                                          Texture texture) {
+        drawFilledTriangle(fb, depthBuffer, clip, cache, v1, v2, v3, argb, texture, Texture.Filter.NEAREST);
+    }
+
+    /**
+     * Draw a filled triangle with texture using scan-line algorithm, reading the texture with the given filter
+     * from the mipmap level that matches the size of the triangle on screen.
+     * Only the pixels inside the clip tile are touched.
      */
     @SuppressWarnings("Duplicates")
-    public static void drawFilledTriangle(WritableImage img, double[][] depthBuffer,
-                                          Vertex v1, Vertex v2, Vertex v3, Color color, Texture texture) {
+    public static void drawFilledTriangle(FrameBuffer fb, DepthBuffer depthBuffer, Tile clip,
+                                          VertexCache cache, int v1, int v2, int v3, int argb,
+                                          Texture texture, Texture.Filter filter) {
         // Sorting the points in order to always have this order on screen p1, p2 & p3
         // with p1 always up (thus having the Y the lowest possible to be near the top screen)
         // then p2 between p1 & p3
-        if (v1.getCoordinates().y > v2.getCoordinates().y) {
-            Vertex temp = v2;
+        if (cache.getY(v1) > cache.getY(v2)) {
+            int temp = v2;
             v2 = v1;
             v1 = temp;
         }
 
-        if (v2.getCoordinates().y > v3.getCoordinates().y) {
-            Vertex temp = v2;
+        if (cache.getY(v2) > cache.getY(v3)) {
+            int temp = v2;
             v2 = v3;
             v3 = temp;
         }
 
-        if (v1.getCoordinates().y > v2.getCoordinates().y) {
-            Vertex temp = v2;
+        if (cache.getY(v1) > cache.getY(v2)) {
+            int temp = v2;
             v2 = v1;
             v1 = temp;
         }
 
-        Vector3d p1 = v1.getCoordinates();
-        Vector3d p2 = v2.getCoordinates();
-        Vector3d p3 = v3.getCoordinates();
+        double p1x = cache.getX(v1), p1y = cache.getY(v1);
+        double p2x = cache.getX(v2), p2y = cache.getY(v2);
+        double p3x = cache.getX(v3), p3y = cache.getY(v3);
 
-        // Light position
-        Vector3d lightPos = new Vector3d(0, 10, 10);
-        // Computing the cos of the angle between the light vector and the normal vector
-        // it will return a value between 0 and 1 that will be used as the intensity of the color
-        double nl1 = MathUtils.computeNDotL(v1.getWorldCoordinates(), v1.getNormal(), lightPos);
-        double nl2 = MathUtils.computeNDotL(v2.getWorldCoordinates(), v2.getNormal(), lightPos);
-        double nl3 = MathUtils.computeNDotL(v3.getWorldCoordinates(), v3.getNormal(), lightPos);
+        // Cosine of the angle between the light vector and the normal vector (computed in the transform stage)
+        // it is a value between 0 and 1 that will be used as the intensity of the color
+        double nl1 = cache.getNDotL(v1);
+        double nl2 = cache.getNDotL(v2);
+        double nl3 = cache.getNDotL(v3);
+
+        ScanLineData data = SCAN_LINE_DATA.get();
+        if (texture != null) {
+            data.setTextureLevel(selectTextureLevel(cache, v1, v2, v3, texture));
+            data.setTextureFilter(filter);
+        }
 
-        ScanLineData data = new ScanLineData();
+        // Scan lines visible in the clip tile
+        int minY = Math.max((int) p1y, clip.getMinY());
+        int maxY = Math.min((int) p3y, clip.getMaxY() - 1);
 
         // Lines' directions
         double dP1P2, dP1P3;
 
         // http://en.wikipedia.org/wiki/Slope
         // Computing inverse slopes
-        if (p2.y - p1.y > 0) {
-            dP1P2 = ((p2.x - p1.x) / (p2.y - p1.y));
+        if (p2y - p1y > 0) {
+            dP1P2 = ((p2x - p1x) / (p2y - p1y));
         } else {
             dP1P2 = 0;
         }
 
-        if (p3.y - p1.y > 0) {
-            dP1P3 = ((p3.x - p1.x) / (p3.y - p1.y));
+        if (p3y - p1y > 0) {
+            dP1P3 = ((p3x - p1x) / (p3y - p1y));
         } else {
             dP1P3 = 0;
         }
 
         // First case where triangles are like that: P1-P2(right)-P3 (from top to bottom)
         if (dP1P2 > dP1P3) {
-            for (int y = (int) p1.y; y <= (int) p3.y; y++) {
+            for (int y = minY; y <= maxY; y++) {
                 data.setCurrentY(y);
-                if (y < p2.y) {
+                if (y < p2y) {
                     data.setNdotla(nl1);
                     data.setNdotlb(nl3);
                     data.setNdotlc(nl1);
                     data.setNdotld(nl2);
                     if(texture != null) {
-                        data.setUa(v1.getTextureCoordinates().x);
-                        data.setUb(v3.getTextureCoordinates().x);
-                        data.setUc(v1.getTextureCoordinates().x);
-                        data.setUd(v2.getTextureCoordinates().x);
+                        data.setUa(cache.getU(v1));
+                        data.setUb(cache.getU(v3));
+                        data.setUc(cache.getU(v1));
+                        data.setUd(cache.getU(v2));
 
-                        data.setVa(v1.getTextureCoordinates().y);
-                        data.setVb(v3.getTextureCoordinates().y);
-                        data.setVc(v1.getTextureCoordinates().y);
-                        data.setVd(v2.getTextureCoordinates().y);
+                        data.setVa(cache.getV(v1));
+                        data.setVb(cache.getV(v3));
+                        data.setVc(cache.getV(v1));
+                        data.setVd(cache.getV(v2));
                     }
-                    processScanLine(img, depthBuffer, data, v1, v3, v1, v2, color, texture);
+                    processScanLine(fb, depthBuffer, clip, data, cache, v1, v3, v1, v2, argb, texture);
                 } else {
                     data.setNdotla(nl1);
                     data.setNdotlb(nl3);
                     data.setNdotlc(nl2);
                     data.setNdotld(nl3);
                     if(texture != null) {
-                        data.setUa(v1.getTextureCoordinates().x);
-                        data.setUb(v3.getTextureCoordinates().x);
-                        data.setUc(v2.getTextureCoordinates().x);
-                        data.setUd(v3.getTextureCoordinates().x);
+                        data.setUa(cache.getU(v1));
+                        data.setUb(cache.getU(v3));
+                        data.setUc(cache.getU(v2));
+                        data.setUd(cache.getU(v3));
 
-                        data.setVa(v1.getTextureCoordinates().y);
-                        data.setVb(v3.getTextureCoordinates().y);
-                        data.setVc(v2.getTextureCoordinates().y);
-                        data.setVd(v3.getTextureCoordinates().y);
+                        data.setVa(cache.getV(v1));
+                        data.setVb(cache.getV(v3));
+                        data.setVc(cache.getV(v2));
+                        data.setVd(cache.getV(v3));
                     }
-                    processScanLine(img, depthBuffer, data, v1, v3, v2, v3, color, texture);
+                    processScanLine(fb, depthBuffer, clip, data, cache, v1, v3, v2, v3, argb, texture);
                 }
             }
         } else {
             // Second case where triangles are like that: P1-P2(left)-P3 (from top to bottom)
-            for (int y = (int) p1.y; y <= (int) p3.y; y++) {
+            for (int y = minY; y <= maxY; y++) {
                 data.setCurrentY(y);
-                if (y < p2.y) {
+                if (y < p2y) {
                     data.setNdotla(nl1);
                     data.setNdotlb(nl2);
                     data.setNdotlc(nl1);
                     data.setNdotld(nl3);
                     if(texture != null) {
-                        data.setUa(v1.getTextureCoordinates().x);
-                        data.setUb(v2.getTextureCoordinates().x);
-                        data.setUc(v1.getTextureCoordinates().x);
-                        data.setUd(v3.getTextureCoordinates().x);
+                        data.setUa(cache.getU(v1));
+                        data.setUb(cache.getU(v2));
+                        data.setUc(cache.getU(v1));
+                        data.setUd(cache.getU(v3));
 
-                        data.setVa(v1.getTextureCoordinates().y);
-                        data.setVb(v2.getTextureCoordinates().y);
-                        data.setVc(v1.getTextureCoordinates().y);
-                        data.setVd(v3.getTextureCoordinates().y);
+                        data.setVa(cache.getV(v1));
+                        data.setVb(cache.getV(v2));
+                        data.setVc(cache.getV(v1));
+                        data.setVd(cache.getV(v3));
                     }
-                    processScanLine(img, depthBuffer, data, v1, v2, v1, v3, color, texture);
+                    processScanLine(fb, depthBuffer, clip, data, cache, v1, v2, v1, v3, argb, texture);
                 } else {
                     data.setNdotla(nl2);
                     data.setNdotlb(nl3);
                     data.setNdotlc(nl1);
                     data.setNdotld(nl3);
                     if(texture != null) {
-                        data.setUa(v2.getTextureCoordinates().x);
-                        data.setUb(v3.getTextureCoordinates().x);
-                        data.setUc(v1.getTextureCoordinates().x);
-                        data.setUd(v3.getTextureCoordinates().x);
+                        data.setUa(cache.getU(v2));
+                        data.setUb(cache.getU(v3));
+                        data.setUc(cache.getU(v1));
+                        data.setUd(cache.getU(v3));
 
-                        data.setVa(v2.getTextureCoordinates().y);
-                        data.setVb(v3.getTextureCoordinates().y);
-                        data.setVc(v1.getTextureCoordinates().y);
-                        data.setVd(v3.getTextureCoordinates().y);
+                        data.setVa(cache.getV(v2));
+                        data.setVb(cache.getV(v3));
+                        data.setVc(cache.getV(v1));
+                        data.setVd(cache.getV(v3));
                     }
-                    processScanLine(img, depthBuffer, data, v2, v3, v1, v3, color, texture);
+                    processScanLine(fb, depthBuffer, clip, data, cache, v2, v3, v1, v3, argb, texture);
                 }
             }
         }
     }
 
+    /**
+     * Choose the mipmap level of the texture from the derivatives of the texture coordinates on screen
+     * (they are constant across the triangle).
+     */
+    private static int selectTextureLevel(VertexCache cache, int v1, int v2, int v3, Texture texture) {
+        double x21 = cache.getX(v2) - cache.getX(v1), y21 = cache.getY(v2) - cache.getY(v1);
+        double x31 = cache.getX(v3) - cache.getX(v1), y31 = cache.getY(v3) - cache.getY(v1);
+        double area = x21 * y31 - y21 * x31;
+        if (area == 0) {
+            return 0;
+        }
+        double u21 = cache.getU(v2) - cache.getU(v1), u31 = cache.getU(v3) - cache.getU(v1);
+        double tv21 = cache.getV(v2) - cache.getV(v1), tv31 = cache.getV(v3) - cache.getV(v1);
+        return texture.selectLevel((u21 * y31 - u31 * y21) / area, (tv21 * y31 - tv31 * y21) / area,
+                (u31 * x21 - u21 * x31) / area, (tv31 * x21 - tv21 * x31) / area);
+    }
+
     /**
      * Draw a filled triangle without texture using scan-line algorithm.
      */
-    public static void drawFilledTriangle(WritableImage img, double[][] depthBuffer,
-                                          Vertex v1, Vertex v2, Vertex v3, Color color) {
-        drawFilledTriangle(img, depthBuffer, v1, v2, v3, color, null);
+    public static void drawFilledTriangle(FrameBuffer fb, DepthBuffer depthBuffer, Tile clip,
+                                          VertexCache cache, int v1, int v2, int v3, int argb) {
+        drawFilledTriangle(fb, depthBuffer, clip, cache, v1, v2, v3, argb, null);
     }
 
     /**
@@ -228,24 +329,25 @@ public class DrawUtils {
      * papb -> pcpd
      * pa, pb, pc, pd must then be sorted before.
      */
-    private static void processScanLine(WritableImage img, double[][] depthBuffer, ScanLineData data,
-                                        Vertex va, Vertex vb, Vertex vc, Vertex vd, Color color, Texture texture) {
-        Vector3d pa = va.getCoordinates();
-        Vector3d pb = vb.getCoordinates();
-        Vector3d pc = vc.getCoordinates();
-        Vector3d pd = vd.getCoordinates();
+    private static void processScanLine(FrameBuffer fb, DepthBuffer depthBuffer, Tile clip, ScanLineData data,
+                                        VertexCache cache, int va, int vb, int vc, int vd,
+                                        int argb, Texture texture) {
+        double pax = cache.getX(va), pay = cache.getY(va), paz = cache.getZ(va);
+        double pbx = cache.getX(vb), pby = cache.getY(vb), pbz = cache.getZ(vb);
+        double pcx = cache.getX(vc), pcy = cache.getY(vc), pcz = cache.getZ(vc);
+        double pdx = cache.getX(vd), pdy = cache.getY(vd), pdz = cache.getZ(vd);
         // Thanks to current Y, we can compute the gradient to compute others values like
         // the starting X (sx) and ending X (ex) to draw between
         // if pa.Y == pb.Y or pc.Y == pd.Y, gradient is forced to 1
-        double gradient1 = pa.y != pb.y ? ((data.getCurrentY() - pa.y) / (pb.y - pa.y)) : 1;
-        double gradient2 = pc.y != pd.y ? ((data.getCurrentY() - pc.y) / (pd.y - pc.y)) : 1;
+        double gradient1 = pay != pby ? ((data.getCurrentY() - pay) / (pby - pay)) : 1;
+        double gradient2 = pcy != pdy ? ((data.getCurrentY() - pcy) / (pdy - pcy)) : 1;
 
         // Starting X & ending X
-        int sx = (int) MathUtils.interpolate(pa.x, pb.x, gradient1);
-        int ex = (int) MathUtils.interpolate(pc.x, pd.x, gradient2);
+        int sx = (int) MathUtils.interpolate(pax, pbx, gradient1);
+        int ex = (int) MathUtils.interpolate(pcx, pdx, gradient2);
         // Starting Z & ending Z
-        double z1 = MathUtils.interpolate(pa.z, pb.z, gradient1);
-        double z2 = MathUtils.interpolate(pc.z, pd.z, gradient2);
+        double z1 = MathUtils.interpolate(paz, pbz, gradient1);
+        double z2 = MathUtils.interpolate(pcz, pdz, gradient2);
         // Starting and ending of color gradient
         double snl = MathUtils.interpolate(data.getNdotla(), data.getNdotlb(), gradient1);
         double enl = MathUtils.interpolate(data.getNdotlc(), data.getNdotld(), gradient2);
@@ -257,38 +359,50 @@ public class DrawUtils {
             sv = MathUtils.interpolate(data.getVa(), data.getVb(), gradient1);
             ev = MathUtils.interpolate(data.getVc(), data.getVd(), gradient2);
         }
-        // Drawing a line from left (sx) to right (ex)
-        for (int x = sx; x < ex; x++) {
+        // Color components of the mesh
+        double red = FrameBuffer.red(argb);
+        double green = FrameBuffer.green(argb);
+        double blue = FrameBuffer.blue(argb);
+        // Drawing a line from left (sx) to right (ex), only the part inside the clip tile
+        int from = Math.max(sx, clip.getMinX());
+        int to = Math.min(ex, clip.getMaxX());
+        int shaded = 0;
+        for (int x = from; x < to; x++) {
             double gradient = (x - sx) / (double) (ex - sx);
             double z = MathUtils.interpolate(z1, z2, gradient);
             // Color according to light
             double ndotl = MathUtils.interpolate(snl, enl, gradient);
-            double r = color.getRed() * ndotl;
-            double g = color.getGreen() * ndotl;
-            double b = color.getBlue() * ndotl;
+            double r = red * ndotl;
+            double g = green * ndotl;
+            double b = blue * ndotl;
             // Texture
             double u, v;
             if (texture != null) {
                 u = MathUtils.interpolate(su, eu, gradient);
                 v = MathUtils.interpolate(sv, ev, gradient);
-                Color textureColor = texture.map(u, v);
-                r *= textureColor.getRed();
-                g *= textureColor.getGreen();
-                b *= textureColor.getBlue();
+                int textureColor = texture.sample(u, v, data.getTextureLevel(), data.getTextureFilter());
+                r *= FrameBuffer.red(textureColor);
+                g *= FrameBuffer.green(textureColor);
+                b *= FrameBuffer.blue(textureColor);
             }
             // Draw point only if it is visible (Z-Buffering)
-            if (depthBuffer[x][data.getCurrentY()] >= z) {
-                depthBuffer[x][data.getCurrentY()] = z;
-                drawPoint(img, new Vector3d(x, data.getCurrentY(), z), new Color(r, g, b, 1.0));
+            if (depthBuffer.testAndSet(x, data.getCurrentY(), (float) z)) {
+                putPixel(fb, x, data.getCurrentY(), FrameBuffer.toArgb(r, g, b));
+                shaded++;
             }
         }
+        if (to > from) {
+            clip.addPixelCounts(shaded, to - from - shaded);
+        }
+        if (shaded > 0) {
+            depthBuffer.markWritten(from, data.getCurrentY(), to - 1, data.getCurrentY());
+        }
     }
 
     /**
      * Put a pixel on backBuffer at specific x,y coordinates.
      */
-    private static synchronized void putPixel(WritableImage img, int x, int y, Color color) {
-        PixelWriter pw = img.getPixelWriter();
-        pw.setColor(x, y, color);
+    private static void putPixel(FrameBuffer fb, int x, int y, int argb) {
+        fb.setPixel(x, y, argb);
     }
 }
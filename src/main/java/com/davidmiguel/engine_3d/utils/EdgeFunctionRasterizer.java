@@ -0,0 +1,266 @@
+package com.davidmiguel.engine_3d.utils;
+
+import com.davidmiguel.engine_3d.engine.DepthBuffer;
+import com.davidmiguel.engine_3d.engine.FrameBuffer;
+import com.davidmiguel.engine_3d.engine.Tile;
+import com.davidmiguel.engine_3d.engine.VertexCache;
+import com.davidmiguel.engine_3d.meshes.Texture;
+
+/**
+ * Triangle rasterizer based on edge functions (half-spaces), an alternative to the scan-line
+ * algorithm of {@link DrawUtils}.
+ * <p>
+ * The vertices are snapped to 28.4 fixed point and a pixel is drawn when its center is inside the three
+ * edges, following the top-left fill rule, so triangles sharing an edge never draw the same pixel twice
+ * nor leave gaps. The bounding box is walked in 8x8 blocks: blocks out of an edge are skipped and blocks
+ * inside the three edges are filled without testing every pixel. Depth, light and texture coordinates
+ * are stepped incrementally from pixel to pixel.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@SuppressWarnings("WeakerAccess")
+public class EdgeFunctionRasterizer {
+
+    /**
+     * Bits of the fractional part of the fixed point coordinates.
+     */
+    private static final int SUBPIXEL_BITS = 4;
+    private static final int SUBPIXEL_ONE = 1 << SUBPIXEL_BITS;
+    /**
+     * Size of the side of the blocks (in pixels).
+     */
+    private static final int BLOCK_SIZE = 8;
+    /**
+     * Triangles with a vertex farther than this (in pixels) would overflow the fixed point coordinates,
+     * so they are drawn by the scan-line algorithm.
+     */
+    private static final double GUARD_BAND = 1 << 14;
+
+    /**
+     * Draw a filled triangle with texture.
+     * Only the pixels inside the clip tile are touched.
+     */
+    public static void drawFilledTriangle(FrameBuffer fb, DepthBuffer depthBuffer, Tile clip,
+                                          VertexCache cache, int v1, int v2, int v3, int argb,
+                                          Texture texture) {
+        drawFilledTriangle(fb, depthBuffer, clip, cache, v1, v2, v3, argb, texture, Texture.Filter.NEAREST);
+    }
+
+    /**
+     * Draw a filled triangle with texture, reading the texture with the given filter
+     * from the mipmap level that matches the size of the triangle on screen.
+     * Only the pixels inside the clip tile are touched.
+     */
+    public static void drawFilledTriangle(FrameBuffer fb, DepthBuffer depthBuffer, Tile clip,
+                                          VertexCache cache, int v1, int v2, int v3, int argb,
+                                          Texture texture, Texture.Filter filter) {
+        if (!insideGuardBand(cache, v1) || !insideGuardBand(cache, v2) || !insideGuardBand(cache, v3)) {
+            DrawUtils.drawFilledTriangle(fb, depthBuffer, clip, cache, v1, v2, v3, argb, texture, filter);
+            return;
+        }
+        // Snap the vertices to the fixed point grid
+        int x1 = toFixed(cache.getX(v1)), y1 = toFixed(cache.getY(v1));
+        int x2 = toFixed(cache.getX(v2)), y2 = toFixed(cache.getY(v2));
+        int x3 = toFixed(cache.getX(v3)), y3 = toFixed(cache.getY(v3));
+        long area = (long) (x2 - x1) * (y3 - y1) - (long) (y2 - y1) * (x3 - x1);
+        if (area == 0) {
+            // Degenerate triangle
+            return;
+        }
+        if (area < 0) {
+            // Make the triangle clockwise on screen, so its inside is where the three edge functions are positive
+            int temp = v2;
+            v2 = v3;
+            v3 = temp;
+            temp = x2;
+            x2 = x3;
+            x3 = temp;
+            temp = y2;
+            y2 = y3;
+            y3 = temp;
+            area = -area;
+        }
+
+        // Bounding box (in pixels) clipped to the tile
+        int minX = Math.max((Math.min(x1, Math.min(x2, x3)) + SUBPIXEL_ONE / 2 - 1) >> SUBPIXEL_BITS,
+                clip.getMinX());
+        int minY = Math.max((Math.min(y1, Math.min(y2, y3)) + SUBPIXEL_ONE / 2 - 1) >> SUBPIXEL_BITS,
+                clip.getMinY());
+        int maxX = Math.min((Math.max(x1, Math.max(x2, x3)) - SUBPIXEL_ONE / 2) >> SUBPIXEL_BITS,
+                clip.getMaxX() - 1);
+        int maxY = Math.min((Math.max(y1, Math.max(y2, y3)) - SUBPIXEL_ONE / 2) >> SUBPIXEL_BITS,
+                clip.getMaxY() - 1);
+        if (minX > maxX || minY > maxY) {
+            return;
+        }
+
+        // Edge functions at the center of the pixel (minX, minY) and their increments per pixel.
+        // Edge k is the one opposite to vertex k, so its value divided by the area is the weight of that vertex
+        int px = (minX << SUBPIXEL_BITS) + SUBPIXEL_ONE / 2;
+        int py = (minY << SUBPIXEL_BITS) + SUBPIXEL_ONE / 2;
+        long e1 = edge(x2, y2, x3, y3, px, py);
+        long e2 = edge(x3, y3, x1, y1, px, py);
+        long e3 = edge(x1, y1, x2, y2, px, py);
+        long e1dx = (long) (y2 - y3) << SUBPIXEL_BITS, e1dy = (long) (x3 - x2) << SUBPIXEL_BITS;
+        long e2dx = (long) (y3 - y1) << SUBPIXEL_BITS, e2dy = (long) (x1 - x3) << SUBPIXEL_BITS;
+        long e3dx = (long) (y1 - y2) << SUBPIXEL_BITS, e3dy = (long) (x2 - x1) << SUBPIXEL_BITS;
+
+        // Attributes as planes: value at the center of the pixel (minX, minY) and increments per pixel
+        double invArea = 1.0 / area;
+        double w1 = e1 * invArea, w2 = e2 * invArea, w3 = e3 * invArea;
+        double w1dx = e1dx * invArea, w2dx = e2dx * invArea, w3dx = e3dx * invArea;
+        double w1dy = e1dy * invArea, w2dy = e2dy * invArea, w3dy = e3dy * invArea;
+        double z1 = cache.getZ(v1), z2 = cache.getZ(v2), z3 = cache.getZ(v3);
+        double z0 = z1 * w1 + z2 * w2 + z3 * w3;
+        double zdx = z1 * w1dx + z2 * w2dx + z3 * w3dx;
+        double zdy = z1 * w1dy + z2 * w2dy + z3 * w3dy;
+        double nl1 = cache.getNDotL(v1), nl2 = cache.getNDotL(v2), nl3 = cache.getNDotL(v3);
+        double nl0 = nl1 * w1 + nl2 * w2 + nl3 * w3;
+        double nldx = nl1 * w1dx + nl2 * w2dx + nl3 * w3dx;
+        double nldy = nl1 * w1dy + nl2 * w2dy + nl3 * w3dy;
+        double u0 = 0, udx = 0, udy = 0, tv0 = 0, tvdx = 0, tvdy = 0;
+        int level = 0;
+        if (texture != null) {
+            double u1 = cache.getU(v1), u2 = cache.getU(v2), u3 = cache.getU(v3);
+            u0 = u1 * w1 + u2 * w2 + u3 * w3;
+            udx = u1 * w1dx + u2 * w2dx + u3 * w3dx;
+            udy = u1 * w1dy + u2 * w2dy + u3 * w3dy;
+            double tv1 = cache.getV(v1), tv2 = cache.getV(v2), tv3 = cache.getV(v3);
+            tv0 = tv1 * w1 + tv2 * w2 + tv3 * w3;
+            tvdx = tv1 * w1dx + tv2 * w2dx + tv3 * w3dx;
+            tvdy = tv1 * w1dy + tv2 * w2dy + tv3 * w3dy;
+            level = texture.selectLevel(udx, tvdx, udy, tvdy);
+        }
+
+        // Color components of the mesh
+        double red = FrameBuffer.red(argb);
+        double green = FrameBuffer.green(argb);
+        double blue = FrameBuffer.blue(argb);
+
+        // Top-left fill rule: pixels exactly on an edge that is not a top or left edge are excluded
+        // by subtracting 1, so the inside test is always "greater or equal than 0"
+        e1 -= isTopLeft(x2, y2, x3, y3) ? 0 : 1;
+        e2 -= isTopLeft(x3, y3, x1, y1) ? 0 : 1;
+        e3 -= isTopLeft(x1, y1, x2, y2) ? 0 : 1;
+
+        int shaded = 0;
+        int depthRejected = 0;
+        // Walk the bounding box in blocks aligned to the block grid
+        int startX = minX & ~(BLOCK_SIZE - 1);
+        int startY = minY & ~(BLOCK_SIZE - 1);
+        for (int blockY = startY; blockY <= maxY; blockY += BLOCK_SIZE) {
+            int fromY = Math.max(blockY, minY);
+            int toY = Math.min(blockY + BLOCK_SIZE - 1, maxY);
+            for (int blockX = startX; blockX <= maxX; blockX += BLOCK_SIZE) {
+                int fromX = Math.max(blockX, minX);
+                int toX = Math.min(blockX + BLOCK_SIZE - 1, maxX);
+                int dx = fromX - minX;
+                int dy = fromY - minY;
+                int width = toX - fromX;
+                int height = toY - fromY;
+                // Edge functions at the top left corner of the block
+                long b1 = e1 + e1dx * dx + e1dy * dy;
+                long b2 = e2 + e2dx * dx + e2dy * dy;
+                long b3 = e3 + e3dx * dx + e3dy * dy;
+                // The block is empty if its four corners are out of the same edge,
+                // and fully covered if its four corners are inside the three edges
+                int c1 = cornersInside(b1, e1dx * width, e1dy * height);
+                int c2 = cornersInside(b2, e2dx * width, e2dy * height);
+                int c3 = cornersInside(b3, e3dx * width, e3dy * height);
+                if (c1 == 0 || c2 == 0 || c3 == 0) {
+                    continue;
+                }
+                boolean covered = c1 == 4 && c2 == 4 && c3 == 4;
+                int shadedBefore = shaded;
+                for (int y = fromY; y <= toY; y++) {
+                    int row = y - fromY;
+                    long r1 = b1 + e1dy * row;
+                    long r2 = b2 + e2dy * row;
+                    long r3 = b3 + e3dy * row;
+                    int ry = y - minY;
+                    double z = z0 + zdx * dx + zdy * ry;
+                    double nl = nl0 + nldx * dx + nldy * ry;
+                    double u = u0 + udx * dx + udy * ry;
+                    double v = tv0 + tvdx * dx + tvdy * ry;
+                    for (int x = fromX; x <= toX; x++) {
+                        if (covered || (r1 | r2 | r3) >= 0) {
+                            if (depthBuffer.testAndSet(x, y, (float) z)) {
+                                shaded++;
+                                // Color according to light
+                                double ndotl = MathUtils.clamp(nl);
+                                double r = red * ndotl;
+                                double g = green * ndotl;
+                                double b = blue * ndotl;
+                                // Texture
+                                if (texture != null) {
+                                    int textureColor = texture.sample(u, v, level, filter);
+                                    r *= FrameBuffer.red(textureColor);
+                                    g *= FrameBuffer.green(textureColor);
+                                    b *= FrameBuffer.blue(textureColor);
+                                }
+                                fb.setPixel(x, y, FrameBuffer.toArgb(r, g, b));
+                            } else {
+                                depthRejected++;
+                            }
+                        }
+                        r1 += e1dx;
+                        r2 += e2dx;
+                        r3 += e3dx;
+                        z += zdx;
+                        nl += nldx;
+                        u += udx;
+                        v += tvdx;
+                    }
+                }
+                if (shaded > shadedBefore) {
+                    depthBuffer.markWritten(fromX, fromY, toX, toY);
+                }
+            }
+        }
+        clip.addPixelCounts(shaded, depthRejected);
+    }
+
+    /**
+     * Draw a filled triangle without texture.
+     */
+    public static void drawFilledTriangle(FrameBuffer fb, DepthBuffer depthBuffer, Tile clip,
+                                          VertexCache cache, int v1, int v2, int v3, int argb) {
+        drawFilledTriangle(fb, depthBuffer, clip, cache, v1, v2, v3, argb, null);
+    }
+
+    /**
+     * Edge function of the edge a-b at point p: twice the signed area of the triangle a, b, p.
+     * It is positive when p is on the inner side of a clockwise triangle.
+     */
+    private static long edge(int ax, int ay, int bx, int by, int px, int py) {
+        return (long) (bx - ax) * (py - ay) - (long) (by - ay) * (px - ax);
+    }
+
+    /**
+     * In a clockwise triangle (with y pointing down), top edges are horizontal and go right,
+     * and left edges go up.
+     */
+    private static boolean isTopLeft(int ax, int ay, int bx, int by) {
+        return (ay == by && bx > ax) || by < ay;
+    }
+
+    /**
+     * Number of corners of a block inside an edge, given the edge function at its top left corner
+     * and its increments along the width and the height of the block.
+     */
+    private static int cornersInside(long corner, long acrossWidth, long acrossHeight) {
+        return (corner >= 0 ? 1 : 0)
+                + (corner + acrossWidth >= 0 ? 1 : 0)
+                + (corner + acrossHeight >= 0 ? 1 : 0)
+                + (corner + acrossWidth + acrossHeight >= 0 ? 1 : 0);
+    }
+
+    private static boolean insideGuardBand(VertexCache cache, int vertex) {
+        return Math.abs(cache.getX(vertex)) < GUARD_BAND && Math.abs(cache.getY(vertex)) < GUARD_BAND;
+    }
+
+    private static int toFixed(double coordinate) {
+        return (int) Math.round(coordinate * SUBPIXEL_ONE);
+    }
+}
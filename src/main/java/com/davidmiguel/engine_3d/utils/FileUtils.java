@@ -1,21 +1,23 @@
 package com.davidmiguel.engine_3d.utils;
 
-import com.davidmiguel.engine_3d.meshes.Face;
 import com.davidmiguel.engine_3d.meshes.Mesh;
 import com.davidmiguel.engine_3d.meshes.Texture;
-import com.davidmiguel.engine_3d.meshes.Vertex;
+import com.davidmiguel.engine_3d.meshes.TextureCache;
 import com.google.gson.stream.JsonReader;
 import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.vecmath.Vector2d;
-import javax.vecmath.Vector3d;
 import java.io.*;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Methods to manage the import of meshes from file.
@@ -35,25 +37,58 @@ public class FileUtils {
      * @return array of meshes
      */
     public static Mesh[] parseMeshFromJSON(InputStream file) {
-        List<Mesh> meshes = new ArrayList<>();
+        return parseMeshFromJSON(file, true);
+    }
+
+    /**
+     * Import a mesh from a babylon json file.
+     *
+     * @param file         json file
+     * @param loadTextures whether the textures are loaded (otherwise only their names are set)
+     * @return array of meshes
+     */
+    static Mesh[] parseMeshFromJSON(InputStream file, boolean loadTextures) {
+        MeshParseEvent event = MeshParseEvent.start();
+        if (event == null) {
+            return readMeshes(file, loadTextures);
+        }
+        CountingInputStream in = new CountingInputStream(file);
+        Mesh[] meshes = readMeshes(in, loadTextures);
+        event.bytes = in.count;
+        event.meshes = meshes.length;
+        for (Mesh mesh : meshes) {
+            event.vertices += mesh.getVertexCount();
+            event.faces += mesh.getFaceCount();
+        }
+        event.texturesLoaded = loadTextures;
+        event.commit();
+        return meshes;
+    }
+
+    private static Mesh[] readMeshes(InputStream file, boolean loadTextures) {
+        List<RawMesh> rawMeshes = new ArrayList<>();
         Map<String, Material> materials = new HashMap<>();
 
-        try (JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(file)))){
+        try (JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(file), 64 * 1024))) {
             // Read JSON
             reader.beginObject();
             while (reader.hasNext()) {
                 switch (reader.nextName()) {
                     case "materials":
                         reader.beginArray();
-                        Material m = readMaterial(reader);
-                        if (m != null) {
-                            materials.put(m.getId(), m);
+                        while (reader.hasNext()) {
+                            Material m = readMaterial(reader);
+                            if (m != null) {
+                                materials.put(m.getId(), m);
+                            }
                         }
                         reader.endArray();
                         break;
                     case "meshes":
                         reader.beginArray();
-                        meshes.add(readMesh(reader, materials));
+                        while (reader.hasNext()) {
+                            rawMeshes.add(readMesh(reader));
+                        }
                         reader.endArray();
                         break;
                     default:
@@ -62,12 +97,44 @@ public class FileUtils {
                 }
             }
             reader.endObject();
-        } catch (IOException e) {
+        } catch (InterruptedIOException e) {
+            logger.debug("Parsing of JSON interrupted.");
+            return new Mesh[0];
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
             logger.error("Error at parsing JSON.", e);
+            return new Mesh[0];
+        }
+        return buildMeshes(rawMeshes, materials, loadTextures);
+    }
+
+    /**
+     * Build the meshes once the whole file is read (so the materials can be anywhere in it).
+     * Every mesh is built by a task of the common ForkJoin pool.
+     */
+    private static Mesh[] buildMeshes(List<RawMesh> rawMeshes, Map<String, Material> materials,
+                                      boolean loadTextures) {
+        List<Mesh> meshes = new ArrayList<>(rawMeshes.size());
+        if (rawMeshes.size() == 1) {
+            // Not worth handing it to another thread
+            addIfNotNull(meshes, buildMesh(rawMeshes.get(0), materials, loadTextures));
+        } else {
+            List<ForkJoinTask<Mesh>> tasks = new ArrayList<>(rawMeshes.size());
+            for (RawMesh rawMesh : rawMeshes) {
+                tasks.add(ForkJoinPool.commonPool().submit(() -> buildMesh(rawMesh, materials, loadTextures)));
+            }
+            for (ForkJoinTask<Mesh> task : tasks) {
+                addIfNotNull(meshes, task.join());
+            }
         }
         return meshes.toArray(new Mesh[meshes.size()]);
     }
 
+    private static void addIfNotNull(List<Mesh> meshes, Mesh mesh) {
+        if (mesh != null) {
+            meshes.add(mesh);
+        }
+    }
+
     private static Material readMaterial(JsonReader reader) throws IOException {
         String name = null;
         String id = null;
@@ -114,35 +181,33 @@ public class FileUtils {
         return name;
     }
 
-    private static Mesh readMesh(JsonReader reader, Map<String, Material> materials) throws IOException {
-        List<Double> verticesList = new ArrayList<>(0);
-        List<Integer> facesList = new ArrayList<>(0);
-        List<Double> positionList = new ArrayList<>(0);
-        List<Double> rotationList = new ArrayList<>(0);
-        int uvCount = 0;
-        String materialId = null;
+    private static RawMesh readMesh(JsonReader reader) throws IOException {
+        RawMesh rawMesh = new RawMesh();
 
         // Parse object
         reader.beginObject();
         while (reader.hasNext()) {
             switch (reader.nextName()) {
+                case "name":
+                    rawMesh.name = reader.nextString();
+                    break;
                 case "vertices":
-                    verticesList = readDoubleArray(reader);
+                    rawMesh.vertices = readFloatArray(reader);
                     break;
                 case "indices":
-                    facesList = readIntegerArray(reader);
+                    rawMesh.indices = readIntegerArray(reader);
                     break;
                 case "position":
-                    positionList = readDoubleArray(reader);
+                    rawMesh.position = readDoubleArray(reader);
                     break;
                 case "rotation":
-                    rotationList = readDoubleArray(reader);
+                    rawMesh.rotation = readDoubleArray(reader);
                     break;
                 case "uvCount":
-                    uvCount = reader.nextInt();
+                    rawMesh.uvCount = reader.nextInt();
                     break;
                 case "materialId":
-                    materialId = reader.nextString();
+                    rawMesh.materialId = reader.nextString();
                     break;
                 default:
                     reader.skipValue();
@@ -150,10 +215,12 @@ public class FileUtils {
             }
         }
         reader.endObject();
+        return rawMesh;
+    }
 
-        // Build mesh
+    private static Mesh buildMesh(RawMesh rawMesh, Map<String, Material> materials, boolean loadTextures) {
         int verticesStep; // vertices array step depends on the number of texture's coordinates per vertex
-        switch (uvCount) {
+        switch (rawMesh.uvCount) {
             case 0:
                 verticesStep = 6; // coord vector + normal vector
                 break;
@@ -164,90 +231,228 @@ public class FileUtils {
                 verticesStep = 10;
                 break;
             default:
-                logger.error("Error at parsing JSON.");
+                logger.error("Error at parsing JSON: unsupported uvCount {} in mesh {}.",
+                        rawMesh.uvCount, rawMesh.name);
                 return null;
         }
+        float[] vertices = rawMesh.vertices;
         // Number of vertices
-        int numVertices = verticesList.size() / verticesStep;
-        // Number of faces (size of the array divided by 3 (a face is a triangle))
-        int numFaces = facesList.size() / 3;
+        int numVertices = vertices.length / verticesStep;
         // Create mesh
         Mesh mesh = new Mesh();
         // Add vertices
-        Vertex[] vertices = new Vertex[numVertices];
-        for (int i = 0; i < numVertices; i++) {
+        float[] positions = new float[3 * numVertices];
+        float[] normals = new float[3 * numVertices];
+        float[] uvs = rawMesh.uvCount > 0 ? new float[2 * numVertices] : null;
+        for (int i = 0, v = 0; i < numVertices; i++, v += verticesStep) {
             // Vertex coord vector
-            double x = verticesList.get(i * verticesStep);
-            double y = verticesList.get(i * verticesStep + 1);
-            double z = verticesList.get(i * verticesStep + 2);
+            positions[3 * i] = vertices[v];
+            positions[3 * i + 1] = vertices[v + 1];
+            positions[3 * i + 2] = vertices[v + 2];
             // Loading the vertex normal vector exported by Blender
-            double nx = verticesList.get(i * verticesStep + 3);
-            double ny = verticesList.get(i * verticesStep + 4);
-            double nz = verticesList.get(i * verticesStep + 5);
-            Vertex vertex = new Vertex(new Vector3d(x, y, z), new Vector3d(nx, ny, nz));
+            normals[3 * i] = vertices[v + 3];
+            normals[3 * i + 1] = vertices[v + 4];
+            normals[3 * i + 2] = vertices[v + 5];
             // Loading the texture coordinates (UV)
-            if (uvCount > 0) {
-                // Loading the texture coordinates
-                double u = verticesList.get(i * verticesStep + 6);
-                double v = verticesList.get(i * verticesStep + 7);
-                vertex.setTextureCoordinates(new Vector2d(u, v));
+            if (uvs != null) {
+                uvs[2 * i] = vertices[v + 6];
+                uvs[2 * i + 1] = vertices[v + 7];
             }
-            vertices[i] = vertex;
-        }
-        mesh.setVertices(vertices);
-        // Add faces
-        Face[] faces = new Face[numFaces];
-        for (int i = 0; i < numFaces; i++) {
-            int a = facesList.get(i * 3);
-            int b = facesList.get(i * 3 + 1);
-            int c = facesList.get(i * 3 + 2);
-            faces[i] = new Face(a, b, c);
-        }
-        mesh.setFaces(faces);
+        }
+        // Add faces (a face is a triangle)
+        int[] indices = rawMesh.indices;
+        if (indices.length % 3 != 0) {
+            indices = Arrays.copyOf(indices, indices.length - indices.length % 3);
+        }
+        try {
+            mesh.setGeometry(positions, normals, uvs, indices);
+        } catch (IllegalArgumentException e) {
+            logger.error("Error at parsing JSON: invalid geometry in mesh {}. {}", rawMesh.name, e.getMessage());
+            return null;
+        }
         // Set position
-        mesh.getPosition().x = positionList.get(0);
-        mesh.getPosition().y = positionList.get(1);
-        mesh.getPosition().z = positionList.get(2);
+        if (rawMesh.position.length >= 3) {
+            mesh.getPosition().set(rawMesh.position[0], rawMesh.position[1], rawMesh.position[2]);
+        }
         // Set rotation
-        mesh.getRotation().x = rotationList.get(0);
-        mesh.getRotation().y = rotationList.get(1);
-        mesh.getRotation().z = rotationList.get(2);
+        if (rawMesh.rotation.length >= 3) {
+            mesh.getRotation().set(rawMesh.rotation[0], rawMesh.rotation[1], rawMesh.rotation[2]);
+        }
         // Set texture
-        if (uvCount > 0) {
-            String meshTextureName = materials.get(materialId).getDiffuseTextureName();
-            InputStream in = FileUtils.class.getResourceAsStream("/textures/" + meshTextureName);
-            mesh.setTexture(new Texture(new Image(in)));
+        if (rawMesh.uvCount > 0) {
+            Material material = materials.get(rawMesh.materialId);
+            if (material == null || material.getDiffuseTextureName() == null) {
+                logger.warn("Mesh {} has texture coordinates but no texture.", rawMesh.name);
+            } else {
+                mesh.setTextureName(material.getDiffuseTextureName());
+                if (loadTextures) {
+                    mesh.setTexture(loadTexture(mesh.getTextureName()));
+                }
+            }
         }
         return mesh;
     }
 
     /**
-     * Read list of doubles from JSON array.
+     * Get a texture from the shared texture cache, decoding it from the textures folder if it is not cached.
+     */
+    static Texture loadTexture(String textureName) {
+        String path = "/textures/" + textureName;
+        return TextureCache.getShared().acquire("classpath:" + path,
+                () -> decodeTexture(textureName, FileUtils.class.getResourceAsStream(path)));
+    }
+
+    /**
+     * Decode an image file (png, jpg...) into a texture.
+     *
+     * @param name name of the texture (for the flight recorder event)
+     * @return the texture, or null if the image cannot be read (the mesh is then drawn without it)
+     */
+    static Texture decodeTexture(String name, InputStream in) {
+        if (in == null) {
+            logger.error("Texture {} not found.", name);
+            return null;
+        }
+        TextureDecodeEvent event = TextureDecodeEvent.start();
+        Image image = new Image(in);
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        if (image.isError() || width <= 0 || height <= 0) {
+            logger.error("Error at decoding texture {}.", name, image.getException());
+            return null;
+        }
+        int[] argb = new int[width * height];
+        image.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), argb, 0, width);
+        if (event != null) {
+            event.texture = name;
+            event.width = width;
+            event.height = height;
+            event.decodedSize = 4L * argb.length;
+            event.commit();
+        }
+        return new Texture(argb, width, height);
+    }
+
+    /**
+     * Import the meshes of a binary mesh file (see {@link BinaryMeshFile}).
+     *
+     * @param file binary mesh file
+     * @return array of meshes
      */
-    private static List<Double> readDoubleArray(JsonReader reader) throws IOException {
-        List<Double> list = new ArrayList<>();
+    public static Mesh[] parseMeshFromBinary(Path file) {
+        try {
+            return BinaryMeshFile.read(file);
+        } catch (IOException e) {
+            logger.error("Error at reading binary mesh file.", e);
+            return new Mesh[0];
+        }
+    }
+
+    /**
+     * Read JSON array of numbers into a float array.
+     */
+    private static float[] readFloatArray(JsonReader reader) throws IOException {
+        float[] array = new float[16];
+        int size = 0;
 
         reader.beginArray();
         while (reader.hasNext()) {
-            list.add(reader.nextDouble());
+            if (size == array.length) {
+                array = Arrays.copyOf(array, array.length * 2);
+            }
+            array[size++] = (float) reader.nextDouble();
         }
         reader.endArray();
 
-        return list;
+        return size == array.length ? array : Arrays.copyOf(array, size);
     }
 
     /**
-     * Read list of integers from JSON array.
+     * Read JSON array of numbers into a double array.
      */
-    private static List<Integer> readIntegerArray(JsonReader reader) throws IOException {
-        List<Integer> list = new ArrayList<>();
+    private static double[] readDoubleArray(JsonReader reader) throws IOException {
+        double[] array = new double[4];
+        int size = 0;
 
         reader.beginArray();
         while (reader.hasNext()) {
-            list.add(reader.nextInt());
+            if (size == array.length) {
+                array = Arrays.copyOf(array, array.length * 2);
+            }
+            array[size++] = reader.nextDouble();
         }
         reader.endArray();
 
-        return list;
+        return size == array.length ? array : Arrays.copyOf(array, size);
+    }
+
+    /**
+     * Read JSON array of integers into an int array.
+     */
+    private static int[] readIntegerArray(JsonReader reader) throws IOException {
+        int[] array = new int[16];
+        int size = 0;
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (size == array.length) {
+                array = Arrays.copyOf(array, array.length * 2);
+            }
+            array[size++] = reader.nextInt();
+        }
+        reader.endArray();
+
+        return size == array.length ? array : Arrays.copyOf(array, size);
+    }
+
+    /**
+     * Counts the bytes read from a stream.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    /**
+     * Mesh as read from the JSON file, before resolving its material.
+     */
+    private static class RawMesh {
+
+        private String name;
+        private float[] vertices = new float[0];
+        private int[] indices = new int[0];
+        private double[] position = new double[0];
+        private double[] rotation = new double[0];
+        private int uvCount;
+        private String materialId;
     }
 }
@@ -0,0 +1,221 @@
+package com.davidmiguel.engine_3d.utils;
+
+import com.davidmiguel.engine_3d.meshes.Mesh;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Generates the levels of detail of meshes with the {@link MeshSimplifier}.
+ * <p>
+ * Every level is simplified from the original mesh (so the errors do not add up) by a task of the common
+ * ForkJoin pool. A level is kept only if it has clearly less faces than the previous one, so a mesh that cannot
+ * be simplified (e.g. because its texture coordinates are split at every face) keeps only itself.
+ * <p>
+ * The levels are cached on disk as binary mesh files named after a hash of the geometry, so a mesh is only
+ * simplified the first time it is loaded. The directory is taken from the system property
+ * {@value #CACHE_DIRECTORY_PROPERTY} ({@code ~/.engine_3d/lod} by default).
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@SuppressWarnings("WeakerAccess")
+public class LodBuilder {
+
+    private static final Logger logger = LoggerFactory.getLogger(LodBuilder.class);
+
+    public static final String CACHE_DIRECTORY_PROPERTY = "engine3d.lodCache";
+    /**
+     * Faces of every level relative to the original mesh.
+     */
+    private static final double[] RATIOS = {0.5, 0.25, 0.125, 0.0625};
+    /**
+     * A level must have at most this fraction of the faces of the previous one.
+     */
+    private static final double MAX_FACE_FRACTION = 0.9;
+    /**
+     * Levels with less faces are not worth it (the cost of drawing them is the cost of the mesh itself).
+     */
+    private static final int MIN_FACES = 32;
+    /**
+     * Changed when the simplification changes, so the cached levels are generated again.
+     */
+    private static final int CACHE_VERSION = 1;
+
+    private final Path cacheDirectory;
+
+    /**
+     * Builder with the cache directory of the system property.
+     */
+    public LodBuilder() {
+        this(Paths.get(System.getProperty(CACHE_DIRECTORY_PROPERTY,
+                Paths.get(System.getProperty("user.home"), ".engine_3d", "lod").toString())));
+    }
+
+    /**
+     * @param cacheDirectory directory of the cached levels (null to not cache them)
+     */
+    public LodBuilder(Path cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    /**
+     * Generate (or take from the cache) the levels of detail of the meshes and set them.
+     */
+    public void build(Mesh... meshes) {
+        List<ForkJoinTask<Mesh>> tasks = new ArrayList<>();
+        Mesh[][] levels = new Mesh[meshes.length][];
+        String[] keys = new String[meshes.length];
+        for (int m = 0; m < meshes.length; m++) {
+            if (meshes[m].getFaceCount() * RATIOS[0] < MIN_FACES) {
+                levels[m] = new Mesh[0];
+                continue;
+            }
+            keys[m] = key(meshes[m]);
+            levels[m] = readCache(keys[m]);
+            if (levels[m] == null) {
+                Mesh mesh = meshes[m];
+                for (double ratio : RATIOS) {
+                    int targetFaces = (int) (mesh.getFaceCount() * ratio);
+                    tasks.add(ForkJoinPool.commonPool().submit(() -> MeshSimplifier.simplify(mesh, targetFaces)));
+                }
+            }
+        }
+        int next = 0;
+        for (int m = 0; m < meshes.length; m++) {
+            if (levels[m] == null) {
+                Mesh[] simplified = new Mesh[RATIOS.length];
+                for (int i = 0; i < RATIOS.length; i++) {
+                    simplified[i] = tasks.get(next++).join();
+                }
+                levels[m] = selectLevels(meshes[m], simplified);
+                writeCache(keys[m], levels[m]);
+            }
+            meshes[m].setLevelsOfDetail(levels[m]);
+        }
+    }
+
+    /**
+     * Keep the levels that reduce enough the faces of the previous one.
+     */
+    private static Mesh[] selectLevels(Mesh mesh, Mesh[] simplified) {
+        List<Mesh> levels = new ArrayList<>(simplified.length);
+        int faces = mesh.getFaceCount();
+        for (Mesh level : simplified) {
+            if (level.getFaceCount() >= MIN_FACES && level.getFaceCount() <= faces * MAX_FACE_FRACTION) {
+                levels.add(level);
+                faces = level.getFaceCount();
+            }
+        }
+        return levels.toArray(new Mesh[levels.size()]);
+    }
+
+    /**
+     * Cached levels of a mesh (null if they are not cached or the file cannot be read).
+     */
+    private Mesh[] readCache(String key) {
+        if (cacheDirectory == null) {
+            return null;
+        }
+        try {
+            return BinaryMeshFile.read(cacheDirectory.resolve(key + BinaryMeshFile.EXTENSION));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("Cannot read cached levels of detail " + key + ", generating them again.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Cache the levels of a mesh. Written to a temporary file and moved, so a file being written is never read.
+     */
+    private void writeCache(String key, Mesh[] levels) {
+        if (cacheDirectory == null) {
+            return;
+        }
+        Path temporary = null;
+        try {
+            Files.createDirectories(cacheDirectory);
+            temporary = Files.createTempFile(cacheDirectory, key, ".tmp");
+            BinaryMeshFile.write(levels, temporary);
+            Files.move(temporary, cacheDirectory.resolve(key + BinaryMeshFile.EXTENSION),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warn("Cannot cache levels of detail in " + cacheDirectory + ".", e);
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ignored) {
+                    // Nothing else to do
+                }
+            }
+        }
+    }
+
+    /**
+     * SHA-256 (in hex) of the geometry of a mesh, the version of the cache and the ratios of the levels.
+     */
+    static String key(Mesh mesh) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available.", e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(CACHE_VERSION);
+        for (double ratio : RATIOS) {
+            buffer.putDouble(ratio);
+        }
+        float[] uvs = mesh.getUvs();
+        buffer.putInt(mesh.getVertexCount()).putInt(mesh.getFaceCount()).putInt(uvs != null ? 1 : 0);
+        update(digest, buffer, mesh.getPositions());
+        update(digest, buffer, mesh.getNormals());
+        if (uvs != null) {
+            update(digest, buffer, uvs);
+        }
+        int[] indices = mesh.getIndices();
+        for (int index : indices) {
+            if (!buffer.hasRemaining()) {
+                flush(digest, buffer);
+            }
+            buffer.putInt(index);
+        }
+        flush(digest, buffer);
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(String.format("%02x", b));
+        }
+        return key.toString();
+    }
+
+    private static void update(MessageDigest digest, ByteBuffer buffer, float[] values) {
+        for (float value : values) {
+            if (!buffer.hasRemaining()) {
+                flush(digest, buffer);
+            }
+            buffer.putFloat(value);
+        }
+    }
+
+    private static void flush(MessageDigest digest, ByteBuffer buffer) {
+        buffer.flip();
+        digest.update(buffer);
+        buffer.clear();
+    }
+}
@@ -28,25 +28,61 @@ public class MathUtils {
      * @return left-handed look-at Matrix
      */
     public static Matrix4d lookAtLH(Vector3d eye, Vector3d target, Vector3d up) {
-        Vector3d zAxis = new Vector3d();
-        zAxis.sub(target, eye);
-        zAxis.normalize();
-        Vector3d xAxis = new Vector3d();
-        xAxis.cross(up, zAxis);
-        xAxis.normalize();
-        Vector3d yAxis = new Vector3d();
-        yAxis.cross(zAxis, xAxis);
-        yAxis.normalize();
-        double ex = -xAxis.dot(eye);
-        double ey = -yAxis.dot(eye);
-        double ez = -zAxis.dot(eye);
+        Matrix4d result = new Matrix4d();
+        lookAtLH(eye, target, up, result);
+        return result;
+    }
+
+    /**
+     * Builds a left-handed look-at Matrix into result without allocating any object.
+     *
+     * @param eye    camera point
+     * @param target camera look-at target
+     * @param up     up direction
+     * @param result matrix where the look-at matrix is stored
+     */
+    public static void lookAtLH(Vector3d eye, Vector3d target, Vector3d up, Matrix4d result) {
+        // zAxis = normalize(target - eye)
+        double zx = target.x - eye.x;
+        double zy = target.y - eye.y;
+        double zz = target.z - eye.z;
+        double norm = 1.0 / Math.sqrt(zx * zx + zy * zy + zz * zz);
+        zx *= norm;
+        zy *= norm;
+        zz *= norm;
+        // xAxis = normalize(up x zAxis)
+        double xx = up.y * zz - up.z * zy;
+        double xy = zx * up.z - zz * up.x;
+        double xz = up.x * zy - up.y * zx;
+        norm = 1.0 / Math.sqrt(xx * xx + xy * xy + xz * xz);
+        xx *= norm;
+        xy *= norm;
+        xz *= norm;
+        // yAxis = normalize(zAxis x xAxis)
+        double yx = zy * xz - zz * xy;
+        double yy = xx * zz - xz * zx;
+        double yz = zx * xy - zy * xx;
+        norm = 1.0 / Math.sqrt(yx * yx + yy * yy + yz * yz);
+        yx *= norm;
+        yy *= norm;
+        yz *= norm;
         // Construct matrix
-        double[] matrix = new double[]{
-                xAxis.x, yAxis.x, zAxis.x, 0,
-                xAxis.y, yAxis.y, zAxis.y, 0,
-                xAxis.z, yAxis.z, zAxis.z, 0,
-                ex, ey, ez, 1};
-        return new Matrix4d(matrix);
+        result.m00 = xx;
+        result.m01 = yx;
+        result.m02 = zx;
+        result.m03 = 0;
+        result.m10 = xy;
+        result.m11 = yy;
+        result.m12 = zy;
+        result.m13 = 0;
+        result.m20 = xz;
+        result.m21 = yz;
+        result.m22 = zz;
+        result.m23 = 0;
+        result.m30 = -(xx * eye.x + xy * eye.y + xz * eye.z);
+        result.m31 = -(yx * eye.x + yy * eye.y + yz * eye.z);
+        result.m32 = -(zx * eye.x + zy * eye.y + zz * eye.z);
+        result.m33 = 1;
     }
 
     /**
@@ -64,6 +100,41 @@ public class MathUtils {
         return new Vector3d(x / w, y / w, z / w);
     }
 
+    /**
+     * Transforms the point x,y,z multiplying it by the transformation matrix.
+     * The result is written in out[offset], out[offset + 1] and out[offset + 2].
+     *
+     * @param transMat transformation matrix
+     * @param out      array where the resulting vector is stored
+     * @param offset   index of the first component of the result
+     */
+    public static void transformCoordinates(double x, double y, double z, Matrix4d transMat,
+                                            double[] out, int offset) {
+        double tx = (x * transMat.m00) + (y * transMat.m10) + (z * transMat.m20) + transMat.m30;
+        double ty = (x * transMat.m01) + (y * transMat.m11) + (z * transMat.m21) + transMat.m31;
+        double tz = (x * transMat.m02) + (y * transMat.m12) + (z * transMat.m22) + transMat.m32;
+        double w = (x * transMat.m03) + (y * transMat.m13) + (z * transMat.m23) + transMat.m33;
+        out[offset] = tx / w;
+        out[offset + 1] = ty / w;
+        out[offset + 2] = tz / w;
+    }
+
+    /**
+     * Transforms the point x,y,z into homogeneous coordinates multiplying it by the transformation matrix
+     * (without dividing by w). The result (x, y, z, w) is written from out[offset] to out[offset + 3].
+     *
+     * @param transMat transformation matrix
+     * @param out      array where the resulting vector is stored
+     * @param offset   index of the first component of the result
+     */
+    public static void transformHomogeneous(double x, double y, double z, Matrix4d transMat,
+                                            double[] out, int offset) {
+        out[offset] = (x * transMat.m00) + (y * transMat.m10) + (z * transMat.m20) + transMat.m30;
+        out[offset + 1] = (x * transMat.m01) + (y * transMat.m11) + (z * transMat.m21) + transMat.m31;
+        out[offset + 2] = (x * transMat.m02) + (y * transMat.m12) + (z * transMat.m22) + transMat.m32;
+        out[offset + 3] = (x * transMat.m03) + (y * transMat.m13) + (z * transMat.m23) + transMat.m33;
+    }
+
     /**
      * Creates a left-handed perspective projection matrix based on the field of view.
      * http://www.codinglabs.net/article_world_view_projection_matrix.aspx
@@ -76,15 +147,61 @@ public class MathUtils {
      */
     public static Matrix4d perspectiveFovLH(double fov, double aspect, double znear, double zfar) {
         Matrix4d matrix = new Matrix4d();
+        perspectiveFovLH(fov, aspect, znear, zfar, matrix);
+        return matrix;
+    }
+
+    /**
+     * Creates a left-handed perspective projection matrix into result.
+     *
+     * @param fov    field of view in the y direction, in radians
+     * @param aspect aspect ratio, defined as the view space width divided by height
+     * @param znear  z-value of the near view plane
+     * @param zfar   z-value of the far view plane
+     * @param result matrix where the projection matrix is stored
+     */
+    public static void perspectiveFovLH(double fov, double aspect, double znear, double zfar, Matrix4d result) {
+        result.setZero();
         double tan = 1.0 / (Math.tan(fov * 0.5));
-        matrix.m00 = tan / aspect;
-        matrix.m11 = tan;
-        matrix.m22 = -zfar / (znear - zfar);
-        matrix.m23 = 1.0;
-        matrix.m32 = (znear * zfar) / (znear - zfar);
+        result.m00 = tan / aspect;
+        result.m11 = tan;
+        result.m22 = -zfar / (znear - zfar);
+        result.m23 = 1.0;
+        result.m32 = (znear * zfar) / (znear - zfar);
+    }
+
+    /**
+     * Creates a left-handed perspective projection matrix with reversed depth:
+     * the near plane is mapped to z=1 and the far plane to z=0.
+     *
+     * @param fov    field of view in the y direction, in radians
+     * @param aspect aspect ratio, defined as the view space width divided by height
+     * @param znear  z-value of the near view plane
+     * @param zfar   z-value of the far view plane
+     * @return projection matrix
+     */
+    public static Matrix4d perspectiveFovReversedLH(double fov, double aspect, double znear, double zfar) {
+        Matrix4d matrix = new Matrix4d();
+        perspectiveFovReversedLH(fov, aspect, znear, zfar, matrix);
         return matrix;
     }
 
+    /**
+     * Creates a left-handed perspective projection matrix with reversed depth into result.
+     *
+     * @param fov    field of view in the y direction, in radians
+     * @param aspect aspect ratio, defined as the view space width divided by height
+     * @param znear  z-value of the near view plane
+     * @param zfar   z-value of the far view plane
+     * @param result matrix where the projection matrix is stored
+     */
+    public static void perspectiveFovReversedLH(double fov, double aspect, double znear, double zfar,
+                                                Matrix4d result) {
+        perspectiveFovLH(fov, aspect, znear, zfar, result);
+        result.m22 = znear / (znear - zfar);
+        result.m32 = -result.m32;
+    }
+
     /**
      * Rotates a matrix using yaw, pitch and roll values.
      *
@@ -94,12 +211,45 @@ public class MathUtils {
      * @return rotated matrix
      */
     public static Matrix4d rotationYawPitchRoll(double yaw, double pitch, double roll) {
-        Matrix4d m = MathUtils.rotationZ(roll);
-        m.mul(MathUtils.rotationX(pitch));
-        m.mul(MathUtils.rotationY(yaw));
+        Matrix4d m = new Matrix4d();
+        rotationYawPitchRoll(yaw, pitch, roll, m);
         return m;
     }
 
+    /**
+     * Rotates a matrix using yaw, pitch and roll values, storing the result without allocating any matrix.
+     * The result is the same as rotationZ(roll) * rotationX(pitch) * rotationY(yaw).
+     *
+     * @param yaw    yaw rotation value , in radians
+     * @param pitch  pitch rotation value, in radians
+     * @param roll   roll rotation value, in radians
+     * @param result matrix where the rotation is stored
+     */
+    public static void rotationYawPitchRoll(double yaw, double pitch, double roll, Matrix4d result) {
+        double sy = Math.sin(yaw);
+        double cy = Math.cos(yaw);
+        double sx = Math.sin(pitch);
+        double cx = Math.cos(pitch);
+        double sz = Math.sin(roll);
+        double cz = Math.cos(roll);
+        result.m00 = cz * cy + (sz * sx) * sy;
+        result.m01 = sz * cx;
+        result.m02 = -(cz * sy) + (sz * sx) * cy;
+        result.m03 = 0;
+        result.m10 = -sz * cy + (cz * sx) * sy;
+        result.m11 = cz * cx;
+        result.m12 = sz * sy + (cz * sx) * cy;
+        result.m13 = 0;
+        result.m20 = cx * sy;
+        result.m21 = -sx;
+        result.m22 = cx * cy;
+        result.m23 = 0;
+        result.m30 = 0;
+        result.m31 = 0;
+        result.m32 = 0;
+        result.m33 = 1.0;
+    }
+
     /**
      * Rotates a matrix around X axis.
      *
@@ -108,6 +258,18 @@ public class MathUtils {
      */
     public static Matrix4d rotationX(double angle) {
         Matrix4d result = new Matrix4d();
+        rotationX(angle, result);
+        return result;
+    }
+
+    /**
+     * Rotates a matrix around X axis, storing the result in the given matrix.
+     *
+     * @param angle  angle of the rotation, in radians
+     * @param result matrix where the rotation is stored
+     */
+    public static void rotationX(double angle, Matrix4d result) {
+        result.setZero();
         double s = Math.sin(angle);
         double c = Math.cos(angle);
         result.m00 = 1.0;
@@ -116,7 +278,6 @@ public class MathUtils {
         result.m21 = -s;
         result.m22 = c;
         result.m33 = 1.0;
-        return result;
     }
 
     /**
@@ -127,6 +288,18 @@ public class MathUtils {
      */
     public static Matrix4d rotationY(double angle) {
         Matrix4d result = new Matrix4d();
+        rotationY(angle, result);
+        return result;
+    }
+
+    /**
+     * Rotates a matrix around Y axis, storing the result in the given matrix.
+     *
+     * @param angle  angle of the rotation, in radians
+     * @param result matrix where the rotation is stored
+     */
+    public static void rotationY(double angle, Matrix4d result) {
+        result.setZero();
         double s = Math.sin(angle);
         double c = Math.cos(angle);
         result.m00 = c;
@@ -135,7 +308,6 @@ public class MathUtils {
         result.m20 = s;
         result.m22 = c;
         result.m33 = 1.0;
-        return result;
     }
 
     /**
@@ -146,6 +318,18 @@ public class MathUtils {
      */
     public static Matrix4d rotationZ(double angle) {
         Matrix4d result = new Matrix4d();
+        rotationZ(angle, result);
+        return result;
+    }
+
+    /**
+     * Rotates a matrix around Z axis, storing the result in the given matrix.
+     *
+     * @param angle  angle of the rotation, in radians
+     * @param result matrix where the rotation is stored
+     */
+    public static void rotationZ(double angle, Matrix4d result) {
+        result.setZero();
         double s = Math.sin(angle);
         double c = Math.cos(angle);
         result.m00 = c;
@@ -154,7 +338,6 @@ public class MathUtils {
         result.m11 = c;
         result.m22 = 1.0;
         result.m33 = 1.0;
-        return result;
     }
 
     /**
@@ -167,11 +350,23 @@ public class MathUtils {
      */
     public static Matrix4d translation(double x, double y, double z) {
         Matrix4d result = new Matrix4d();
+        translation(x, y, z, result);
+        return result;
+    }
+
+    /**
+     * Creates a matrix with a translation pitch defined by x, y, z into result.
+     *
+     * @param x      X translation value
+     * @param y      Y translation value
+     * @param z      Z translation value
+     * @param result matrix where the translation is stored
+     */
+    public static void translation(double x, double y, double z, Matrix4d result) {
         result.setIdentity();
         result.m30 = x;
         result.m31 = y;
         result.m32 = z;
-        return result;
     }
 
     /**
@@ -209,4 +404,22 @@ public class MathUtils {
 
         return Math.max(0, normalizedNormal.dot(normalizedLightDirection));
     }
+
+    /**
+     * Compute the cosine of the angle between the light vector and the normal vector
+     * without allocating any vector.
+     *
+     * @return a value between 0 and 1
+     */
+    public static double computeNDotL(double vx, double vy, double vz, double nx, double ny, double nz,
+                                      double lx, double ly, double lz) {
+        double dx = lx - vx;
+        double dy = ly - vy;
+        double dz = lz - vz;
+        double normalNorm = 1.0 / Math.sqrt(nx * nx + ny * ny + nz * nz);
+        double lightNorm = 1.0 / Math.sqrt(dx * dx + dy * dy + dz * dz);
+        return Math.max(0, (nx * normalNorm) * (dx * lightNorm)
+                + (ny * normalNorm) * (dy * lightNorm)
+                + (nz * normalNorm) * (dz * lightNorm));
+    }
 }
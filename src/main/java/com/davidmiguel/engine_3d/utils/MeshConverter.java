@@ -0,0 +1,62 @@
+package com.davidmiguel.engine_3d.utils;
+
+import com.davidmiguel.engine_3d.meshes.Mesh;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Converts babylon json files (.babylon / .json) into binary mesh files (see {@link BinaryMeshFile}).
+ * <p>
+ * Usage: {@code MeshConverter <input.babylon> [output.e3dm]}. By default the output is written next to
+ * the input, with the extension of the binary mesh files.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+public class MeshConverter {
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: MeshConverter <input.babylon> [output" + BinaryMeshFile.EXTENSION + "]");
+            System.exit(1);
+        }
+        Path input = Paths.get(args[0]);
+        Path output = args.length == 2 ? Paths.get(args[1]) : defaultOutput(input);
+        try {
+            long start = System.nanoTime();
+            int meshes = convert(input, output);
+            System.out.printf("%s -> %s: %d meshes in %d ms%n", input, output, meshes,
+                    (System.nanoTime() - start) / 1000000);
+        } catch (IOException e) {
+            System.err.println("Error converting " + input + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Convert a babylon json file into a binary mesh file. The textures are referenced by name, not decoded.
+     *
+     * @return number of meshes converted
+     */
+    public static int convert(Path input, Path output) throws IOException {
+        Mesh[] meshes;
+        try (InputStream in = Files.newInputStream(input)) {
+            meshes = FileUtils.parseMeshFromJSON(in, false);
+        }
+        if (meshes.length == 0) {
+            throw new IOException("No meshes found.");
+        }
+        BinaryMeshFile.write(meshes, output);
+        return meshes.length;
+    }
+
+    private static Path defaultOutput(Path input) {
+        String name = input.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return input.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + BinaryMeshFile.EXTENSION);
+    }
+}
@@ -0,0 +1,49 @@
+package com.davidmiguel.engine_3d.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of a babylon json file parsed by {@link FileUtils#parseMeshFromJSON(java.io.InputStream)},
+ * including the build of its meshes and the load of their textures.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@Name("com.davidmiguel.engine_3d.MeshParse")
+@Label("Mesh Parse")
+@Category({"Engine 3D", "Loading"})
+@Description("Babylon json file parsed into meshes")
+class MeshParseEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(MeshParseEvent.class);
+
+    @Label("Bytes Read")
+    @DataAmount
+    long bytes;
+    @Label("Meshes")
+    int meshes;
+    @Label("Vertices")
+    long vertices;
+    @Label("Faces")
+    long faces;
+    @Label("Textures Loaded")
+    boolean texturesLoaded;
+
+    /**
+     * Start the event of a parse, or null if the event is not enabled in any recording.
+     */
+    static MeshParseEvent start() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        MeshParseEvent event = new MeshParseEvent();
+        event.begin();
+        return event;
+    }
+}
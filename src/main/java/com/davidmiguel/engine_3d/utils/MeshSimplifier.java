@@ -0,0 +1,593 @@
+package com.davidmiguel.engine_3d.utils;
+
+import com.davidmiguel.engine_3d.meshes.Mesh;
+
+import java.util.Arrays;
+
+/**
+ * Mesh simplification by quadric error edge collapse (Garland and Heckbert).
+ * <p>
+ * Every point of the surface accumulates the planes of its faces (weighted by their area) in a quadric, which
+ * measures the squared distance from a point to those planes. The edge whose collapse moves a point the least
+ * away from its planes is collapsed first, until the target number of faces is reached.
+ * <p>
+ * The mesh vertices at the same position (split to have different normals or texture coordinates) are
+ * collapsed together: a point is merged into a neighbour point, and every vertex of the first one is merged
+ * into the vertex of the second one it shares a face with, which keeps its position, normal and texture
+ * coordinates. A collapse where some vertex has no such neighbour would tear a seam, so it is skipped: the
+ * seams only move along themselves. Points on open borders, and collapses that would flip a face or pinch
+ * the surface, are skipped too.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@SuppressWarnings("WeakerAccess")
+public class MeshSimplifier {
+
+    /**
+     * Coefficients of a quadric (a², ab, ac, ad, b², bc, bd, c², cd, d² of the planes ax + by + cz + d = 0).
+     */
+    private static final int QUADRIC_SIZE = 10;
+
+    private final float[] positions;
+    /**
+     * Vertices of the faces (updated with the collapses).
+     */
+    private final int[] indices;
+    private final int vertexCount;
+    /**
+     * Point (vertices welded by position) of every vertex, and the vertices of every point
+     * (pointVertices[pointStarts[p]] to pointVertices[pointStarts[p + 1] - 1]).
+     */
+    private final int[] pointOf;
+    private int[] pointStarts;
+    private int[] pointVertices;
+    private int pointCount;
+    /**
+     * Points that cannot be removed.
+     */
+    private boolean[] locked;
+    private double[] quadrics;
+
+    /**
+     * Faces of every point (only the first faceCounts[p] are valid).
+     */
+    private int[][] pointFaces;
+    private int[] faceCounts;
+    private final boolean[] removedFaces;
+    private boolean[] removedPoints;
+    /**
+     * Incremented every time the quadric of a point changes, to discard the outdated collapses.
+     */
+    private int[] versions;
+    private int liveFaces;
+    /**
+     * Vertex of the target point every vertex of the removed point is merged into (for the collapse being
+     * validated).
+     */
+    private int[] targets;
+
+    private MeshSimplifier(Mesh mesh) {
+        this.positions = mesh.getPositions();
+        this.indices = mesh.getIndices().clone();
+        this.vertexCount = mesh.getVertexCount();
+        this.pointOf = new int[vertexCount];
+        this.removedFaces = new boolean[indices.length / 3];
+        this.liveFaces = indices.length / 3;
+    }
+
+    /**
+     * Simplify a mesh. The mesh is not changed.
+     *
+     * @param mesh        mesh to simplify
+     * @param targetFaces number of faces to reach (it may not be reached if the seams, the borders or the
+     *                    shape of the mesh do not allow it)
+     * @return new mesh with the remaining faces and only their vertices (without texture, position and rotation)
+     */
+    public static Mesh simplify(Mesh mesh, int targetFaces) {
+        MeshSimplifier simplifier = new MeshSimplifier(mesh);
+        simplifier.weldPoints();
+        simplifier.buildAdjacency();
+        simplifier.lockBorders();
+        simplifier.computeQuadrics();
+        simplifier.collapse(Math.max(targetFaces, 1));
+        return simplifier.compact(mesh);
+    }
+
+    /**
+     * Group the vertices by position.
+     */
+    private void weldPoints() {
+        Integer[] order = new Integer[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            order[v] = v;
+        }
+        Arrays.sort(order, this::comparePositions);
+        pointVertices = new int[vertexCount];
+        pointStarts = new int[vertexCount + 1];
+        for (int i = 0; i < vertexCount; i++) {
+            if (i == 0 || comparePositions(order[i - 1], order[i]) != 0) {
+                pointStarts[pointCount++] = i;
+            }
+            pointVertices[i] = order[i];
+            pointOf[order[i]] = pointCount - 1;
+        }
+        pointStarts[pointCount] = vertexCount;
+        locked = new boolean[pointCount];
+        quadrics = new double[QUADRIC_SIZE * pointCount];
+        removedPoints = new boolean[pointCount];
+        versions = new int[pointCount];
+        targets = new int[vertexCount];
+    }
+
+    private int comparePositions(int a, int b) {
+        for (int k = 0; k < 3; k++) {
+            int c = Float.compare(positions[3 * a + k], positions[3 * b + k]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    private void buildAdjacency() {
+        faceCounts = new int[pointCount];
+        for (int index : indices) {
+            faceCounts[pointOf[index]]++;
+        }
+        pointFaces = new int[pointCount][];
+        for (int p = 0; p < pointCount; p++) {
+            pointFaces[p] = new int[Math.max(faceCounts[p], 1)];
+            faceCounts[p] = 0;
+        }
+        for (int i = 0; i < indices.length; i++) {
+            int p = pointOf[indices[i]];
+            pointFaces[p][faceCounts[p]++] = i / 3;
+        }
+    }
+
+    /**
+     * Lock the points of the edges that are not shared by exactly two faces (borders and non-manifold edges).
+     */
+    private void lockBorders() {
+        // Every edge as a long (smaller point in the high bits), sorted so the repeated edges are together
+        long[] edges = new long[indices.length];
+        for (int f = 0; f < indices.length; f += 3) {
+            for (int k = 0; k < 3; k++) {
+                int a = pointOf[indices[f + k]];
+                int b = pointOf[indices[f + (k + 1) % 3]];
+                edges[f + k] = (long) Math.min(a, b) << 32 | Math.max(a, b);
+            }
+        }
+        Arrays.sort(edges);
+        for (int i = 0; i < edges.length; ) {
+            int j = i + 1;
+            while (j < edges.length && edges[j] == edges[i]) {
+                j++;
+            }
+            if (j - i != 2) {
+                locked[(int) (edges[i] >>> 32)] = true;
+                locked[(int) edges[i]] = true;
+            }
+            i = j;
+        }
+    }
+
+    /**
+     * Add the plane of every face, weighted by its area, to the quadrics of its points.
+     */
+    private void computeQuadrics() {
+        for (int face = 0; face < indices.length / 3; face++) {
+            int a = indices[3 * face];
+            int b = indices[3 * face + 1];
+            int c = indices[3 * face + 2];
+            double abx = positions[3 * b] - positions[3 * a];
+            double aby = positions[3 * b + 1] - positions[3 * a + 1];
+            double abz = positions[3 * b + 2] - positions[3 * a + 2];
+            double acx = positions[3 * c] - positions[3 * a];
+            double acy = positions[3 * c + 1] - positions[3 * a + 1];
+            double acz = positions[3 * c + 2] - positions[3 * a + 2];
+            double nx = aby * acz - abz * acy;
+            double ny = abz * acx - abx * acz;
+            double nz = abx * acy - aby * acx;
+            double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (length == 0) {
+                continue;
+            }
+            double area = length / 2;
+            nx /= length;
+            ny /= length;
+            nz /= length;
+            double d = -(nx * positions[3 * a] + ny * positions[3 * a + 1] + nz * positions[3 * a + 2]);
+            for (int k = 0; k < 3; k++) {
+                int q = QUADRIC_SIZE * pointOf[indices[3 * face + k]];
+                quadrics[q] += area * nx * nx;
+                quadrics[q + 1] += area * nx * ny;
+                quadrics[q + 2] += area * nx * nz;
+                quadrics[q + 3] += area * nx * d;
+                quadrics[q + 4] += area * ny * ny;
+                quadrics[q + 5] += area * ny * nz;
+                quadrics[q + 6] += area * ny * d;
+                quadrics[q + 7] += area * nz * nz;
+                quadrics[q + 8] += area * nz * d;
+                quadrics[q + 9] += area * d * d;
+            }
+        }
+    }
+
+    /**
+     * Error of moving a point to the position of another one.
+     */
+    private double cost(int from, int to) {
+        int q = QUADRIC_SIZE * from;
+        int v = pointVertices[pointStarts[to]];
+        double x = positions[3 * v];
+        double y = positions[3 * v + 1];
+        double z = positions[3 * v + 2];
+        return quadrics[q] * x * x + 2 * quadrics[q + 1] * x * y + 2 * quadrics[q + 2] * x * z
+                + 2 * quadrics[q + 3] * x + quadrics[q + 4] * y * y + 2 * quadrics[q + 5] * y * z
+                + 2 * quadrics[q + 6] * y + quadrics[q + 7] * z * z + 2 * quadrics[q + 8] * z + quadrics[q + 9];
+    }
+
+    private void collapse(int targetFaces) {
+        CollapseQueue queue = new CollapseQueue(2 * indices.length);
+        for (int f = 0; f < indices.length; f += 3) {
+            for (int k = 0; k < 3; k++) {
+                int a = pointOf[indices[f + k]];
+                int b = pointOf[indices[f + (k + 1) % 3]];
+                push(queue, a, b);
+                push(queue, b, a);
+            }
+        }
+        while (liveFaces > targetFaces && !queue.isEmpty()) {
+            int from = queue.peekFrom();
+            int to = queue.peekTo();
+            int version = queue.peekVersion();
+            queue.pop();
+            if (removedPoints[from] || removedPoints[to] || versions[from] != version
+                    || !isValidCollapse(from, to)) {
+                continue;
+            }
+            collapse(from, to);
+            // The quadric of the target changed, and its faces too
+            for (int i = 0; i < faceCounts[to]; i++) {
+                int face = pointFaces[to][i];
+                for (int k = 0; k < 3; k++) {
+                    int other = pointOf[indices[3 * face + k]];
+                    if (other != to) {
+                        push(queue, to, other);
+                        push(queue, other, to);
+                    }
+                }
+            }
+        }
+    }
+
+    private void push(CollapseQueue queue, int from, int to) {
+        if (!locked[from] && from != to) {
+            queue.push(cost(from, to), from, to, versions[from]);
+        }
+    }
+
+    /**
+     * Whether the points are still neighbours, every vertex of the first one has a neighbour vertex in the
+     * second one, and merging them does not flip any face or join two parts of the surface that only touch
+     * at the edge. Fills the target vertices.
+     */
+    private boolean isValidCollapse(int from, int to) {
+        for (int i = pointStarts[from]; i < pointStarts[from + 1]; i++) {
+            targets[pointVertices[i]] = -1;
+        }
+        int shared = 0;
+        for (int i = 0; i < faceCounts[from]; i++) {
+            int face = pointFaces[from][i];
+            int k = cornerOf(face, to);
+            if (k >= 0) {
+                shared++;
+                targets[indices[3 * face + cornerOf(face, from)]] = indices[3 * face + k];
+            } else if (flips(face, from, to)) {
+                return false;
+            }
+        }
+        // A closed surface cannot have less than four faces
+        if (shared == 0 || liveFaces - shared < 4) {
+            return false;
+        }
+        // A vertex without a neighbour in the target point is on the other side of a seam
+        for (int i = pointStarts[from]; i < pointStarts[from + 1]; i++) {
+            int v = pointVertices[i];
+            if (targets[v] < 0 && isUsed(from, v)) {
+                return false;
+            }
+        }
+        // Link condition: the points adjacent to both must be the third points of the shared faces
+        return countCommonNeighbours(from, to) <= shared;
+    }
+
+    /**
+     * Corner of a face at a point (-1 if the face does not touch it).
+     */
+    private int cornerOf(int face, int point) {
+        for (int k = 0; k < 3; k++) {
+            if (pointOf[indices[3 * face + k]] == point) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Whether some face of a point uses the given vertex.
+     */
+    private boolean isUsed(int point, int v) {
+        for (int i = 0; i < faceCounts[point]; i++) {
+            int face = pointFaces[point][i];
+            if (indices[3 * face] == v || indices[3 * face + 1] == v || indices[3 * face + 2] == v) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether moving a corner of a face to another point flips (or collapses) the face.
+     */
+    private boolean flips(int face, int from, int to) {
+        int k = cornerOf(face, from);
+        int a = indices[3 * face + (k + 1) % 3];
+        int b = indices[3 * face + (k + 2) % 3];
+        double oldX = 0, oldY = 0, oldZ = 0;
+        double newX = 0, newY = 0, newZ = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            int v = pass == 0 ? indices[3 * face + k] : pointVertices[pointStarts[to]];
+            double ux = positions[3 * a] - positions[3 * v];
+            double uy = positions[3 * a + 1] - positions[3 * v + 1];
+            double uz = positions[3 * a + 2] - positions[3 * v + 2];
+            double wx = positions[3 * b] - positions[3 * v];
+            double wy = positions[3 * b + 1] - positions[3 * v + 1];
+            double wz = positions[3 * b + 2] - positions[3 * v + 2];
+            double nx = uy * wz - uz * wy;
+            double ny = uz * wx - ux * wz;
+            double nz = ux * wy - uy * wx;
+            if (pass == 0) {
+                oldX = nx;
+                oldY = ny;
+                oldZ = nz;
+            } else {
+                newX = nx;
+                newY = ny;
+                newZ = nz;
+            }
+        }
+        double dot = oldX * newX + oldY * newY + oldZ * newZ;
+        double oldLength = Math.sqrt(oldX * oldX + oldY * oldY + oldZ * oldZ);
+        double newLength = Math.sqrt(newX * newX + newY * newY + newZ * newZ);
+        // The new normal must not turn more than about 80 degrees
+        return dot <= 0.2 * oldLength * newLength;
+    }
+
+    private int countCommonNeighbours(int from, int to) {
+        int common = 0;
+        for (int i = 0; i < faceCounts[from]; i++) {
+            int face = pointFaces[from][i];
+            for (int k = 0; k < 3; k++) {
+                int p = pointOf[indices[3 * face + k]];
+                if (p != from && p != to && isNeighbour(to, p) && !seenBefore(from, i, p)) {
+                    common++;
+                }
+            }
+        }
+        return common;
+    }
+
+    /**
+     * Whether a point appears in the faces of another one before the given position.
+     */
+    private boolean seenBefore(int point, int position, int p) {
+        for (int i = 0; i < position; i++) {
+            if (cornerOf(pointFaces[point][i], p) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isNeighbour(int point, int p) {
+        for (int i = 0; i < faceCounts[point]; i++) {
+            if (cornerOf(pointFaces[point][i], p) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Merge a point into another one (with the targets of the last validation): the faces with both are
+     * removed, and the vertices of the first point in the rest are replaced by their targets.
+     */
+    private void collapse(int from, int to) {
+        // Backwards, because removing a face moves the last face of the point to its place
+        for (int i = faceCounts[from] - 1; i >= 0; i--) {
+            int face = pointFaces[from][i];
+            if (cornerOf(face, to) >= 0) {
+                removeFace(face);
+            } else {
+                int k = 3 * face + cornerOf(face, from);
+                indices[k] = targets[indices[k]];
+                addFace(to, face);
+            }
+        }
+        faceCounts[from] = 0;
+        removedPoints[from] = true;
+        int q = QUADRIC_SIZE * from;
+        int r = QUADRIC_SIZE * to;
+        for (int k = 0; k < QUADRIC_SIZE; k++) {
+            quadrics[r + k] += quadrics[q + k];
+        }
+        versions[to]++;
+    }
+
+    private void removeFace(int face) {
+        removedFaces[face] = true;
+        liveFaces--;
+        for (int k = 0; k < 3; k++) {
+            int p = pointOf[indices[3 * face + k]];
+            int[] faces = pointFaces[p];
+            for (int i = 0; i < faceCounts[p]; i++) {
+                if (faces[i] == face) {
+                    faces[i] = faces[--faceCounts[p]];
+                    break;
+                }
+            }
+        }
+    }
+
+    private void addFace(int p, int face) {
+        if (faceCounts[p] == pointFaces[p].length) {
+            pointFaces[p] = Arrays.copyOf(pointFaces[p], 2 * faceCounts[p]);
+        }
+        pointFaces[p][faceCounts[p]++] = face;
+    }
+
+    /**
+     * Build a mesh with the remaining faces and their vertices.
+     */
+    private Mesh compact(Mesh mesh) {
+        int[] remap = new int[vertexCount];
+        Arrays.fill(remap, -1);
+        int[] newIndices = new int[3 * liveFaces];
+        int vertices = 0;
+        int n = 0;
+        for (int face = 0; face < removedFaces.length; face++) {
+            if (removedFaces[face]) {
+                continue;
+            }
+            for (int k = 0; k < 3; k++) {
+                int v = indices[3 * face + k];
+                if (remap[v] < 0) {
+                    remap[v] = vertices++;
+                }
+                newIndices[n++] = remap[v];
+            }
+        }
+        float[] normals = mesh.getNormals();
+        float[] uvs = mesh.getUvs();
+        float[] newPositions = new float[3 * vertices];
+        float[] newNormals = new float[3 * vertices];
+        float[] newUvs = uvs != null ? new float[2 * vertices] : null;
+        for (int v = 0; v < vertexCount; v++) {
+            int w = remap[v];
+            if (w < 0) {
+                continue;
+            }
+            System.arraycopy(positions, 3 * v, newPositions, 3 * w, 3);
+            System.arraycopy(normals, 3 * v, newNormals, 3 * w, 3);
+            if (uvs != null) {
+                System.arraycopy(uvs, 2 * v, newUvs, 2 * w, 2);
+            }
+        }
+        Mesh simplified = new Mesh();
+        simplified.setGeometry(newPositions, newNormals, newUvs, newIndices);
+        return simplified;
+    }
+
+    /**
+     * Binary min-heap of collapses (cost, vertex removed, target vertex and version of the removed vertex)
+     * in parallel arrays.
+     */
+    private static class CollapseQueue {
+
+        private double[] costs;
+        private int[] froms;
+        private int[] tos;
+        private int[] versions;
+        private int size;
+
+        CollapseQueue(int capacity) {
+            capacity = Math.max(capacity, 16);
+            this.costs = new double[capacity];
+            this.froms = new int[capacity];
+            this.tos = new int[capacity];
+            this.versions = new int[capacity];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int peekFrom() {
+            return froms[0];
+        }
+
+        int peekTo() {
+            return tos[0];
+        }
+
+        int peekVersion() {
+            return versions[0];
+        }
+
+        void push(double cost, int from, int to, int version) {
+            if (size == costs.length) {
+                costs = Arrays.copyOf(costs, 2 * size);
+                froms = Arrays.copyOf(froms, 2 * size);
+                tos = Arrays.copyOf(tos, 2 * size);
+                versions = Arrays.copyOf(versions, 2 * size);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (costs[parent] <= cost) {
+                    break;
+                }
+                set(i, parent);
+                i = parent;
+            }
+            costs[i] = cost;
+            froms[i] = from;
+            tos[i] = to;
+            versions[i] = version;
+        }
+
+        void pop() {
+            size--;
+            if (size == 0) {
+                return;
+            }
+            // Sift the last entry down from the root
+            double cost = costs[size];
+            int from = froms[size];
+            int to = tos[size];
+            int version = versions[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && costs[child + 1] < costs[child]) {
+                    child++;
+                }
+                if (cost <= costs[child]) {
+                    break;
+                }
+                set(i, child);
+                i = child;
+            }
+            costs[i] = cost;
+            froms[i] = from;
+            tos[i] = to;
+            versions[i] = version;
+        }
+
+        /**
+         * Copy an entry into another position.
+         */
+        private void set(int i, int j) {
+            costs[i] = costs[j];
+            froms[i] = froms[j];
+            tos[i] = tos[j];
+            versions[i] = versions[j];
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.davidmiguel.engine_3d.utils;
 
+import com.davidmiguel.engine_3d.meshes.Texture;
+
 /**
  * ScanLineData.
  *
@@ -23,6 +25,9 @@ class ScanLineData {
     private double vc;
     private double vd;
 
+    private int textureLevel;
+    private Texture.Filter textureFilter;
+
     public int getCurrentY() {
         return currentY;
     }
@@ -126,4 +131,20 @@ class ScanLineData {
     public void setVd(double vd) {
         this.vd = vd;
     }
+
+    public int getTextureLevel() {
+        return textureLevel;
+    }
+
+    public void setTextureLevel(int textureLevel) {
+        this.textureLevel = textureLevel;
+    }
+
+    public Texture.Filter getTextureFilter() {
+        return textureFilter;
+    }
+
+    public void setTextureFilter(Texture.Filter textureFilter) {
+        this.textureFilter = textureFilter;
+    }
 }
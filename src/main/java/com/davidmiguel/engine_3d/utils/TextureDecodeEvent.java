@@ -0,0 +1,47 @@
+package com.davidmiguel.engine_3d.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of an image decoded into a texture (only cache misses decode, see
+ * {@link com.davidmiguel.engine_3d.meshes.TextureCache}).
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@Name("com.davidmiguel.engine_3d.TextureDecode")
+@Label("Texture Decode")
+@Category({"Engine 3D", "Loading"})
+@Description("Image file decoded into a texture")
+class TextureDecodeEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(TextureDecodeEvent.class);
+
+    @Label("Texture")
+    String texture;
+    @Label("Width")
+    int width;
+    @Label("Height")
+    int height;
+    @Label("Decoded Size")
+    @DataAmount
+    long decodedSize;
+
+    /**
+     * Start the event of a decode, or null if the event is not enabled in any recording.
+     */
+    static TextureDecodeEvent start() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        TextureDecodeEvent event = new TextureDecodeEvent();
+        event.begin();
+        return event;
+    }
+}
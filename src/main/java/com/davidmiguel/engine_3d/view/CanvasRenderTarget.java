@@ -0,0 +1,66 @@
+package com.davidmiguel.engine_3d.view;
+
+import com.davidmiguel.engine_3d.engine.FrameBuffer;
+import com.davidmiguel.engine_3d.engine.RenderTarget;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.nio.IntBuffer;
+
+/**
+ * Render target that draws the frames into a JavaFX canvas. Must be used from the JavaFX application thread.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+@SuppressWarnings("WeakerAccess")
+public class CanvasRenderTarget implements RenderTarget {
+
+    private final GraphicsContext gc;
+    /**
+     * Image drawn in the canvas (created on the first frame).
+     */
+    private WritableImage image;
+    /**
+     * Pixels of the last frame buffer presented, wrapped once.
+     */
+    private IntBuffer buffer;
+
+    public CanvasRenderTarget(GraphicsContext gc) {
+        this.gc = gc;
+    }
+
+    /**
+     * Copy the whole frame into the canvas with a single bulk write.
+     * The pixels are written into an image that is reused every frame (the pixel writer of the canvas
+     * copies them into a new array on every call), and then the image is drawn.
+     */
+    @Override
+    public void present(FrameBuffer frame) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = new WritableImage(width, height);
+        }
+        if (buffer == null || buffer.array() != frame.getPixels()) {
+            buffer = IntBuffer.wrap(frame.getPixels());
+        }
+        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), buffer, width);
+        gc.drawImage(image, 0, 0);
+    }
+
+    /**
+     * Width of the canvas.
+     */
+    public int getWidth() {
+        return (int) gc.getCanvas().getWidth();
+    }
+
+    /**
+     * Height of the canvas.
+     */
+    public int getHeight() {
+        return (int) gc.getCanvas().getHeight();
+    }
+}
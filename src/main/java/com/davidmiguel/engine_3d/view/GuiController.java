@@ -2,27 +2,33 @@ package com.davidmiguel.engine_3d.view;
 
 import com.davidmiguel.engine_3d.engine.Camera;
 import com.davidmiguel.engine_3d.engine.Engine;
+import com.davidmiguel.engine_3d.engine.FrameBuffer;
+import com.davidmiguel.engine_3d.engine.FrameExchange;
+import com.davidmiguel.engine_3d.engine.FrameState;
+import com.davidmiguel.engine_3d.engine.RenderLoop;
+import com.davidmiguel.engine_3d.engine.RenderMetrics;
 import com.davidmiguel.engine_3d.meshes.Mesh;
-import com.davidmiguel.engine_3d.utils.FileUtils;
-import javafx.animation.Animation;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import com.davidmiguel.engine_3d.meshes.Texture;
+import com.davidmiguel.engine_3d.scene.RayCaster;
+import com.davidmiguel.engine_3d.scene.RayHit;
+import com.davidmiguel.engine_3d.utils.BinaryMeshFile;
+import javafx.animation.AnimationTimer;
 import javafx.fxml.FXML;
 import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.*;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
-import javafx.util.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.JMException;
 import javax.vecmath.Vector3d;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
 import java.net.URISyntaxException;
-import java.util.Stack;
 
 /**
  * GuiController.
@@ -33,6 +39,15 @@ import java.util.Stack;
 public class GuiController {
 
     private static final Logger logger = LoggerFactory.getLogger(GuiController.class);
+    /**
+     * Time (ms) between updates of the fps label and the metrics overlay, so the text is readable.
+     */
+    private static final long METRICS_REFRESH = 250;
+    private static final Font OVERLAY_FONT = Font.font("Monospaced", 11);
+    /**
+     * Rotation of the meshes (radians per second) when playing.
+     */
+    private static final double ROTATION_SPEED = 0.625;
 
     @FXML
     private Canvas canvas;
@@ -43,16 +58,35 @@ public class GuiController {
     @FXML
     private ToggleGroup render;
     @FXML
+    private ToggleGroup rasterizer;
+    @FXML
+    private ToggleGroup textureFilter;
+    @FXML
     private MenuItem play;
+    @FXML
+    private CheckMenuItem metricsOverlay;
 
 
-    private Timeline tl;
+    private AnimationTimer displayLoop;
+    private long lastPulse;
     private boolean rotation;
     private Engine.RenderMode selectedRender;
     private Engine engine;
+    private RenderLoop renderLoop;
+    private FrameExchange frameExchange;
+    private CanvasRenderTarget canvasTarget;
     private Mesh[] meshes;
+    /**
+     * Picks the triangle under the cursor among the meshes (null until some are loaded).
+     */
+    private RayCaster rayCaster;
+    private final RayHit hover = new RayHit();
+    private final Vector3d rayOrigin = new Vector3d();
+    private final Vector3d rayDirection = new Vector3d();
     private Camera camera;
-    private Stack<Long> previousFramesDuration;
+    private MeshLoader meshLoader;
+    private long lastMetricsRefresh;
+    private String[] overlayLines;
 
     @FXML
     private void initialize() {
@@ -61,12 +95,26 @@ public class GuiController {
         canvas.getGraphicsContext2D().fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
         rotation = false;
         selectedRender = Engine.RenderMode.SHADING;
-        previousFramesDuration = new Stack<>();
-        // Config 3d engine
-        engine = new Engine(canvas.getGraphicsContext2D());
+        overlayLines = new String[0];
+        // Config 3d engine: it renders on its own thread, and the frames are shown on the application thread
+        int width = (int) canvas.getWidth();
+        int height = (int) canvas.getHeight();
+        canvasTarget = new CanvasRenderTarget(canvas.getGraphicsContext2D());
+        frameExchange = new FrameExchange(width, height, 3);
+        engine = new Engine(frameExchange, width, height);
+        engine.setTiledRendering(Runtime.getRuntime().availableProcessors() > 1);
+        renderLoop = new RenderLoop(engine);
+        renderLoop.start();
+        try {
+            engine.getMetrics().register("gui");
+        } catch (JMException e) {
+            logger.warn("Render metrics not published through JMX.", e);
+        }
         meshes = new Mesh[0];
+        meshLoader = new MeshLoader();
         camera = new Camera(new Vector3d(0, 0, 10), new Vector3d(0, 0, 0));
         setupRenderingLoop();
+        canvas.setOnMouseMoved(this::handleHover);
         status.setText("Ready! Open mesh...");
     }
 
@@ -74,8 +122,10 @@ public class GuiController {
     private void handleOpenMesh() {
         Stage primaryStage = (Stage) canvas.getScene().getWindow();
         FileChooser fileChooser = new FileChooser();
-        fileChooser.getExtensionFilters().add(
-                new FileChooser.ExtensionFilter("JSON (*.json;*.babylon)", "*.json", "*.babylon"));
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("JSON (*.json;*.babylon)", "*.json", "*.babylon"),
+                new FileChooser.ExtensionFilter("Binary mesh (*" + BinaryMeshFile.EXTENSION + ")",
+                        "*" + BinaryMeshFile.EXTENSION));
         fileChooser.setInitialDirectory(new File(System.getProperty("user.home")));
         fileChooser.setTitle("Open mesh...");
         File f = fileChooser.showOpenDialog(primaryStage);
@@ -130,6 +180,12 @@ public class GuiController {
         }
     }
 
+    @FXML
+    private void handleToggleMetricsOverlay() {
+        // Show the current values right away
+        lastMetricsRefresh = 0;
+    }
+
     @FXML
     private void handleSelectRender() {
         for (Toggle t : render.getToggles()) {
@@ -150,6 +206,40 @@ public class GuiController {
         }
     }
 
+    @FXML
+    private void handleSelectRasterizer() {
+        for (Toggle t : rasterizer.getToggles()) {
+            if (t.isSelected()) {
+                switch (((RadioMenuItem) t).getText()) {
+                    case "Scanline":
+                        renderLoop.execute(() -> engine.setRasterizer(Engine.Rasterizer.SCANLINE));
+                        break;
+                    case "Edge function":
+                        renderLoop.execute(() -> engine.setRasterizer(Engine.Rasterizer.EDGE_FUNCTION));
+                        break;
+                }
+                break;
+            }
+        }
+    }
+
+    @FXML
+    private void handleSelectTextureFilter() {
+        for (Toggle t : textureFilter.getToggles()) {
+            if (t.isSelected()) {
+                switch (((RadioMenuItem) t).getText()) {
+                    case "Nearest":
+                        renderLoop.execute(() -> engine.setTextureFilter(Texture.Filter.NEAREST));
+                        break;
+                    case "Bilinear":
+                        renderLoop.execute(() -> engine.setTextureFilter(Texture.Filter.BILINEAR));
+                        break;
+                }
+                break;
+            }
+        }
+    }
+
     @FXML
     private void handleCameraUp() {
         camera.getPosition().y -= 0.05;
@@ -188,7 +278,15 @@ public class GuiController {
 
     @FXML
     private void handleExit() {
-        tl.stop();
+        displayLoop.stop();
+        meshLoader.shutdown();
+        renderLoop.stop();
+        engine.shutdown();
+        try {
+            engine.getMetrics().unregister();
+        } catch (JMException e) {
+            logger.warn("Error unregistering render metrics.", e);
+        }
         System.exit(0);
     }
 
@@ -201,59 +299,134 @@ public class GuiController {
         alert.showAndWait();
     }
 
+    /**
+     * Load the meshes of a file in the background. The current meshes are rendered until the new ones are ready.
+     */
     private void addMeshesFromFile(String file, boolean external) {
-        InputStream in = null;
-        if(external) {
-            try {
-                in= new FileInputStream(file);
-            } catch (FileNotFoundException e) {
-                logger.error("Error loading file.", e);
+        meshLoader.load(file, external, status::setText, (loadedMeshes, loadedRayCaster) -> {
+            Mesh[] previousMeshes = meshes;
+            // Swapped on the application thread, so a frame never sees a partially loaded file
+            meshes = loadedMeshes;
+            rayCaster = loadedRayCaster;
+            // The pending state still draws the previous meshes: replace it before they are disposed
+            renderLoop.submit(new FrameState(camera, meshes, selectedRender));
+            // Textures no longer used can be evicted from the cache, once the render thread is done with them
+            renderLoop.execute(() -> {
+                for (Mesh mesh : previousMeshes) {
+                    mesh.dispose();
+                }
+            });
+            status.setText(file + " loaded!");
+            // Percentiles of the new meshes only
+            engine.getMetrics().reset();
+            // Start rotation and reset camera
+            if(!rotation) {
+                handlePlay();
             }
-        } else {
-            in = getClass().getResourceAsStream(file);
+            camera = new Camera(new Vector3d(0, 0, 10), new Vector3d(0, 0, 0));
+        }, error -> {
+            logger.error("Error loading file.", error);
+            status.setText("Error loading " + file);
+        });
+    }
+
+    /**
+     * Show the triangle under the cursor. The meshes only move on the application thread, so updating the
+     * caster here is enough to follow them.
+     */
+    private void handleHover(MouseEvent event) {
+        if (rayCaster == null) {
+            return;
         }
-        meshes = FileUtils.parseMeshFromJSON(in);
-        status.setText(file + " loaded!");
-        // Start rendering loop, start rotation and reset camera
-        tl.play();
-        if(!rotation) {
-            handlePlay();
+        rayCaster.update();
+        engine.computeRay(camera, event.getX(), event.getY(), rayOrigin, rayDirection);
+        if (rayCaster.castRay(rayOrigin, rayDirection, hover)) {
+            status.setText("Mesh " + hover.getMeshIndex() + ": " + hover);
+        } else {
+            status.setText("");
         }
-        camera = new Camera(new Vector3d(0, 0, 10), new Vector3d(0, 0, 0));
     }
 
     private void setupRenderingLoop() {
-        // Rendering loop (60hz)
-        tl = new Timeline();
-        tl.setCycleCount(Animation.INDEFINITE);
-        KeyFrame frame = new KeyFrame(Duration.millis(16), event -> {
-            //  Update the various position & rotation values of our meshes
-            if(rotation) {
-                for (Mesh mesh : meshes) {
-                    mesh.getRotation().x += 0.01;
-                    mesh.getRotation().y += 0.01;
+        // Runs on every pulse of the application thread (60hz): it only shows the last frame finished
+        // by the render thread and hands it the state of the next one, so slow frames do not block the input
+        displayLoop = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                FrameBuffer frame = frameExchange.acquire();
+                if (frame != null) {
+                    canvasTarget.present(frame);
+                    // Update fps info and metrics overlay
+                    handleMetrics();
+                }
+                //  Update the various position & rotation values of our meshes
+                if (rotation && lastPulse != 0) {
+                    double angle = ROTATION_SPEED * (now - lastPulse) / 1e9;
+                    for (Mesh mesh : meshes) {
+                        mesh.getRotation().x += angle;
+                        mesh.getRotation().y += angle;
+                    }
+                }
+                lastPulse = now;
+                // Snapshot of the scene for the next frame
+                if (meshes.length > 0) {
+                    renderLoop.submit(new FrameState(camera, meshes, selectedRender));
                 }
             }
-            // Draw frame
-            engine.draw(camera, meshes, selectedRender);
-            // Update fps info
-            handleMetrics();
-        });
-        tl.getKeyFrames().add(frame);
+        };
+        displayLoop.start();
     }
 
     /**
-     * Compute the average FPS on 60 samples.
+     * Show the frame rate and, if enabled, draw the metrics overlay over the frame.
      */
     private void handleMetrics() {
-        previousFramesDuration.push(System.currentTimeMillis());
-        if(previousFramesDuration.size() == 60) {
-            // Calculate average of last 60 samples
-            long sum = 0;
-            for(int i = 0; i < 30; i++) {
-                sum += previousFramesDuration.pop() - previousFramesDuration.pop();
+        RenderMetrics metrics = engine.getMetrics();
+        long now = System.currentTimeMillis();
+        if (now - lastMetricsRefresh >= METRICS_REFRESH) {
+            lastMetricsRefresh = now;
+            fps.setText(Long.toString(Math.round(metrics.getFramesPerSecond())));
+            if (metricsOverlay.isSelected()) {
+                overlayLines = formatMetrics(metrics);
             }
-            fps.setText(Long.toString(Math.round(1 / ((sum / 30.0) / 1000.0))));
+        }
+        if (metricsOverlay.isSelected()) {
+            drawOverlay(canvas.getGraphicsContext2D());
+        }
+    }
+
+    private static String[] formatMetrics(RenderMetrics metrics) {
+        return new String[]{
+                String.format("fps %.1f  frames %d", metrics.getFramesPerSecond(), metrics.getFrameCount()),
+                String.format("frame     p50 %6.2f  p99 %6.2f  max %6.2f ms", metrics.getFrameTimeP50(),
+                        metrics.getFrameTimeP99(), metrics.getFrameTimeMax()),
+                formatStage(metrics, RenderMetrics.Stage.CLEAR, "clear"),
+                formatStage(metrics, RenderMetrics.Stage.TRANSFORM, "transform"),
+                formatStage(metrics, RenderMetrics.Stage.RASTER, "raster"),
+                formatStage(metrics, RenderMetrics.Stage.PRESENT, "present"),
+                String.format("triangles %d submitted  %d culled  %d rasterized  %d occluded",
+                        metrics.getLastCount(RenderMetrics.Counter.TRIANGLES_SUBMITTED),
+                        metrics.getLastCount(RenderMetrics.Counter.TRIANGLES_CULLED),
+                        metrics.getLastCount(RenderMetrics.Counter.TRIANGLES_RASTERIZED),
+                        metrics.getLastCount(RenderMetrics.Counter.TRIANGLES_OCCLUDED)),
+                String.format("pixels    %d shaded  %d depth rejected",
+                        metrics.getLastCount(RenderMetrics.Counter.PIXELS_SHADED),
+                        metrics.getLastCount(RenderMetrics.Counter.PIXELS_DEPTH_REJECTED))
+        };
+    }
+
+    private static String formatStage(RenderMetrics metrics, RenderMetrics.Stage stage, String name) {
+        return String.format("%-9s p50 %6.2f  p99 %6.2f ms", name, metrics.getPercentile(stage, 50),
+                metrics.getPercentile(stage, 99));
+    }
+
+    private void drawOverlay(GraphicsContext gc) {
+        gc.setFill(Color.rgb(0, 0, 0, 0.6));
+        gc.fillRect(5, 5, 400, 8 + 14 * overlayLines.length);
+        gc.setFill(Color.WHITE);
+        gc.setFont(OVERLAY_FONT);
+        for (int i = 0; i < overlayLines.length; i++) {
+            gc.fillText(overlayLines[i], 10, 19 + 14 * i);
         }
     }
 }
@@ -0,0 +1,253 @@
+package com.davidmiguel.engine_3d.view;
+
+import com.davidmiguel.engine_3d.meshes.Mesh;
+import com.davidmiguel.engine_3d.scene.RayCaster;
+import com.davidmiguel.engine_3d.utils.BinaryMeshFile;
+import com.davidmiguel.engine_3d.utils.FileUtils;
+import com.davidmiguel.engine_3d.utils.LodBuilder;
+import javafx.concurrent.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Loads meshes in the background, so the JavaFX application thread (and the rendering loop) never waits
+ * for the I/O, the parsing, the decoding of the textures or the trees of the ray caster.
+ * <p>
+ * Only the last requested load is delivered: starting a new one cancels the one in progress.
+ * All the callbacks run on the JavaFX application thread.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+class MeshLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(MeshLoader.class);
+
+    private final ExecutorService executor;
+    /**
+     * Load in progress (only accessed from the JavaFX application thread).
+     */
+    private LoadTask current;
+
+    MeshLoader() {
+        this.executor = newExecutor();
+    }
+
+    /**
+     * Load the meshes of a file, cancelling the load in progress (if any).
+     *
+     * @param file     path of the file (babylon json or binary mesh file)
+     * @param external whether the file is in the file system (otherwise it is a classpath resource)
+     * @param onStatus receives the progress messages
+     * @param onLoaded receives the meshes once they are completely loaded, and a ray caster over them
+     * @param onError  receives the error if the load fails
+     */
+    void load(String file, boolean external, Consumer<String> onStatus, BiConsumer<Mesh[], RayCaster> onLoaded,
+              Consumer<Throwable> onError) {
+        cancel();
+        LoadTask task = new LoadTask(file, external);
+        task.messageProperty().addListener((observable, oldMessage, message) -> onStatus.accept(message));
+        task.setOnSucceeded(event -> {
+            if (current != task) {
+                // Superseded by a newer load after it had already finished (too late to cancel it)
+                task.dispose();
+                return;
+            }
+            current = null;
+            Mesh[] meshes = task.takeMeshes();
+            if (meshes != null) {
+                onLoaded.accept(meshes, task.rayCaster);
+            }
+        });
+        task.setOnFailed(event -> {
+            if (current == task) {
+                current = null;
+            }
+            onError.accept(task.getException());
+        });
+        current = task;
+        executor.execute(task);
+    }
+
+    /**
+     * Cancel the load in progress (if any). Its meshes are discarded.
+     */
+    void cancel() {
+        if (current != null) {
+            current.cancel();
+            current = null;
+        }
+    }
+
+    /**
+     * Cancel the load in progress and stop the background threads.
+     */
+    void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Virtual threads if the JDK supports them (21+), otherwise a pool of daemon threads.
+     * Looked up with reflection, so the code still compiles for Java 8.
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.debug("Virtual threads not available, using platform threads to load meshes.");
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "mesh-loader");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static class LoadTask extends Task<Mesh[]> {
+
+        private final String file;
+        private final boolean external;
+        private final String name;
+        /**
+         * Meshes loaded, until they are delivered or disposed (whoever takes them first).
+         */
+        private final AtomicReference<Mesh[]> meshes;
+        private volatile RayCaster rayCaster;
+
+        LoadTask(String file, boolean external) {
+            this.file = file;
+            this.external = external;
+            this.name = Paths.get(file).getFileName().toString();
+            this.meshes = new AtomicReference<>();
+        }
+
+        @Override
+        protected Mesh[] call() throws Exception {
+            updateMessage("Loading " + name + "...");
+            Mesh[] loaded;
+            if (external && file.endsWith(BinaryMeshFile.EXTENSION)) {
+                loaded = FileUtils.parseMeshFromBinary(Paths.get(file));
+            } else {
+                try (InputStream in = open()) {
+                    loaded = FileUtils.parseMeshFromJSON(in);
+                }
+            }
+            meshes.set(loaded);
+            if (!isCancelled()) {
+                updateMessage("Building levels of detail of " + name + "...");
+                new LodBuilder().build(loaded);
+            }
+            if (!isCancelled()) {
+                updateMessage("Building ray caster of " + name + "...");
+                rayCaster = new RayCaster(loaded);
+            }
+            if (isCancelled()) {
+                // Cancelled while loading: nobody will take them
+                dispose();
+                return null;
+            }
+            return loaded;
+        }
+
+        @Override
+        protected void cancelled() {
+            dispose();
+        }
+
+        /**
+         * Get the loaded meshes, or null if they have been disposed.
+         */
+        Mesh[] takeMeshes() {
+            return meshes.getAndSet(null);
+        }
+
+        /**
+         * Release the textures of the loaded meshes.
+         */
+        private void dispose() {
+            Mesh[] loaded = takeMeshes();
+            if (loaded != null) {
+                for (Mesh mesh : loaded) {
+                    mesh.dispose();
+                }
+            }
+        }
+
+        private InputStream open() throws IOException {
+            if (external) {
+                Path path = Paths.get(file);
+                return new ProgressInputStream(Files.newInputStream(path), Files.size(path));
+            }
+            InputStream in = MeshLoader.class.getResourceAsStream(file);
+            if (in == null) {
+                throw new FileNotFoundException(file);
+            }
+            return new ProgressInputStream(in, -1);
+        }
+
+        /**
+         * Reports the bytes read as the progress of the task, and stops the parsing when the task is cancelled.
+         */
+        private class ProgressInputStream extends FilterInputStream {
+
+            private final long size;
+            private long read;
+
+            ProgressInputStream(InputStream in, long size) {
+                super(in);
+                this.size = size;
+            }
+
+            @Override
+            public int read() throws IOException {
+                checkCancelled();
+                int b = super.read();
+                if (b >= 0) {
+                    progress(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                checkCancelled();
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    progress(n);
+                }
+                return n;
+            }
+
+            private void checkCancelled() throws InterruptedIOException {
+                if (isCancelled()) {
+                    throw new InterruptedIOException("Load of " + name + " cancelled.");
+                }
+            }
+
+            private void progress(int bytes) {
+                read += bytes;
+                if (size > 0) {
+                    updateProgress(read, size);
+                    updateMessage(String.format("Loading %s... %d%%", name, 100 * read / size));
+                } else {
+                    updateMessage(String.format("Loading %s... %d KB", name, read / 1024));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.davidmiguel.engine_3d.engine;
+
+import com.davidmiguel.engine_3d.meshes.Mesh;
+import com.davidmiguel.engine_3d.utils.FileUtils;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.vecmath.Vector3d;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Once warm, drawing a frame must not allocate (the garbage of every frame ends up as GC pauses).
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+public class EngineAllocationTest {
+
+    private static final int WIDTH = 900;
+    private static final int HEIGHT = 550;
+    private static final int WARM_UP_FRAMES = 200;
+    private static final int FRAMES = 300;
+    /**
+     * Bytes per frame tolerated on average (less than the smallest object allocated on every frame), for the
+     * allocations of the JVM itself while measuring (e.g. the compilation of a method).
+     */
+    private static final long BYTES_PER_FRAME = 8;
+
+    private com.sun.management.ThreadMXBean threads;
+    private Engine engine;
+    private Camera camera;
+
+    @Before
+    public void setUp() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        engine = new Engine(new ImageRenderTarget(WIDTH, HEIGHT), WIDTH, HEIGHT);
+        engine.setTiledRendering(false);
+        camera = new Camera(new Vector3d(0, 0, 10), new Vector3d(0, 0, 0));
+    }
+
+    @After
+    public void tearDown() {
+        if (engine != null) {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void wireframeFrameDoesNotAllocate() {
+        assertNoAllocation("Suzanne", Engine.RenderMode.WIREFRAME);
+    }
+
+    @Test
+    public void shadingFrameDoesNotAllocate() {
+        assertNoAllocation("Suzanne", Engine.RenderMode.SHADING);
+    }
+
+    @Test
+    public void textureFrameDoesNotAllocate() {
+        assertNoAllocation("Suzanne", Engine.RenderMode.TEXTURE);
+    }
+
+    @Test
+    public void clippedFrameDoesNotAllocate() {
+        // Camera within the ring of the torus: many triangles cross the borders of the screen or the near plane
+        camera = new Camera(new Vector3d(0, 0, 1), new Vector3d(0, 0, 0));
+        assertNoAllocation("Torus", Engine.RenderMode.SHADING);
+    }
+
+    private void assertNoAllocation(String name, Engine.RenderMode mode) {
+        Mesh[] meshes = FileUtils.parseMeshFromJSON(getClass().getResourceAsStream("/meshes/" + name + ".json"));
+        for (int frame = 0; frame < WARM_UP_FRAMES; frame++) {
+            drawFrame(meshes, mode);
+        }
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int frame = 0; frame < FRAMES; frame++) {
+            drawFrame(meshes, mode);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        assertTrue(name + " in " + mode + " allocated " + allocated + " bytes in " + FRAMES + " frames",
+                allocated <= BYTES_PER_FRAME * FRAMES);
+    }
+
+    private void drawFrame(Mesh[] meshes, Engine.RenderMode mode) {
+        for (Mesh mesh : meshes) {
+            mesh.getRotation().x += 0.01;
+            mesh.getRotation().y += 0.01;
+        }
+        engine.draw(camera, meshes, mode);
+    }
+}
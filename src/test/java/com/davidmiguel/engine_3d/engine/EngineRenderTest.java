@@ -0,0 +1,231 @@
+package com.davidmiguel.engine_3d.engine;
+
+import com.davidmiguel.engine_3d.meshes.Mesh;
+import com.davidmiguel.engine_3d.utils.FileUtils;
+import org.junit.Test;
+
+import javax.vecmath.Vector3d;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Frames drawn with different options of the {@link Engine}, compared pixel by pixel.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+public class EngineRenderTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 200;
+    private static final String[] MESHES = {"Cube", "UVSphere", "ICOSphere", "Cylinder", "Cone", "Torus", "Suzanne"};
+
+    @Test
+    public void tiledFrameMatchesUntiledFrame() {
+        Mesh[] meshes = meshes();
+        for (Engine.RenderMode mode : Engine.RenderMode.values()) {
+            for (Camera camera : cameras()) {
+                int[] expected = draw(meshes, camera, mode, engine -> engine.setTiledRendering(false));
+                assertTrue("Nothing drawn", IntStream.of(expected).distinct().count() > 1);
+                // Tiles that are not a multiple of the depth blocks, and tiles drawn by a single thread
+                for (int tileSize : new int[]{64, 20}) {
+                    for (int threads : new int[]{4, 1}) {
+                        int[] tiled = draw(meshes, camera, mode, engine -> {
+                            engine.setTiledRendering(true);
+                            engine.setTileSize(tileSize);
+                            engine.setThreads(threads);
+                        });
+                        assertArrayEquals(mode + ", tiles of " + tileSize + ", " + threads + " threads",
+                                expected, tiled);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rasterizersDrawEveryPixelOnce() {
+        Camera camera = cameras()[0];
+        for (Engine.Rasterizer rasterizer : Engine.Rasterizer.values()) {
+            for (int i = 0; i < 10; i++) {
+                // Every triangle of a fan shares its sides with its neighbours
+                Mesh fan = fan(13 + 7 * i, 0.37 * i - 1.3, 0.11 * i - 0.4, 0.2 * i, 0.25 * i);
+                ImageRenderTarget target = new ImageRenderTarget(WIDTH, HEIGHT);
+                Engine engine = new Engine(target, WIDTH, HEIGHT);
+                engine.setRasterizer(rasterizer);
+                engine.draw(camera, new Mesh[]{fan}, Engine.RenderMode.SHADING);
+                long covered = IntStream.of(target.getPixels()).filter(argb -> argb != FrameBuffer.BLACK).count();
+                assertTrue("Nothing drawn", covered > 0);
+                // No pixel on a shared side is drawn twice, nor rejected by the depth test after the first time
+                assertEquals(rasterizer + ", fan " + i, covered, engine.getMetrics().getPixelsShaded());
+                assertEquals(0, engine.getMetrics().getPixelsDepthRejected());
+            }
+        }
+    }
+
+    @Test
+    public void rasterizersCoverTheSamePixels() {
+        Mesh[] fans = new Mesh[12];
+        for (int i = 0; i < fans.length; i++) {
+            fans[i] = fan(9 + 4 * i, (i % 4 - 1.5) * 2.2, (i / 4 - 1) * 1.6, (i % 3) * 1.5, 0.3 * i);
+        }
+        for (Camera camera : cameras()) {
+            int[] scanline = draw(fans, camera, Engine.RenderMode.SHADING,
+                    engine -> engine.setRasterizer(Engine.Rasterizer.SCANLINE));
+            int[] edgeFunction = draw(fans, camera, Engine.RenderMode.SHADING,
+                    engine -> engine.setRasterizer(Engine.Rasterizer.EDGE_FUNCTION));
+            assertTrue("Nothing drawn", IntStream.of(scanline).distinct().count() > 1);
+            // The scan-line algorithm does not sample the centers of the pixels, so the outlines can differ
+            // by a pixel, but never the inside of the triangles
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    boolean covered = scanline[y * WIDTH + x] != FrameBuffer.BLACK;
+                    if (covered != (edgeFunction[y * WIDTH + x] != FrameBuffer.BLACK)) {
+                        assertTrue("Pixel " + x + "," + y, isOutline(scanline, x, y, covered));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void occlusionCullingDoesNotChangeTheFrame() {
+        Mesh[] grid = grid(400);
+        Camera camera = new Camera(new Vector3d(0, 1, -8), new Vector3d(0, -1, 10));
+        for (Engine.RenderMode mode : new Engine.RenderMode[]{Engine.RenderMode.SHADING, Engine.RenderMode.TEXTURE}) {
+            for (boolean tiled : new boolean[]{false, true}) {
+                long[] occluded = new long[1];
+                int[] culled = draw(grid, camera, mode, engine -> {
+                    engine.setTiledRendering(tiled);
+                    engine.setOcclusionCulling(true);
+                }, engine -> occluded[0] = engine.getMetrics().getTrianglesOccluded());
+                int[] drawn = draw(grid, camera, mode, engine -> {
+                    engine.setTiledRendering(tiled);
+                    engine.setOcclusionCulling(false);
+                });
+                assertTrue("Nothing drawn", IntStream.of(drawn).distinct().count() > 1);
+                // The rows behind the first ones are hidden
+                assertTrue("Nothing occluded", occluded[0] > 0);
+                assertArrayEquals(mode + ", tiled: " + tiled, drawn, culled);
+            }
+        }
+        Mesh[] meshes = meshes();
+        for (Camera other : cameras()) {
+            int[] drawn = draw(meshes, other, Engine.RenderMode.TEXTURE, engine -> engine.setOcclusionCulling(false));
+            int[] culled = draw(meshes, other, Engine.RenderMode.TEXTURE, engine -> engine.setOcclusionCulling(true));
+            assertArrayEquals(drawn, culled);
+        }
+    }
+
+    private static int[] draw(Mesh[] meshes, Camera camera, Engine.RenderMode mode, Consumer<Engine> setup) {
+        return draw(meshes, camera, mode, setup, engine -> {
+        });
+    }
+
+    /**
+     * Draw a frame with a new engine.
+     *
+     * @param setup options of the engine
+     * @param drawn receives the engine once the frame is drawn (e.g. to read its metrics)
+     */
+    private static int[] draw(Mesh[] meshes, Camera camera, Engine.RenderMode mode, Consumer<Engine> setup,
+                              Consumer<Engine> drawn) {
+        ImageRenderTarget target = new ImageRenderTarget(WIDTH, HEIGHT);
+        Engine engine = new Engine(target, WIDTH, HEIGHT);
+        try {
+            setup.accept(engine);
+            engine.draw(camera, meshes, mode);
+            drawn.accept(engine);
+            return target.getPixels().clone();
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    /**
+     * Whether a pixel has a neighbour (or is next to the border of the screen) that is not covered
+     * like itself.
+     */
+    private static boolean isOutline(int[] pixels, int x, int y, boolean covered) {
+        for (int j = y - 1; j <= y + 1; j++) {
+            for (int i = x - 1; i <= x + 1; i++) {
+                if (i < 0 || j < 0 || i >= WIDTH || j >= HEIGHT
+                        || (pixels[j * WIDTH + i] != FrameBuffer.BLACK) != covered) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Flat ellipse made of triangles around its center, facing the light so no pixel is drawn black.
+     */
+    private static Mesh fan(int triangles, double x, double y, double z, double rotation) {
+        float[] positions = new float[3 * (triangles + 1)];
+        float[] normals = new float[3 * (triangles + 1)];
+        int[] indices = new int[3 * triangles];
+        for (int i = 0; i < triangles; i++) {
+            double angle = 2 * Math.PI * i / triangles;
+            positions[3 * i + 3] = (float) (2 * Math.cos(angle));
+            positions[3 * i + 4] = (float) (1.5 * Math.sin(angle));
+            indices[3 * i] = 0;
+            indices[3 * i + 1] = 1 + i;
+            indices[3 * i + 2] = 1 + (i + 1) % triangles;
+        }
+        for (int i = 0; i <= triangles; i++) {
+            normals[3 * i + 1] = 0.7f;
+            normals[3 * i + 2] = 0.7f;
+        }
+        Mesh mesh = new Mesh();
+        mesh.setGeometry(positions, normals, null, indices);
+        mesh.getPosition().set(x, y, z);
+        mesh.getRotation().set(0.2, 0.1, rotation);
+        return mesh;
+    }
+
+    /**
+     * Copies of Suzanne laid on a grid in front of the origin, all with different rotations.
+     */
+    private static Mesh[] grid(int count) {
+        Mesh suzanne = FileUtils.parseMeshFromJSON(
+                EngineRenderTest.class.getResourceAsStream("/meshes/Suzanne.json"))[0];
+        Mesh[] meshes = new Mesh[count];
+        int side = (int) Math.ceil(Math.sqrt(count));
+        for (int i = 0; i < count; i++) {
+            meshes[i] = new Mesh();
+            meshes[i].setGeometry(suzanne.getPositions(), suzanne.getNormals(), suzanne.getUvs(), suzanne.getIndices());
+            meshes[i].setTexture(suzanne.getTexture());
+            meshes[i].getPosition().set((i % side - side / 2) * 2.5, -1, (i / side) * 2.5);
+            meshes[i].getRotation().set(0, i * 0.1, 0);
+        }
+        return meshes;
+    }
+
+    /**
+     * The meshes of the resources in a row, overlapping each other from the cameras.
+     */
+    private static Mesh[] meshes() {
+        Mesh[] meshes = new Mesh[MESHES.length];
+        for (int i = 0; i < MESHES.length; i++) {
+            meshes[i] = FileUtils.parseMeshFromJSON(
+                    EngineRenderTest.class.getResourceAsStream("/meshes/" + MESHES[i] + ".json"))[0];
+            meshes[i].getPosition().set((i - 3) * 2.5, 0, (i % 3) * 2);
+            meshes[i].getRotation().set(0.3 * i, 0.5 * i, 0);
+        }
+        return meshes;
+    }
+
+    /**
+     * In front of the meshes, from a side and so close that some meshes cross the near plane.
+     */
+    private static Camera[] cameras() {
+        return new Camera[]{
+                new Camera(new Vector3d(0, 0, -12), new Vector3d(0, 0, 0)),
+                new Camera(new Vector3d(5, 4, -8), new Vector3d(0, 0, 2)),
+                new Camera(new Vector3d(-5, 0.5, -1), new Vector3d(-2, 0, 2))
+        };
+    }
+}
@@ -0,0 +1,183 @@
+package com.davidmiguel.engine_3d.engine;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Hand-over of frames between a render thread and a display thread by the {@link FrameExchange}, with triple and
+ * double buffering.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+public class FrameExchangeTest {
+
+    private static final int WIDTH = 16;
+    private static final int HEIGHT = 8;
+    private static final int FRAMES = 2000;
+    private static final long TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    @Test
+    public void nothingToAcquireBeforeTheFirstFrame() {
+        assertNull(new FrameExchange(WIDTH, HEIGHT, 3).acquire());
+        assertNull(new FrameExchange(WIDTH, HEIGHT, 2).acquire());
+    }
+
+    @Test
+    public void tripleBufferingHandsOverTheLastFrame() {
+        FrameExchange exchange = new FrameExchange(WIDTH, HEIGHT, 3);
+        exchange.present(frame(1));
+        assertFrame(1, exchange.acquire());
+        // Already taken
+        assertNull(exchange.acquire());
+        exchange.present(frame(2));
+        exchange.present(frame(3));
+        assertFrame(3, exchange.acquire());
+        assertEquals(1, exchange.getDroppedFrames());
+    }
+
+    @Test
+    public void acquiredFrameIsNotOverwritten() {
+        FrameExchange exchange = new FrameExchange(WIDTH, HEIGHT, 3);
+        exchange.present(frame(1));
+        FrameBuffer acquired = exchange.acquire();
+        // The render thread keeps rendering with the other two buffers
+        for (int i = 2; i < 10; i++) {
+            exchange.present(frame(i));
+        }
+        assertFrame(1, acquired);
+        assertFrame(9, exchange.acquire());
+    }
+
+    @Test
+    public void doubleBufferingWaitsForTheDisplay() throws InterruptedException {
+        FrameExchange exchange = new FrameExchange(WIDTH, HEIGHT, 2);
+        Thread render = new Thread(() -> {
+            exchange.present(frame(1));
+            exchange.present(frame(2));
+        });
+        render.start();
+        // The first frame waits until it is taken
+        waitUntilWaiting(render);
+        assertFrame(1, exchange.acquire());
+        assertFrame(2, awaitFrame(exchange));
+        render.join(TIMEOUT);
+        assertFalse(render.isAlive());
+        assertEquals(0, exchange.getDroppedFrames());
+    }
+
+    @Test
+    public void interruptedRenderThreadStopsWaiting() throws InterruptedException {
+        FrameExchange exchange = new FrameExchange(WIDTH, HEIGHT, 2);
+        Thread render = new Thread(() -> exchange.present(frame(1)));
+        render.start();
+        waitUntilWaiting(render);
+        render.interrupt();
+        render.join(TIMEOUT);
+        assertFalse(render.isAlive());
+        // The frame was published before waiting
+        assertFrame(1, exchange.acquire());
+    }
+
+    @Test
+    public void tripleBufferingShowsWholeFramesInOrder() throws InterruptedException {
+        int[] shown = exchangeFrames(new FrameExchange(WIDTH, HEIGHT, 3));
+        // Frames can be dropped, but never shown twice nor out of order
+        for (int i = 1; i < shown.length; i++) {
+            assertTrue(shown[i] > shown[i - 1]);
+        }
+        assertEquals(FRAMES, shown[shown.length - 1]);
+    }
+
+    @Test
+    public void doubleBufferingShowsEveryFrame() throws InterruptedException {
+        FrameExchange exchange = new FrameExchange(WIDTH, HEIGHT, 2);
+        int[] shown = exchangeFrames(exchange);
+        assertEquals(FRAMES, shown.length);
+        for (int i = 0; i < shown.length; i++) {
+            assertEquals(i + 1, shown[i]);
+        }
+        assertEquals(0, exchange.getDroppedFrames());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void singleBufferIsRejected() {
+        new FrameExchange(WIDTH, HEIGHT, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void frameOfAnotherSizeIsRejected() {
+        new FrameExchange(WIDTH, HEIGHT, 3).present(new FrameBuffer(WIDTH, HEIGHT + 1));
+    }
+
+    /**
+     * Present {@link #FRAMES} frames from a render thread while this thread acquires them, checking that
+     * no frame is torn.
+     *
+     * @return number of every frame acquired, in order
+     */
+    private static int[] exchangeFrames(FrameExchange exchange) throws InterruptedException {
+        Thread render = new Thread(() -> {
+            FrameBuffer frame = new FrameBuffer(WIDTH, HEIGHT);
+            for (int i = 1; i <= FRAMES; i++) {
+                Arrays.fill(frame.getPixels(), i);
+                exchange.present(frame);
+            }
+        });
+        render.start();
+        int[] shown = new int[FRAMES];
+        int count = 0;
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (count == 0 || shown[count - 1] != FRAMES) {
+            assertTrue("Frames not handed over in time", System.currentTimeMillis() < deadline);
+            FrameBuffer frame = exchange.acquire();
+            if (frame == null) {
+                Thread.yield();
+                continue;
+            }
+            int number = frame.getPixels()[0];
+            assertFrame(number, frame);
+            shown[count++] = number;
+        }
+        render.join(TIMEOUT);
+        return Arrays.copyOf(shown, count);
+    }
+
+    private static FrameBuffer awaitFrame(FrameExchange exchange) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        FrameBuffer frame;
+        while ((frame = exchange.acquire()) == null) {
+            assertTrue("Frame not handed over in time", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+        return frame;
+    }
+
+    private static void waitUntilWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (thread.getState() != Thread.State.WAITING) {
+            assertTrue("Render thread not waiting", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private static FrameBuffer frame(int number) {
+        FrameBuffer frame = new FrameBuffer(WIDTH, HEIGHT);
+        Arrays.fill(frame.getPixels(), number);
+        return frame;
+    }
+
+    /**
+     * Every pixel of the frame has the number of the frame (so it is not torn).
+     */
+    private static void assertFrame(int number, FrameBuffer frame) {
+        assertNotNull(frame);
+        for (int pixel : frame.getPixels()) {
+            assertEquals(number, pixel);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.davidmiguel.engine_3d.engine;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Buckets and percentiles of the {@link LatencyHistogram}.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * Relative precision of the buckets (1 / 128 sub-buckets).
+     */
+    private static final double PRECISION = 1.0 / 128;
+
+    @Test
+    public void bucketsAreContiguous() {
+        // Every bucket starts right after the previous one, up to the end of the long range
+        int bucket = 0;
+        assertEquals(0, LatencyHistogram.bucket(0));
+        while (LatencyHistogram.highestValue(bucket) != Long.MAX_VALUE) {
+            long next = LatencyHistogram.highestValue(bucket) + 1;
+            assertEquals("Bucket after " + (next - 1), bucket + 1, LatencyHistogram.bucket(next));
+            assertEquals(bucket, LatencyHistogram.bucket(next - 1));
+            bucket++;
+        }
+        assertEquals(bucket, LatencyHistogram.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void bucketsContainTheirValues() {
+        Random random = new Random(1);
+        long[] values = new long[10_000];
+        for (int i = 0; i < values.length; i++) {
+            // Uniform over the exponents, so every range of buckets is covered
+            values[i] = Long.MAX_VALUE >>> random.nextInt(63) & random.nextLong();
+        }
+        long[] edges = {0, 1, 127, 128, 255, 256, 257, 511, 512, 1 << 20, (1 << 20) - 1, Long.MAX_VALUE,
+                Long.MAX_VALUE - 1, Long.MAX_VALUE / 2, Long.MAX_VALUE / 2 + 1};
+        values = concat(values, edges);
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucket(value);
+            long highest = LatencyHistogram.highestValue(bucket);
+            long lowest = bucket == 0 ? 0 : LatencyHistogram.highestValue(bucket - 1) + 1;
+            assertTrue(value + " not in its bucket", lowest <= value && value <= highest);
+            // Reported with an error below the precision
+            assertTrue(value + " reported as " + highest, highest - value <= value * PRECISION);
+        }
+    }
+
+    @Test
+    public void percentilesOfUniformValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+        assertEquals(1000, histogram.getTotalCount());
+        assertEquals(1, histogram.getValueAtPercentile(0));
+        assertWithinPrecision(500, histogram.getValueAtPercentile(50));
+        assertWithinPrecision(900, histogram.getValueAtPercentile(90));
+        assertWithinPrecision(990, histogram.getValueAtPercentile(99));
+        assertEquals(1000, histogram.getValueAtPercentile(100));
+        assertEquals(1, histogram.getMin());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500.5, histogram.getMean(), 1e-9);
+    }
+
+    @Test
+    public void percentilesMatchSortedValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(2);
+        long[] values = new long[5000];
+        for (int i = 0; i < values.length; i++) {
+            // Frame times in nanoseconds, from 100 us to 100 ms
+            values[i] = 100_000 + (long) (random.nextDouble() * random.nextDouble() * 100_000_000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile : new double[]{1, 25, 50, 75, 90, 99, 99.9}) {
+            long expected = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            assertWithinPrecision(expected, histogram.getValueAtPercentile(percentile));
+        }
+    }
+
+    @Test
+    public void percentileIsNeverAboveTheMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        // 1000 shares its bucket with greater values
+        assertTrue(LatencyHistogram.highestValue(LatencyHistogram.bucket(1000)) > 1000);
+        assertEquals(1000, histogram.getValueAtPercentile(50));
+        assertEquals(1000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void emptyAndReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getMean(), 0);
+        histogram.record(-5);
+        assertEquals(0, histogram.getMax());
+        assertEquals(1, histogram.getTotalCount());
+        histogram.record(42);
+        histogram.reset();
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        assertEquals(0, histogram.getMax());
+    }
+
+    /**
+     * The percentiles are the upper bound of the bucket of the value: never below it, nor above by more
+     * than the precision.
+     */
+    private static void assertWithinPrecision(long expected, long actual) {
+        assertTrue(actual + " instead of " + expected,
+                actual >= expected && actual - expected <= expected * PRECISION);
+    }
+
+    private static long[] concat(long[] a, long[] b) {
+        long[] values = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, values, a.length, b.length);
+        return values;
+    }
+}
@@ -0,0 +1,60 @@
+package com.davidmiguel.engine_3d.meshes;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Geometry and bounds of a {@link Mesh}.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+public class MeshTest {
+
+    /**
+     * Two triangles of a square on the XY plane.
+     */
+    private static final float[] POSITIONS = {0, 0, 0, 2, 0, 0, 2, 2, 0, 0, 2, 0};
+    private static final float[] NORMALS = {0, 0, -1, 0, 0, -1, 0, 0, -1, 0, 0, -1};
+    private static final int[] INDICES = {0, 1, 2, 0, 2, 3};
+
+    @Test
+    public void geometryIsSet() {
+        Mesh mesh = new Mesh();
+        mesh.setGeometry(POSITIONS, NORMALS, null, INDICES);
+        assertEquals(4, mesh.getVertexCount());
+        assertEquals(2, mesh.getFaceCount());
+        assertEquals(2, mesh.getBoundsMax().x, 0);
+        assertEquals(2, mesh.getBoundsMax().y, 0);
+        assertEquals(Math.sqrt(2), mesh.getBoundingRadius(), 1e-12);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void indexPastTheLastVertexIsRejected() {
+        new Mesh().setGeometry(POSITIONS, NORMALS, null, new int[]{0, 1, 2, 0, 2, 4});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeIndexIsRejected() {
+        new Mesh().setGeometry(POSITIONS, NORMALS, null, new int[]{0, 1, -1});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void attributesOfDifferentSizesAreRejected() {
+        new Mesh().setGeometry(POSITIONS, NORMALS, new float[6], INDICES);
+    }
+
+    @Test
+    public void rejectedGeometryIsNotSet() {
+        Mesh mesh = new Mesh();
+        mesh.setGeometry(POSITIONS, NORMALS, null, INDICES);
+        try {
+            mesh.setGeometry(new float[9], new float[9], null, new int[]{0, 1, 3});
+            fail("Index out of range accepted");
+        } catch (IllegalArgumentException e) {
+            assertSame(INDICES, mesh.getIndices());
+            assertEquals(4, mesh.getVertexCount());
+        }
+    }
+}
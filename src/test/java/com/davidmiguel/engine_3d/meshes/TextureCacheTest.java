@@ -0,0 +1,171 @@
+package com.davidmiguel.engine_3d.meshes;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * Sharing, reference counting and least recently used eviction of the {@link TextureCache}.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+public class TextureCacheTest {
+
+    /**
+     * Size of the textures of the tests (every one is 8x8, with its mipmaps).
+     */
+    private static final long SIZE = newTexture().getSizeInBytes();
+
+    @Test
+    public void sameKeySharesTheTexture() {
+        TextureCache cache = new TextureCache(TextureCache.DEFAULT_BUDGET);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Texture> loader = () -> {
+            loads.incrementAndGet();
+            return newTexture();
+        };
+        Texture first = cache.acquire("a", loader);
+        Texture second = cache.acquire("a", loader);
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getReferenceCount("a"));
+        assertEquals(1, cache.size());
+        assertEquals(SIZE, cache.getSizeInBytes());
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() {
+        TextureCache cache = new TextureCache(2 * SIZE);
+        use(cache, "a");
+        use(cache, "b");
+        // "a" is used again, so "b" is now the least recently used
+        use(cache, "a");
+        use(cache, "c");
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertTrue(isCached(cache, "a"));
+        assertFalse(isCached(cache, "b"));
+        assertTrue(isCached(cache, "c"));
+        assertEquals(2 * SIZE, cache.getSizeInBytes());
+    }
+
+    @Test
+    public void referenceCountDoesNotChangeTheEvictionOrder() {
+        TextureCache cache = new TextureCache(2 * SIZE);
+        use(cache, "a");
+        use(cache, "b");
+        // A query, not a use: "a" stays the least recently used
+        assertEquals(0, cache.getReferenceCount("a"));
+        assertEquals(0, cache.getReferenceCount("missing"));
+        use(cache, "c");
+        assertEquals(0, cache.getReferenceCount("a"));
+        assertFalse(isCached(cache, "a"));
+        assertTrue(isCached(cache, "b"));
+    }
+
+    @Test
+    public void referencedTexturesAreNotEvicted() {
+        TextureCache cache = new TextureCache(SIZE);
+        Texture a = cache.acquire("a", TextureCacheTest::newTexture);
+        Texture b = cache.acquire("b", TextureCacheTest::newTexture);
+        // Over budget, but both are in use
+        assertEquals(2, cache.size());
+        assertEquals(2 * SIZE, cache.getSizeInBytes());
+        assertEquals(0, cache.getEvictionCount());
+        cache.release(a);
+        assertEquals(1, cache.size());
+        assertFalse(isCached(cache, "a"));
+        assertTrue(isCached(cache, "b"));
+        cache.release(b);
+        // Fits in the budget again
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void textureIsPinnedUntilEveryReferenceIsReleased() {
+        TextureCache cache = new TextureCache(0);
+        Texture first = cache.acquire("a", TextureCacheTest::newTexture);
+        Texture second = cache.acquire("a", TextureCacheTest::newTexture);
+        cache.release(first);
+        assertEquals(1, cache.getReferenceCount("a"));
+        assertEquals(1, cache.size());
+        cache.release(second);
+        assertEquals(0, cache.getReferenceCount("a"));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getSizeInBytes());
+    }
+
+    @Test
+    public void extraReleasesAreIgnored() {
+        TextureCache cache = new TextureCache(TextureCache.DEFAULT_BUDGET);
+        Texture texture = cache.acquire("a", TextureCacheTest::newTexture);
+        cache.release(texture);
+        cache.release(texture);
+        cache.release(newTexture());
+        assertEquals(0, cache.getReferenceCount("a"));
+        // The next acquire pins it again
+        assertSame(texture, cache.acquire("a", TextureCacheTest::newTexture));
+        assertEquals(1, cache.getReferenceCount("a"));
+    }
+
+    @Test
+    public void smallerBudgetEvictsUnusedTextures() {
+        TextureCache cache = new TextureCache(TextureCache.DEFAULT_BUDGET);
+        use(cache, "a");
+        use(cache, "b");
+        Texture c = cache.acquire("c", TextureCacheTest::newTexture);
+        cache.setBudget(0);
+        assertEquals(1, cache.size());
+        assertTrue(isCached(cache, "c"));
+        cache.release(c);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void clearKeepsTexturesInUse() {
+        TextureCache cache = new TextureCache(TextureCache.DEFAULT_BUDGET);
+        use(cache, "a");
+        cache.acquire("b", TextureCacheTest::newTexture);
+        cache.clear();
+        assertEquals(1, cache.size());
+        assertTrue(isCached(cache, "b"));
+        assertEquals(SIZE, cache.getSizeInBytes());
+    }
+
+    @Test
+    public void failedLoadIsNotCached() {
+        TextureCache cache = new TextureCache(TextureCache.DEFAULT_BUDGET);
+        assertNull(cache.acquire("a", () -> null));
+        assertEquals(0, cache.size());
+        assertNotNull(cache.acquire("a", TextureCacheTest::newTexture));
+    }
+
+    /**
+     * Acquire and release a texture.
+     */
+    private static void use(TextureCache cache, String key) {
+        cache.release(cache.acquire(key, TextureCacheTest::newTexture));
+    }
+
+    /**
+     * Whether a texture is cached (acquired with a loader that loads nothing). It counts as a use of it.
+     */
+    private static boolean isCached(TextureCache cache, String key) {
+        long misses = cache.getMissCount();
+        Texture texture = cache.acquire(key, () -> null);
+        if (texture != null) {
+            cache.release(texture);
+        }
+        return cache.getMissCount() == misses;
+    }
+
+    private static Texture newTexture() {
+        return new Texture(new int[8 * 8], 8, 8);
+    }
+}
@@ -0,0 +1,54 @@
+package com.davidmiguel.engine_3d.meshes;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Resampling and mipmaps of a {@link Texture}.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+public class TextureTest {
+
+    @Test
+    public void sidesAreResampledToPowersOfTwo() {
+        int[] argb = new int[3 * 5];
+        for (int i = 0; i < argb.length; i++) {
+            argb[i] = 0xFF000000 | i;
+        }
+        Texture texture = new Texture(argb, 3, 5);
+        assertEquals(4, texture.getWidth(0));
+        assertEquals(8, texture.getHeight(0));
+        // Down to 1x1
+        assertEquals(4, texture.getLevelCount());
+        assertEquals(1, texture.getWidth(3));
+        assertEquals(1, texture.getHeight(3));
+        // The corners keep their texels
+        assertEquals(argb[0], texture.map(0, 0));
+        assertEquals(argb[argb.length - 1], texture.map(0.99, 0.99));
+    }
+
+    @Test
+    public void singleTexel() {
+        Texture texture = new Texture(new int[]{0xFF123456}, 1, 1);
+        assertEquals(1, texture.getLevelCount());
+        assertEquals(0xFF123456, texture.map(0.7, 0.2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyImageIsRejected() {
+        new Texture(new int[0], 0, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeSizeIsRejected() {
+        new Texture(new int[4], -2, -2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingTexelsAreRejected() {
+        new Texture(new int[3], 2, 2);
+    }
+}
@@ -0,0 +1,211 @@
+package com.davidmiguel.engine_3d.scene;
+
+import com.davidmiguel.engine_3d.utils.MathUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Vector3d;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Queries of the {@link BoundingVolumeTree} against brute force over the boxes of the proxies, while proxies
+ * are added, moved and removed.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+public class BoundingVolumeTreeTest {
+
+    private static final int PROXIES = 2000;
+    private static final int QUERIES = 200;
+    /**
+     * Side of the cube where the boxes are placed.
+     */
+    private static final double WORLD = 100;
+
+    private Random random;
+    private BoundingVolumeTree<Integer> tree;
+    /**
+     * Proxy of every object (-1 once removed).
+     */
+    private int[] proxies;
+
+    @Before
+    public void setUp() {
+        random = new Random(7);
+        tree = new BoundingVolumeTree<>();
+        proxies = new int[PROXIES];
+        for (int i = 0; i < PROXIES; i++) {
+            proxies[i] = tree.createProxy(randomBox(), 0, i);
+        }
+    }
+
+    @Test
+    public void proxiesKeepTheirObjectsAndBoxes() {
+        double[] box = {1, 2, 3, 4, 5, 6};
+        int proxy = tree.createProxy(box, 0, -1);
+        assertEquals(Integer.valueOf(-1), tree.getObject(proxy));
+        assertEquals(PROXIES + 1, tree.getProxyCount());
+        // The box of the proxy is enlarged
+        double[] boxes = tree.getBoxes();
+        int offset = tree.getBoxOffset(proxy);
+        for (int axis = 0; axis < 3; axis++) {
+            assertTrue(boxes[offset + axis] <= box[axis]);
+            assertTrue(boxes[offset + 3 + axis] >= box[3 + axis]);
+        }
+    }
+
+    @Test
+    public void treeIsBalanced() {
+        // A degenerate tree would be as high as the number of proxies
+        assertTrue("Height " + tree.getHeight(), tree.getHeight() <= 2 * log2(PROXIES));
+    }
+
+    @Test
+    public void rayQueriesMatchBruteForce() {
+        for (int q = 0; q < QUERIES; q++) {
+            assertRayQuery();
+        }
+    }
+
+    @Test
+    public void frustumQueriesMatchBruteForce() {
+        for (int q = 0; q < QUERIES; q++) {
+            assertFrustumQuery();
+        }
+    }
+
+    @Test
+    public void queriesMatchBruteForceAfterChanges() {
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < PROXIES; i++) {
+                if (proxies[i] < 0) {
+                    continue;
+                }
+                double action = random.nextDouble();
+                if (action < 0.05) {
+                    tree.destroyProxy(proxies[i]);
+                    proxies[i] = -1;
+                } else if (action < 0.5) {
+                    tree.moveProxy(proxies[i], randomBox(), 0);
+                }
+            }
+            for (int q = 0; q < QUERIES / 10; q++) {
+                assertRayQuery();
+                assertFrustumQuery();
+            }
+        }
+        assertEquals(countProxies(), tree.getProxyCount());
+        assertTrue("Height " + tree.getHeight(), tree.getHeight() <= 2 * log2(tree.getProxyCount()));
+    }
+
+    @Test
+    public void smallMovesDoNotChangeTheTree() {
+        double[] box = {10, 10, 10, 12, 12, 12};
+        int proxy = tree.createProxy(box, 0, -1);
+        double[] moved = {10.05, 10, 10, 12.05, 12, 12};
+        assertFalse(tree.moveProxy(proxy, moved, 0));
+        double[] far = {50, 50, 50, 52, 52, 52};
+        assertTrue(tree.moveProxy(proxy, far, 0));
+    }
+
+    @Test
+    public void emptyTree() {
+        BoundingVolumeTree<Integer> empty = new BoundingVolumeTree<>();
+        List<Integer> result = new ArrayList<>();
+        empty.query(0, 0, 0, 1, 1, 1, Double.POSITIVE_INFINITY, result);
+        assertTrue(result.isEmpty());
+        assertEquals(0, empty.getHeight());
+    }
+
+    /**
+     * Compare a random ray query (half of them unlimited) with the boxes it crosses.
+     */
+    private void assertRayQuery() {
+        double[] origin = {randomCoordinate(), randomCoordinate(), randomCoordinate()};
+        double[] direction = {random.nextGaussian(), random.nextGaussian(), random.nextGaussian()};
+        // Some rays parallel to an axis
+        if (random.nextInt(4) == 0) {
+            direction[random.nextInt(3)] = 0;
+        }
+        double maxDistance = random.nextBoolean() ? Double.POSITIVE_INFINITY : random.nextDouble() * WORLD;
+        List<Integer> result = new ArrayList<>();
+        tree.query(origin[0], origin[1], origin[2], direction[0], direction[1], direction[2], maxDistance, result);
+        Set<Integer> expected = new HashSet<>();
+        double[] boxes = tree.getBoxes();
+        for (int i = 0; i < PROXIES; i++) {
+            if (proxies[i] < 0) {
+                continue;
+            }
+            double distance = BoundingVolumeTree.intersectRay(boxes, tree.getBoxOffset(proxies[i]), origin[0],
+                    origin[1], origin[2], 1 / direction[0], 1 / direction[1], 1 / direction[2]);
+            if (distance <= maxDistance && distance != Double.POSITIVE_INFINITY) {
+                expected.add(i);
+            }
+        }
+        assertEquals(expected.size(), result.size());
+        assertEquals(expected, new HashSet<>(result));
+    }
+
+    /**
+     * Compare the query of a random frustum with the boxes that are not outside it.
+     */
+    private void assertFrustumQuery() {
+        Vector3d eye = new Vector3d(randomCoordinate(), randomCoordinate(), randomCoordinate());
+        Vector3d target = new Vector3d(randomCoordinate(), randomCoordinate(), randomCoordinate());
+        Matrix4d view = new Matrix4d();
+        Matrix4d projection = new Matrix4d();
+        MathUtils.lookAtLH(eye, target, MathUtils.UP, view);
+        MathUtils.perspectiveFovLH(0.3 + random.nextDouble(), 1.6, 0.1, 10 + random.nextDouble() * WORLD,
+                projection);
+        Matrix4d viewProjection = new Matrix4d();
+        viewProjection.mul(view, projection);
+        Frustum frustum = new Frustum();
+        frustum.set(viewProjection);
+        List<Integer> result = new ArrayList<>();
+        tree.query(frustum, result);
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < PROXIES; i++) {
+            if (proxies[i] >= 0 && frustum.classify(tree.getBoxes(), tree.getBoxOffset(proxies[i]))
+                    != Frustum.OUTSIDE) {
+                expected.add(i);
+            }
+        }
+        assertEquals(expected.size(), result.size());
+        assertEquals(expected, new HashSet<>(result));
+    }
+
+    private double[] randomBox() {
+        double[] box = new double[6];
+        for (int axis = 0; axis < 3; axis++) {
+            box[axis] = randomCoordinate();
+            box[axis + 3] = box[axis] + random.nextDouble() * 3;
+        }
+        return box;
+    }
+
+    private double randomCoordinate() {
+        return random.nextDouble() * WORLD;
+    }
+
+    private int countProxies() {
+        int count = 0;
+        for (int proxy : proxies) {
+            if (proxy >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int log2(int value) {
+        return 32 - Integer.numberOfLeadingZeros(value);
+    }
+}
@@ -0,0 +1,333 @@
+package com.davidmiguel.engine_3d.scene;
+
+import com.davidmiguel.engine_3d.meshes.Mesh;
+import com.davidmiguel.engine_3d.utils.FileUtils;
+import com.davidmiguel.engine_3d.utils.MathUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Vector3d;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Hits of the {@link RayCaster} against brute force over every triangle, with meshes and with a scene.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+public class RayCasterTest {
+
+    private static final String[] MESHES = {"Suzanne", "Torus", "UVSphere", "Cube", "Cone"};
+    private static final int RAYS = 1000;
+    /**
+     * The rays are tested in the space of every mesh, so the distances differ slightly from brute force.
+     */
+    private static final double EPSILON = 1e-6;
+
+    private Random random;
+    private Mesh[] meshes;
+
+    @Before
+    public void setUp() {
+        random = new Random(3);
+        meshes = new Mesh[8];
+        for (int i = 0; i < meshes.length; i++) {
+            meshes[i] = load(MESHES[i % MESHES.length]);
+            meshes[i].getPosition().set(random.nextGaussian() * 3, random.nextGaussian() * 3,
+                    random.nextGaussian() * 3);
+            meshes[i].getRotation().set(random.nextDouble() * 6, random.nextDouble() * 6, random.nextDouble() * 6);
+        }
+    }
+
+    @Test
+    public void raysMatchBruteForce() {
+        RayCaster rayCaster = new RayCaster(meshes);
+        assertEquals(meshes.length, rayCaster.getMeshCount());
+        List<Target> targets = targets(meshes);
+        RayHit hit = new RayHit();
+        int hits = 0;
+        for (int i = 0; i < RAYS; i++) {
+            double[] ray = randomRay();
+            boolean isHit = rayCaster.castRay(new Vector3d(ray[0], ray[1], ray[2]),
+                    new Vector3d(ray[3], ray[4], ray[5]), hit);
+            assertHit(targets, ray, isHit, hit);
+            if (isHit) {
+                assertSame(meshes[hit.getMeshIndex()], hit.getMesh());
+                assertNull(hit.getNode());
+                hits++;
+            }
+        }
+        // Both hits and misses are tested
+        assertTrue(hits > RAYS / 10 && hits < RAYS * 9 / 10);
+    }
+
+    @Test
+    public void batchedRaysMatchSingleRays() {
+        RayCaster rayCaster = new RayCaster(meshes);
+        // Enough rays to be split in several tasks
+        int count = 5000;
+        double[] rays = new double[6 * count];
+        RayHit[] hits = new RayHit[count];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(randomRay(), 0, rays, 6 * i, 6);
+            hits[i] = new RayHit();
+        }
+        int hitCount = rayCaster.castRays(rays, hits);
+        int expectedCount = 0;
+        RayHit hit = new RayHit();
+        for (int i = 0; i < count; i++) {
+            int r = 6 * i;
+            if (rayCaster.castRay(new Vector3d(rays[r], rays[r + 1], rays[r + 2]),
+                    new Vector3d(rays[r + 3], rays[r + 4], rays[r + 5]), hit)) {
+                expectedCount++;
+            }
+            assertEquals(hit.isHit(), hits[i].isHit());
+            assertEquals(hit.getMeshIndex(), hits[i].getMeshIndex());
+            assertEquals(hit.getFace(), hits[i].getFace());
+            assertEquals(hit.getDistance(), hits[i].getDistance(), 0);
+        }
+        assertEquals(expectedCount, hitCount);
+    }
+
+    @Test
+    public void movedMeshesAreFoundAfterUpdate() {
+        RayCaster rayCaster = new RayCaster(meshes);
+        for (Mesh mesh : meshes) {
+            mesh.getPosition().add(new Vector3d(random.nextGaussian(), random.nextGaussian(), 0));
+            mesh.getRotation().y += random.nextDouble();
+        }
+        rayCaster.update();
+        List<Target> targets = targets(meshes);
+        RayHit hit = new RayHit();
+        for (int i = 0; i < RAYS / 4; i++) {
+            double[] ray = randomRay();
+            assertHit(targets, ray, rayCaster.castRay(new Vector3d(ray[0], ray[1], ray[2]),
+                    new Vector3d(ray[3], ray[4], ray[5]), hit), hit);
+        }
+    }
+
+    @Test
+    public void sceneRaysMatchBruteForce() {
+        Scene scene = new Scene();
+        Mesh suzanne = load("Suzanne");
+        List<SceneNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            SceneNode node = new SceneNode("node" + i, suzanne);
+            node.setPosition(random.nextGaussian() * 4, random.nextGaussian() * 4, random.nextGaussian() * 4);
+            node.setRotation(random.nextDouble(), random.nextDouble() * 6, 0);
+            // Some nodes are children of others
+            if (i % 4 == 3) {
+                nodes.get(i - 1).addChild(node);
+            } else {
+                scene.add(node);
+            }
+            nodes.add(node);
+        }
+        scene.update();
+        RayCaster rayCaster = new RayCaster(scene);
+        assertEquals(nodes.size(), rayCaster.getMeshCount());
+        assertEquals(nodes.size() * (long) suzanne.getFaceCount(), rayCaster.getTriangleCount());
+        List<Target> targets = new ArrayList<>();
+        for (SceneNode node : nodes) {
+            targets.add(new Target(node.getMesh(), node, node.getWorldMatrix()));
+        }
+        RayHit hit = new RayHit();
+        for (int i = 0; i < RAYS / 2; i++) {
+            double[] ray = randomRay();
+            boolean isHit = rayCaster.castRay(new Vector3d(ray[0], ray[1], ray[2]),
+                    new Vector3d(ray[3], ray[4], ray[5]), hit);
+            assertHit(targets, ray, isHit, hit);
+            if (isHit) {
+                assertSame(suzanne, hit.getMesh());
+                assertEquals(-1, hit.getMeshIndex());
+            }
+        }
+    }
+
+    @Test
+    public void hitInterpolatesTheFace() {
+        Mesh suzanne = load("Suzanne");
+        RayCaster rayCaster = new RayCaster(suzanne);
+        List<Target> targets = targets(suzanne);
+        Vector3d origin = new Vector3d(0, 0, -5);
+        RayHit hit = rayCaster.castRay(origin, new Vector3d(0.05, 0.1, 1));
+        assertNotNull(hit);
+        // The hit point is at the barycentric coordinates of the face and at the distance along the ray
+        double[] triangle = targets.get(0).triangle(hit.getFace());
+        double u = hit.getBarycentricU();
+        double v = hit.getBarycentricV();
+        assertTrue(u >= 0 && v >= 0 && u + v <= 1);
+        for (int k = 0; k < 3; k++) {
+            double expected = (1 - u - v) * triangle[k] + u * triangle[3 + k] + v * triangle[6 + k];
+            assertEquals(expected, get(hit.getPoint(), k), EPSILON);
+        }
+        Vector3d toPoint = new Vector3d(hit.getPoint());
+        toPoint.sub(origin);
+        assertEquals(hit.getDistance(), toPoint.length(), EPSILON);
+        // The texture coordinates are interpolated the same way
+        float[] uvs = suzanne.getUvs();
+        int[] indices = suzanne.getIndices();
+        int face = hit.getFace();
+        for (int k = 0; k < 2; k++) {
+            double expected = (1 - u - v) * uvs[2 * indices[3 * face] + k] + u * uvs[2 * indices[3 * face + 1] + k]
+                    + v * uvs[2 * indices[3 * face + 2] + k];
+            assertEquals(expected, k == 0 ? hit.getTextureU() : hit.getTextureV(), EPSILON);
+        }
+    }
+
+    @Test
+    public void missClearsTheHit() {
+        RayCaster rayCaster = new RayCaster(load("Suzanne"));
+        RayHit hit = new RayHit();
+        Vector3d origin = new Vector3d(0, 0, -5);
+        assertTrue(rayCaster.castRay(origin, new Vector3d(0, 0, 1), hit));
+        // Away from the mesh
+        assertFalse(rayCaster.castRay(origin, new Vector3d(0, 0, -1), hit));
+        assertFalse(hit.isHit());
+        assertEquals(-1, hit.getFace());
+        assertNull(hit.getMesh());
+        assertTrue(Double.isNaN(hit.getTextureU()));
+        assertNull(rayCaster.castRay(origin, new Vector3d(0, 1, 0)));
+        // No direction
+        assertNull(rayCaster.castRay(origin, new Vector3d()));
+        // Nothing to hit
+        assertNull(new RayCaster().castRay(origin, new Vector3d(0, 0, 1)));
+    }
+
+    /**
+     * Compare a hit with the nearest triangle crossed by the ray, among all the triangles. Near ties, another
+     * face can be reported, but at the same distance.
+     */
+    private static void assertHit(List<Target> targets, double[] ray, boolean isHit, RayHit hit) {
+        double length = Math.sqrt(ray[3] * ray[3] + ray[4] * ray[4] + ray[5] * ray[5]);
+        double[] direction = {ray[3] / length, ray[4] / length, ray[5] / length};
+        double nearest = Double.POSITIVE_INFINITY;
+        for (Target target : targets) {
+            for (int face = 0; face < target.mesh.getFaceCount(); face++) {
+                nearest = Math.min(nearest, intersect(target.triangle(face), ray, direction));
+            }
+        }
+        assertEquals(nearest != Double.POSITIVE_INFINITY, isHit);
+        assertEquals(isHit, hit.isHit());
+        if (!isHit) {
+            return;
+        }
+        assertEquals(nearest, hit.getDistance(), EPSILON);
+        // The reported face is crossed at that distance
+        Target target = null;
+        for (Target candidate : targets) {
+            if (candidate.mesh == hit.getMesh() && candidate.node == hit.getNode()
+                    && (hit.getMeshIndex() < 0 || candidate == targets.get(hit.getMeshIndex()))) {
+                target = candidate;
+            }
+        }
+        assertNotNull(target);
+        assertEquals(nearest, intersect(target.triangle(hit.getFace()), ray, direction), EPSILON);
+    }
+
+    /**
+     * Möller–Trumbore test of both sides of a triangle.
+     *
+     * @return distance along the ray, or infinity if it misses
+     */
+    private static double intersect(double[] t, double[] ray, double[] direction) {
+        double e1x = t[3] - t[0];
+        double e1y = t[4] - t[1];
+        double e1z = t[5] - t[2];
+        double e2x = t[6] - t[0];
+        double e2y = t[7] - t[1];
+        double e2z = t[8] - t[2];
+        double px = direction[1] * e2z - direction[2] * e2y;
+        double py = direction[2] * e2x - direction[0] * e2z;
+        double pz = direction[0] * e2y - direction[1] * e2x;
+        double determinant = e1x * px + e1y * py + e1z * pz;
+        if (determinant == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double sx = ray[0] - t[0];
+        double sy = ray[1] - t[1];
+        double sz = ray[2] - t[2];
+        double u = (sx * px + sy * py + sz * pz) / determinant;
+        double qx = sy * e1z - sz * e1y;
+        double qy = sz * e1x - sx * e1z;
+        double qz = sx * e1y - sy * e1x;
+        double v = (direction[0] * qx + direction[1] * qy + direction[2] * qz) / determinant;
+        double distance = (e2x * qx + e2y * qy + e2z * qz) / determinant;
+        if (u < 0 || v < 0 || u + v > 1 || distance < 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return distance;
+    }
+
+    /**
+     * Ray from around the meshes towards the origin (6 doubles: origin and direction).
+     */
+    private double[] randomRay() {
+        double[] ray = new double[6];
+        for (int k = 0; k < 3; k++) {
+            ray[k] = random.nextGaussian() * 8;
+            ray[3 + k] = -ray[k] + random.nextGaussian() * 3;
+        }
+        return ray;
+    }
+
+    private static List<Target> targets(Mesh... meshes) {
+        List<Target> targets = new ArrayList<>();
+        for (Mesh mesh : meshes) {
+            Matrix4d world = MathUtils.rotationYawPitchRoll(mesh.getRotation().y, mesh.getRotation().x,
+                    mesh.getRotation().z);
+            world.mul(MathUtils.translation(mesh.getPosition().x, mesh.getPosition().y, mesh.getPosition().z));
+            targets.add(new Target(mesh, null, world));
+        }
+        return targets;
+    }
+
+    private static double get(Vector3d vector, int axis) {
+        return axis == 0 ? vector.x : axis == 1 ? vector.y : vector.z;
+    }
+
+    private static Mesh load(String name) {
+        return FileUtils.parseMeshFromJSON(RayCasterTest.class.getResourceAsStream("/meshes/" + name + ".json"))[0];
+    }
+
+    /**
+     * Mesh placed in the world (row vectors: the world matrix goes after the positions).
+     */
+    private static class Target {
+
+        private final Mesh mesh;
+        private final SceneNode node;
+        private final Matrix4d world;
+
+        private Target(Mesh mesh, SceneNode node, Matrix4d world) {
+            this.mesh = mesh;
+            this.node = node;
+            this.world = new Matrix4d(world);
+        }
+
+        /**
+         * World coordinates of the three vertices of a face.
+         */
+        private double[] triangle(int face) {
+            float[] positions = mesh.getPositions();
+            int[] indices = mesh.getIndices();
+            double[] triangle = new double[9];
+            Matrix4d m = world;
+            for (int corner = 0; corner < 3; corner++) {
+                int i = 3 * indices[3 * face + corner];
+                double x = positions[i];
+                double y = positions[i + 1];
+                double z = positions[i + 2];
+                triangle[3 * corner] = x * m.m00 + y * m.m10 + z * m.m20 + m.m30;
+                triangle[3 * corner + 1] = x * m.m01 + y * m.m11 + z * m.m21 + m.m31;
+                triangle[3 * corner + 2] = x * m.m02 + y * m.m12 + z * m.m22 + m.m32;
+            }
+            return triangle;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.davidmiguel.engine_3d.scene;
+
+import com.davidmiguel.engine_3d.engine.Camera;
+import com.davidmiguel.engine_3d.engine.Engine;
+import com.davidmiguel.engine_3d.engine.ImageRenderTarget;
+import com.davidmiguel.engine_3d.engine.RenderMetrics;
+import com.davidmiguel.engine_3d.meshes.Mesh;
+import com.davidmiguel.engine_3d.utils.FileUtils;
+import com.davidmiguel.engine_3d.utils.MathUtils;
+import org.junit.Test;
+
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Vector3d;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * World matrices, picking and drawing of a {@link Scene}.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+public class SceneTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 200;
+
+    @Test
+    public void childWorldMatrixComposesItsParent() {
+        Scene scene = new Scene();
+        SceneNode parent = new SceneNode("parent");
+        SceneNode child = new SceneNode("child", suzanne());
+        parent.addChild(child);
+        scene.add(parent);
+        parent.setPosition(1, 2, 3);
+        parent.setRotation(0.3, 0.2, 0.1);
+        child.setPosition(0, 1, 0);
+        scene.update();
+        // Row vectors: local matrix of the child, then world matrix of the parent
+        Matrix4d parentWorld = new Matrix4d();
+        MathUtils.rotationYawPitchRoll(0.2, 0.3, 0.1, parentWorld);
+        parentWorld.mul(MathUtils.translation(1, 2, 3));
+        Matrix4d childWorld = MathUtils.translation(0, 1, 0);
+        childWorld.mul(parentWorld);
+        assertTrue(childWorld.epsilonEquals(child.getWorldMatrix(), 1e-12));
+        assertEquals(1, scene.getMeshCount());
+        // Moving the parent moves the child
+        double z = child.getWorldMatrix().m32;
+        parent.translate(0, 0, 1);
+        scene.update();
+        assertEquals(z + 1, child.getWorldMatrix().m32, 1e-12);
+        scene.getRoot().removeChild(parent);
+        scene.update();
+        assertEquals(0, scene.getMeshCount());
+    }
+
+    @Test
+    public void pickFindsTheNearestBox() {
+        Scene scene = grid(400);
+        scene.update();
+        Random random = new Random(5);
+        for (int i = 0; i < 500; i++) {
+            Vector3d origin = new Vector3d(random.nextGaussian() * 20, 3 + random.nextDouble() * 5, -10);
+            Vector3d direction = new Vector3d(random.nextGaussian(), -random.nextDouble(), 1);
+            SceneNode picked = scene.pick(origin, direction);
+            // Brute force over the world boxes (the boxes overlap, so several can be the nearest one)
+            double nearestDistance = Double.POSITIVE_INFINITY;
+            for (SceneNode node : scene.getRoot().getChildren()) {
+                nearestDistance = Math.min(nearestDistance, distance(node, origin, direction));
+            }
+            if (nearestDistance == Double.POSITIVE_INFINITY) {
+                assertNull(picked);
+            } else {
+                assertNotNull(picked);
+                assertEquals(nearestDistance, distance(picked, origin, direction), 0);
+            }
+        }
+    }
+
+    @Test
+    public void sceneIsDrawnLikeItsMeshes() {
+        int count = 200;
+        Scene scene = grid(count);
+        Mesh[] meshes = new Mesh[count];
+        int i = 0;
+        for (SceneNode node : scene.getRoot().getChildren()) {
+            Mesh source = node.getMesh();
+            Mesh mesh = new Mesh();
+            mesh.setGeometry(source.getPositions(), source.getNormals(), source.getUvs(), source.getIndices());
+            mesh.getPosition().set(node.getPosition());
+            mesh.getRotation().set(node.getRotation());
+            meshes[i++] = mesh;
+        }
+        Camera camera = new Camera(new Vector3d(0, 3, -10), new Vector3d(0, 0, 10));
+        for (boolean tiled : new boolean[]{false, true}) {
+            int[] sceneImage = draw(camera, tiled, scene, null);
+            int[] meshesImage = draw(camera, tiled, null, meshes);
+            assertTrue("Nothing drawn", IntStream.of(meshesImage).distinct().count() > 1);
+            assertArrayEquals("Tiled: " + tiled, meshesImage, sceneImage);
+        }
+    }
+
+    @Test
+    public void nodesKeepTheirLevelOfDetail() {
+        Mesh mesh = suzanne();
+        mesh.setLevelsOfDetail(firstFaces(mesh, 2), firstFaces(mesh, 4));
+        Camera camera = new Camera(new Vector3d(0, 0, -10), new Vector3d(0, 0, 0));
+        // Farthest distance where the mesh is drawn with the second level, unless it was drawn with the third
+        // one in the last frame (it keeps the third one until it gets a bit nearer)
+        double distance = 90;
+        while (levelAt(mesh, camera, distance, 0) == 2) {
+            distance--;
+        }
+        assertEquals(1, levelAt(mesh, camera, distance, 0));
+        assertEquals(2, levelAt(mesh, camera, distance, 2));
+
+        Scene scene = new Scene();
+        SceneNode far = new SceneNode("far", mesh);
+        SceneNode near = new SceneNode("near", mesh);
+        far.setPosition(0, 0, distance - 10);
+        near.setPosition(0, 0, 1000);
+        scene.add(far);
+        scene.add(near);
+        ImageRenderTarget target = new ImageRenderTarget(WIDTH, HEIGHT);
+        Engine engine = new Engine(target, WIDTH, HEIGHT);
+        far.setLodLevel(2);
+        // The nodes in view change from frame to frame, but each one keeps its level
+        for (int frame = 0; frame < 4; frame++) {
+            near.setPosition(0, 0, frame % 2 == 0 ? -4 : 1000);
+            engine.draw(camera, scene, Engine.RenderMode.SHADING);
+            assertEquals("Frame " + frame, 2, far.getLodLevel());
+            long faces = mesh.getLevel(2).getFaceCount() + (frame % 2 == 0 ? mesh.getFaceCount() : 0);
+            assertEquals("Frame " + frame, faces,
+                    engine.getMetrics().getLastCount(RenderMetrics.Counter.TRIANGLES_SUBMITTED));
+        }
+        assertEquals(0, near.getLodLevel());
+    }
+
+    private static double distance(SceneNode node, Vector3d origin, Vector3d direction) {
+        return BoundingVolumeTree.intersectRay(node.getWorldBounds(), 0, origin.x, origin.y, origin.z,
+                1 / direction.x, 1 / direction.y, 1 / direction.z);
+    }
+
+    private static int[] draw(Camera camera, boolean tiled, Scene scene, Mesh[] meshes) {
+        ImageRenderTarget target = new ImageRenderTarget(WIDTH, HEIGHT);
+        Engine engine = new Engine(target, WIDTH, HEIGHT);
+        engine.setTiledRendering(tiled);
+        try {
+            if (scene != null) {
+                engine.draw(camera, scene, Engine.RenderMode.SHADING);
+            } else {
+                engine.draw(camera, meshes, Engine.RenderMode.SHADING);
+            }
+            return target.getPixels().clone();
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    /**
+     * Level of detail a node drawn at a distance from the camera gets, if it was drawn with the given level
+     * in the last frame.
+     */
+    private static int levelAt(Mesh mesh, Camera camera, double distance, int lastLevel) {
+        Scene scene = new Scene();
+        SceneNode node = new SceneNode("node", mesh);
+        node.setPosition(0, 0, distance - 10);
+        node.setLodLevel(lastLevel);
+        scene.add(node);
+        new Engine(new ImageRenderTarget(WIDTH, HEIGHT), WIDTH, HEIGHT).draw(camera, scene,
+                Engine.RenderMode.SHADING);
+        return node.getLodLevel();
+    }
+
+    /**
+     * Mesh made of a part of the faces of another one.
+     */
+    private static Mesh firstFaces(Mesh mesh, int divisor) {
+        Mesh part = new Mesh();
+        part.setGeometry(mesh.getPositions(), mesh.getNormals(), mesh.getUvs(),
+                Arrays.copyOf(mesh.getIndices(), mesh.getFaceCount() / divisor * 3));
+        return part;
+    }
+
+    /**
+     * Nodes of Suzanne laid on a grid in front of the origin, all with different rotations.
+     */
+    private static Scene grid(int count) {
+        Mesh mesh = suzanne();
+        Scene scene = new Scene();
+        int side = (int) Math.ceil(Math.sqrt(count));
+        for (int i = 0; i < count; i++) {
+            SceneNode node = new SceneNode("node" + i, mesh);
+            node.setPosition((i % side - side / 2) * 3, -1, (i / side) * 3);
+            node.setRotation(0, i * 0.1, 0);
+            scene.add(node);
+        }
+        return scene;
+    }
+
+    private static Mesh suzanne() {
+        return FileUtils.parseMeshFromJSON(SceneTest.class.getResourceAsStream("/meshes/Suzanne.json"))[0];
+    }
+}
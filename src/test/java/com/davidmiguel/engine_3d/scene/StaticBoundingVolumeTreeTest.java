@@ -0,0 +1,150 @@
+package com.davidmiguel.engine_3d.scene;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Ray traversal of the {@link StaticBoundingVolumeTree} against brute force over the boxes of the primitives.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+public class StaticBoundingVolumeTreeTest {
+
+    private static final int PRIMITIVES = 3000;
+    private static final int RAYS = 500;
+    private static final int MAX_LEAF_SIZE = 8;
+    /**
+     * Side of the cube where the boxes are placed.
+     */
+    private static final double WORLD = 100;
+
+    private Random random;
+    /**
+     * Boxes of the primitives, in their original order (the build reorders the array it is given).
+     */
+    private double[] boxes;
+    private StaticBoundingVolumeTree tree;
+    private int[] stack;
+    private double[] distances;
+
+    @Before
+    public void setUp() {
+        random = new Random(11);
+        boxes = new double[6 * PRIMITIVES];
+        for (int i = 0; i < PRIMITIVES; i++) {
+            for (int axis = 0; axis < 3; axis++) {
+                boxes[6 * i + axis] = random.nextDouble() * WORLD;
+                boxes[6 * i + 3 + axis] = boxes[6 * i + axis] + random.nextDouble() * 3;
+            }
+        }
+        tree = new StaticBoundingVolumeTree(boxes.clone(), PRIMITIVES);
+        stack = new int[tree.getDepth() + 1];
+        distances = new double[tree.getDepth() + 1];
+    }
+
+    @Test
+    public void treeIsBalanced() {
+        assertEquals(PRIMITIVES, tree.getPrimitiveCount());
+        assertTrue(tree.getNodeCount() <= 2 * PRIMITIVES - 1);
+        assertTrue("Depth " + tree.getDepth(), tree.getDepth() <= 2 * log2(PRIMITIVES));
+    }
+
+    @Test
+    public void everyCrossedBoxIsVisitedOnce() {
+        for (int r = 0; r < RAYS; r++) {
+            double[] ray = randomRay();
+            Set<Integer> visited = new HashSet<>();
+            // No hits, so every crossed leaf is visited
+            double distance = tree.intersectRay(ray[0], ray[1], ray[2], 1 / ray[3], 1 / ray[4], 1 / ray[5],
+                    Double.POSITIVE_INFINITY, stack, distances, (primitive, maxDistance) -> {
+                        assertTrue("Primitive visited twice", visited.add(primitive));
+                        return maxDistance;
+                    });
+            assertEquals(Double.POSITIVE_INFINITY, distance, 0);
+            for (int i = 0; i < PRIMITIVES; i++) {
+                if (boxDistance(i, ray) != Double.POSITIVE_INFINITY) {
+                    assertTrue("Crossed box not visited", visited.contains(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void nearestHitMatchesBruteForce() {
+        int hits = 0;
+        for (int r = 0; r < RAYS; r++) {
+            double[] ray = randomRay();
+            double maxDistance = random.nextBoolean() ? Double.POSITIVE_INFINITY : random.nextDouble() * WORLD;
+            // Every primitive is hit where the ray enters its box
+            double distance = tree.intersectRay(ray[0], ray[1], ray[2], 1 / ray[3], 1 / ray[4], 1 / ray[5],
+                    maxDistance, stack, distances,
+                    (primitive, nearest) -> Math.min(nearest, boxDistance(primitive, ray)));
+            double expected = maxDistance;
+            for (int i = 0; i < PRIMITIVES; i++) {
+                expected = Math.min(expected, boxDistance(i, ray));
+            }
+            assertEquals(expected, distance, 0);
+            if (expected < maxDistance) {
+                hits++;
+            }
+        }
+        assertTrue(hits > RAYS / 10);
+    }
+
+    @Test
+    public void farLeavesAreSkipped() {
+        for (int r = 0; r < RAYS; r++) {
+            double[] ray = randomRay();
+            int[] visits = new int[1];
+            // The first primitive visited is hit right at the origin, so no other leaf can be nearer
+            tree.intersectRay(ray[0], ray[1], ray[2], 1 / ray[3], 1 / ray[4], 1 / ray[5],
+                    Double.POSITIVE_INFINITY, stack, distances, (primitive, maxDistance) -> {
+                        visits[0]++;
+                        return 0;
+                    });
+            assertTrue(visits[0] + " primitives visited", visits[0] <= MAX_LEAF_SIZE);
+        }
+    }
+
+    @Test
+    public void emptyTree() {
+        StaticBoundingVolumeTree empty = new StaticBoundingVolumeTree(new double[0], 0);
+        assertEquals(0, empty.getPrimitiveCount());
+        assertEquals(42, empty.intersectRay(0, 0, 0, 1, 1, 1, 42, new int[1], new double[1],
+                (primitive, maxDistance) -> {
+                    fail("Nothing to visit");
+                    return maxDistance;
+                }), 0);
+    }
+
+    /**
+     * Random ray through the world, some of them parallel to an axis (origin and direction).
+     */
+    private double[] randomRay() {
+        double[] ray = new double[6];
+        for (int axis = 0; axis < 3; axis++) {
+            ray[axis] = random.nextDouble() * WORLD;
+            ray[3 + axis] = random.nextGaussian();
+        }
+        if (random.nextInt(4) == 0) {
+            ray[3 + random.nextInt(3)] = 0;
+        }
+        return ray;
+    }
+
+    private double boxDistance(int primitive, double[] ray) {
+        return BoundingVolumeTree.intersectRay(boxes, 6 * primitive, ray[0], ray[1], ray[2], 1 / ray[3],
+                1 / ray[4], 1 / ray[5]);
+    }
+
+    private static int log2(int value) {
+        return 32 - Integer.numberOfLeadingZeros(value);
+    }
+}
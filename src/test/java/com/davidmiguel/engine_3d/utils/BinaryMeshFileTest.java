@@ -0,0 +1,149 @@
+package com.davidmiguel.engine_3d.utils;
+
+import com.davidmiguel.engine_3d.meshes.Mesh;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round trip of the binary mesh format, and rejection of truncated and corrupted files.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+public class BinaryMeshFileTest {
+
+    /**
+     * Offsets of the fields of the first mesh of a file.
+     */
+    private static final int VERTEX_COUNT_OFFSET = 16;
+    private static final int INDEX_COUNT_OFFSET = 20;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTripKeepsTheMeshes() throws IOException {
+        Mesh[] meshes = {suzanne(), quad()};
+        Mesh[] read = BinaryMeshFile.read(write(meshes));
+        assertEquals(meshes.length, read.length);
+        for (int m = 0; m < meshes.length; m++) {
+            assertSameMesh(meshes[m], read[m]);
+        }
+    }
+
+    @Test
+    public void roundTripOfNoMeshes() throws IOException {
+        assertEquals(0, BinaryMeshFile.read(write(new Mesh[0])).length);
+    }
+
+    @Test
+    public void truncatedFilesAreRejected() throws IOException {
+        byte[] bytes = Files.readAllBytes(write(new Mesh[]{quad()}));
+        for (int size = 0; size < bytes.length; size++) {
+            try {
+                BinaryMeshFile.read(ByteBuffer.wrap(bytes, 0, size).slice());
+                fail("File truncated to " + size + " of " + bytes.length + " bytes accepted");
+            } catch (IOException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void wrongMagicIsRejected() throws IOException {
+        BinaryMeshFile.read(corrupt(0, 0x12345678));
+    }
+
+    @Test(expected = IOException.class)
+    public void unknownVersionIsRejected() throws IOException {
+        BinaryMeshFile.read(corrupt(4, BinaryMeshFile.VERSION + 1));
+    }
+
+    @Test(expected = IOException.class)
+    public void negativeMeshCountIsRejected() throws IOException {
+        BinaryMeshFile.read(corrupt(8, -1));
+    }
+
+    @Test(expected = IOException.class)
+    public void negativeVertexCountIsRejected() throws IOException {
+        BinaryMeshFile.read(corrupt(VERTEX_COUNT_OFFSET, -3));
+    }
+
+    @Test(expected = IOException.class)
+    public void incompleteTriangleIsRejected() throws IOException {
+        BinaryMeshFile.read(corrupt(INDEX_COUNT_OFFSET, 5));
+    }
+
+    @Test(expected = IOException.class)
+    public void indexOutOfRangeIsRejected() throws IOException {
+        byte[] bytes = Files.readAllBytes(write(new Mesh[]{quad()}));
+        // The last index is the last 4 bytes of the file
+        BinaryMeshFile.read(corrupt(bytes, bytes.length - 4, quad().getVertexCount()));
+    }
+
+    @Test(expected = IOException.class)
+    public void emptyFileIsRejected() throws IOException {
+        BinaryMeshFile.read(Files.createFile(folder.getRoot().toPath().resolve("empty.e3dm")));
+    }
+
+    private Path write(Mesh[] meshes) throws IOException {
+        Path file = folder.newFile("meshes" + BinaryMeshFile.EXTENSION).toPath();
+        BinaryMeshFile.write(meshes, file);
+        return file;
+    }
+
+    private ByteBuffer corrupt(int offset, int value) throws IOException {
+        return corrupt(Files.readAllBytes(write(new Mesh[]{quad()})), offset, value);
+    }
+
+    private static ByteBuffer corrupt(byte[] bytes, int offset, int value) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(offset, value);
+        return buffer;
+    }
+
+    private static Mesh suzanne() {
+        return FileUtils.parseMeshFromJSON(BinaryMeshFileTest.class.getResourceAsStream("/meshes/Suzanne.json"))[0];
+    }
+
+    /**
+     * Two triangles without texture coordinates, but with the name of a texture.
+     */
+    private static Mesh quad() {
+        Mesh mesh = new Mesh();
+        mesh.setGeometry(new float[]{0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0},
+                new float[]{0, 0, -1, 0, 0, -1, 0, 0, -1, 0, 0, -1}, null, new int[]{0, 1, 2, 0, 2, 3});
+        mesh.getPosition().set(1, 2, 3);
+        mesh.getRotation().set(0.5, -0.25, 0);
+        mesh.setTextureName("quad.png");
+        return mesh;
+    }
+
+    private static void assertSameMesh(Mesh expected, Mesh actual) {
+        assertArrayEquals(expected.getPositions(), actual.getPositions(), 0);
+        assertArrayEquals(expected.getNormals(), actual.getNormals(), 0);
+        if (expected.getUvs() == null) {
+            assertNull(actual.getUvs());
+        } else {
+            assertArrayEquals(expected.getUvs(), actual.getUvs(), 0);
+        }
+        assertArrayEquals(expected.getIndices(), actual.getIndices());
+        assertEquals(expected.getTextureName(), actual.getTextureName());
+        // Stored as floats
+        assertEquals(expected.getPosition().x, actual.getPosition().x, 1e-6);
+        assertEquals(expected.getPosition().y, actual.getPosition().y, 1e-6);
+        assertEquals(expected.getPosition().z, actual.getPosition().z, 1e-6);
+        assertEquals(expected.getRotation().x, actual.getRotation().x, 1e-6);
+        assertEquals(expected.getRotation().y, actual.getRotation().y, 1e-6);
+        assertEquals(expected.getRotation().z, actual.getRotation().z, 1e-6);
+    }
+}
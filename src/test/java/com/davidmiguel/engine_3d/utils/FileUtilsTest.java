@@ -0,0 +1,168 @@
+package com.davidmiguel.engine_3d.utils;
+
+import com.davidmiguel.engine_3d.meshes.Mesh;
+import com.davidmiguel.engine_3d.meshes.Texture;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Parsing of babylon JSON files by {@link FileUtils}, against the tree of the same file read by Gson.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+public class FileUtilsTest {
+
+    private static final String[] MESHES = {"Cube", "UVSphere", "ICOSphere", "Cylinder", "Cone", "Torus", "Suzanne"};
+
+    @Test
+    public void meshesMatchTheirFiles() {
+        for (String name : MESHES) {
+            Mesh[] meshes = FileUtils.parseMeshFromJSON(open(name), false);
+            assertEquals(1, meshes.length);
+            assertMesh(name, tree(name).getAsJsonArray("meshes").get(0).getAsJsonObject(), meshes[0]);
+        }
+    }
+
+    @Test
+    public void everyMeshAndMaterialOfAFileIsRead() {
+        // Meshes before the materials, which are only resolved once the whole file is read
+        JsonObject file = new JsonObject();
+        JsonArray meshes = new JsonArray();
+        JsonArray materials = new JsonArray();
+        String[] names = {"Cube", "Suzanne", "Torus"};
+        for (String name : names) {
+            meshes.addAll(tree(name).getAsJsonArray("meshes"));
+        }
+        // Cube and Torus share the id of their material
+        materials.addAll(tree("Suzanne").getAsJsonArray("materials"));
+        materials.addAll(tree("Cube").getAsJsonArray("materials"));
+        file.add("meshes", meshes);
+        file.add("materials", materials);
+        Mesh[] parsed = FileUtils.parseMeshFromJSON(stream(file.toString()));
+        assertEquals(names.length, parsed.length);
+        for (int i = 0; i < names.length; i++) {
+            assertMesh(names[i], meshes.get(i).getAsJsonObject(), parsed[i]);
+            assertNotNull(names[i] + " without texture", parsed[i].getTexture());
+            parsed[i].dispose();
+        }
+        assertEquals("Suzanne.jpg", parsed[1].getTextureName());
+        assertEquals("texture.jpg", parsed[2].getTextureName());
+    }
+
+    @Test
+    public void unsupportedMeshesAreSkipped() {
+        JsonObject file = tree("Cube");
+        JsonArray meshes = file.getAsJsonArray("meshes");
+        JsonObject unsupported = tree("Cone").getAsJsonArray("meshes").get(0).getAsJsonObject();
+        unsupported.addProperty("uvCount", 3);
+        meshes.add(unsupported);
+        Mesh[] parsed = FileUtils.parseMeshFromJSON(stream(file.toString()), false);
+        assertEquals(1, parsed.length);
+        assertEquals(12, parsed[0].getFaceCount());
+    }
+
+    @Test
+    public void meshWithAnIndexOutOfRangeIsSkipped() {
+        JsonObject file = tree("Cube");
+        JsonArray meshes = file.getAsJsonArray("meshes");
+        JsonObject broken = tree("Cone").getAsJsonArray("meshes").get(0).getAsJsonObject();
+        JsonArray indices = broken.getAsJsonArray("indices");
+        // Past the last vertex (every vertex takes several numbers)
+        indices.set(indices.size() - 1, new JsonPrimitive(broken.getAsJsonArray("vertices").size()));
+        meshes.add(broken);
+        Mesh[] parsed = FileUtils.parseMeshFromJSON(stream(file.toString()), false);
+        assertEquals(1, parsed.length);
+        assertEquals(12, parsed[0].getFaceCount());
+    }
+
+    @Test
+    public void meshWithoutMaterialIsNotTextured() {
+        JsonObject file = tree("Cube");
+        file.getAsJsonArray("meshes").get(0).getAsJsonObject().addProperty("materialId", "Missing");
+        Mesh[] parsed = FileUtils.parseMeshFromJSON(stream(file.toString()));
+        assertEquals(1, parsed.length);
+        assertNull(parsed[0].getTexture());
+        assertNull(parsed[0].getTextureName());
+        // The texture coordinates are still read
+        assertNotNull(parsed[0].getUvs());
+    }
+
+    @Test
+    public void malformedFileGivesNoMeshes() {
+        String json = tree("Cube").toString();
+        assertEquals(0, FileUtils.parseMeshFromJSON(stream(json.substring(0, json.length() / 2)), false).length);
+        assertEquals(0, FileUtils.parseMeshFromJSON(stream("{\"meshes\": [1, 2]}"), false).length);
+    }
+
+    @Test
+    public void unreadableTextureLeavesTheMeshUntextured() {
+        // An image that cannot be decoded, or no image at all
+        assertNull(FileUtils.decodeTexture("broken.png", stream("not an image")));
+        assertNull(FileUtils.decodeTexture("missing.png", null));
+        JsonObject file = tree("Cube");
+        file.getAsJsonArray("materials").get(0).getAsJsonObject().getAsJsonObject("diffuseTexture")
+                .addProperty("name", "missing.png");
+        Mesh[] parsed = FileUtils.parseMeshFromJSON(stream(file.toString()));
+        assertEquals(1, parsed.length);
+        assertEquals(12, parsed[0].getFaceCount());
+        assertNull(parsed[0].getTexture());
+    }
+
+    @Test
+    public void textureIsDecoded() {
+        Texture texture = FileUtils.decodeTexture("texture.jpg",
+                FileUtilsTest.class.getResourceAsStream("/textures/texture.jpg"));
+        assertNotNull(texture);
+        assertTrue(texture.getWidth(0) > 1 && texture.getHeight(0) > 1);
+    }
+
+    /**
+     * Compare a parsed mesh with its entry of the file (vertices interleaved as position, normal and uv).
+     */
+    private static void assertMesh(String name, JsonObject expected, Mesh mesh) {
+        JsonArray vertices = expected.getAsJsonArray("vertices");
+        JsonArray indices = expected.getAsJsonArray("indices");
+        int step = expected.get("uvCount").getAsInt() == 0 ? 6 : 8;
+        assertEquals(name, vertices.size() / step, mesh.getVertexCount());
+        assertEquals(name, indices.size() / 3, mesh.getFaceCount());
+        for (int v = 0; v < mesh.getVertexCount(); v++) {
+            for (int k = 0; k < 3; k++) {
+                assertEquals(vertices.get(step * v + k).getAsFloat(), mesh.getPositions()[3 * v + k], 0);
+                assertEquals(vertices.get(step * v + 3 + k).getAsFloat(), mesh.getNormals()[3 * v + k], 0);
+            }
+            for (int k = 0; k < 2 && step == 8; k++) {
+                assertEquals(vertices.get(step * v + 6 + k).getAsFloat(), mesh.getUvs()[2 * v + k], 0);
+            }
+        }
+        for (int i = 0; i < 3 * mesh.getFaceCount(); i++) {
+            assertEquals(indices.get(i).getAsInt(), mesh.getIndices()[i]);
+        }
+        JsonArray position = expected.getAsJsonArray("position");
+        assertEquals(position.get(0).getAsDouble(), mesh.getPosition().x, 0);
+        assertEquals(position.get(1).getAsDouble(), mesh.getPosition().y, 0);
+        assertEquals(position.get(2).getAsDouble(), mesh.getPosition().z, 0);
+    }
+
+    private static JsonObject tree(String name) {
+        return new JsonParser().parse(new InputStreamReader(open(name), StandardCharsets.UTF_8)).getAsJsonObject();
+    }
+
+    private static InputStream open(String name) {
+        return FileUtilsTest.class.getResourceAsStream("/meshes/" + name + ".json");
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,285 @@
+package com.davidmiguel.engine_3d.utils;
+
+import com.davidmiguel.engine_3d.meshes.Mesh;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Simplification of meshes by the {@link MeshSimplifier}: the target is reached when the mesh allows it, no face
+ * is flipped and no hole is opened along the borders or the seams.
+ *
+ * @author davidmigloz
+ * @since 18/10/2026
+ */
+public class MeshSimplifierTest {
+
+    @Test
+    public void closedMeshReachesTheTarget() {
+        Mesh sphere = icosphere(3);
+        assertEquals(1280, sphere.getFaceCount());
+        for (double ratio : new double[]{0.5, 0.25, 0.1}) {
+            int target = (int) (sphere.getFaceCount() * ratio);
+            Mesh simplified = MeshSimplifier.simplify(sphere, target);
+            // Every collapse removes two faces
+            assertTrue(simplified.getFaceCount() + " faces for a target of " + target,
+                    simplified.getFaceCount() <= target && simplified.getFaceCount() >= target - 1);
+            assertNoFlippedFaces(sphere, simplified);
+            assertEquals(0, borderEdges(simplified).size());
+        }
+    }
+
+    @Test
+    public void simplifiedSphereStaysClose() {
+        Mesh simplified = MeshSimplifier.simplify(icosphere(3), 320);
+        // The remaining vertices are vertices of the unit sphere, and the faces do not cut deep into it
+        float[] positions = simplified.getPositions();
+        int[] indices = simplified.getIndices();
+        for (int face = 0; face < simplified.getFaceCount(); face++) {
+            double[] centroid = new double[3];
+            for (int corner = 0; corner < 3; corner++) {
+                for (int k = 0; k < 3; k++) {
+                    centroid[k] += positions[3 * indices[3 * face + corner] + k] / 3;
+                }
+            }
+            assertTrue(length(centroid) > 0.85);
+        }
+    }
+
+    @Test
+    public void seamsAreNotTorn() {
+        Mesh sphere = uvSphere(16, 32);
+        // The seam splits the vertices, but the surface is closed
+        assertEquals(0, borderEdges(sphere).size());
+        Mesh simplified = MeshSimplifier.simplify(sphere, sphere.getFaceCount() / 4);
+        assertTrue(simplified.getFaceCount() < sphere.getFaceCount() / 2);
+        assertEquals(0, borderEdges(simplified).size());
+        assertNoFlippedFaces(sphere, simplified);
+        assertVerticesKept(sphere, simplified);
+    }
+
+    @Test
+    public void suzanneKeepsItsBordersAndAttributes() {
+        Mesh suzanne = FileUtils.parseMeshFromJSON(
+                MeshSimplifierTest.class.getResourceAsStream("/meshes/Suzanne.json"))[0];
+        int target = suzanne.getFaceCount() / 2;
+        Mesh simplified = MeshSimplifier.simplify(suzanne, target);
+        assertTrue(simplified.getFaceCount() <= target);
+        // The borders (e.g. around the eyes) are locked, and no new one is opened
+        assertEquals(borderEdges(suzanne), borderEdges(simplified));
+        assertVerticesKept(suzanne, simplified);
+    }
+
+    @Test
+    public void originalMeshIsNotChanged() {
+        Mesh sphere = icosphere(2);
+        int[] indices = sphere.getIndices().clone();
+        float[] positions = sphere.getPositions().clone();
+        MeshSimplifier.simplify(sphere, 40);
+        assertArrayEquals(indices, sphere.getIndices());
+        assertArrayEquals(positions, sphere.getPositions(), 0);
+    }
+
+    /**
+     * All the faces of a sphere centered at the origin face the same side (outwards or inwards, depending on
+     * the winding) before and after the simplification.
+     */
+    private static void assertNoFlippedFaces(Mesh original, Mesh simplified) {
+        int side = (int) Math.signum(orientation(original, 0));
+        for (int face = 0; face < original.getFaceCount(); face++) {
+            assertEquals(side, (int) Math.signum(orientation(original, face)));
+        }
+        for (int face = 0; face < simplified.getFaceCount(); face++) {
+            assertEquals("Face " + face + " flipped", side, (int) Math.signum(orientation(simplified, face)));
+        }
+    }
+
+    /**
+     * Dot product of the normal of a face (by its winding) and its centroid.
+     */
+    private static double orientation(Mesh mesh, int face) {
+        float[] p = mesh.getPositions();
+        int a = 3 * mesh.getIndices()[3 * face];
+        int b = 3 * mesh.getIndices()[3 * face + 1];
+        int c = 3 * mesh.getIndices()[3 * face + 2];
+        double[] ab = {p[b] - p[a], p[b + 1] - p[a + 1], p[b + 2] - p[a + 2]};
+        double[] ac = {p[c] - p[a], p[c + 1] - p[a + 1], p[c + 2] - p[a + 2]};
+        double nx = ab[1] * ac[2] - ab[2] * ac[1];
+        double ny = ab[2] * ac[0] - ab[0] * ac[2];
+        double nz = ab[0] * ac[1] - ab[1] * ac[0];
+        return nx * (p[a] + p[b] + p[c]) + ny * (p[a + 1] + p[b + 1] + p[c + 1])
+                + nz * (p[a + 2] + p[b + 2] + p[c + 2]);
+    }
+
+    /**
+     * Edges (by the positions of their ends, whatever the vertices) used by a single face.
+     */
+    private static Set<String> borderEdges(Mesh mesh) {
+        Map<String, Integer> uses = new HashMap<>();
+        int[] indices = mesh.getIndices();
+        for (int face = 0; face < mesh.getFaceCount(); face++) {
+            for (int corner = 0; corner < 3; corner++) {
+                String a = position(mesh, indices[3 * face + corner]);
+                String b = position(mesh, indices[3 * face + (corner + 1) % 3]);
+                String edge = a.compareTo(b) < 0 ? a + "|" + b : b + "|" + a;
+                uses.merge(edge, 1, Integer::sum);
+            }
+        }
+        Set<String> borders = new HashSet<>();
+        for (Map.Entry<String, Integer> edge : uses.entrySet()) {
+            if (edge.getValue() == 1) {
+                borders.add(edge.getKey());
+            }
+        }
+        return borders;
+    }
+
+    /**
+     * Every vertex of the simplified mesh is a vertex of the original one, with the same position, normal and
+     * texture coordinates.
+     */
+    private static void assertVerticesKept(Mesh original, Mesh simplified) {
+        Set<String> vertices = new HashSet<>();
+        for (int v = 0; v < original.getVertexCount(); v++) {
+            vertices.add(vertex(original, v));
+        }
+        for (int v = 0; v < simplified.getVertexCount(); v++) {
+            assertTrue("Vertex " + v + " is new", vertices.contains(vertex(simplified, v)));
+        }
+    }
+
+    private static String position(Mesh mesh, int v) {
+        float[] p = mesh.getPositions();
+        return p[3 * v] + "," + p[3 * v + 1] + "," + p[3 * v + 2];
+    }
+
+    private static String vertex(Mesh mesh, int v) {
+        float[] n = mesh.getNormals();
+        String vertex = position(mesh, v) + "/" + n[3 * v] + "," + n[3 * v + 1] + "," + n[3 * v + 2];
+        float[] uvs = mesh.getUvs();
+        return uvs == null ? vertex : vertex + "/" + uvs[2 * v] + "," + uvs[2 * v + 1];
+    }
+
+    private static double length(double[] v) {
+        return Math.sqrt(v[0] * v[0] + v[1] * v[1] + v[2] * v[2]);
+    }
+
+    /**
+     * Unit sphere made by subdividing an icosahedron, with shared vertices (no seams).
+     */
+    private static Mesh icosphere(int subdivisions) {
+        double t = (1 + Math.sqrt(5)) / 2;
+        List<double[]> vertices = new ArrayList<>();
+        double[][] corners = {{-1, t, 0}, {1, t, 0}, {-1, -t, 0}, {1, -t, 0}, {0, -1, t}, {0, 1, t},
+                {0, -1, -t}, {0, 1, -t}, {t, 0, -1}, {t, 0, 1}, {-t, 0, -1}, {-t, 0, 1}};
+        for (double[] corner : corners) {
+            vertices.add(normalize(corner));
+        }
+        int[] faces = {0, 11, 5, 0, 5, 1, 0, 1, 7, 0, 7, 10, 0, 10, 11, 1, 5, 9, 5, 11, 4, 11, 10, 2, 10, 7, 6,
+                7, 1, 8, 3, 9, 4, 3, 4, 2, 3, 2, 6, 3, 6, 8, 3, 8, 9, 4, 9, 5, 2, 4, 11, 6, 2, 10, 8, 6, 7, 9, 8, 1};
+        for (int s = 0; s < subdivisions; s++) {
+            Map<Long, Integer> middles = new HashMap<>();
+            int[] subdivided = new int[4 * faces.length];
+            for (int f = 0; f < faces.length; f += 3) {
+                int a = faces[f];
+                int b = faces[f + 1];
+                int c = faces[f + 2];
+                int ab = middle(vertices, middles, a, b);
+                int bc = middle(vertices, middles, b, c);
+                int ca = middle(vertices, middles, c, a);
+                int[] four = {a, ab, ca, b, bc, ab, c, ca, bc, ab, bc, ca};
+                System.arraycopy(four, 0, subdivided, 4 * f, four.length);
+            }
+            faces = subdivided;
+        }
+        float[] positions = new float[3 * vertices.size()];
+        for (int v = 0; v < vertices.size(); v++) {
+            for (int k = 0; k < 3; k++) {
+                positions[3 * v + k] = (float) vertices.get(v)[k];
+            }
+        }
+        Mesh mesh = new Mesh();
+        mesh.setGeometry(positions, positions.clone(), null, faces);
+        return mesh;
+    }
+
+    private static int middle(List<double[]> vertices, Map<Long, Integer> middles, int a, int b) {
+        long key = ((long) Math.min(a, b) << 32) | Math.max(a, b);
+        Integer middle = middles.get(key);
+        if (middle == null) {
+            double[] pa = vertices.get(a);
+            double[] pb = vertices.get(b);
+            vertices.add(normalize(new double[]{pa[0] + pb[0], pa[1] + pb[1], pa[2] + pb[2]}));
+            middle = vertices.size() - 1;
+            middles.put(key, middle);
+        }
+        return middle;
+    }
+
+    private static double[] normalize(double[] v) {
+        double length = length(v);
+        return new double[]{v[0] / length, v[1] / length, v[2] / length};
+    }
+
+    /**
+     * Unit sphere of latitudes and longitudes with texture coordinates, so the vertices are split along the
+     * seam (the first and last longitudes) and at the poles.
+     */
+    private static Mesh uvSphere(int stacks, int slices) {
+        int columns = slices + 1;
+        int vertexCount = (stacks + 1) * columns;
+        float[] positions = new float[3 * vertexCount];
+        float[] uvs = new float[2 * vertexCount];
+        for (int i = 0; i <= stacks; i++) {
+            double theta = Math.PI * i / stacks;
+            for (int j = 0; j <= slices; j++) {
+                // Same position at both ends of the seam
+                double phi = 2 * Math.PI * (j % slices) / slices;
+                int v = i * columns + j;
+                positions[3 * v] = (float) (Math.sin(theta) * Math.cos(phi));
+                positions[3 * v + 1] = (float) Math.cos(theta);
+                positions[3 * v + 2] = (float) (Math.sin(theta) * Math.sin(phi));
+                if (i == 0 || i == stacks) {
+                    // Exactly the same position at the poles
+                    positions[3 * v] = 0;
+                    positions[3 * v + 2] = 0;
+                }
+                uvs[2 * v] = (float) j / slices;
+                uvs[2 * v + 1] = (float) i / stacks;
+            }
+        }
+        List<Integer> indices = new ArrayList<>();
+        for (int i = 0; i < stacks; i++) {
+            for (int j = 0; j < slices; j++) {
+                int a = i * columns + j;
+                int b = a + 1;
+                int c = a + columns;
+                int d = c + 1;
+                if (i != 0) {
+                    indices.add(a);
+                    indices.add(b);
+                    indices.add(c);
+                }
+                if (i != stacks - 1) {
+                    indices.add(b);
+                    indices.add(d);
+                    indices.add(c);
+                }
+            }
+        }
+        int[] faces = new int[indices.size()];
+        for (int i = 0; i < faces.length; i++) {
+            faces[i] = indices.get(i);
+        }
+        Mesh mesh = new Mesh();
+        mesh.setGeometry(positions, positions.clone(), uvs, faces);
+        return mesh;
+    }
+}